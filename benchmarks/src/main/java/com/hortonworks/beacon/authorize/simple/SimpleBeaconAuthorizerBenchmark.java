@@ -0,0 +1,78 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.authorize.simple;
+
+import com.hortonworks.beacon.authorize.BeaconAccessRequest;
+import com.hortonworks.beacon.authorize.BeaconActionTypes;
+import com.hortonworks.beacon.authorize.BeaconAuthorizationException;
+import com.hortonworks.beacon.authorize.BeaconResourceTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the authorization check done for every API request, with the default policy store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleBeaconAuthorizerBenchmark {
+
+    private SimpleBeaconAuthorizer authorizer;
+    private BeaconAccessRequest userRequest;
+    private BeaconAccessRequest groupRequest;
+
+    @Setup
+    public void setup() {
+        authorizer = new SimpleBeaconAuthorizer();
+        authorizer.init();
+        userRequest = new BeaconAccessRequest(EnumSet.of(BeaconResourceTypes.POLICY), "*", BeaconActionTypes.READ,
+                "beacon", Collections.singleton("hadoop"), "127.0.0.1");
+        groupRequest = new BeaconAccessRequest(EnumSet.of(BeaconResourceTypes.CLUSTER), "*",
+                BeaconActionTypes.UPDATE, "dpuser", Collections.singleton("ROLE_ADMIN"), "127.0.0.1");
+    }
+
+    @Benchmark
+    public boolean isAccessAllowedForUser() throws BeaconAuthorizationException {
+        return authorizer.isAccessAllowed(userRequest);
+    }
+
+    @Benchmark
+    public boolean isAccessAllowedForGroup() throws BeaconAuthorizationException {
+        return authorizer.isAccessAllowed(groupRequest);
+    }
+}
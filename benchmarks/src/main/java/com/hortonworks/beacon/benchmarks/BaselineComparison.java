@@ -0,0 +1,143 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files. Benchmarks are matched by name, mode and parameters, and a benchmark has
+ * regressed when its score is worse than the baseline score by more than the threshold. For throughput a lower
+ * score is worse, for the time based modes a higher one.
+ */
+final class BaselineComparison {
+
+    private static final String THROUGHPUT_MODE = "thrpt";
+
+    private BaselineComparison() {
+    }
+
+    /**
+     * Score of a single benchmark.
+     */
+    static final class Score {
+        private final String mode;
+        private final double score;
+        private final String unit;
+
+        Score(String mode, double score, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+
+        /**
+         * Change of this score relative to the baseline in percent, positive when this score is worse.
+         */
+        double getRegression(Score baseline) {
+            if (baseline.score == 0) {
+                return 0;
+            }
+            double change = (score - baseline.score) / baseline.score * 100;
+            return THROUGHPUT_MODE.equals(mode) ? -change : change;
+        }
+    }
+
+    /**
+     * Compares the results with the baseline and prints a report.
+     * @return the keys of the benchmarks that regressed by more than the threshold
+     */
+    static List<String> compare(File baselineFile, File resultFile, double thresholdPercent, PrintStream out)
+            throws IOException {
+        Map<String, Score> baseline = read(baselineFile);
+        Map<String, Score> results = read(resultFile);
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Score> entry : results.entrySet()) {
+            Score result = entry.getValue();
+            Score base = baseline.get(entry.getKey());
+            if (base == null) {
+                out.println(String.format("NEW        %s: %.3f %s", entry.getKey(), result.score, result.unit));
+                continue;
+            }
+            double regression = result.getRegression(base);
+            boolean regressed = regression > thresholdPercent;
+            if (regressed) {
+                regressions.add(entry.getKey());
+            }
+            out.println(String.format("%-10s %s: %.3f -> %.3f %s (%.1f%% %s)", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), base.score, result.score, result.unit, Math.abs(regression),
+                    regression > 0 ? "worse" : "better"));
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                out.println("MISSING    " + key);
+            }
+        }
+        return regressions;
+    }
+
+    static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            JsonArray results = new JsonParser().parse(reader).getAsJsonArray();
+            for (JsonElement element : results) {
+                JsonObject result = element.getAsJsonObject();
+                String mode = result.get("mode").getAsString();
+                JsonObject primaryMetric = result.getAsJsonObject("primaryMetric");
+                scores.put(getKey(result, mode), new Score(mode, primaryMetric.get("score").getAsDouble(),
+                        primaryMetric.get("scoreUnit").getAsString()));
+            }
+        }
+        return scores;
+    }
+
+    private static String getKey(JsonObject result, String mode) {
+        StringBuilder key = new StringBuilder(result.get("benchmark").getAsString()).append(" [").append(mode);
+        JsonObject params = result.getAsJsonObject("params");
+        if (params != null) {
+            Map<String, String> sorted = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> param : params.entrySet()) {
+                sorted.put(param.getKey(), param.getValue().getAsString());
+            }
+            for (Map.Entry<String, String> param : sorted.entrySet()) {
+                key.append(", ").append(param.getKey()).append('=').append(param.getValue());
+            }
+        }
+        return key.append(']').toString();
+    }
+}
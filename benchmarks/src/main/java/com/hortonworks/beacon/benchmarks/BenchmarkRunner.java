@@ -0,0 +1,133 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.benchmarks;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Runs the beacon microbenchmarks and writes the results in JMH's JSON format. When a baseline result file is
+ * given, the results are compared against it and the runner exits with status 1 if any benchmark regressed by more
+ * than the threshold. A baseline is simply the result file of an earlier run.
+ */
+public final class BenchmarkRunner {
+
+    private static final String INCLUDE = "include";
+    private static final String RESULT = "result";
+    private static final String BASELINE = "baseline";
+    private static final String COMPARE = "compare";
+    private static final String THRESHOLD = "threshold";
+    private static final String FORKS = "forks";
+    private static final String WARMUPS = "warmups";
+    private static final String ITERATIONS = "iterations";
+    private static final String PARAM = "param";
+
+    private static final String DEFAULT_INCLUDE = "com.hortonworks.beacon.*|org.apache.hadoop.tools.*";
+    private static final String DEFAULT_RESULT = "beacon-benchmarks.json";
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    private BenchmarkRunner() {
+    }
+
+    private static Options getOptions() {
+        Options options = new Options();
+        options.addOption(new Option(INCLUDE, true, "Regex of the benchmarks to run, all by default"));
+        options.addOption(new Option(RESULT, true, "JSON result file, " + DEFAULT_RESULT + " by default"));
+        options.addOption(new Option(BASELINE, true, "JSON result file of an earlier run to compare against"));
+        options.addOption(new Option(COMPARE, true,
+                "Compare this JSON result file against the baseline instead of running the benchmarks"));
+        options.addOption(new Option(THRESHOLD, true,
+                "Regression threshold in percent, " + DEFAULT_THRESHOLD_PERCENT + " by default"));
+        options.addOption(new Option(FORKS, true, "Number of forks per benchmark"));
+        options.addOption(new Option(WARMUPS, true, "Number of warmup iterations per benchmark"));
+        options.addOption(new Option(ITERATIONS, true, "Number of measurement iterations per benchmark"));
+        options.addOption(new Option(PARAM, true,
+                "Benchmark parameter values as name=value1,value2, overriding the defaults; can be repeated"));
+        return options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = getOptions();
+        CommandLine cmd;
+        try {
+            cmd = new GnuParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("java -jar beacon-benchmarks.jar", options);
+            System.exit(2);
+            return;
+        }
+
+        File result = new File(cmd.getOptionValue(RESULT, DEFAULT_RESULT));
+        if (cmd.hasOption(COMPARE)) {
+            result = new File(cmd.getOptionValue(COMPARE));
+        } else {
+            ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .include(cmd.getOptionValue(INCLUDE, DEFAULT_INCLUDE))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath());
+            if (cmd.hasOption(FORKS)) {
+                builder.forks(Integer.parseInt(cmd.getOptionValue(FORKS)));
+            }
+            if (cmd.hasOption(WARMUPS)) {
+                builder.warmupIterations(Integer.parseInt(cmd.getOptionValue(WARMUPS)));
+            }
+            if (cmd.hasOption(ITERATIONS)) {
+                builder.measurementIterations(Integer.parseInt(cmd.getOptionValue(ITERATIONS)));
+            }
+            if (cmd.hasOption(PARAM)) {
+                for (String param : cmd.getOptionValues(PARAM)) {
+                    String[] nameAndValues = param.split("=", 2);
+                    if (nameAndValues.length != 2) {
+                        System.err.println("Invalid benchmark parameter: " + param);
+                        System.exit(2);
+                    }
+                    builder.param(nameAndValues[0], nameAndValues[1].split(","));
+                }
+            }
+            new Runner(builder.build()).run();
+        }
+
+        if (cmd.hasOption(BASELINE)) {
+            double threshold = cmd.hasOption(THRESHOLD)
+                    ? Double.parseDouble(cmd.getOptionValue(THRESHOLD)) : DEFAULT_THRESHOLD_PERCENT;
+            List<String> regressions = BaselineComparison.compare(new File(cmd.getOptionValue(BASELINE)), result,
+                    threshold, System.out);
+            if (!regressions.isEmpty()) {
+                System.out.println(regressions.size() + " benchmark(s) regressed by more than " + threshold + "%");
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.entity.util;
+
+import com.hortonworks.beacon.exceptions.BeaconException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the base listing lookup behind EncryptionZoneListing.getBaseEncryptedPath and
+ * SnapshotListing.isSnapshottable, against an in-memory listing instead of the cluster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FSListingBenchmark {
+
+    private static final String CLUSTER = "source";
+    private static final String FS_ENDPOINT = "hdfs://localhost:8020";
+
+    @Param({"10", "10000"})
+    private int zones;
+
+    private InMemoryListing listing;
+    private String encryptedPath;
+    private String plainPath;
+
+    /**
+     * Listing of encryption zones /data/zone{i}/ without a cluster behind it.
+     */
+    private static final class InMemoryListing extends FSListing<String> {
+        private final int zones;
+
+        private InMemoryListing(int zones) {
+            this.zones = zones;
+        }
+
+        @Override
+        protected PathTrie<String> getListing(String clusterName, String fsEndPoint) {
+            PathTrie.Builder<String> builder = new PathTrie.Builder<>();
+            for (int i = 0; i < zones; i++) {
+                builder.put("/data/zone" + i + "/", "key" + i);
+            }
+            return builder.build();
+        }
+
+        @Override
+        protected String getBaseListing(String clusterName, String pathToCheck) {
+            return getListing(clusterName).getLongestPrefix(pathToCheck);
+        }
+
+        @Override
+        protected int getRefreshFrequency() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    @Setup
+    public void setup() throws BeaconException {
+        listing = new InMemoryListing(zones);
+        listing.updateListing(CLUSTER, FS_ENDPOINT, "/");
+        encryptedPath = FS_ENDPOINT + "/data/zone" + (zones / 2) + "/warehouse/db1.db/table1";
+        plainPath = FS_ENDPOINT + "/apps/hive/warehouse/db1.db/table1";
+    }
+
+    @Benchmark
+    public String getBaseListingMatch() throws BeaconException {
+        return listing.getBaseListing(CLUSTER, FS_ENDPOINT, encryptedPath);
+    }
+
+    @Benchmark
+    public String getBaseListingNoMatch() throws BeaconException {
+        return listing.getBaseListing(CLUSTER, FS_ENDPOINT, plainPath);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.job;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the job context serialization done on every job transition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JobContextBenchmark {
+
+    @Param({"2", "32"})
+    private int contextEntries;
+
+    private JobContext jobContext;
+    private String contextData;
+    private JobContext nextJobContext;
+    private String encodedData;
+    private String previousEncodedData;
+
+    @Setup
+    public void setup() {
+        jobContext = new JobContext();
+        jobContext.setJobInstanceId("/NYC/source/fsRepl/0/1490791/0001@1");
+        jobContext.setOffset(1);
+        for (int i = 0; i < contextEntries; i++) {
+            jobContext.getJobContextMap().put("key" + i, "value-" + i);
+        }
+        jobContext.setQueryId("hive_20180101000000_0f8a3c2e-5b7d-4b1e-9d0a-2c1f6e3b4a5d");
+        contextData = jobContext.toString();
+
+        // The next job of the instance changes a couple of entries on top of the context it was loaded with.
+        JobContext previousJobContext = JobContextCodec.decode(contextData, null);
+        previousEncodedData = JobContextCodec.encode(previousJobContext);
+        nextJobContext = JobContextCodec.decode(previousEncodedData, null);
+        nextJobContext.setOffset(2);
+        nextJobContext.removeQueryId();
+        nextJobContext.getJobContextMap().put("endTime", String.valueOf(System.currentTimeMillis()));
+        encodedData = JobContextCodec.encode(nextJobContext);
+    }
+
+    @Benchmark
+    public JobContext parseJobContext() {
+        return JobContext.parseJobContext(contextData);
+    }
+
+    @Benchmark
+    public String jobContextToString() {
+        return jobContext.toString();
+    }
+
+    @Benchmark
+    public String encodeDelta() {
+        return JobContextCodec.encode(nextJobContext);
+    }
+
+    @Benchmark
+    public JobContext decodeDelta() {
+        return JobContextCodec.decode(encodedData, JobContextCodec.decode(previousEncodedData, null));
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.metrics;
+
+import com.hortonworks.beacon.metrics.util.ReplicationMetricsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the replication metrics (tracking info) conversion done on every progress update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplicationMetricsBenchmark {
+
+    @Param({"1", "2"})
+    private int jobs;
+
+    private List<ReplicationMetrics> metricsList;
+    private String trackingInfo;
+
+    @Setup
+    public void setup() {
+        metricsList = new ArrayList<>();
+        for (int i = 0; i < jobs; i++) {
+            Progress progress = new Progress();
+            progress.setTotal(1000);
+            progress.setCompleted(500);
+            progress.setUnit(ProgressUnit.MAPTASKS.getName());
+            progress.setFilesCopied(10000L);
+            progress.setBytesCopied(1L << 30);
+            progress.setTimeTaken(60000L);
+            ReplicationMetrics metrics = new ReplicationMetrics();
+            metrics.updateReplicationMetricsDetails("job_1514764800000_000" + i,
+                    i == 0 ? ReplicationMetrics.JobType.MAIN : ReplicationMetrics.JobType.RECOVERY, progress);
+            metricsList.add(metrics);
+        }
+        trackingInfo = ReplicationMetricsUtils.toJsonString(metricsList);
+    }
+
+    @Benchmark
+    public List<ReplicationMetrics> getListOfReplicationMetrics() {
+        return ReplicationMetricsUtils.getListOfReplicationMetrics(trackingInfo);
+    }
+
+    @Benchmark
+    public String toJsonString() {
+        return ReplicationMetricsUtils.toJsonString(metricsList);
+    }
+}
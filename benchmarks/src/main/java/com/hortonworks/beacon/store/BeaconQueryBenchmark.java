@@ -0,0 +1,291 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.store;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the latency of the hot policy, instance and event lookups on an embedded Derby database, with the
+ * indexes of schema 1.1.3 and with the composite indexes added by schema 1.1.4. The tables and indexes are those of
+ * tables_derby.sql, read from the directory of the beacon.schemadirectory system property. The lookups run the SQL
+ * the named queries of PolicyBean, PolicyInstanceBean and the events API translate to. Loading the tables takes a
+ * while for large sizes; for example, with 10M instances:
+ * <pre>
+ * java -Dbeacon.schemadirectory=src/sql -jar beacon-benchmarks.jar -include BeaconQueryBenchmark \
+ *     -param instances=10000000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class BeaconQueryBenchmark {
+
+    private static final int INSTANCES_PER_POLICY = 1000;
+    private static final int BATCH_SIZE = 10000;
+    private static final long START = 1514764800000L;
+    private static final long FREQUENCY_MILLIS = 3600000L;
+    private static final String[] STATUSES = {"SUCCEEDED", "SUCCEEDED", "SUCCEEDED", "FAILED", "SKIPPED"};
+
+    private static final String SCHEMA_DIRECTORY = System.getProperty("beacon.schemadirectory", "../src/sql");
+    private static final String CREATE_INDEX = "CREATE INDEX ";
+
+    // Prefix indexes of schema 1.1.3 that tables_derby_1.1.4.sql drops, so no schema file creates them any more.
+    private static final String[] SCHEMA_1_1_3_DROPPED_INDEXES = {
+        "CREATE INDEX IDX_BEACON_PL_INS_PID_ST ON BEACON_POLICY_INSTANCE(POLICY_ID, STATUS)",
+        "CREATE INDEX IDX_BEACON_PL_INS_PID_SRT ON BEACON_POLICY_INSTANCE(POLICY_ID, START_TIME)",
+        "CREATE INDEX IDX_BEACON_PL_PNAME ON BEACON_POLICY(NAME)",
+        "CREATE INDEX IDX_BEACON_PL_SC ON BEACON_POLICY(SOURCE_CLUSTER)",
+    };
+
+    @Param({"100000"})
+    private int instances;
+
+    @Param({"1.1.3", "1.1.4"})
+    private String schema;
+
+    private File dbDir;
+    private Connection connection;
+    private PreparedStatement activePolicy;
+    private PreparedStatement recentInstances;
+    private PreparedStatement instanceForRerun;
+    private PreparedStatement failedInstances;
+    private PreparedStatement selectPolicyInstances;
+    private PreparedStatement policyEvents;
+    private PreparedStatement runningInstances;
+    private int policies;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        dbDir = Files.createTempDirectory("beacon-query-benchmark").toFile();
+        connection = DriverManager.getConnection("jdbc:derby:" + new File(dbDir, "db").getAbsolutePath()
+                + ";create=true");
+        policies = Math.max(1, instances / INSTANCES_PER_POLICY);
+        List<String> indexes = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            for (String query : getQueries("tables_derby.sql")) {
+                if (query.startsWith(CREATE_INDEX)) {
+                    indexes.add(query);
+                } else {
+                    statement.execute(query);
+                }
+            }
+        }
+        if ("1.1.3".equals(schema)) {
+            indexes.removeAll(getQueries("tables_derby_1.1.4.sql"));
+            indexes.addAll(Arrays.asList(SCHEMA_1_1_3_DROPPED_INDEXES));
+        }
+        // The indexes are built once the tables are loaded, which is a lot faster than maintaining them on insert.
+        load();
+        try (Statement statement = connection.createStatement()) {
+            for (String index : indexes) {
+                statement.execute(index);
+            }
+        }
+
+        activePolicy = connection.prepareStatement(
+                "SELECT * FROM BEACON_POLICY WHERE NAME = ? AND RETIREMENT_TIME IS NULL");
+        recentInstances = connection.prepareStatement("SELECT * FROM BEACON_POLICY_INSTANCE WHERE POLICY_ID = ? "
+                + "ORDER BY START_TIME DESC FETCH FIRST 10 ROWS ONLY");
+        instanceForRerun = connection.prepareStatement("SELECT ID, CURRENT_OFFSET, STATUS "
+                + "FROM BEACON_POLICY_INSTANCE WHERE POLICY_ID = ? AND STATUS <> 'SKIPPED' "
+                + "ORDER BY START_TIME DESC FETCH FIRST 1 ROWS ONLY");
+        failedInstances = connection.prepareStatement("SELECT * FROM BEACON_POLICY_INSTANCE "
+                + "WHERE POLICY_ID = ? AND STATUS = 'FAILED' ORDER BY END_TIME DESC FETCH FIRST 1 ROWS ONLY");
+        selectPolicyInstances = connection.prepareStatement("SELECT COUNT(*) FROM BEACON_POLICY_INSTANCE "
+                + "WHERE POLICY_ID = ? AND RETIREMENT_TIME IS NULL");
+        policyEvents = connection.prepareStatement("SELECT * FROM BEACON_EVENT WHERE POLICY_ID IN "
+                + "(SELECT ID FROM BEACON_POLICY WHERE NAME = ?) AND EVENT_TIMESTAMP BETWEEN ? AND ? "
+                + "ORDER BY EVENT_TIMESTAMP DESC FETCH FIRST 10 ROWS ONLY");
+        runningInstances = connection.prepareStatement("SELECT * FROM BEACON_POLICY_INSTANCE "
+                + "WHERE STATUS = 'RUNNING' AND RETIREMENT_TIME IS NULL");
+    }
+
+    /**
+     * Reads the statements of a schema file the way BeaconDBSetup does.
+     */
+    private static List<String> getQueries(String sqlFile) throws IOException {
+        List<String> queries = new ArrayList<>();
+        StringBuilder sqlBuilder = new StringBuilder();
+        for (String line : FileUtils.readLines(new File(SCHEMA_DIRECTORY, sqlFile), StandardCharsets.UTF_8)) {
+            if (!line.startsWith("--")) {
+                sqlBuilder.append(line).append(' ');
+            }
+        }
+        for (String query : sqlBuilder.toString().split(";")) {
+            if (StringUtils.isNotBlank(query)) {
+                queries.add(query.trim().replaceAll("\\s+", " "));
+            }
+        }
+        return queries;
+    }
+
+    private void load() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement policy = connection.prepareStatement("INSERT INTO BEACON_POLICY "
+                + "(ID, NAME, VERSION, STATUS, TYPE, SOURCE_CLUSTER, TARGET_CLUSTER) VALUES (?, ?, 1, 'RUNNING', "
+                + "'FS', 'source', 'target')")) {
+            for (int p = 0; p < policies; p++) {
+                policy.setString(1, policyId(p));
+                policy.setString(2, "policy" + p);
+                policy.addBatch();
+            }
+            policy.executeBatch();
+        }
+        try (PreparedStatement instance = connection.prepareStatement("INSERT INTO BEACON_POLICY_INSTANCE "
+                + "(ID, POLICY_ID, START_TIME, END_TIME, STATUS, RUN_COUNT, CURRENT_OFFSET) "
+                + "VALUES (?, ?, ?, ?, ?, 0, 0)");
+             PreparedStatement event = connection.prepareStatement("INSERT INTO BEACON_EVENT "
+                + "(POLICY_ID, INSTANCE_ID, EVENT_ENTITY_TYPE, EVENT_ID, EVENT_SEVERITY, EVENT_TIMESTAMP, "
+                + "EVENT_MESSAGE) VALUES (?, ?, 'policyinstance', 3, 'INFO', ?, 'Policy instance completed')")) {
+            for (int i = 0; i < instances; i++) {
+                int p = i % policies;
+                long startTime = START + (i / policies) * FREQUENCY_MILLIS;
+                String instanceId = policyId(p) + "@" + (i / policies);
+                instance.setString(1, instanceId);
+                instance.setString(2, policyId(p));
+                instance.setTimestamp(3, new Timestamp(startTime));
+                instance.setTimestamp(4, new Timestamp(startTime + 60000));
+                instance.setString(5, STATUSES[i % STATUSES.length]);
+                instance.addBatch();
+                event.setString(1, policyId(p));
+                event.setString(2, instanceId);
+                event.setTimestamp(3, new Timestamp(startTime + 60000));
+                event.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    instance.executeBatch();
+                    event.executeBatch();
+                    connection.commit();
+                }
+            }
+            instance.executeBatch();
+            event.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+    }
+
+    private static String policyId(int policy) {
+        return "/source/source/target/policy" + policy + "/0/1514764800000/000000001";
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        try {
+            connection.close();
+            DriverManager.getConnection("jdbc:derby:;shutdown=true");
+        } catch (SQLException e) {
+            // Derby reports a successful shutdown with an exception.
+        }
+        FileUtils.deleteDirectory(dbDir);
+    }
+
+    private static void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getObject(1));
+            }
+        }
+    }
+
+    private int nextPolicy() {
+        return random.nextInt(policies);
+    }
+
+    @Benchmark
+    public void getActivePolicy(Blackhole blackhole) throws SQLException {
+        activePolicy.setString(1, "policy" + nextPolicy());
+        consume(activePolicy, blackhole);
+    }
+
+    @Benchmark
+    public void getInstanceRecent(Blackhole blackhole) throws SQLException {
+        recentInstances.setString(1, policyId(nextPolicy()));
+        consume(recentInstances, blackhole);
+    }
+
+    @Benchmark
+    public void getInstanceForRerun(Blackhole blackhole) throws SQLException {
+        instanceForRerun.setString(1, policyId(nextPolicy()));
+        consume(instanceForRerun, blackhole);
+    }
+
+    @Benchmark
+    public void getInstanceFailed(Blackhole blackhole) throws SQLException {
+        failedInstances.setString(1, policyId(nextPolicy()));
+        consume(failedInstances, blackhole);
+    }
+
+    @Benchmark
+    public void selectPolicyInstance(Blackhole blackhole) throws SQLException {
+        selectPolicyInstances.setString(1, policyId(nextPolicy()));
+        consume(selectPolicyInstances, blackhole);
+    }
+
+    @Benchmark
+    public void getEventsByPolicyAndTime(Blackhole blackhole) throws SQLException {
+        long from = START + random.nextInt(INSTANCES_PER_POLICY) * FREQUENCY_MILLIS;
+        policyEvents.setString(1, "policy" + nextPolicy());
+        policyEvents.setTimestamp(2, new Timestamp(from));
+        policyEvents.setTimestamp(3, new Timestamp(from + 24 * FREQUENCY_MILLIS));
+        consume(policyEvents, blackhole);
+    }
+
+    @Benchmark
+    public void selectInstanceRunning(Blackhole blackhole) throws SQLException {
+        consume(runningInstances, blackhole);
+    }
+}
@@ -46,6 +46,12 @@ public class PolicyInstanceList {
     @XmlElement
     private int results;
 
+    @XmlElement
+    private boolean exactTotal;
+
+    @XmlElement
+    private String nextToken;
+
     /**
      * Summary of an Policy Instance.
      */
@@ -85,9 +91,16 @@ public class PolicyInstanceList {
     }
 
     public PolicyInstanceList(List<InstanceElement> elements, long totalCount) {
+        this(elements, totalCount, true, null);
+    }
+
+    public PolicyInstanceList(List<InstanceElement> elements, long totalCount, boolean exactTotal,
+                              String nextToken) {
         this.totalResults = totalCount;
         this.elements = elements.toArray(new InstanceElement[elements.size()]);
         this.results = elements.size();
+        this.exactTotal = exactTotal;
+        this.nextToken = nextToken;
     }
 
 
@@ -99,6 +112,20 @@ public class PolicyInstanceList {
         return results;
     }
 
+    /**
+     * @return false if totalResults is only estimated from the instances listed so far
+     */
+    public boolean isExactTotal() {
+        return exactTotal;
+    }
+
+    /**
+     * @return token to list the next page after this one, null if there is no next page or the order doesn't allow it
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
     public InstanceElement[] getElements() {
         return Arrays.copyOf(elements, elements.length);
     }
@@ -44,6 +44,12 @@ public class PolicyList {
     @XmlElement
     private long results;
 
+    @XmlElement
+    private boolean exactTotal;
+
+    @XmlElement
+    private String nextToken;
+
     public long getTotalResults() {
         return totalResults;
     }
@@ -52,6 +58,20 @@ public class PolicyList {
         return results;
     }
 
+    /**
+     * @return false if totalResults is only estimated from the rows listed so far
+     */
+    public boolean isExactTotal() {
+        return exactTotal;
+    }
+
+    /**
+     * @return token to list the next page after this one, null if there is no next page or the order doesn't allow it
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
     @XmlElement(name = "policy")
     private final PolicyElement[] elements;
 
@@ -154,9 +174,15 @@ public class PolicyList {
     }
 
     public PolicyList(PolicyElement[] elements, long totalResults) {
+        this(elements, totalResults, true, null);
+    }
+
+    public PolicyList(PolicyElement[] elements, long totalResults, boolean exactTotal, String nextToken) {
         this.totalResults = totalResults;
         this.elements = elements != null ? Arrays.copyOf(elements, elements.length) : null;
         this.results = elements != null ? elements.length : 0;
+        this.exactTotal = exactTotal;
+        this.nextToken = nextToken;
     }
 
     public PolicyElement[] getElements() {
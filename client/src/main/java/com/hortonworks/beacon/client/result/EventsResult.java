@@ -49,6 +49,12 @@ public class EventsResult extends APIResult {
     @XmlElement
     private EventInstance[] events;
 
+    @XmlElement
+    private boolean exactTotal = true;
+
+    @XmlElement
+    private String nextToken;
+
     public EventsResult() {
     }
 
@@ -79,6 +85,25 @@ public class EventsResult extends APIResult {
         return numSyncEvents;
     }
 
+    /**
+     * @return false if totalResults is only estimated from the events listed so far
+     */
+    public boolean isExactTotal() {
+        return exactTotal;
+    }
+
+    /**
+     * @return token to list the next page after this one, null if there is no next page or the order doesn't allow it
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setPaging(boolean exactTotalResults, String token) {
+        this.exactTotal = exactTotalResults;
+        this.nextToken = token;
+    }
+
     @Override
     public Object[] getCollection() {
         return getEvents();
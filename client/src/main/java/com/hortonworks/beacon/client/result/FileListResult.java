@@ -131,6 +131,9 @@ public class FileListResult extends APIResult {
         @XmlElement
         public boolean snapshottable;
 
+        @XmlElement
+        public Boolean encryptionUnknown;
+
         @Override
         public String toString() {
             return "FileList{"
@@ -147,6 +150,7 @@ public class FileListResult extends APIResult {
                     + ", isEncrypted='" + isEncrypted + '\''
                     + ", encryptionKeyName='" + encryptionKeyName + '\''
                     + ", snapshottable='" + snapshottable + '\''
+                    + ", encryptionUnknown='" + encryptionUnknown + '\''
                     + '}';
         }
     }
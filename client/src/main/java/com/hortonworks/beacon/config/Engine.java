@@ -91,6 +91,27 @@ public class Engine {
     private int atlasClientConnectTimeout;
     private int atlasClientReadTimeout;
 
+    private int hiveClientPoolMaxIdle;
+    private int hiveClientPoolIdleTimeout;
+    private int hiveClientPoolValidationInterval;
+    private int hiveDBLookupThreads;
+
+    private int eventQueueCapacity;
+    private int eventBatchSize;
+    private int eventFlushInterval;
+
+    private int jobMonitorThreads;
+    private int jobMonitorMinPollInterval;
+    private int jobMonitorMaxPollInterval;
+    private int jobStatusCacheSize;
+    private int jobStatusCacheTtl;
+
+    private int cloudEncryptionProbeThreads;
+    private int cloudEncryptionProbeTimeout;
+
+    private int defaultLinkBandwidth;
+    private String linkBandwidthBudgets;
+
     private boolean knoxProxyEnabled;
 
     private String knoxPreAuthTopology;
@@ -190,6 +211,22 @@ public class Engine {
         setMaxFileListPerPage(o.maxFileListPerPage);
         setAtlasClientConnectTimeout(o.getAtlasClientConnectTimeout());
         setAtlasClientReadTimeout(o.getAtlasClientReadTimeout());
+        setHiveClientPoolMaxIdle(o.getHiveClientPoolMaxIdle());
+        setHiveClientPoolIdleTimeout(o.getHiveClientPoolIdleTimeout());
+        setHiveClientPoolValidationInterval(o.getHiveClientPoolValidationInterval());
+        setHiveDBLookupThreads(o.getHiveDBLookupThreads());
+        setEventQueueCapacity(o.getEventQueueCapacity());
+        setEventBatchSize(o.getEventBatchSize());
+        setEventFlushInterval(o.getEventFlushInterval());
+        setJobMonitorThreads(o.getJobMonitorThreads());
+        setJobMonitorMinPollInterval(o.getJobMonitorMinPollInterval());
+        setJobMonitorMaxPollInterval(o.getJobMonitorMaxPollInterval());
+        setJobStatusCacheSize(o.getJobStatusCacheSize());
+        setJobStatusCacheTtl(o.getJobStatusCacheTtl());
+        setCloudEncryptionProbeThreads(o.getCloudEncryptionProbeThreads());
+        setCloudEncryptionProbeTimeout(o.getCloudEncryptionProbeTimeout());
+        setDefaultLinkBandwidth(o.getDefaultLinkBandwidth());
+        setLinkBandwidthBudgets(o.getLinkBandwidthBudgets());
     }
 
     public String getHostName() {
@@ -599,5 +636,133 @@ public class Engine {
         this.atlasClientReadTimeout = atlasClientReadTimeout;
     }
 
+    public int getHiveClientPoolMaxIdle() {
+        return hiveClientPoolMaxIdle;
+    }
+
+    public void setHiveClientPoolMaxIdle(int hiveClientPoolMaxIdle) {
+        this.hiveClientPoolMaxIdle = hiveClientPoolMaxIdle;
+    }
+
+    public int getHiveClientPoolIdleTimeout() {
+        return hiveClientPoolIdleTimeout;
+    }
+
+    public void setHiveClientPoolIdleTimeout(int hiveClientPoolIdleTimeout) {
+        this.hiveClientPoolIdleTimeout = hiveClientPoolIdleTimeout;
+    }
+
+    public int getHiveClientPoolValidationInterval() {
+        return hiveClientPoolValidationInterval;
+    }
+
+    public void setHiveClientPoolValidationInterval(int hiveClientPoolValidationInterval) {
+        this.hiveClientPoolValidationInterval = hiveClientPoolValidationInterval;
+    }
+
+    public int getHiveDBLookupThreads() {
+        return hiveDBLookupThreads;
+    }
+
+    public void setHiveDBLookupThreads(int hiveDBLookupThreads) {
+        this.hiveDBLookupThreads = hiveDBLookupThreads;
+    }
+
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+
+    public int getEventBatchSize() {
+        return eventBatchSize;
+    }
+
+    public void setEventBatchSize(int eventBatchSize) {
+        this.eventBatchSize = eventBatchSize;
+    }
+
+    public int getEventFlushInterval() {
+        return eventFlushInterval;
+    }
+
+    public void setEventFlushInterval(int eventFlushInterval) {
+        this.eventFlushInterval = eventFlushInterval;
+    }
+
+    public int getJobMonitorThreads() {
+        return jobMonitorThreads;
+    }
+
+    public void setJobMonitorThreads(int jobMonitorThreads) {
+        this.jobMonitorThreads = jobMonitorThreads;
+    }
+
+    public int getJobMonitorMinPollInterval() {
+        return jobMonitorMinPollInterval;
+    }
+
+    public void setJobMonitorMinPollInterval(int jobMonitorMinPollInterval) {
+        this.jobMonitorMinPollInterval = jobMonitorMinPollInterval;
+    }
+
+    public int getJobMonitorMaxPollInterval() {
+        return jobMonitorMaxPollInterval;
+    }
+
+    public void setJobMonitorMaxPollInterval(int jobMonitorMaxPollInterval) {
+        this.jobMonitorMaxPollInterval = jobMonitorMaxPollInterval;
+    }
+
+    public int getJobStatusCacheSize() {
+        return jobStatusCacheSize;
+    }
+
+    public void setJobStatusCacheSize(int jobStatusCacheSize) {
+        this.jobStatusCacheSize = jobStatusCacheSize;
+    }
+
+    public int getJobStatusCacheTtl() {
+        return jobStatusCacheTtl;
+    }
+
+    public void setJobStatusCacheTtl(int jobStatusCacheTtl) {
+        this.jobStatusCacheTtl = jobStatusCacheTtl;
+    }
+
+    public int getCloudEncryptionProbeThreads() {
+        return cloudEncryptionProbeThreads;
+    }
+
+    public void setCloudEncryptionProbeThreads(int cloudEncryptionProbeThreads) {
+        this.cloudEncryptionProbeThreads = cloudEncryptionProbeThreads;
+    }
+
+    public int getCloudEncryptionProbeTimeout() {
+        return cloudEncryptionProbeTimeout;
+    }
+
+    public void setCloudEncryptionProbeTimeout(int cloudEncryptionProbeTimeout) {
+        this.cloudEncryptionProbeTimeout = cloudEncryptionProbeTimeout;
+    }
+
+    public int getDefaultLinkBandwidth() {
+        return defaultLinkBandwidth;
+    }
+
+    public void setDefaultLinkBandwidth(int defaultLinkBandwidth) {
+        this.defaultLinkBandwidth = defaultLinkBandwidth;
+    }
+
+    public String getLinkBandwidthBudgets() {
+        return linkBandwidthBudgets;
+    }
+
+    public void setLinkBandwidthBudgets(String linkBandwidthBudgets) {
+        this.linkBandwidthBudgets = linkBandwidthBudgets;
+    }
+
 
 }
@@ -25,6 +25,7 @@ package com.hortonworks.beacon.config;
 /**
  * Configuration parameter related to beacon scheduler.
  * housekeepingSyncFrequency: status sync frequency is in minutes.
+ * cleanupBatchTargetTime: time a store cleanup batch should take, in milliseconds.
  */
 public class Scheduler {
     private String quartzPrefix;
@@ -36,7 +37,14 @@ public class Scheduler {
     private int housekeepingSyncMaxRetry;
     private int minReplicationFrequency;
     private int replicationMetricsInterval;
+    private int trackingInfoMinInterval;
     private int policyCheckFrequency;
+    private boolean asyncJobExecution;
+    private int jobContinuationThreads;
+    private int cleanupThreads;
+    private int cleanupMaxBatchSize;
+    private int cleanupBatchTargetTime;
+    private boolean cleanupArchive;
 
     public void copy(Scheduler o) {
         setQuartzPrefix(o.getQuartzPrefix());
@@ -47,8 +55,15 @@ public class Scheduler {
         setHousekeepingSyncFrequency(o.getHousekeepingSyncFrequency());
         setMinReplicationFrequency(o.getMinReplicationFrequency());
         setReplicationMetricsInterval(o.getReplicationMetricsInterval());
+        setTrackingInfoMinInterval(o.getTrackingInfoMinInterval());
         setHousekeepingSyncMaxRetry(o.getHousekeepingSyncMaxRetry());
         setPolicyCheckFrequency(o.getPolicyCheckFrequency());
+        setAsyncJobExecution(o.isAsyncJobExecution());
+        setJobContinuationThreads(o.getJobContinuationThreads());
+        setCleanupThreads(o.getCleanupThreads());
+        setCleanupMaxBatchSize(o.getCleanupMaxBatchSize());
+        setCleanupBatchTargetTime(o.getCleanupBatchTargetTime());
+        setCleanupArchive(o.isCleanupArchive());
     }
 
     public String getQuartzPrefix() {
@@ -115,6 +130,14 @@ public class Scheduler {
         this.replicationMetricsInterval = replicationMetricsInterval;
     }
 
+    public int getTrackingInfoMinInterval() {
+        return trackingInfoMinInterval;
+    }
+
+    public void setTrackingInfoMinInterval(int trackingInfoMinInterval) {
+        this.trackingInfoMinInterval = trackingInfoMinInterval;
+    }
+
     public int getHousekeepingSyncMaxRetry() {
         return housekeepingSyncMaxRetry;
     }
@@ -130,4 +153,52 @@ public class Scheduler {
     public void setPolicyCheckFrequency(int policyCheckFrequency) {
         this.policyCheckFrequency = policyCheckFrequency;
     }
+
+    public boolean isAsyncJobExecution() {
+        return asyncJobExecution;
+    }
+
+    public void setAsyncJobExecution(boolean asyncJobExecution) {
+        this.asyncJobExecution = asyncJobExecution;
+    }
+
+    public int getJobContinuationThreads() {
+        return jobContinuationThreads;
+    }
+
+    public void setJobContinuationThreads(int jobContinuationThreads) {
+        this.jobContinuationThreads = jobContinuationThreads;
+    }
+
+    public int getCleanupThreads() {
+        return cleanupThreads;
+    }
+
+    public void setCleanupThreads(int cleanupThreads) {
+        this.cleanupThreads = cleanupThreads;
+    }
+
+    public int getCleanupMaxBatchSize() {
+        return cleanupMaxBatchSize;
+    }
+
+    public void setCleanupMaxBatchSize(int cleanupMaxBatchSize) {
+        this.cleanupMaxBatchSize = cleanupMaxBatchSize;
+    }
+
+    public int getCleanupBatchTargetTime() {
+        return cleanupBatchTargetTime;
+    }
+
+    public void setCleanupBatchTargetTime(int cleanupBatchTargetTime) {
+        this.cleanupBatchTargetTime = cleanupBatchTargetTime;
+    }
+
+    public boolean isCleanupArchive() {
+        return cleanupArchive;
+    }
+
+    public void setCleanupArchive(boolean cleanupArchive) {
+        this.cleanupArchive = cleanupArchive;
+    }
 }
@@ -51,6 +51,9 @@ public class JobContext implements Serializable {
     private boolean recovery;
     private boolean performJobAfterRecovery;
     private boolean suspend;
+    // Context of the job this one was loaded from, the next store writes only the changes to it.
+    private transient Map<String, String> baseContext;
+    private transient int baseOffset = -1;
 
     /**
      * JSON keys for instance job context.
@@ -84,6 +87,8 @@ public class JobContext implements Serializable {
         this.recovery = other.recovery;
         this.performJobAfterRecovery = other.performJobAfterRecovery;
         this.suspend = other.suspend;
+        this.baseContext = other.baseContext;
+        this.baseOffset = other.baseOffset;
     }
 
     public String getJobInstanceId() {
@@ -142,6 +147,19 @@ public class JobContext implements Serializable {
         this.performJobAfterRecovery = performJobAfterRecovery;
     }
 
+    Map<String, String> getBaseContext() {
+        return baseContext;
+    }
+
+    int getBaseOffset() {
+        return baseOffset;
+    }
+
+    void setBaseContext(Map<String, String> baseContext, int baseOffset) {
+        this.baseContext = baseContext;
+        this.baseOffset = baseOffset;
+    }
+
     public void setQueryId(String queryId) {
         this.getJobContextMap().put(HIVE_QUERY_ID, queryId);
     }
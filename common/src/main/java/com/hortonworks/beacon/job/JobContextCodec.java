@@ -0,0 +1,288 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.job;
+
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compact form of the {@link JobContext} stored with each instance job. The context is written in a versioned
+ * binary layout with the well known context keys interned, and, when the context was loaded from the previous job
+ * of the instance, only the entries changed since that job are written. Reading such a delta needs the context of
+ * the job it is based on, see {@link #getBaseOffset(String)}.
+ * Data not written by this codec is read with {@link JobContext#parseJobContext(String)}, so the contexts stored
+ * before the upgrade stay readable.
+ */
+public final class JobContextCodec {
+
+    private static final String PREFIX = "bjc:";
+    private static final int VERSION = 1;
+    private static final int FLAG_INTERRUPT = 1;
+    private static final int FLAG_DELTA = 2;
+
+    // Append only, the position of a key is its id in the stored data.
+    private static final String[] KEYS = {
+        null,
+        "hiveQueryId",
+        "startTime",
+        "endTime",
+        "ERROR_CODE",
+        "DATASET_BOOTSTRAP",
+        "bootstrap",
+        "dumpDirectory",
+        "instanceExecutionStatus",
+        "PLUGIN_STAGINGPATH",
+        "EXPORT_TOTAL",
+        "EXPORT_COMPLETED",
+        "IMPORT_TOTAL",
+        "IMPORT_COMPLETED",
+        "TOTAL",
+        "COMPLETED",
+    };
+    private static final Map<String, Integer> KEY_IDS = new HashMap<>();
+
+    static {
+        for (int i = 1; i < KEYS.length; i++) {
+            KEY_IDS.put(KEYS[i], i);
+        }
+    }
+
+    private JobContextCodec() {
+    }
+
+    /**
+     * Encodes the context, as a delta when it carries the context of an earlier job of the instance and the delta
+     * is the smaller of the two.
+     */
+    public static String encode(JobContext jobContext) {
+        byte[] full = toBytes(jobContext, null, -1);
+        Map<String, String> base = jobContext.getBaseContext();
+        int baseOffset = jobContext.getBaseOffset();
+        if (base != null && baseOffset >= 0 && baseOffset < jobContext.getOffset()) {
+            byte[] delta = toBytes(jobContext, base, baseOffset);
+            if (delta.length < full.length) {
+                return PREFIX + Base64.encodeBase64String(delta);
+            }
+        }
+        return PREFIX + Base64.encodeBase64String(full);
+    }
+
+    /**
+     * @return the offset of the job whose context the data is a delta on, -1 if the data is self contained
+     */
+    public static int getBaseOffset(String contextData) {
+        if (!isEncoded(contextData)) {
+            return -1;
+        }
+        try {
+            DataInputStream in = open(contextData);
+            readHeader(in);
+            int flags = in.readUnsignedByte();
+            if ((flags & FLAG_DELTA) == 0) {
+                return -1;
+            }
+            in.readUTF();
+            readVarInt(in);
+            return readVarInt(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid job context data", e);
+        }
+    }
+
+    /**
+     * Decodes the context data. The returned context remembers its entries as the base for the delta written by
+     * the next job of the instance.
+     *
+     * @param base context of the job at {@link #getBaseOffset(String)}, ignored when the data is self contained
+     */
+    public static JobContext decode(String contextData, JobContext base) {
+        JobContext jobContext;
+        if (!isEncoded(contextData)) {
+            jobContext = JobContext.parseJobContext(contextData);
+        } else {
+            try {
+                jobContext = fromBytes(open(contextData), base);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid job context data", e);
+            }
+        }
+        jobContext.setBaseContext(new HashMap<>(jobContext.getJobContextMap()), jobContext.getOffset());
+        return jobContext;
+    }
+
+    private static boolean isEncoded(String contextData) {
+        return contextData != null && contextData.startsWith(PREFIX);
+    }
+
+    private static DataInputStream open(String contextData) {
+        byte[] bytes = Base64.decodeBase64(contextData.substring(PREFIX.length()));
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static void readHeader(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported job context version " + version);
+        }
+    }
+
+    private static byte[] toBytes(JobContext jobContext, Map<String, String> base, int baseOffset) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            int flags = jobContext.shouldInterrupt().get() ? FLAG_INTERRUPT : 0;
+            out.writeByte(base != null ? flags | FLAG_DELTA : flags);
+            out.writeUTF(jobContext.getJobInstanceId());
+            writeVarInt(out, jobContext.getOffset());
+
+            Map<String, String> context = jobContext.getJobContextMap();
+            List<String> removed = new ArrayList<>();
+            Map<String, String> changed = context;
+            if (base != null) {
+                writeVarInt(out, baseOffset);
+                changed = new HashMap<>();
+                for (Map.Entry<String, String> entry : context.entrySet()) {
+                    if (!Objects.equals(entry.getValue(), base.get(entry.getKey()))) {
+                        changed.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                for (String key : base.keySet()) {
+                    if (!context.containsKey(key)) {
+                        removed.add(key);
+                    }
+                }
+            }
+            writeVarInt(out, changed.size());
+            for (Map.Entry<String, String> entry : changed.entrySet()) {
+                writeKey(out, entry.getKey());
+                // Same as the legacy form, which writes a missing value as "null".
+                writeString(out, String.valueOf(entry.getValue()));
+            }
+            writeVarInt(out, removed.size());
+            for (String key : removed) {
+                writeKey(out, key);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode the job context", e);
+        }
+    }
+
+    private static JobContext fromBytes(DataInput in, JobContext base) throws IOException {
+        readHeader(in);
+        int flags = in.readUnsignedByte();
+        JobContext jobContext = new JobContext();
+        jobContext.setShouldInterrupt(new AtomicBoolean((flags & FLAG_INTERRUPT) != 0));
+        jobContext.setJobInstanceId(in.readUTF());
+        jobContext.setOffset(readVarInt(in));
+
+        Map<String, String> context = new HashMap<>();
+        if ((flags & FLAG_DELTA) != 0) {
+            int baseOffset = readVarInt(in);
+            if (base == null || base.getOffset() != baseOffset) {
+                throw new IOException("Job context is a delta on offset " + baseOffset + ", base not provided");
+            }
+            context.putAll(base.getJobContextMap());
+        }
+        int changed = readVarInt(in);
+        for (int i = 0; i < changed; i++) {
+            context.put(readKey(in), readString(in));
+        }
+        int removed = readVarInt(in);
+        for (int i = 0; i < removed; i++) {
+            context.remove(readKey(in));
+        }
+        jobContext.setJobContextMap(context);
+        return jobContext;
+    }
+
+    private static void writeKey(DataOutput out, String key) throws IOException {
+        Integer id = KEY_IDS.get(key);
+        if (id != null) {
+            writeVarInt(out, id);
+        } else {
+            writeVarInt(out, 0);
+            writeString(out, key);
+        }
+    }
+
+    private static String readKey(DataInput in) throws IOException {
+        int id = readVarInt(in);
+        if (id == 0) {
+            return readString(in);
+        }
+        if (id >= KEYS.length) {
+            throw new IOException("Unknown job context key id " + id);
+        }
+        return KEYS[id];
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
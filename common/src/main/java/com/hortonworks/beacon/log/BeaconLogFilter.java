@@ -24,7 +24,9 @@ package com.hortonworks.beacon.log;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -49,6 +51,7 @@ public class BeaconLogFilter {
     private static final String PREFIX_REGEX = TIMESTAMP_REGEX + WHITE_SPACE_REGEX + LOG_LEVEL_REGEX
             + WHITE_SPACE_REGEX;
     private static final Pattern SPLITTER_PATTERN = Pattern.compile(PREFIX_REGEX + ALLOW_ALL_REGEX);
+    private static final Pattern LITERAL_VALUE_PATTERN = Pattern.compile("[\\w\\-]*");
     private SimpleDateFormat dateFormatOfLogs = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     private String startDateStr;
@@ -86,17 +89,8 @@ public class BeaconLogFilter {
     }
 
     boolean matches(ArrayList<String> logParts) {
-        String timestamp = logParts.get(0);
-        if (getStartDate() != null) {
-            if (timestamp.compareTo(startDateStr) < 0) {
-                return false;
-            }
-        }
-
-        if (getEndDate() != null) {
-            if (timestamp.compareTo(endDateStr) > 0) {
-                return false;
-            }
+        if (!matchesTime(logParts.get(0))) {
+            return false;
         }
 
         //String logLevel = logParts.get(1);
@@ -106,6 +100,47 @@ public class BeaconLogFilter {
         return logMatcher.find();
     }
 
+    boolean matchesTime(String timestamp) {
+        return !isBeforeStart(timestamp) && !isAfterEnd(timestamp);
+    }
+
+    boolean isBeforeStart(String timestamp) {
+        return getStartDate() != null && timestamp.compareTo(startDateStr) < 0;
+    }
+
+    boolean isAfterEnd(String timestamp) {
+        // The end date has a precision of seconds, entries logged within its last second are in range
+        return getEndDate() != null
+                && StringUtils.left(timestamp, endDateStr.length()).compareTo(endDateStr) > 0;
+    }
+
+    /**
+     * Returns the exact key[value] tokens this filter looks for, or null if any of the values
+     * is not a plain literal and the filter can only be evaluated as a regex.
+     */
+    List<String> getIndexTokens() {
+        List<String> tokens = new ArrayList<>();
+        for (Map.Entry<String, String> kv : filterMap.entrySet()) {
+            if (BeaconLogParams.checkParams(kv.getKey().toUpperCase())) {
+                if (!kv.getKey().equals(kv.getKey().toUpperCase())
+                        || !LITERAL_VALUE_PATTERN.matcher(kv.getValue()).matches()) {
+                    return null;
+                }
+                tokens.add(indexToken(kv.getKey(), kv.getValue()));
+            }
+        }
+        return Collections.unmodifiableList(tokens);
+    }
+
+    static String indexToken(String key, String value) {
+        return key + "[" + value + "]";
+    }
+
+    static String getTimestamp(String logLine) {
+        Matcher splitter = SPLITTER_PATTERN.matcher(logLine);
+        return splitter.matches() ? splitter.group(1) : null;
+    }
+
     Date getStartDate() {
         return startDate;
     }
@@ -53,6 +53,9 @@ import com.hortonworks.beacon.util.DateUtil;
  *      2.4 Reverses the queue so that latest logs are first
  *      2.5 Returns log lines in the queue, number of logs returned, m <= n
  * 3. The remaining logs (n-m) are read from next file and so on
+ * Rolled log files are looked up through their {@link LogEntryIndex} when the filter only has literal values,
+ * and the active log file is read backwards by {@link ReverseLogScanner}; the full file scan above is the
+ * fallback for compressed files with regex filters.
  */
 class BeaconLogStreamer {
     private static final Logger LOG = LoggerFactory.getLogger(BeaconLogStreamer.class);
@@ -75,10 +78,10 @@ class BeaconLogStreamer {
         try {
             List<File> fileList = getFileList(filter.getStartDate(), filter.getEndDate());
             TimeStampedMessageParser messageParser = new TimeStampedMessageParser(filter);
+            List<String> indexTokens = filter.getIndexTokens();
             int numLogsToRead = numLogs;
             for (File file : fileList) {
-                BufferedReader reader = new BufferedReader(new FileReader(file));
-                int logsRead = messageParser.readLogs(reader, writer, numLogsToRead);
+                int logsRead = readLogs(file, messageParser, indexTokens, writer, numLogsToRead);
                 numLogsToRead -= logsRead;
                 if (numLogsToRead == 0) {
                     return;
@@ -95,6 +98,23 @@ class BeaconLogStreamer {
         }
     }
 
+    private int readLogs(File file, TimeStampedMessageParser messageParser, List<String> indexTokens,
+                         Writer writer, int numLogsToRead) throws IOException {
+        boolean zipped = file.getName().endsWith(ZIPFILE_EXTENSION);
+        List<String> logs;
+        if (indexTokens != null && isRolledFile(file.getName())) {
+            logs = LogEntryIndex.get(file).readLogs(file, filter, indexTokens, numLogsToRead);
+        } else if (!zipped) {
+            logs = new ReverseLogScanner(file, filter).readLogs(numLogsToRead);
+        } else {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                return messageParser.readLogs(reader, writer, numLogsToRead);
+            }
+        }
+        TimeStampedMessageParser.writeLogs(logs, writer);
+        return logs.size();
+    }
+
     private List<File> getFileList(Date startTime, Date endTime) throws BeaconException {
         File dir = new File(beaconLog);
         //default end time to now
@@ -109,7 +129,9 @@ class BeaconLogStreamer {
         }
 
         LOG.debug("Start time: {}, end time: {}", DateUtil.formatDate(startTime), DateUtil.formatDate(endTime));
-        return getFileList(dir.listFiles(), startTime, endTime);
+        File[] files = dir.listFiles();
+        LogEntryIndex.purgeOrphans(files);
+        return getFileList(files, startTime, endTime);
     }
 
     @VisibleForTesting
@@ -120,6 +142,9 @@ class BeaconLogStreamer {
         }
 
         for (File file : files) {
+            if (LogEntryIndex.isIndexFile(file)) {
+                continue;
+            }
             String fileName = file.getName();
             Date fileStart = getDate(fileName);
             if (fileStart == null) {
@@ -160,11 +185,11 @@ class BeaconLogStreamer {
         return true;
     }
 
-    private Date getDate(String fileName) throws BeaconException {
-        if (!fileName.startsWith(BEACON_LOG_PREFIX)) {
-            return null;
-        }
+    private boolean isRolledFile(String fileName) {
+        return getRolledDate(fileName) != null;
+    }
 
+    private Date getRolledDate(String fileName) {
         String localFileName = StringUtils.removeEnd(fileName, ZIPFILE_EXTENSION);
         int index = localFileName.lastIndexOf('.');
         String dateStr = index != -1 ? localFileName.substring(index + 1) : null;
@@ -175,6 +200,18 @@ class BeaconLogStreamer {
                 //ignore
             }
         }
+        return null;
+    }
+
+    private Date getDate(String fileName) throws BeaconException {
+        if (!fileName.startsWith(BEACON_LOG_PREFIX)) {
+            return null;
+        }
+
+        Date rolledDate = getRolledDate(fileName);
+        if (rolledDate != null) {
+            return rolledDate;
+        }
         String currentDateStr = dateFormat.format(new Date());
         try {
             return dateFormat.parse(currentDateStr);
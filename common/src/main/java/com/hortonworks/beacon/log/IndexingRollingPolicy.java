@@ -0,0 +1,70 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.log;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.log4j.rolling.RolloverDescription;
+import org.apache.log4j.rolling.RolloverDescriptionImpl;
+import org.apache.log4j.rolling.TimeBasedRollingPolicy;
+import org.apache.log4j.rolling.helper.Action;
+import org.apache.log4j.rolling.helper.ActionBase;
+import org.apache.log4j.rolling.helper.CompositeAction;
+
+/**
+ * Time based rolling policy which builds the {@link LogEntryIndex} of the rolled log file as part of the
+ * rollover. The index is built by the asynchronous rollover action, after the rolled file has been compressed,
+ * so that log queries never have to index a rolled file themselves.
+ */
+public class IndexingRollingPolicy extends TimeBasedRollingPolicy {
+
+    @Override
+    public RolloverDescription rollover(String currentActiveFile) {
+        RolloverDescription rollover = super.rollover(currentActiveFile);
+        if (rollover == null) {
+            return null;
+        }
+        Action index = new IndexAction(new File(rollover.getActiveFileName()));
+        Action asynchronous = rollover.getAsynchronous() == null ? index
+                : new CompositeAction(Arrays.asList(rollover.getAsynchronous(), index), false);
+        return new RolloverDescriptionImpl(rollover.getActiveFileName(), rollover.getAppend(),
+                rollover.getSynchronous(), asynchronous);
+    }
+
+    /**
+     * Indexes the rolled files of the active log file.
+     */
+    private static final class IndexAction extends ActionBase {
+        private final File activeFile;
+
+        private IndexAction(File activeFile) {
+            this.activeFile = activeFile;
+        }
+
+        @Override
+        public boolean execute() {
+            LogEntryIndex.indexRolledFiles(activeFile);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Sidecar index of a rolled Beacon log file.
+ * Maps every log entry to its byte offset and length in the (uncompressed) log file, and every
+ * POLICYNAME[..], POLICYID[..], INSTANCEID[..] token to the entries containing it. Rolled files never
+ * change, so the index is built once when the log rolls over (see {@link IndexingRollingPolicy}), persisted
+ * next to the log file as {@code <log file>.idx} and afterwards lookups read only the entries which make it
+ * into the result. Files rolled without the indexing policy, or whose index is stale, are indexed on their
+ * first lookup.
+ * For .gz files the offsets refer to the decompressed stream; matched entries are read by skipping
+ * the stream forward, which avoids parsing and matching every line of the file.
+ */
+final class LogEntryIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(LogEntryIndex.class);
+
+    static final String INDEX_EXTENSION = ".idx";
+    private static final String TMP_EXTENSION = ".tmp";
+    private static final int INDEX_MAGIC = 0x42494458;
+    private static final int INDEX_VERSION = 1;
+    private static final int MAX_CACHED_INDEXES = 24;
+    private static final Pattern TOKEN_PATTERN;
+
+    static {
+        StringBuilder keys = new StringBuilder();
+        for (BeaconLogParams param : BeaconLogParams.values()) {
+            keys.append(keys.length() == 0 ? "" : "|").append(param.name());
+        }
+        TOKEN_PATTERN = Pattern.compile("(" + keys + ")\\[([^\\]]*)\\]");
+    }
+
+    private static final Map<String, LogEntryIndex> CACHE =
+            new LinkedHashMap<String, LogEntryIndex>(MAX_CACHED_INDEXES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LogEntryIndex> eldest) {
+                    return size() > MAX_CACHED_INDEXES;
+                }
+            };
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final String[] timestamps;
+    private final Map<String, int[]> postings;
+
+    private LogEntryIndex(long sourceLength, long sourceModified, long[] offsets, int[] lengths,
+                          String[] timestamps, Map<String, int[]> postings) {
+        this.sourceLength = sourceLength;
+        this.sourceModified = sourceModified;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.timestamps = timestamps;
+        this.postings = postings;
+    }
+
+    static File indexFile(File logFile) {
+        return new File(logFile.getParentFile(), logFile.getName() + INDEX_EXTENSION);
+    }
+
+    static boolean isIndexFile(File file) {
+        String name = file.getName();
+        return name.endsWith(INDEX_EXTENSION) || name.endsWith(INDEX_EXTENSION + TMP_EXTENSION);
+    }
+
+    /**
+     * Returns the index of the log file, loading it from its sidecar file or building it if the sidecar is
+     * missing or stale.
+     */
+    static LogEntryIndex get(File logFile) throws IOException {
+        String key = logFile.getAbsolutePath();
+        synchronized (CACHE) {
+            LogEntryIndex index = CACHE.get(key);
+            if (index != null && index.isCurrent(logFile)) {
+                return index;
+            }
+        }
+        LogEntryIndex index = load(logFile);
+        if (index == null) {
+            index = build(logFile);
+            store(logFile, index);
+        }
+        synchronized (CACHE) {
+            CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Builds and persists the index of every rolled file of the active log file which does not have one yet,
+     * and deletes the indexes of rolled files removed since.
+     */
+    static void indexRolledFiles(File activeFile) {
+        File dir = activeFile.getAbsoluteFile().getParentFile();
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files == null) {
+            return;
+        }
+        purgeOrphans(files);
+        String rolledPrefix = activeFile.getName() + ".";
+        for (File file : files) {
+            if (file.getName().startsWith(rolledPrefix) && !isIndexFile(file) && !indexFile(file).exists()) {
+                try {
+                    store(file, build(file));
+                } catch (IOException e) {
+                    // The file is indexed on its first lookup instead.
+                    LOG.warn("Unable to index rolled log file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Deletes index files whose log file has been removed by the log rotation.
+     */
+    static void purgeOrphans(File[] files) {
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (isIndexFile(file)) {
+                String name = StringUtils.removeEnd(file.getName(), TMP_EXTENSION);
+                File logFile = new File(file.getParentFile(), name.substring(0, name.length()
+                        - INDEX_EXTENSION.length()));
+                if (!logFile.exists() && !file.delete()) {
+                    LOG.debug("Unable to delete orphan log index {}", file);
+                }
+            }
+        }
+    }
+
+    private boolean isCurrent(File logFile) {
+        return logFile.length() == sourceLength && logFile.lastModified() == sourceModified;
+    }
+
+    /**
+     * Reads up to numLogs entries, latest first, which match the filter tokens and time range of the filter.
+     * An empty tokens list matches every entry in the time range.
+     */
+    List<String> readLogs(File logFile, BeaconLogFilter filter, List<String> tokens, int numLogs)
+            throws IOException {
+        TreeSet<Integer> selected = new TreeSet<>();
+        int[] candidates = candidates(tokens);
+        for (int i = candidates.length - 1; i >= 0 && selected.size() < numLogs; i--) {
+            String timestamp = timestamps[candidates[i]];
+            if (filter.isBeforeStart(timestamp)) {
+                break;
+            }
+            if (!filter.isAfterEnd(timestamp)) {
+                selected.add(candidates[i]);
+            }
+        }
+
+        List<String> logs = new ArrayList<>(selected.size());
+        if (selected.isEmpty()) {
+            return logs;
+        }
+        if (logFile.getName().endsWith(BeaconLogStreamer.ZIPFILE_EXTENSION)) {
+            try (InputStream in = new BufferedInputStream(new GZIPInputStream(new FileInputStream(logFile)))) {
+                long position = 0;
+                for (int entry : selected) {
+                    skipFully(in, offsets[entry] - position);
+                    byte[] bytes = new byte[lengths[entry]];
+                    readFully(in, bytes);
+                    position = offsets[entry] + lengths[entry];
+                    logs.add(toLog(bytes));
+                }
+            }
+        } else {
+            try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+                for (int entry : selected) {
+                    byte[] bytes = new byte[lengths[entry]];
+                    file.seek(offsets[entry]);
+                    file.readFully(bytes);
+                    logs.add(toLog(bytes));
+                }
+            }
+        }
+        Collections.reverse(logs);
+        return logs;
+    }
+
+    private int[] candidates(List<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            int[] all = new int[offsets.length];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        if (tokens.size() == 1) {
+            int[] entries = postings.get(tokens.get(0));
+            return entries != null ? entries : new int[0];
+        }
+        TreeSet<Integer> union = new TreeSet<>();
+        for (String token : tokens) {
+            int[] entries = postings.get(token);
+            if (entries != null) {
+                for (int entry : entries) {
+                    union.add(entry);
+                }
+            }
+        }
+        int[] merged = new int[union.size()];
+        int i = 0;
+        for (int entry : union) {
+            merged[i++] = entry;
+        }
+        return merged;
+    }
+
+    private static String toLog(byte[] bytes) {
+        String log = new String(bytes, StandardCharsets.UTF_8);
+        return log.endsWith("\n") ? log : log + "\n";
+    }
+
+    private static LogEntryIndex build(File logFile) throws IOException {
+        long length = logFile.length();
+        long modified = logFile.lastModified();
+        List<Long> entryOffsets = new ArrayList<>();
+        List<String> entryTimestamps = new ArrayList<>();
+        List<Integer> entryLengths = new ArrayList<>();
+        Map<String, List<Integer>> tokenEntries = new HashMap<>();
+
+        InputStream in = new FileInputStream(logFile);
+        if (logFile.getName().endsWith(BeaconLogStreamer.ZIPFILE_EXTENSION)) {
+            in = new GZIPInputStream(in);
+        }
+        try (LineInputStream lines = new LineInputStream(new BufferedInputStream(in))) {
+            long lineOffset = lines.position();
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String timestamp = BeaconLogFilter.getTimestamp(line);
+                if (timestamp != null) {
+                    closeEntry(entryOffsets, entryLengths, lineOffset);
+                    int entry = entryOffsets.size();
+                    entryOffsets.add(lineOffset);
+                    entryTimestamps.add(timestamp);
+                    Matcher matcher = TOKEN_PATTERN.matcher(line);
+                    while (matcher.find()) {
+                        String token = BeaconLogFilter.indexToken(matcher.group(1), matcher.group(2));
+                        List<Integer> entries = tokenEntries.get(token);
+                        if (entries == null) {
+                            entries = new ArrayList<>();
+                            tokenEntries.put(token, entries);
+                        }
+                        if (entries.isEmpty() || entries.get(entries.size() - 1) != entry) {
+                            entries.add(entry);
+                        }
+                    }
+                }
+                lineOffset = lines.position();
+            }
+            closeEntry(entryOffsets, entryLengths, lineOffset);
+        }
+
+        long[] offsets = new long[entryOffsets.size()];
+        int[] lengths = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = entryOffsets.get(i);
+            lengths[i] = entryLengths.get(i);
+        }
+        Map<String, int[]> postings = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : tokenEntries.entrySet()) {
+            postings.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        LOG.debug("Built log index for {} with {} entries and {} tokens", logFile, offsets.length, postings.size());
+        return new LogEntryIndex(length, modified, offsets, lengths,
+                entryTimestamps.toArray(new String[entryTimestamps.size()]), postings);
+    }
+
+    private static void closeEntry(List<Long> entryOffsets, List<Integer> entryLengths, long endOffset) {
+        if (entryLengths.size() < entryOffsets.size()) {
+            long start = entryOffsets.get(entryOffsets.size() - 1);
+            entryLengths.add((int) Math.min(Integer.MAX_VALUE, endOffset - start));
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static LogEntryIndex load(File logFile) {
+        File indexFile = indexFile(logFile);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            long length = in.readLong();
+            long modified = in.readLong();
+            if (logFile.length() != length || logFile.lastModified() != modified) {
+                return null;
+            }
+            int numEntries = in.readInt();
+            long[] offsets = new long[numEntries];
+            int[] lengths = new int[numEntries];
+            String[] timestamps = new String[numEntries];
+            for (int i = 0; i < numEntries; i++) {
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+                timestamps[i] = in.readUTF();
+            }
+            int numTokens = in.readInt();
+            Map<String, int[]> postings = new HashMap<>();
+            for (int i = 0; i < numTokens; i++) {
+                String token = in.readUTF();
+                int[] entries = new int[in.readInt()];
+                for (int j = 0; j < entries.length; j++) {
+                    entries[j] = in.readInt();
+                }
+                postings.put(token, entries);
+            }
+            return new LogEntryIndex(length, modified, offsets, lengths, timestamps, postings);
+        } catch (IOException e) {
+            LOG.warn("Ignoring unreadable log index {}: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void store(File logFile, LogEntryIndex index) {
+        File indexFile = indexFile(logFile);
+        File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + TMP_EXTENSION);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmpFile)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeLong(index.sourceLength);
+                out.writeLong(index.sourceModified);
+                out.writeInt(index.offsets.length);
+                for (int i = 0; i < index.offsets.length; i++) {
+                    out.writeLong(index.offsets[i]);
+                    out.writeInt(index.lengths[i]);
+                    out.writeUTF(index.timestamps[i]);
+                }
+                out.writeInt(index.postings.size());
+                for (Map.Entry<String, int[]> entry : index.postings.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (int value : entry.getValue()) {
+                        out.writeInt(value);
+                    }
+                }
+            }
+            if (!tmpFile.renameTo(indexFile)) {
+                LOG.debug("Unable to persist log index {}", indexFile);
+                if (!tmpFile.delete()) {
+                    LOG.debug("Unable to delete {}", tmpFile);
+                }
+            }
+        } catch (IOException e) {
+            // The index is only an optimization, it is rebuilt on the next lookup.
+            LOG.warn("Unable to persist log index {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Log file is shorter than its index");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count < 0) {
+                throw new EOFException("Log file is shorter than its index");
+            }
+            read += count;
+        }
+    }
+
+    /**
+     * Reads lines and keeps track of the byte position of the stream.
+     */
+    private static final class LineInputStream implements AutoCloseable {
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private long position;
+
+        private LineInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        long position() {
+            return position;
+        }
+
+        String readLine() throws IOException {
+            line.reset();
+            int b;
+            while ((b = in.read()) >= 0) {
+                position++;
+                if (b == '\n') {
+                    return decode();
+                }
+                line.write(b);
+            }
+            return line.size() > 0 ? decode() : null;
+        }
+
+        private String decode() {
+            int size = line.size();
+            byte[] bytes = line.toByteArray();
+            if (size > 0 && bytes[size - 1] == '\r') {
+                size--;
+            }
+            return new String(bytes, 0, size, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Reads a plain log file backwards through a memory mapped window, latest entry first.
+ * Used for the active log file, which is still being appended to and has no index. The scan stops as
+ * soon as the requested number of entries is found or an entry older than the filter start time is seen,
+ * so the cost depends on how far back the result lies and not on the size of the file.
+ */
+final class ReverseLogScanner {
+    private static final int WINDOW_SIZE = 4 * 1024 * 1024;
+
+    private final File file;
+    private final BeaconLogFilter filter;
+
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    ReverseLogScanner(File file, BeaconLogFilter filter) {
+        this.file = file;
+        this.filter = filter;
+    }
+
+    /**
+     * Returns up to numLogs matching entries, latest first.
+     */
+    List<String> readLogs(int numLogs) throws IOException {
+        List<String> logs = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            channel = raf.getChannel();
+            long size = channel.size();
+            long end = size;
+            if (end > 0 && byteAt(end - 1) == '\n') {
+                end--;
+            }
+            LinkedList<String> continuation = new LinkedList<>();
+            while (size > 0 && end >= 0 && logs.size() < numLogs) {
+                long start = end;
+                while (start > 0 && byteAt(start - 1) != '\n') {
+                    start--;
+                }
+                String line = readLine(start, end);
+                ArrayList<String> logParts = filter.splitLogMessage(line);
+                if (logParts == null) {
+                    continuation.addFirst(line);
+                } else {
+                    if (filter.isBeforeStart(logParts.get(0))) {
+                        break;
+                    }
+                    if (filter.matches(logParts)) {
+                        StringBuilder log = new StringBuilder(line).append("\n");
+                        for (String part : continuation) {
+                            log.append(part).append("\n");
+                        }
+                        logs.add(log.toString());
+                    }
+                    continuation.clear();
+                }
+                end = start - 1;
+            }
+        } finally {
+            channel = null;
+            window = null;
+        }
+        return logs;
+    }
+
+    private byte byteAt(long position) throws IOException {
+        if (window == null || position < windowStart || position >= windowEnd) {
+            long size = channel.size();
+            windowStart = Math.max(0, position - WINDOW_SIZE + 1);
+            windowEnd = Math.min(size, windowStart + WINDOW_SIZE);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+        }
+        return window.get((int) (position - windowStart));
+    }
+
+    private String readLine(long start, long end) throws IOException {
+        int length = (int) (end - start);
+        if (length > 0 && byteAt(end - 1) == '\r') {
+            length--;
+        }
+        byte[] bytes = new byte[length];
+        if (start >= windowStart && start + length <= windowEnd) {
+            for (int i = 0; i < length; i++) {
+                bytes[i] = window.get((int) (start - windowStart) + i);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                bytes[i] = byteAt(start + i);
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
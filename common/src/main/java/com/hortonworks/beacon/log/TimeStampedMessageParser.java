@@ -26,7 +26,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.collections.buffer.CircularFifoBuffer;
 
@@ -90,28 +90,31 @@ class TimeStampedMessageParser {
      * @throws IOException
      */
     int readLogs(BufferedReader reader, Writer writer, int numLogsToRead) throws IOException {
-        int bytesWritten = 0;
         String logLine;
         CircularFifoBuffer buffer = new CircularFifoBuffer(numLogsToRead);
         while ((logLine = parseNextLog(reader)) != null) {
             buffer.add(logLine);
         }
 
-        if (buffer.size() > 0) {
-            ArrayList bufferList = new ArrayList<>(buffer);
-            Collections.reverse(bufferList);
-            Iterator it = bufferList.iterator();
-            while (it.hasNext()) {
-                String msg = (String) it.next();
-                bytesWritten += msg.length();
-                writer.write(msg);
-                if (bytesWritten > BUFFER_LEN) {
-                    writer.flush();
-                    bytesWritten = 0;
-                }
+        List<String> bufferList = new ArrayList<String>(buffer);
+        Collections.reverse(bufferList);
+        writeLogs(bufferList, writer);
+        return buffer.size();
+    }
+
+    /**
+     * Writes the log messages in the given order, flushing the writer every few kilobytes.
+     */
+    static void writeLogs(List<String> logs, Writer writer) throws IOException {
+        int bytesWritten = 0;
+        for (String msg : logs) {
+            bytesWritten += msg.length();
+            writer.write(msg);
+            if (bytesWritten > BUFFER_LEN) {
+                writer.flush();
+                bytesWritten = 0;
             }
         }
         writer.flush();
-        return buffer.size();
     }
 }
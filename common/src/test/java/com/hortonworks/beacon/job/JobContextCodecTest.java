@@ -0,0 +1,108 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.job;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test class for JobContextCodec.
+ */
+public class JobContextCodecTest {
+
+    private static final String INSTANCE_ID = "/NYC/source/fsRepl/0/1490791/0001@1";
+
+    private JobContext newJobContext(int offset) {
+        JobContext jobContext = new JobContext();
+        jobContext.setJobInstanceId(INSTANCE_ID);
+        jobContext.setOffset(offset);
+        return jobContext;
+    }
+
+    @Test
+    public void testFullContext() throws Exception {
+        JobContext jobContext = newJobContext(0);
+        jobContext.setShouldInterrupt(new AtomicBoolean(true));
+        jobContext.getJobContextMap().put("startTime", "1490791");
+        jobContext.getJobContextMap().put("custom;key", "a=b");
+
+        String contextData = JobContextCodec.encode(jobContext);
+        Assert.assertEquals(JobContextCodec.getBaseOffset(contextData), -1);
+        JobContext decoded = JobContextCodec.decode(contextData, null);
+        Assert.assertEquals(decoded.getJobInstanceId(), INSTANCE_ID);
+        Assert.assertEquals(decoded.getOffset(), 0);
+        Assert.assertTrue(decoded.shouldInterrupt().get());
+        Assert.assertEquals(decoded.getJobContextMap(), jobContext.getJobContextMap());
+    }
+
+    @Test
+    public void testDeltaContext() throws Exception {
+        JobContext first = newJobContext(0);
+        first.getJobContextMap().put("dumpDirectory", "/apps/hive/repl/dump/" + INSTANCE_ID);
+        first.getJobContextMap().put("hiveQueryId", "hive_20180101000000_0f8a3c2e");
+        first.getJobContextMap().put("EXPORT_TOTAL", "10");
+        String firstData = JobContextCodec.encode(first);
+
+        // Next job of the instance, loaded from the first one.
+        JobContext second = JobContextCodec.decode(firstData, null);
+        second.setOffset(1);
+        second.removeQueryId();
+        second.getJobContextMap().put("EXPORT_COMPLETED", "10");
+        String secondData = JobContextCodec.encode(second);
+        Assert.assertEquals(JobContextCodec.getBaseOffset(secondData), 0);
+        Assert.assertTrue(secondData.length() < firstData.length());
+
+        JobContext decoded = JobContextCodec.decode(secondData, JobContextCodec.decode(firstData, null));
+        Assert.assertEquals(decoded.getOffset(), 1);
+        Assert.assertEquals(decoded.getJobContextMap(), second.getJobContextMap());
+        Assert.assertNull(decoded.getQueryId());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDeltaWithoutBase() throws Exception {
+        JobContext first = newJobContext(0);
+        first.getJobContextMap().put("dumpDirectory", "/apps/hive/repl/dump");
+        JobContext second = JobContextCodec.decode(JobContextCodec.encode(first), null);
+        second.setOffset(1);
+        second.getJobContextMap().put("endTime", "1490792");
+        JobContextCodec.decode(JobContextCodec.encode(second), null);
+    }
+
+    @Test
+    public void testLegacyContext() throws Exception {
+        JobContext jobContext = newJobContext(2);
+        jobContext.getJobContextMap().put("bootstrap", "false");
+        String legacyData = jobContext.toString();
+
+        Assert.assertEquals(JobContextCodec.getBaseOffset(legacyData), -1);
+        JobContext decoded = JobContextCodec.decode(legacyData, null);
+        Assert.assertEquals(decoded.getOffset(), 2);
+        Assert.assertEquals(decoded.getJobContextMap(), jobContext.getJobContextMap());
+
+        // A context loaded from the legacy form is stored as a delta on it.
+        decoded.setOffset(3);
+        Assert.assertEquals(JobContextCodec.getBaseOffset(JobContextCodec.encode(decoded)), 2);
+    }
+}
@@ -133,6 +133,29 @@ public class BeaconLogStreamerTest{
         assertEquals(logLines.get(2), logMessages[0][0]);
     }
 
+    @Test
+    public void testRolledLogIndex() throws Exception {
+        File rolledLog = new File(BEACON_LOG_DIR, BeaconLogStreamer.BEACON_LOG_PREFIX + "-" + HOST_NAME
+                + ".log.2017-04-24-07");
+        String startStr = "2017-04-24T00:00:00";
+        String endStr = DateUtil.getDateFormat().format(new Date());
+        String filterBy = "policyname:fspolicy";
+        logRetrieval.getPolicyLogs(filterBy, startStr, endStr, 10, 10);
+        File indexFile = LogEntryIndex.indexFile(rolledLog);
+        assertTrue(indexFile.exists());
+
+        //index lookups return the same multi-line entries as the full scan
+        String logString = logRetrieval.getPolicyLogs(filterBy, startStr, endStr, 10, 10);
+        assertTrue(logString.contains(logMessages[2][0]));
+        List<String> logLines = getLogLines(logString);
+        assertEquals(logLines.size(), 6);
+
+        //regex filters are not answered from the index
+        filterBy = "policyname:fs.*";
+        logString = logRetrieval.getPolicyLogs(filterBy, startStr, endStr, 10, 10);
+        assertEquals(getLogLines(logString).size(), 6);
+    }
+
     private void generateBeaconLogData() throws Exception {
         LOG.info("Generating Beacon log Data for test");
         String[] fileDates = {"2017-04-24-05", "2017-04-24-06", "2017-04-24-07", "2017-04-24-08", null};
@@ -0,0 +1,190 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.log;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for the rolled log file index.
+ */
+public class LogEntryIndexTest {
+    private static final File LOG_DIR = new File("target", "logindex");
+    private static final String ACTIVE_LOG = BeaconLogStreamer.BEACON_LOG_PREFIX + "-localhost.log";
+    private static final String ROLLED_LOG = ACTIVE_LOG + ".2017-04-24-07";
+    private static final String[] ENTRIES = {
+        "2017-04-24 07:00:00,000 INFO  - [main POLICYNAME[p1]] ~ First entry of the hour (Test:1)\n",
+        "2017-04-24 07:10:00,000 ERROR - [main POLICYNAME[p2] INSTANCEID[p2@1]] ~ Failed (Test:2)\n"
+            + "java.io.IOException: failure\n"
+            + "at com.hortonworks.beacon.Test.run(Test.java:2)\n",
+        "2017-04-24 07:59:59,999 INFO  - [main POLICYNAME[p1]] ~ Last entry of the hour (Test:3)\n",
+    };
+    private static final List<String> P1 = Collections.singletonList("POLICYNAME[p1]");
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(LOG_DIR);
+        if (!LOG_DIR.mkdirs()) {
+            throw new IOException("Directory creation failed: " + LOG_DIR);
+        }
+        LogEntryIndex.clearCache();
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        LogEntryIndex.clearCache();
+        FileUtils.deleteDirectory(LOG_DIR);
+    }
+
+    @Test
+    public void testRolloverBuildsIndex() throws Exception {
+        File rolled = writeLog(ROLLED_LOG, false, ENTRIES);
+        File gzRolled = writeLog(ACTIVE_LOG + ".2017-04-24-06.gz", true, ENTRIES);
+        File active = writeLog(ACTIVE_LOG, false, ENTRIES[0]);
+        File orphan = LogEntryIndex.indexFile(new File(LOG_DIR, ACTIVE_LOG + ".2017-04-24-05.gz"));
+        FileUtils.touch(orphan);
+
+        LogEntryIndex.indexRolledFiles(active);
+        assertTrue(LogEntryIndex.indexFile(rolled).exists());
+        assertTrue(LogEntryIndex.indexFile(gzRolled).exists());
+        assertFalse(LogEntryIndex.indexFile(active).exists());
+        assertFalse(orphan.exists());
+    }
+
+    @Test
+    public void testSidecarReload() throws Exception {
+        File rolled = writeLog(ROLLED_LOG, false, ENTRIES);
+        LogEntryIndex.indexRolledFiles(new File(LOG_DIR, ACTIVE_LOG));
+        File indexFile = LogEntryIndex.indexFile(rolled);
+        assertTrue(indexFile.setLastModified(0));
+
+        //a lookup loads the persisted index instead of rebuilding and rewriting it
+        List<String> logs = LogEntryIndex.get(rolled).readLogs(rolled, filter("2017-04-24 00:00:00",
+                "2017-04-24 23:00:00"), P1, 10);
+        assertEquals(logs, Arrays.asList(ENTRIES[2], ENTRIES[0]));
+        assertEquals(indexFile.lastModified(), 0);
+
+        logs = LogEntryIndex.get(rolled).readLogs(rolled, filter("2017-04-24 00:00:00", "2017-04-24 23:00:00"),
+                Collections.singletonList("INSTANCEID[p2@1]"), 10);
+        assertEquals(logs, Collections.singletonList(ENTRIES[1]));
+    }
+
+    @Test
+    public void testStaleSidecar() throws Exception {
+        File rolled = writeLog(ROLLED_LOG, false, ENTRIES[0], ENTRIES[1]);
+        LogEntryIndex.get(rolled);
+        File indexFile = LogEntryIndex.indexFile(rolled);
+        assertTrue(indexFile.exists());
+        LogEntryIndex.clearCache();
+
+        //the log file changed after the sidecar was written, the index is rebuilt
+        writeLog(ROLLED_LOG, false, ENTRIES);
+        assertTrue(indexFile.setLastModified(0));
+        List<String> logs = LogEntryIndex.get(rolled).readLogs(rolled, filter("2017-04-24 00:00:00",
+                "2017-04-24 23:00:00"), P1, 10);
+        assertEquals(logs, Arrays.asList(ENTRIES[2], ENTRIES[0]));
+        assertTrue(indexFile.lastModified() != 0);
+
+        //an unreadable sidecar is rebuilt as well
+        LogEntryIndex.clearCache();
+        FileUtils.writeStringToFile(indexFile, "corrupt");
+        logs = LogEntryIndex.get(rolled).readLogs(rolled, filter("2017-04-24 00:00:00", "2017-04-24 23:00:00"),
+                P1, 10);
+        assertEquals(logs, Arrays.asList(ENTRIES[2], ENTRIES[0]));
+        assertTrue(indexFile.length() > "corrupt".length());
+    }
+
+    @Test
+    public void testRangeAtFileBoundaries() throws Exception {
+        File rolled = writeLog(ROLLED_LOG, false, ENTRIES);
+        File gzRolled = writeLog(ACTIVE_LOG + ".2017-04-24-06.gz", true, ENTRIES);
+        for (File file : new File[]{rolled, gzRolled}) {
+            LogEntryIndex index = LogEntryIndex.get(file);
+            List<String> all = Collections.emptyList();
+
+            //a range covering exactly the first and last entries of the file
+            assertEquals(index.readLogs(file, filter("2017-04-24 07:00:00", "2017-04-24 07:59:59"), all, 10),
+                    Arrays.asList(ENTRIES[2], ENTRIES[1], ENTRIES[0]));
+            assertEquals(index.readLogs(file, filter("2017-04-24 07:59:59", "2017-04-24 08:00:00"), all, 10),
+                    Collections.singletonList(ENTRIES[2]));
+            assertEquals(index.readLogs(file, filter("2017-04-24 06:00:00", "2017-04-24 07:00:00"), all, 10),
+                    Collections.singletonList(ENTRIES[0]));
+
+            //ranges just outside the file
+            assertTrue(index.readLogs(file, filter("2017-04-24 08:00:00", "2017-04-24 09:00:00"), all, 10)
+                    .isEmpty());
+            assertTrue(index.readLogs(file, filter("2017-04-24 06:00:00", "2017-04-24 06:59:59"), all, 10)
+                    .isEmpty());
+
+            //the limit keeps the latest entries, the multi-line entry is returned whole
+            assertEquals(index.readLogs(file, filter("2017-04-24 07:00:00", "2017-04-24 07:59:59"), all, 2),
+                    Arrays.asList(ENTRIES[2], ENTRIES[1]));
+            assertEquals(index.readLogs(file, filter("2017-04-24 07:00:00", "2017-04-24 07:59:59"), P1, 1),
+                    Collections.singletonList(ENTRIES[2]));
+        }
+    }
+
+    private BeaconLogFilter filter(String start, String end) throws Exception {
+        return new BeaconLogFilter(new HashMap<String, String>(), dateFormat.parse(start), dateFormat.parse(end));
+    }
+
+    private File writeLog(String name, boolean zipped, String... entries) throws IOException {
+        File file = new File(LOG_DIR, name);
+        OutputStream out = new FileOutputStream(file);
+        if (zipped) {
+            out = new GZIPOutputStream(out);
+        }
+        try {
+            for (String entry : entries) {
+                out.write(entry.getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            out.close();
+        }
+        //make the rewritten file distinguishable from the indexed one
+        if (!file.setLastModified(new Date().getTime() / 1000 * 1000 + entries.length * 1000)) {
+            throw new IOException("Unable to set the modification time of " + file);
+        }
+        return file;
+    }
+}
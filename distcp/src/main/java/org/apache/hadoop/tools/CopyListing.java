@@ -158,13 +158,14 @@ public abstract class CopyListing extends Configured {
       Set<URI> xAttrSupportCheckFsSet = Sets.newHashSet();
       long idx = 0;
       while (reader.next(currentKey)) {
-        if (currentKey.equals(lastKey)) {
-          CopyListingFileStatus currentFileStatus = new CopyListingFileStatus();
-          reader.getCurrentValue(currentFileStatus);
+        CopyListingFileStatus currentFileStatus = new CopyListingFileStatus();
+        reader.getCurrentValue(currentFileStatus);
+        if (currentKey.equals(lastKey)
+            && !isChunkOfSameFile(lastFileStatus, currentFileStatus)) {
           throw new DuplicateFileException("File " + lastFileStatus.getPath() + " and " +
               currentFileStatus.getPath() + " would cause duplicates. Aborting");
         }
-        reader.getCurrentValue(lastFileStatus);
+        lastFileStatus = currentFileStatus;
         if (options.shouldPreserve(DistCpOptions.FileAttribute.ACL)) {
           FileSystem lastFs = lastFileStatus.getPath().getFileSystem(config);
           URI lastFsUri = lastFs.getUri();
@@ -194,6 +195,12 @@ public abstract class CopyListing extends Configured {
     }
   }
 
+  private static boolean isChunkOfSameFile(CopyListingFileStatus last,
+      CopyListingFileStatus current) {
+    return last.isSplit() && current.isSplit()
+        && last.getPath().equals(current.getPath());
+  }
+
   /**
    * Protected constructor, to initialize configuration.
    * @param configuration The input configuration,
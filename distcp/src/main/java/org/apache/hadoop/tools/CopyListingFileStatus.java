@@ -49,6 +49,11 @@ import com.google.common.collect.Maps;
 public final class CopyListingFileStatus extends FileStatus {
 
   private static final byte NO_ACL_ENTRIES = -1;
+  // Written in place of the ACL entry count, followed by the chunk fields
+  // and the ACL entry count, for an entry which is a chunk of a file.
+  // Listings without it, including those persisted before chunks were
+  // introduced, are read as whole files.
+  private static final byte CHUNK_MARKER = -2;
   private static final int NO_XATTRS = -1;
 
   // Retain static arrays of enum values to prevent repeated allocation of new
@@ -60,6 +65,14 @@ public final class CopyListingFileStatus extends FileStatus {
   private List<AclEntry> aclEntries;
   private Map<String, byte[]> xAttrs;
 
+  // <chunkOffset, chunkLength> represents the offset and length of a file
+  // chunk in number of bytes.
+  // used when splitting a large file to chunks to copy in parallel.
+  // If a file is not large enough to split, chunkOffset would be 0 and
+  // chunkLength would be the length of the file.
+  private long chunkOffset = 0;
+  private long chunkLength = Long.MAX_VALUE;
+
   /**
    * Default constructor.
    */
@@ -76,6 +89,23 @@ public final class CopyListingFileStatus extends FileStatus {
     super(fileStatus);
   }
 
+  /**
+   * Creates a new CopyListingFileStatus for a chunk of the given
+   * CopyListingFileStatus.
+   *
+   * @param fileStatus CopyListingFileStatus to copy
+   * @param chunkOffset offset of the chunk in the file
+   * @param chunkLength length of the chunk
+   */
+  public CopyListingFileStatus(CopyListingFileStatus fileStatus,
+      long chunkOffset, long chunkLength) throws IOException {
+    super(fileStatus);
+    this.aclEntries = fileStatus.aclEntries;
+    this.xAttrs = fileStatus.xAttrs;
+    this.chunkOffset = chunkOffset;
+    this.chunkLength = chunkLength;
+  }
+
   /**
    * Returns the full logical ACL.
    *
@@ -113,9 +143,47 @@ public final class CopyListingFileStatus extends FileStatus {
     this.xAttrs = xAttrs;
   }
 
+  public long getChunkOffset() {
+    return chunkOffset;
+  }
+
+  public void setChunkOffset(long offset) {
+    this.chunkOffset = offset;
+  }
+
+  public long getChunkLength() {
+    return chunkLength;
+  }
+
+  public void setChunkLength(long chunkLength) {
+    this.chunkLength = chunkLength;
+  }
+
+  /**
+   * @return whether this entry is a chunk of a file rather than the whole
+   *         file
+   */
+  public boolean isSplit() {
+    return getChunkLength() != Long.MAX_VALUE &&
+        getChunkLength() != getLen();
+  }
+
+  /**
+   * @return number of bytes to copy for this entry, the chunk length for a
+   *         chunk and the file length otherwise
+   */
+  public long getSizeToCopy() {
+    return isSplit() ? getChunkLength() : getLen();
+  }
+
   @Override
   public void write(DataOutput out) throws IOException {
     super.write(out);
+    if (chunkOffset != 0 || chunkLength != Long.MAX_VALUE) {
+      out.writeByte(CHUNK_MARKER);
+      out.writeLong(chunkOffset);
+      out.writeLong(chunkLength);
+    }
     if (aclEntries != null) {
       // byte is sufficient, because 32 ACL entries is the max enforced by HDFS.
       out.writeByte(aclEntries.size());
@@ -154,6 +222,14 @@ public final class CopyListingFileStatus extends FileStatus {
   public void readFields(DataInput in) throws IOException {
     super.readFields(in);
     byte aclEntriesSize = in.readByte();
+    if (aclEntriesSize == CHUNK_MARKER) {
+      chunkOffset = in.readLong();
+      chunkLength = in.readLong();
+      aclEntriesSize = in.readByte();
+    } else {
+      chunkOffset = 0;
+      chunkLength = Long.MAX_VALUE;
+    }
     if (aclEntriesSize != NO_ACL_ENTRIES) {
       aclEntries = Lists.newArrayListWithCapacity(aclEntriesSize);
       for (int i = 0; i < aclEntriesSize; ++i) {
@@ -198,12 +274,15 @@ public final class CopyListingFileStatus extends FileStatus {
     }
     CopyListingFileStatus other = (CopyListingFileStatus)o;
     return Objects.equal(aclEntries, other.aclEntries) &&
-        Objects.equal(xAttrs, other.xAttrs);
+        Objects.equal(xAttrs, other.xAttrs) &&
+        chunkOffset == other.chunkOffset &&
+        chunkLength == other.chunkLength;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(super.hashCode(), aclEntries, xAttrs);
+    return Objects.hashCode(super.hashCode(), aclEntries, xAttrs,
+        chunkOffset, chunkLength);
   }
 
   @Override
@@ -212,6 +291,10 @@ public final class CopyListingFileStatus extends FileStatus {
     sb.append('{');
     sb.append("aclEntries = " + aclEntries);
     sb.append(", xAttrs = " + xAttrs);
+    if (isSplit()) {
+      sb.append(", chunkOffset = " + chunkOffset);
+      sb.append(", chunkLength = " + chunkLength);
+    }
     sb.append('}');
     return sb.toString();
   }
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * A trie of snapshot diff entries keyed by the components of one of their
+ * paths, with the children of each node kept sorted. It answers the lookups
+ * DistCpSync needs for renames in time proportional to the depth of a path,
+ * instead of scanning all the rename entries for every diff entry.
+ */
+class DiffPathTrie {
+
+  private static final class Node {
+    private final TreeMap<String, Node> children =
+        new TreeMap<String, Node>();
+    private DiffInfo diff;
+  }
+
+  private final Node root = new Node();
+  private int size;
+
+  /**
+   * Associates a diff entry with a path, replacing any previous one.
+   */
+  void put(Path path, DiffInfo diff) {
+    Node node = root;
+    for (String component : components(path)) {
+      Node child = node.children.get(component);
+      if (child == null) {
+        child = new Node();
+        node.children.put(component, child);
+      }
+      node = child;
+    }
+    if (node.diff == null) {
+      size++;
+    }
+    node.diff = diff;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Finds the diff entry of the deepest proper ancestor of the given path,
+   * or of the path itself when includeSelf is set.
+   *
+   * @return the diff entry, null if neither the path nor any of its
+   *         ancestors has one
+   */
+  DiffInfo getDeepest(Path path, boolean includeSelf) {
+    String[] components = components(path);
+    Node node = root;
+    DiffInfo deepest = null;
+    for (int i = 0; i < components.length; i++) {
+      node = node.children.get(components[i]);
+      if (node == null) {
+        return deepest;
+      }
+      if (node.diff != null && (i < components.length - 1 || includeSelf)) {
+        deepest = node.diff;
+      }
+    }
+    return deepest;
+  }
+
+  /**
+   * Collects the diff entries of all proper descendants of the given path,
+   * in path order.
+   */
+  List<DiffInfo> getDescendants(Path path) {
+    List<DiffInfo> descendants = new ArrayList<DiffInfo>();
+    Node node = root;
+    for (String component : components(path)) {
+      node = node.children.get(component);
+      if (node == null) {
+        return descendants;
+      }
+    }
+    Deque<Node> pending = new ArrayDeque<Node>();
+    pushChildren(node, pending);
+    while (!pending.isEmpty()) {
+      Node next = pending.pop();
+      if (next.diff != null) {
+        descendants.add(next.diff);
+      }
+      pushChildren(next, pending);
+    }
+    return descendants;
+  }
+
+  private static void pushChildren(Node node, Deque<Node> pending) {
+    for (Map.Entry<String, Node> child :
+        node.children.descendingMap().entrySet()) {
+      pending.push(child.getValue());
+    }
+  }
+
+  private static String[] components(Path path) {
+    String pathString = path.toUri().getPath();
+    int start = 0;
+    while (start < pathString.length()
+        && pathString.charAt(start) == Path.SEPARATOR_CHAR) {
+      start++;
+    }
+    if (start == pathString.length()) {
+      return new String[0];
+    }
+    return pathString.substring(start).split(Path.SEPARATOR);
+  }
+}
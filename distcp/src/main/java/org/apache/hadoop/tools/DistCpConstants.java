@@ -34,6 +34,18 @@ public class DistCpConstants {
   /* Default bandwidth if none specified */
   public static final int DEFAULT_BANDWIDTH_MB = 100;
 
+  /* Bandwidth value which disables the per map throttling */
+  public static final int UNLIMITED_BANDWIDTH_MB = -1;
+
+  /* Default size of the buffer used to copy file data */
+  public static final int DEFAULT_COPY_BUFFER_SIZE = 8 * 1024;
+
+  /* Default number of buffers in flight for the pipelined copy */
+  public static final int DEFAULT_COPY_PIPELINE_DEPTH = 4;
+
+  /* Suffix of the part files large files are copied to when split in chunks */
+  public static final String SPLIT_CHUNK_SUFFIX = ".____distcpSplit____";
+
   /* Default strategy for copying. Implementation looked up
      from distcp-default.xml
    */
@@ -63,6 +75,27 @@ public class DistCpConstants {
   public static final String CONF_LABEL_DIFF = "distcp.copy.diff";
   public static final String CONF_LABEL_RDIFF = "distcp.copy.rdiff";
   public static final String CONF_LABEL_BANDWIDTH_MB = "distcp.map.bandwidth.mb";
+  /* File holding the current per map bandwidth in MB/s, re-read while the
+   * maps run so the bandwidth of a running job can be changed */
+  public static final String CONF_LABEL_BANDWIDTH_FILE =
+      "distcp.map.bandwidth.file";
+  public static final String CONF_LABEL_BANDWIDTH_REFRESH_MS =
+      "distcp.map.bandwidth.refresh.ms";
+  public static final long DEFAULT_BANDWIDTH_REFRESH_MS = 10000;
+  public static final String CONF_LABEL_BLOCKS_PER_CHUNK =
+      "distcp.blocks.per.chunk";
+
+  /* Size of the buffer used to read from the source and write to the target */
+  public static final String CONF_LABEL_COPY_BUFFER_SIZE = "distcp.copy.buffer.size";
+
+  /* Read into ByteBuffers when the source stream supports it and copying is not throttled */
+  public static final String CONF_LABEL_COPY_BYTE_BUFFER_READS = "distcp.copy.bytebuffer.reads";
+
+  /* Read the source in a separate thread, overlapping reads with writes */
+  public static final String CONF_LABEL_COPY_PIPELINED = "distcp.copy.pipelined";
+
+  /* Number of buffers in flight between the reader and the writer of the pipelined copy */
+  public static final String CONF_LABEL_COPY_PIPELINE_DEPTH = "distcp.copy.pipeline.depth";
   public static final String CONF_LABEL_SIMPLE_LISTING_FILESTATUS_SIZE =
       "distcp.simplelisting.file.status.size";
   public static final String CONF_LABEL_SIMPLE_LISTING_RANDOMIZE_FILES =
@@ -193,6 +193,17 @@ public enum DistCpOptionSwitch {
   BANDWIDTH(DistCpConstants.CONF_LABEL_BANDWIDTH_MB,
       new Option("bandwidth", true, "Specify bandwidth per map in MB")),
 
+  /**
+   * Split files with more than the given number of blocks into chunks of
+   * that many blocks, copied in parallel and concatenated on commit.
+   */
+  BLOCKS_PER_CHUNK(DistCpConstants.CONF_LABEL_BLOCKS_PER_CHUNK,
+      new Option("blocksperchunk", true, "If set to a positive value, files "
+          + "with more blocks than this value will be split into chunks of "
+          + "<blocksperchunk> blocks to be transferred in parallel, and "
+          + "reassembled on the destination. Supported only when source and "
+          + "target are HDFS.")),
+
   /**
    * Path containing a list of strings, which when found in the path of
    * a file to be copied excludes that file from the copy job.
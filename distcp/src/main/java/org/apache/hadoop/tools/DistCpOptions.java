@@ -73,6 +73,7 @@ public class DistCpOptions {
   private int numListstatusThreads = 0;  // Indicates that flag is not set.
   private int maxMaps = DistCpConstants.DEFAULT_MAPS;
   private int mapBandwidth = DistCpConstants.DEFAULT_BANDWIDTH_MB;
+  private int blocksPerChunk = 0;  // Files are not split by default.
 
   private String sslConfigurationFile;
 
@@ -161,6 +162,7 @@ public class DistCpOptions {
       this.numListstatusThreads = that.numListstatusThreads;
       this.maxMaps = that.maxMaps;
       this.mapBandwidth = that.mapBandwidth;
+      this.blocksPerChunk = that.blocksPerChunk;
       this.sslConfigurationFile = that.getSslConfigurationFile();
       this.copyStrategy = that.copyStrategy;
       this.preserveStatus = that.preserveStatus;
@@ -400,6 +402,28 @@ public class DistCpOptions {
     }
   }
 
+  /** Get the number of blocks per chunk large files are split into
+   *
+   * @return Number of blocks per chunk, 0 when files are not split
+   */
+  public int getBlocksPerChunk() {
+    return blocksPerChunk;
+  }
+
+  /** Set the number of blocks per chunk. Files with more blocks are split
+   *  into chunks copied by different maps and concatenated on commit.
+   *  Setting it to zero or less disables splitting.
+   *
+   * @param blocksPerChunk - Number of blocks per chunk
+   */
+  public void setBlocksPerChunk(int blocksPerChunk) {
+    if (blocksPerChunk > 0 && append) {
+      throw new IllegalArgumentException(
+          "-blocksperchunk is not supported with -append");
+    }
+    this.blocksPerChunk = Math.max(blocksPerChunk, 0);
+  }
+
   /** Get the max number of maps to use for this copy
    *
    * @return Max number of maps
@@ -428,10 +452,12 @@ public class DistCpOptions {
   /**
    * Set per map bandwidth
    *
-   * @param mapBandwidth - per map bandwidth
+   * @param mapBandwidth - per map bandwidth, or
+   *        {@link DistCpConstants#UNLIMITED_BANDWIDTH_MB} to disable throttling
    */
   public void setMapBandwidth(int mapBandwidth) {
-    assert mapBandwidth > 0 : "Bandwidth " + mapBandwidth + " is invalid (should be > 0)";
+    assert mapBandwidth > 0 || mapBandwidth == DistCpConstants.UNLIMITED_BANDWIDTH_MB
+        : "Bandwidth " + mapBandwidth + " is invalid (should be > 0)";
     this.mapBandwidth = mapBandwidth;
   }
 
@@ -681,6 +707,10 @@ public class DistCpOptions {
       throw new IllegalArgumentException(
           "Append is disallowed when skipping CRC");
     }
+    if (blocksPerChunk > 0 && append) {
+      throw new IllegalArgumentException(
+          "-blocksperchunk is not supported with -append");
+    }
     if (!syncFolder && (useDiff || useRdiff)) {
       throw new IllegalArgumentException(
           "-diff/-rdiff is valid only with -update option");
@@ -730,6 +760,8 @@ public class DistCpOptions {
         String.valueOf(skipCRC));
     DistCpOptionSwitch.addToConf(conf, DistCpOptionSwitch.BANDWIDTH,
         String.valueOf(mapBandwidth));
+    DistCpOptionSwitch.addToConf(conf, DistCpOptionSwitch.BLOCKS_PER_CHUNK,
+        String.valueOf(blocksPerChunk));
     DistCpOptionSwitch.addToConf(conf, DistCpOptionSwitch.PRESERVE_STATUS,
         DistCpUtils.packAttributes(preserveStatus));
     DistCpOptionSwitch.addToConf(conf, DistCpOptionSwitch.VERBOSE_LOG,
@@ -763,6 +795,7 @@ public class DistCpOptions {
         ", numListstatusThreads=" + numListstatusThreads +
         ", maxMaps=" + maxMaps +
         ", mapBandwidth=" + mapBandwidth +
+        ", blocksPerChunk=" + blocksPerChunk +
         ", sslConfigurationFile='" + sslConfigurationFile + '\'' +
         ", copyStrategy='" + copyStrategy + '\'' +
         ", preserveStatus=" + preserveStatus +
@@ -28,6 +28,9 @@ import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.protocol.SnapshotDiffReport;
 import org.apache.hadoop.tools.CopyListing.InvalidInputException;
 
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
@@ -56,7 +59,10 @@ class DistCpSync {
   // afterwards, for better performance.
   //
   private EnumMap<SnapshotDiffReport.DiffType, List<DiffInfo>> diffMap;
-  private DiffInfo[] renameDiffs;
+  // Rename entries keyed by their source and by their target path, built on
+  // first use.
+  private DiffPathTrie renameSources;
+  private DiffPathTrie renameTargets;
 
   DistCpSync(DistCpOptions options, Configuration conf) {
     this.inputOptions = options;
@@ -183,6 +189,7 @@ class DistCpSync {
    * Get all diffs from source directory snapshot diff report, put them into an
    * EnumMap whose key is DiffType, and value is a DiffInfo list. If there is
    * no entry for a given DiffType, the associated value will be an empty list.
+   * The report itself is released once its entries are classified.
    */
   private boolean getAllDiffs() throws IOException {
     Path ssDir = isRdiff()?
@@ -196,6 +203,8 @@ class DistCpSync {
       SnapshotDiffReport report = fs.getSnapshotDiffReport(ssDir,
           from, to);
       this.diffMap = new EnumMap<>(SnapshotDiffReport.DiffType.class);
+      this.renameSources = null;
+      this.renameTargets = null;
       for (SnapshotDiffReport.DiffType type :
           SnapshotDiffReport.DiffType.values()) {
         diffMap.put(type, new ArrayList<DiffInfo>());
@@ -360,24 +369,19 @@ class DistCpSync {
     List<DiffInfo> renameDiffsList =
         diffMap.get(SnapshotDiffReport.DiffType.RENAME);
 
-    // Prepare a renameDiffArray for translating deleted items below.
+    // Prepare the reversed renames for translating deleted items below.
     // Do a reversion here due to HDFS-10263.
-    List<DiffInfo> renameDiffsListReversed =
-        new ArrayList<DiffInfo>(renameDiffsList.size());
+    DiffPathTrie renameDiffsReversed = new DiffPathTrie();
     for (DiffInfo diff : renameDiffsList) {
-      renameDiffsListReversed.add(new DiffInfo(diff.getTarget(),
+      renameDiffsReversed.put(diff.getTarget(), new DiffInfo(diff.getTarget(),
           diff.getSource(), diff.getType()));
     }
-    DiffInfo[] renameDiffArray =
-        renameDiffsListReversed.toArray(new DiffInfo[renameDiffsList.size()]);
-
-    Arrays.sort(renameDiffArray, DiffInfo.sourceComparator);
 
     List<DiffInfo> renameAndDeleteDiff = new ArrayList<>();
     // Traverse DELETE list, which we need to delete them in sync process.
-    // Use the renameDiffArray prepared to translate the path.
+    // Use the reversed renames prepared to translate the path.
     for (DiffInfo diff : diffMap.get(SnapshotDiffReport.DiffType.DELETE)) {
-      DiffInfo renameItem = getRenameItem(diff, renameDiffArray);
+      DiffInfo renameItem = getRenameItem(diff, renameDiffsReversed);
       Path source;
       if (renameItem != null) {
         source = new Path(targetDir,
@@ -420,59 +424,48 @@ class DistCpSync {
         new DiffInfo[renameAndDeleteDiff.size()]);
   }
 
-  private DiffInfo[] getCreateAndModifyDiffs() {
-    List<DiffInfo> createDiff =
-        diffMap.get(SnapshotDiffReport.DiffType.CREATE);
-    List<DiffInfo> modifyDiff =
-        diffMap.get(SnapshotDiffReport.DiffType.MODIFY);
-    List<DiffInfo> diffs =
-        new ArrayList<>(createDiff.size() + modifyDiff.size());
-    diffs.addAll(createDiff);
-    diffs.addAll(modifyDiff);
-    return diffs.toArray(new DiffInfo[diffs.size()]);
-  }
-
-  /**
-   * Probe for a path being a parent of another.
-   * @return true if the parent's path matches the start of the child's
-   */
-  private boolean isParentOf(Path parent, Path child) {
-    String parentPath = parent.toString();
-    String childPath = child.toString();
-    if (!parentPath.endsWith(Path.SEPARATOR)) {
-      parentPath += Path.SEPARATOR;
-    }
-
-    return childPath.length() > parentPath.length() &&
-        childPath.startsWith(parentPath);
-  }
-
   /**
    * Find the possible rename item which equals to the parent or self of
    * a created/modified file/directory.
    * @param diff a modify/create diff item
-   * @param renameDiffArray all rename diffs
+   * @param renames all rename diffs, keyed by their source path
    * @return possible rename item
    */
-  private DiffInfo getRenameItem(DiffInfo diff, DiffInfo[] renameDiffArray) {
-    for (DiffInfo renameItem : renameDiffArray) {
-      if (diff.getSource().equals(renameItem.getSource())) {
-        // The same path string may appear in:
-        // 1. both renamed and modified snapshot diff entries.
-        // 2. both renamed and created snapshot diff entries.
-        // Case 1 is the about same file/directory, whereas case 2
-        // is about two different files/directories.
-        // We are finding case 1 here, thus we check against DiffType.MODIFY.
-        if (diff.getType() == SnapshotDiffReport.DiffType.MODIFY) {
-          return renameItem;
-        }
-      } else if (isParentOf(renameItem.getSource(), diff.getSource())) {
-        // If rename entry is the parent of diff entry, then both MODIFY and
-        // CREATE diff entries should be handled.
-        return renameItem;
+  static DiffInfo getRenameItem(DiffInfo diff, DiffPathTrie renames) {
+    // The same path string may appear in:
+    // 1. both renamed and modified snapshot diff entries.
+    // 2. both renamed and created snapshot diff entries.
+    // Case 1 is the about same file/directory, whereas case 2
+    // is about two different files/directories.
+    // Only case 1 is translated by a rename of the path itself, thus we
+    // check against DiffType.MODIFY. If a rename entry is the parent of the
+    // diff entry, then both MODIFY and CREATE diff entries are handled by
+    // the deepest one. This is the entry the former linear scan returned:
+    // it walked the renames sorted by DiffInfo.sourceComparator, which
+    // orders sources descending, so a deeper ancestor came before the
+    // ancestors it is nested in.
+    return renames.getDeepest(diff.getSource(),
+        diff.getType() == SnapshotDiffReport.DiffType.MODIFY);
+  }
+
+  private DiffPathTrie getRenameSources() {
+    if (renameSources == null) {
+      renameSources = new DiffPathTrie();
+      for (DiffInfo diff : diffMap.get(SnapshotDiffReport.DiffType.RENAME)) {
+        renameSources.put(diff.getSource(), diff);
       }
     }
-    return null;
+    return renameSources;
+  }
+
+  private DiffPathTrie getRenameTargets() {
+    if (renameTargets == null) {
+      renameTargets = new DiffPathTrie();
+      for (DiffInfo diff : diffMap.get(SnapshotDiffReport.DiffType.RENAME)) {
+        renameTargets.put(diff.getTarget(), diff);
+      }
+    }
+    return renameTargets;
   }
 
   /**
@@ -488,7 +481,7 @@ class DistCpSync {
    *
    * @return target path
    */
-  private Path translateRenamedPath(Path sourcePath,
+  static Path translateRenamedPath(Path sourcePath,
       DiffInfo renameItem) {
     if (sourcePath.equals(renameItem.getSource())) {
       return renameItem.getTarget();
@@ -510,33 +503,31 @@ class DistCpSync {
    * For RDiff usage, the diff.getSource() is what we will use as its target
    * path.
    *
+   * The targets are resolved lazily while the list is iterated, so that the
+   * copy listing can be written as the diff entries are translated.
+   *
    * @return a diff list
    */
-  public ArrayList<DiffInfo> prepareDiffListForCopyListing() {
-    DiffInfo[] modifyAndCreateDiffs = getCreateAndModifyDiffs();
-    ArrayList<DiffInfo> finalListWithTarget = new ArrayList<>();
-    if (isRdiff()) {
-      for (DiffInfo diff : modifyAndCreateDiffs) {
-        diff.setTarget(diff.getSource());
-        finalListWithTarget.add(diff);
-      }
-    } else {
-      List<DiffInfo> renameDiffsList =
-          diffMap.get(SnapshotDiffReport.DiffType.RENAME);
-      DiffInfo[] renameDiffArray =
-          renameDiffsList.toArray(new DiffInfo[renameDiffsList.size()]);
-      Arrays.sort(renameDiffArray, DiffInfo.sourceComparator);
-      for (DiffInfo diff : modifyAndCreateDiffs) {
-        DiffInfo renameItem = getRenameItem(diff, renameDiffArray);
-        if (renameItem == null) {
-          diff.setTarget(diff.getSource());
-        } else {
-          diff.setTarget(translateRenamedPath(diff.getSource(), renameItem));
-        }
-        finalListWithTarget.add(diff);
-      }
-    }
-    return finalListWithTarget;
+  public Iterable<DiffInfo> prepareDiffListForCopyListing() {
+    Iterable<DiffInfo> modifyAndCreateDiffs = Iterables.concat(
+        diffMap.get(SnapshotDiffReport.DiffType.CREATE),
+        diffMap.get(SnapshotDiffReport.DiffType.MODIFY));
+    final DiffPathTrie renames = isRdiff() ? null : getRenameSources();
+    return Iterables.transform(modifyAndCreateDiffs,
+        new Function<DiffInfo, DiffInfo>() {
+          @Override
+          public DiffInfo apply(DiffInfo diff) {
+            DiffInfo renameItem = renames == null ? null
+                : getRenameItem(diff, renames);
+            if (renameItem == null) {
+              diff.setTarget(diff.getSource());
+            } else {
+              diff.setTarget(translateRenamedPath(diff.getSource(),
+                  renameItem));
+            }
+            return diff;
+          }
+        });
   }
 
   /**
@@ -554,28 +545,14 @@ class DistCpSync {
    * @return the exclude list
    */
   public HashSet<String> getTraverseExcludeList(Path newDir, Path prefix) {
-    if (renameDiffs == null) {
-      List<DiffInfo> renameList =
-          diffMap.get(SnapshotDiffReport.DiffType.RENAME);
-      renameDiffs = renameList.toArray(new DiffInfo[renameList.size()]);
-      Arrays.sort(renameDiffs, DiffInfo.targetComparator);
-    }
-
-    if (renameDiffs.length <= 0) {
+    DiffPathTrie renames = getRenameTargets();
+    if (renames.size() <= 0) {
       return null;
     }
 
-    boolean foundChild = false;
     HashSet<String> excludeList = new HashSet<>();
-    for (DiffInfo diff : renameDiffs) {
-      if (isParentOf(newDir, diff.getTarget())) {
-        foundChild = true;
-        excludeList.add(new Path(prefix, diff.getTarget()).toUri().getPath());
-      } else if (foundChild) {
-        // The renameDiffs was sorted, the matching section should be
-        // contiguous.
-        break;
-      }
+    for (DiffInfo diff : renames.getDescendants(newDir)) {
+      excludeList.add(new Path(prefix, diff.getTarget()).toUri().getPath());
     }
     return excludeList;
   }
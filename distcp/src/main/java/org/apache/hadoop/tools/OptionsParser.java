@@ -155,6 +155,8 @@ public class OptionsParser {
 
     parseMaxMaps(command, option);
 
+    parseBlocksPerChunk(command, option);
+
     if (command.hasOption(DistCpOptionSwitch.COPY_STRATEGY.getSwitch())) {
       option.setCopyStrategy(
             getVal(command, DistCpOptionSwitch.COPY_STRATEGY.getSwitch()));
@@ -279,6 +281,27 @@ public class OptionsParser {
     }
   }
 
+  /**
+   * parseBlocksPerChunk is a helper method for parsing BLOCKS_PER_CHUNK.
+   *
+   * @param command command line arguments
+   * @param option  parsed distcp options
+   */
+  private static void parseBlocksPerChunk(CommandLine command,
+                                          DistCpOptions option) {
+    if (command.hasOption(DistCpOptionSwitch.BLOCKS_PER_CHUNK.getSwitch())) {
+      try {
+        Integer blocksPerChunk = Integer.parseInt(getVal(command,
+            DistCpOptionSwitch.BLOCKS_PER_CHUNK.getSwitch()).trim());
+        option.setBlocksPerChunk(blocksPerChunk);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Blocks per chunk is invalid: " +
+            getVal(command, DistCpOptionSwitch.BLOCKS_PER_CHUNK.getSwitch()),
+            e);
+      }
+    }
+  }
+
   /**
    * parseNumListStatusThreads is a helper method for parsing
    * NUM_LISTSTATUS_THREADS.
@@ -314,7 +337,8 @@ public class OptionsParser {
       try {
         Integer mapBandwidth = Integer.parseInt(
             getVal(command, DistCpOptionSwitch.BANDWIDTH.getSwitch()).trim());
-        if (mapBandwidth <= 0) {
+        if (mapBandwidth <= 0
+            && mapBandwidth != DistCpConstants.UNLIMITED_BANDWIDTH_MB) {
           throw new IllegalArgumentException("Bandwidth specified is not " +
               "positive: " + mapBandwidth);
         }
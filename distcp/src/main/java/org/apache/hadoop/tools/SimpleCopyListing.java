@@ -25,6 +25,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.protocol.SnapshotDiffReport;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.IOUtils;
@@ -69,6 +70,7 @@ public class SimpleCopyListing extends CopyListing {
   private int numListstatusThreads = 1;
   private final int fileStatusLimit;
   private final boolean randomizeFileListing;
+  private int blocksPerChunk = 0;
 
   private final int maxRetries = 3;
   private CopyFilter copyFilter;
@@ -176,6 +178,10 @@ public class SimpleCopyListing extends CopyListing {
       }
     }
 
+    if (options.getBlocksPerChunk() > 0) {
+      checkSplitLargeFile(options, targetFS);
+    }
+
     if (targetIsReservedRaw) {
       options.preserveRawXattrs();
       getConf().setBoolean(DistCpConstants.CONF_LABEL_PRESERVE_RAWXATTRS, true);
@@ -192,9 +198,31 @@ public class SimpleCopyListing extends CopyListing {
     }
   }
 
+  /**
+   * Chunks of a split file are stitched together with HDFS concat, which
+   * requires both the source and the target to be HDFS.
+   */
+  private void checkSplitLargeFile(DistCpOptions options, FileSystem targetFS)
+      throws IOException, InvalidInputException {
+    if (!(targetFS instanceof DistributedFileSystem)) {
+      throw new InvalidInputException("-blocksperchunk requires the target " +
+          "to be DistributedFileSystem, but it is " +
+          targetFS.getClass().getName());
+    }
+    for (Path path : options.getSourcePaths()) {
+      FileSystem sourceFS = path.getFileSystem(getConf());
+      if (!(sourceFS instanceof DistributedFileSystem)) {
+        throw new InvalidInputException("-blocksperchunk requires the " +
+            "source to be DistributedFileSystem, but " + path + " is on " +
+            sourceFS.getClass().getName());
+      }
+    }
+  }
+
   @Override
   protected void doBuildListing(Path pathToListingFile,
                                 DistCpOptions options) throws IOException {
+    blocksPerChunk = options.getBlocksPerChunk();
     if(options.shouldUseSnapshotDiff()) {
       doBuildListingWithSnapshotDiff(getWriter(pathToListingFile), options);
     }else {
@@ -222,9 +250,10 @@ public class SimpleCopyListing extends CopyListing {
 
   /**
    * Write a single file/directory to the sequence file.
+   * @return the status of the file/directory
    * @throws IOException
    */
-  private void addToFileListing(SequenceFile.Writer fileListWriter,
+  private FileStatus addToFileListing(SequenceFile.Writer fileListWriter,
       Path sourceRoot, Path path, DistCpOptions options) throws IOException {
     sourceRoot = getPathWithSchemeAndAuthority(sourceRoot);
     path = getPathWithSchemeAndAuthority(path);
@@ -241,6 +270,7 @@ public class SimpleCopyListing extends CopyListing {
 
     writeToFileListingRoot(fileListWriter, fileCopyListingStatus,
         sourceRoot, options);
+    return fileStatus;
   }
 
   /**
@@ -250,14 +280,14 @@ public class SimpleCopyListing extends CopyListing {
    * files/directories will not be in the list, since they are handled by
    * {@link org.apache.hadoop.tools.DistCpSync#sync}. An item can be
    * created/modified and renamed, in which case, the target path is put
-   * into the list.
+   * into the list. Entries are written as the diff list is translated.
    * @throws IOException
    */
   @VisibleForTesting
   protected void doBuildListingWithSnapshotDiff(
       SequenceFile.Writer fileListWriter, DistCpOptions options)
       throws IOException {
-    ArrayList<DiffInfo> diffList = distCpSync.prepareDiffListForCopyListing();
+    Iterable<DiffInfo> diffList = distCpSync.prepareDiffListForCopyListing();
     Path sourceRoot = options.getSourcePaths().get(0);
     FileSystem sourceFS = sourceRoot.getFileSystem(getConf());
 
@@ -271,10 +301,8 @@ public class SimpleCopyListing extends CopyListing {
           addToFileListing(fileListWriter,
               sourceRoot, diff.getTarget(), options);
         } else if (diff.getType() == SnapshotDiffReport.DiffType.CREATE) {
-          addToFileListing(fileListWriter,
+          FileStatus sourceStatus = addToFileListing(fileListWriter,
               sourceRoot, diff.getTarget(), options);
-
-          FileStatus sourceStatus = sourceFS.getFileStatus(diff.getTarget());
           if (sourceStatus.isDirectory()) {
             if (LOG.isDebugEnabled()) {
               LOG.debug("Adding source dir for traverse: " +
@@ -704,9 +732,28 @@ public class SimpleCopyListing extends CopyListing {
       return;
     }
 
-    fileListWriter.append(new Text(DistCpUtils.getRelativePath(sourcePathRoot,
-        fileStatus.getPath())), fileStatus);
-    fileListWriter.sync();
+    Text relPath = new Text(DistCpUtils.getRelativePath(sourcePathRoot,
+        fileStatus.getPath()));
+    long chunkSize = fileStatus.getBlockSize() * blocksPerChunk;
+    if (blocksPerChunk > 0 && !fileStatus.isDirectory()
+        && fileStatus.getLen() > chunkSize) {
+      // Chunks are written next to each other, the committer relies on it
+      // to concatenate them. Each is followed by a sync marker, so the input
+      // formats can hand them to different maps.
+      for (long offset = 0; offset < fileStatus.getLen();
+           offset += chunkSize) {
+        CopyListingFileStatus chunk = new CopyListingFileStatus(fileStatus,
+            offset, Math.min(chunkSize, fileStatus.getLen() - offset));
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Adding chunk " + chunk);
+        }
+        fileListWriter.append(relPath, chunk);
+        fileListWriter.sync();
+      }
+    } else {
+      fileListWriter.append(relPath, fileStatus);
+      fileListWriter.sync();
+    }
 
     if (!fileStatus.isDirectory()) {
       totalBytesToCopy += fileStatus.getLen();
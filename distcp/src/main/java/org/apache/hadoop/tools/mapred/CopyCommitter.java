@@ -42,6 +42,7 @@ import org.apache.hadoop.tools.util.DistCpUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -55,6 +56,7 @@ import java.util.List;
  *     (if atomic-commit was opted for).
  *  4. Deletion of files from the target that are missing at source (if opted for).
  *  5. Cleanup of any partially copied files, from previous, failed attempts.
+ *  6. Concatenation of the chunks of files split for parallel copy.
  */
 public class CopyCommitter extends FileOutputCommitter {
   private static final Log LOG = LogFactory.getLog(CopyCommitter.class);
@@ -88,6 +90,10 @@ public class CopyCommitter extends FileOutputCommitter {
 
     cleanupTempFiles(jobContext);
 
+    if (conf.getInt(DistCpConstants.CONF_LABEL_BLOCKS_PER_CHUNK, 0) > 0) {
+      concatFileChunks(conf);
+    }
+
     String attributes = conf.get(DistCpConstants.CONF_LABEL_PRESERVE_STATUS);
     final boolean preserveRawXattrs =
         conf.getBoolean(DistCpConstants.CONF_LABEL_PRESERVE_RAWXATTRS, false);
@@ -166,6 +172,130 @@ public class CopyCommitter extends FileOutputCommitter {
     }
   }
 
+  // This method concatenates the part files the chunks of split files were
+  // copied to, and verifies the resulting files against their source.
+  private void concatFileChunks(Configuration conf) throws IOException {
+    LOG.info("About to concatenate chunks of split files");
+
+    Path sourceListing = new Path(conf.get(DistCpConstants.CONF_LABEL_LISTING_FILE_PATH));
+    FileSystem clusterFS = sourceListing.getFileSystem(conf);
+    SequenceFile.Reader sourceReader = new SequenceFile.Reader(conf,
+                                      SequenceFile.Reader.file(sourceListing));
+    long totalLen = clusterFS.getFileStatus(sourceListing).getLen();
+
+    Path targetRoot = new Path(conf.get(DistCpConstants.CONF_LABEL_TARGET_WORK_PATH));
+
+    long concatenatedFiles = 0;
+    try {
+      CopyListingFileStatus srcFileStatus = new CopyListingFileStatus();
+      Text srcRelPath = new Text();
+      CopyListingFileStatus lastFileStatus = null;
+      Path lastTargetFile = null;
+      List<Path> chunks = new LinkedList<Path>();
+
+      // Chunks of a file are listed next to each other, in offset order.
+      while (sourceReader.next(srcRelPath, srcFileStatus)) {
+        if (lastFileStatus != null && (!srcFileStatus.isSplit()
+            || !lastFileStatus.getPath().equals(srcFileStatus.getPath()))) {
+          if (concatChunks(conf, lastFileStatus, lastTargetFile, chunks)) {
+            concatenatedFiles++;
+          }
+          lastFileStatus = null;
+          chunks.clear();
+        }
+        if (!srcFileStatus.isSplit()) {
+          continue;
+        }
+
+        Path targetFile = new Path(targetRoot.toString() + "/" + srcRelPath);
+        chunks.add(DistCpUtils.getSplitChunkPath(targetFile, srcFileStatus));
+        if (lastFileStatus == null) {
+          lastFileStatus = new CopyListingFileStatus(srcFileStatus,
+              srcFileStatus.getChunkOffset(), srcFileStatus.getChunkLength());
+          lastTargetFile = targetFile;
+        }
+
+        taskAttemptContext.progress();
+        taskAttemptContext.setStatus("Concatenating file chunks. [" +
+            sourceReader.getPosition() * 100 / totalLen + "%]");
+      }
+      if (lastFileStatus != null
+          && concatChunks(conf, lastFileStatus, lastTargetFile, chunks)) {
+        concatenatedFiles++;
+      }
+    } finally {
+      IOUtils.closeStream(sourceReader);
+    }
+    LOG.info("Concatenated chunks of " + concatenatedFiles + " files on target");
+  }
+
+  /**
+   * Concatenates the part files of one split file into the target file.
+   *
+   * @return true if the file was concatenated, false if it was skipped
+   *         during the copy
+   */
+  private boolean concatChunks(Configuration conf,
+      CopyListingFileStatus srcFileStatus, Path targetFile, List<Path> chunks)
+      throws IOException {
+    FileSystem targetFS = targetFile.getFileSystem(conf);
+    List<Path> copiedChunks = new ArrayList<Path>(chunks.size());
+    for (Path chunk : chunks) {
+      if (targetFS.exists(chunk)) {
+        copiedChunks.add(chunk);
+      }
+    }
+    if (copiedChunks.isEmpty()) {
+      // None of the chunks was copied, the target was up to date.
+      return false;
+    }
+    if (copiedChunks.size() != chunks.size()) {
+      for (Path chunk : copiedChunks) {
+        targetFS.delete(chunk, false);
+      }
+      String message = "Only " + copiedChunks.size() + " of " + chunks.size()
+          + " chunks of " + srcFileStatus.getPath() + " were copied to "
+          + targetFile;
+      if (conf.getBoolean(DistCpConstants.CONF_LABEL_IGNORE_FAILURES, false)) {
+        LOG.warn(message + ". Ignoring, as failures are ignored.");
+        return false;
+      }
+      throw new IOException(message);
+    }
+
+    Path firstChunk = chunks.get(0);
+    if (chunks.size() > 1) {
+      List<Path> rest = chunks.subList(1, chunks.size());
+      targetFS.concat(firstChunk, rest.toArray(new Path[rest.size()]));
+    }
+    if ((targetFS.exists(targetFile) && !targetFS.delete(targetFile, false))
+        || !targetFS.rename(firstChunk, targetFile)) {
+      throw new IOException("Failed to move concatenated chunks " + firstChunk
+          + " to " + targetFile);
+    }
+
+    Path sourcePath = srcFileStatus.getPath();
+    if (targetFS.getFileStatus(targetFile).getLen() != srcFileStatus.getLen()) {
+      throw new IOException("Mismatch in length of source:" + sourcePath
+          + " and target:" + targetFile);
+    }
+    if (!conf.getBoolean(DistCpConstants.CONF_LABEL_SKIP_CRC, false)
+        && !DistCpUtils.checksumsAreEqual(sourcePath.getFileSystem(conf),
+            sourcePath, null, targetFS, targetFile)) {
+      throw new IOException("Check-sum mismatch between " + sourcePath
+          + " and " + targetFile + ".");
+    }
+
+    // Concatenation updates the modification time of the target.
+    EnumSet<FileAttribute> attributes = DistCpUtils.unpackAttributes(
+        conf.get(DistCpConstants.CONF_LABEL_PRESERVE_STATUS));
+    if (attributes.contains(FileAttribute.TIMES)) {
+      targetFS.setTimes(targetFile, srcFileStatus.getModificationTime(),
+          srcFileStatus.getAccessTime());
+    }
+    return true;
+  }
+
   // This method changes the target-directories' file-attributes (owner,
   // user/group permissions, etc.) based on the corresponding source directories.
   private void preserveFileAttributesForDirectories(Configuration conf) throws IOException {
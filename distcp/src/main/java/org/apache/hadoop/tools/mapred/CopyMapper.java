@@ -65,6 +65,7 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
     BYTESEXPECTED,// Number of bytes expected to be copied.
     BYTESFAILED,  // Number of bytes that failed to be copied.
     BYTESSKIPPED, // Number of bytes that were skipped from copy.
+    BANDWIDTH_IN_BYTES, // Copy throughput of the mapper, in bytes per second.
   }
 
   /**
@@ -90,6 +91,8 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
 
   private FileSystem targetFS = null;
   private Path    targetWorkPath = null;
+  private long bytesCopiedTotal = 0;
+  private long copyMillisTotal = 0;
 
   /**
    * Implementation of the Mapper::setup() method. This extracts the DistCp-
@@ -126,6 +129,22 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
     }
   }
 
+  /**
+   * Publishes the copy throughput of this mapper, measured over the time
+   * spent copying files.
+   * @param context Mapper's context.
+   * @throws IOException On IO failure.
+   * @throws InterruptedException If the job is interrupted.
+   */
+  @Override
+  protected void cleanup(Context context)
+      throws IOException, InterruptedException {
+    if (copyMillisTotal > 0) {
+      incrementCounter(context, Counter.BANDWIDTH_IN_BYTES,
+          bytesCopiedTotal * 1000 / copyMillisTotal);
+    }
+  }
+
   /**
    * Initialize SSL Config if same is set in conf
    *
@@ -229,6 +248,10 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
       } catch (FileNotFoundException e) {
         throw new IOException(new RetriableFileCopyCommand.CopyReadException(e));
       }
+      if (sourceFileStatus.isSplit()) {
+        sourceCurrStatus.setChunkOffset(sourceFileStatus.getChunkOffset());
+        sourceCurrStatus.setChunkLength(sourceFileStatus.getChunkLength());
+      }
 
       FileStatus targetStatus = null;
 
@@ -250,6 +273,7 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
       }
 
       FileAction action = checkUpdate(sourceFS, sourceCurrStatus, target, targetStatus);
+      Path copyTarget = target;
       if (action == FileAction.SKIP) {
         LOG.info("Skipping copy of " + sourceCurrStatus.getPath()
                  + " to " + target);
@@ -264,12 +288,17 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
                               0 : targetStatus.getLen())));
           }
       } else {
-        copyFileWithRetry(description, sourceCurrStatus, target, targetStatus, context,
-            action, fileAttributes);
+        if (sourceCurrStatus.isSplit()) {
+          // Chunks are copied to part files, concatenated by the committer.
+          copyTarget = DistCpUtils.getSplitChunkPath(target, sourceCurrStatus);
+          action = FileAction.OVERWRITE;
+        }
+        copyFileWithRetry(description, sourceCurrStatus, copyTarget,
+            targetStatus, context, action, fileAttributes);
       }
 
-      DistCpUtils.preserve(target.getFileSystem(conf), target, sourceCurrStatus,
-          fileAttributes, preserveRawXattrs);
+      DistCpUtils.preserve(target.getFileSystem(conf), copyTarget,
+          sourceCurrStatus, fileAttributes, preserveRawXattrs);
     } catch (IOException exception) {
       handleFailures(exception, sourceFileStatus, target, context);
     }
@@ -287,10 +316,11 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
   }
 
   private void copyFileWithRetry(String description,
-      FileStatus sourceFileStatus, Path target, FileStatus targrtFileStatus, Context context,
+      CopyListingFileStatus sourceFileStatus, Path target, FileStatus targrtFileStatus, Context context,
       FileAction action, EnumSet<DistCpOptions.FileAttribute> fileAttributes)
           throws IOException, InterruptedException {
     long bytesCopied;
+    long startTime = System.currentTimeMillis();
     try {
       bytesCopied = (Long) new RetriableFileCopyCommand(skipCrc, description,
           action).execute(sourceFileStatus, target, context, fileAttributes);
@@ -299,9 +329,12 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
       throw new IOException("File copy failed: " + sourceFileStatus.getPath() +
           " --> " + target, e);
     }
-    incrementCounter(context, Counter.BYTESEXPECTED, sourceFileStatus.getLen());
+    incrementCounter(context, Counter.BYTESEXPECTED,
+        sourceFileStatus.getSizeToCopy());
     incrementCounter(context, Counter.BYTESCOPIED, bytesCopied);
     incrementCounter(context, Counter.COPY, 1);
+    bytesCopiedTotal += bytesCopied;
+    copyMillisTotal += System.currentTimeMillis() - startTime;
 
     if (verboseLog) {
       context.write(null,
@@ -323,13 +356,13 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
   }
 
   private static void updateSkipCounters(Context context,
-                                         FileStatus sourceFile) {
+                                         CopyListingFileStatus sourceFile) {
     incrementCounter(context, Counter.SKIP, 1);
-    incrementCounter(context, Counter.BYTESSKIPPED, sourceFile.getLen());
+    incrementCounter(context, Counter.BYTESSKIPPED, sourceFile.getSizeToCopy());
   }
 
   private void handleFailures(IOException exception,
-                                     FileStatus sourceFileStatus, Path target,
+                                     CopyListingFileStatus sourceFileStatus, Path target,
                                      Context context) throws IOException, InterruptedException {
     LOG.error("Failure in copying " + sourceFileStatus.getPath() + " to " +
                 target, exception);
@@ -337,7 +370,8 @@ public class CopyMapper extends Mapper<Text, CopyListingFileStatus, Text, Text>
     if (ignoreFailures &&
         ExceptionUtils.indexOfType(exception, CopyReadException.class) != -1) {
       incrementCounter(context, Counter.FAIL, 1);
-      incrementCounter(context, Counter.BYTESFAILED, sourceFileStatus.getLen());
+      incrementCounter(context, Counter.BYTESFAILED,
+          sourceFileStatus.getSizeToCopy());
       context.write(null, new Text("FAIL: " + sourceFileStatus.getPath() + " - " +
           StringUtils.stringifyException(exception)));
     }
@@ -20,12 +20,18 @@ package org.apache.hadoop.tools.mapred;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ByteBufferReadable;
 import org.apache.hadoop.fs.CreateFlag;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -37,10 +43,12 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.tools.CopyListingFileStatus;
 import org.apache.hadoop.tools.DistCpConstants;
 import org.apache.hadoop.tools.DistCpOptions.FileAttribute;
 import org.apache.hadoop.tools.mapred.CopyMapper.FileAction;
 import org.apache.hadoop.tools.util.DistCpUtils;
+import org.apache.hadoop.tools.util.DynamicBandwidth;
 import org.apache.hadoop.tools.util.RetriableCommand;
 import org.apache.hadoop.tools.util.ThrottledInputStream;
 
@@ -53,7 +61,6 @@ import com.google.common.annotations.VisibleForTesting;
 public class RetriableFileCopyCommand extends RetriableCommand {
 
   private static Log LOG = LogFactory.getLog(RetriableFileCopyCommand.class);
-  private static int BUFFER_SIZE = 8 * 1024;
   private boolean skipCrc = false;
   private FileAction action;
 
@@ -118,15 +125,23 @@ public class RetriableFileCopyCommand extends RetriableCommand {
           .contains(FileAttribute.CHECKSUMTYPE) ? sourceFS
           .getFileChecksum(sourcePath) : null;
 
+      final boolean isSplit = isSplit(sourceFileStatus);
       final long offset = action == FileAction.APPEND ? targetFS.getFileStatus(
           target).getLen() : 0;
       long bytesRead = copyToFile(targetPath, targetFS, sourceFileStatus,
           offset, context, fileAttributes, sourceChecksum);
 
-      compareFileLengths(sourceFileStatus, targetPath, configuration, bytesRead
-          + offset);
+      if (isSplit) {
+        compareChunkLength((CopyListingFileStatus) sourceFileStatus,
+            targetPath, bytesRead);
+      } else {
+        compareFileLengths(sourceFileStatus, targetPath, configuration,
+            bytesRead + offset);
+      }
       //At this point, src&dest lengths are same. if length==0, we skip checksum
-      if ((bytesRead != 0) && (!skipCrc)) {
+      //The checksum of a chunk is checked by the committer, once the chunks
+      //are concatenated.
+      if ((bytesRead != 0) && (!skipCrc) && !isSplit) {
         compareCheckSums(sourceFS, sourceFileStatus.getPath(), sourceChecksum,
             targetFS, targetPath);
       }
@@ -165,6 +180,7 @@ public class RetriableFileCopyCommand extends RetriableCommand {
       throws IOException {
     FsPermission permission = FsPermission.getFileDefault().applyUMask(
         FsPermission.getUMask(targetFS.getConf()));
+    final int bufferSize = getBufferSize(context.getConfiguration());
     final OutputStream outStream;
     if (action == FileAction.OVERWRITE) {
       final short repl = getReplicationFactor(fileAttributes, sourceFileStatus,
@@ -173,17 +189,34 @@ public class RetriableFileCopyCommand extends RetriableCommand {
           targetFS, targetPath);
       FSDataOutputStream out = targetFS.create(targetPath, permission,
           EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
-          BUFFER_SIZE, repl, blockSize, context,
+          bufferSize, repl, blockSize, context,
           getChecksumOpt(fileAttributes, sourceChecksum));
-      outStream = new BufferedOutputStream(out);
+      outStream = wrapOutputStream(out, bufferSize);
     } else {
-      outStream = new BufferedOutputStream(targetFS.append(targetPath,
-          BUFFER_SIZE));
+      outStream = wrapOutputStream(targetFS.append(targetPath, bufferSize),
+          bufferSize);
     }
-    return copyBytes(sourceFileStatus, sourceOffset, outStream, BUFFER_SIZE,
+    return copyBytes(sourceFileStatus, sourceOffset, outStream, bufferSize,
         context);
   }
 
+  private static int getBufferSize(Configuration conf) {
+    return Math.max(conf.getInt(DistCpConstants.CONF_LABEL_COPY_BUFFER_SIZE,
+        DistCpConstants.DEFAULT_COPY_BUFFER_SIZE),
+        DistCpConstants.DEFAULT_COPY_BUFFER_SIZE);
+  }
+
+  /**
+   * Writes of the default size are buffered. Larger copy buffers are handed
+   * to the target stream directly, another copy into a buffered stream would
+   * only cost CPU.
+   */
+  private static OutputStream wrapOutputStream(FSDataOutputStream out,
+      int bufferSize) {
+    return bufferSize > DistCpConstants.DEFAULT_COPY_BUFFER_SIZE
+        ? out : new BufferedOutputStream(out);
+  }
+
   private void compareFileLengths(FileStatus sourceFileStatus, Path target,
                                   Configuration configuration, long targetLen)
                                   throws IOException {
@@ -194,6 +227,20 @@ public class RetriableFileCopyCommand extends RetriableCommand {
                 + " and target:" + target);
   }
 
+  private void compareChunkLength(CopyListingFileStatus sourceFileStatus,
+      Path target, long bytesRead) throws IOException {
+    if (sourceFileStatus.getChunkLength() != bytesRead) {
+      throw new IOException("Mismatch in length of chunk at offset "
+          + sourceFileStatus.getChunkOffset() + " of source:"
+          + sourceFileStatus.getPath() + " and target:" + target);
+    }
+  }
+
+  private static boolean isSplit(FileStatus sourceFileStatus) {
+    return sourceFileStatus instanceof CopyListingFileStatus
+        && ((CopyListingFileStatus) sourceFileStatus).isSplit();
+  }
+
   private void compareCheckSums(FileSystem sourceFS, Path source,
       FileChecksum sourceChecksum, FileSystem targetFS, Path target)
       throws IOException {
@@ -241,26 +288,112 @@ public class RetriableFileCopyCommand extends RetriableCommand {
       OutputStream outStream, int bufferSize, Mapper.Context context)
       throws IOException {
     Path source = sourceFileStatus.getPath();
-    byte buf[] = new byte[bufferSize];
-    ThrottledInputStream inStream = null;
-    long totalBytesRead = 0;
+    Configuration conf = context.getConfiguration();
+    SourceReader reader = null;
+    long totalBytesRead;
 
     try {
-      inStream = getInputStream(source, context.getConfiguration());
-      int bytesRead = readBytes(inStream, buf, sourceOffset);
-      while (bytesRead >= 0) {
-        totalBytesRead += bytesRead;
-        if (action == FileAction.APPEND) {
-          sourceOffset += bytesRead;
+      long position = sourceOffset;
+      long length = Long.MAX_VALUE;
+      if (isSplit(sourceFileStatus)) {
+        CopyListingFileStatus chunk = (CopyListingFileStatus) sourceFileStatus;
+        position = chunk.getChunkOffset();
+        length = chunk.getChunkLength();
+      }
+      reader = new SourceReader(getInputStream(source, conf), position, length,
+          conf.getBoolean(DistCpConstants.CONF_LABEL_COPY_BYTE_BUFFER_READS,
+              false));
+      if (conf.getBoolean(DistCpConstants.CONF_LABEL_COPY_PIPELINED, false)) {
+        totalBytesRead = copyPipelined(reader, outStream, bufferSize,
+            conf.getInt(DistCpConstants.CONF_LABEL_COPY_PIPELINE_DEPTH,
+                DistCpConstants.DEFAULT_COPY_PIPELINE_DEPTH),
+            context, sourceFileStatus);
+      } else {
+        totalBytesRead = 0;
+        byte buf[] = new byte[bufferSize];
+        int bytesRead = reader.read(buf);
+        while (bytesRead >= 0) {
+          totalBytesRead += bytesRead;
+          outStream.write(buf, 0, bytesRead);
+          updateContextStatus(totalBytesRead, context, sourceFileStatus);
+          bytesRead = reader.read(buf);
         }
-        outStream.write(buf, 0, bytesRead);
-        updateContextStatus(totalBytesRead, context, sourceFileStatus);
-        bytesRead = readBytes(inStream, buf, sourceOffset);
       }
       outStream.close();
       outStream = null;
     } finally {
-      IOUtils.cleanup(LOG, outStream, inStream);
+      IOUtils.cleanup(LOG, outStream, reader);
+    }
+    return totalBytesRead;
+  }
+
+  /**
+   * Copies with a reader thread filling a fixed pool of buffers while the
+   * calling thread writes the filled ones, so that reading from the source
+   * overlaps writing to the target.
+   */
+  private long copyPipelined(final SourceReader reader, OutputStream outStream,
+      int bufferSize, int depth, Mapper.Context context,
+      FileStatus sourceFileStatus) throws IOException {
+    final int numBuffers = Math.max(depth, 2);
+    final BlockingQueue<byte[]> freeBuffers =
+        new ArrayBlockingQueue<byte[]>(numBuffers);
+    // room for every buffer plus the end-of-file or failure marker
+    final BlockingQueue<Chunk> filledBuffers =
+        new ArrayBlockingQueue<Chunk>(numBuffers + 1);
+    for (int i = 0; i < numBuffers; i++) {
+      freeBuffers.add(new byte[bufferSize]);
+    }
+
+    Thread readerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          int bytesRead;
+          do {
+            byte[] buf = freeBuffers.take();
+            bytesRead = reader.read(buf);
+            filledBuffers.put(new Chunk(buf, bytesRead, null));
+          } while (bytesRead >= 0);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+          filledBuffers.offer(new Chunk(null, -1, t));
+        }
+      }
+    }, "distcp-reader-" + description);
+    readerThread.setDaemon(true);
+    readerThread.start();
+
+    long totalBytesRead = 0;
+    try {
+      while (true) {
+        Chunk chunk = filledBuffers.take();
+        if (chunk.failure != null) {
+          if (chunk.failure instanceof IOException) {
+            throw (IOException) chunk.failure;
+          }
+          throw new CopyReadException(chunk.failure);
+        }
+        if (chunk.length < 0) {
+          break;
+        }
+        totalBytesRead += chunk.length;
+        outStream.write(chunk.buffer, 0, chunk.length);
+        updateContextStatus(totalBytesRead, context, sourceFileStatus);
+        freeBuffers.add(chunk.buffer);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while copying "
+          + sourceFileStatus.getPath());
+    } finally {
+      readerThread.interrupt();
+      try {
+        readerThread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
     }
     return totalBytesRead;
   }
@@ -278,26 +411,24 @@ public class RetriableFileCopyCommand extends RetriableCommand {
     context.setStatus(message.toString());
   }
 
-  private static int readBytes(ThrottledInputStream inStream, byte buf[],
-      long position) throws IOException {
-    try {
-      if (position == 0) {
-        return inStream.read(buf);
-      } else {
-        return inStream.read(position, buf, 0, buf.length);
-      }
-    } catch (IOException e) {
-      throw new CopyReadException(e);
-    }
-  }
-
-  private static ThrottledInputStream getInputStream(Path path,
+  /**
+   * Opens the source, throttled to the configured per map bandwidth unless
+   * the bandwidth is unlimited. A bandwidth file, when configured, overrides
+   * the configured bandwidth as it changes.
+   */
+  private static InputStream getInputStream(Path path,
       Configuration conf) throws IOException {
     try {
       FileSystem fs = path.getFileSystem(conf);
       long bandwidthMB = conf.getInt(DistCpConstants.CONF_LABEL_BANDWIDTH_MB,
               DistCpConstants.DEFAULT_BANDWIDTH_MB);
       FSDataInputStream in = fs.open(path);
+      if (conf.get(DistCpConstants.CONF_LABEL_BANDWIDTH_FILE) != null) {
+        return new ThrottledInputStream(in, DynamicBandwidth.get(conf));
+      }
+      if (bandwidthMB <= 0) {
+        return in;
+      }
       return new ThrottledInputStream(in, bandwidthMB * 1024 * 1024);
     }
     catch (IOException e) {
@@ -314,18 +445,122 @@ public class RetriableFileCopyCommand extends RetriableCommand {
 
   /**
    * @return the block size of the source file if we need to preserve either
-   *         the block size or the checksum type. Otherwise the default block
-   *         size of the target FS.
+   *         the block size or the checksum type, or if the source is a chunk
+   *         of a split file. Otherwise the default block size of the target
+   *         FS.
    */
   private static long getBlockSize(
           EnumSet<FileAttribute> fileAttributes,
           FileStatus sourceFile, FileSystem targetFS, Path tmpTargetPath) {
+    // Chunks of a split file must keep the source block size, so that they
+    // consist of whole blocks and can be concatenated.
     boolean preserve = fileAttributes.contains(FileAttribute.BLOCKSIZE)
-        || fileAttributes.contains(FileAttribute.CHECKSUMTYPE);
+        || fileAttributes.contains(FileAttribute.CHECKSUMTYPE)
+        || isSplit(sourceFile);
     return preserve ? sourceFile.getBlockSize() : targetFS
         .getDefaultBlockSize(tmpTargetPath);
   }
 
+  /**
+   * Reads the source into the copy buffer, from the given offset and up to
+   * the given number of bytes. A throttled stream is read as before:
+   * sequentially from the start of the file, or with positioned reads from
+   * any other offset. An unthrottled stream is positioned once at the offset
+   * and read sequentially, through read(ByteBuffer) when enabled and
+   * supported by the underlying stream, which lets it fill the copy buffer
+   * directly.
+   */
+  private static final class SourceReader implements java.io.Closeable {
+    private final InputStream inStream;
+    private final boolean sequential;
+    private final boolean byteBufferReads;
+    private long position;
+    private long remaining;
+    private ByteBuffer byteBuffer;
+
+    private SourceReader(InputStream inStream, long position, long length,
+        boolean byteBufferReads) throws IOException {
+      this.inStream = inStream;
+      this.position = position;
+      this.remaining = length;
+      if (inStream instanceof FSDataInputStream) {
+        FSDataInputStream in = (FSDataInputStream) inStream;
+        this.sequential = true;
+        this.byteBufferReads = byteBufferReads
+            && in.getWrappedStream() instanceof ByteBufferReadable;
+        if (position != 0) {
+          try {
+            in.seek(position);
+          } catch (IOException e) {
+            throw new CopyReadException(e);
+          }
+        }
+      } else {
+        this.sequential = position == 0;
+        this.byteBufferReads = false;
+      }
+    }
+
+    private int read(byte[] buf) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int len = (int) Math.min(buf.length, remaining);
+      try {
+        int bytesRead;
+        if (inStream instanceof FSDataInputStream) {
+          bytesRead = readUnthrottled((FSDataInputStream) inStream, buf, len);
+        } else if (sequential) {
+          bytesRead = inStream.read(buf, 0, len);
+        } else {
+          bytesRead = ((ThrottledInputStream) inStream).read(position, buf, 0,
+              len);
+        }
+        if (bytesRead > 0) {
+          position += bytesRead;
+          remaining -= bytesRead;
+        }
+        return bytesRead;
+      } catch (IOException e) {
+        throw new CopyReadException(e);
+      }
+    }
+
+    private int readUnthrottled(FSDataInputStream in, byte[] buf, int len)
+        throws IOException {
+      if (!byteBufferReads) {
+        return in.read(buf, 0, len);
+      }
+      if (byteBuffer == null || byteBuffer.array() != buf) {
+        byteBuffer = ByteBuffer.wrap(buf);
+      }
+      byteBuffer.clear();
+      byteBuffer.limit(len);
+      int bytesRead = in.read(byteBuffer);
+      return bytesRead == 0 && len > 0 ? in.read(buf, 0, len) : bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+      inStream.close();
+    }
+  }
+
+  /**
+   * Buffer handed from the reader to the writer of the pipelined copy.
+   */
+  private static final class Chunk {
+    private final byte[] buffer;
+    private final int length;
+    private final Throwable failure;
+
+    private Chunk(byte[] buffer, int length, Throwable failure) {
+      this.buffer = buffer;
+      this.length = length;
+      this.failure = failure;
+    }
+  }
+
   /**
    * Special subclass of IOException. This is used to distinguish read-operation
    * failures from other kinds of IOExceptions.
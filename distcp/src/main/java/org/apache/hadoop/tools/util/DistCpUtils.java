@@ -36,6 +36,7 @@ import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.tools.CopyListing.AclsNotSupportedException;
 import org.apache.hadoop.tools.CopyListing.XAttrsNotSupportedException;
 import org.apache.hadoop.tools.CopyListingFileStatus;
+import org.apache.hadoop.tools.DistCpConstants;
 import org.apache.hadoop.tools.DistCpOptions;
 import org.apache.hadoop.tools.DistCpOptions.FileAttribute;
 import org.apache.hadoop.tools.mapred.UniformSizeInputFormat;
@@ -143,6 +144,22 @@ public class DistCpUtils {
         childPathString.substring(sourceRootPathString.length());
   }
 
+  /**
+   * Get the path of the part file a chunk of a split file is copied to.
+   * Parts are named after the target file, its offset and its length, and
+   * sit next to the target so that they can be concatenated into it.
+   *
+   * @param targetFile - Path of the target file
+   * @param chunk - Chunk of the source file
+   * @return - Path of the part file for the chunk
+   */
+  public static Path getSplitChunkPath(Path targetFile,
+      CopyListingFileStatus chunk) {
+    return new Path(targetFile.toString()
+        + DistCpConstants.SPLIT_CHUNK_SUFFIX + chunk.getChunkOffset()
+        + "." + chunk.getChunkLength());
+  }
+
   /**
    * Pack file preservation attributes into a string, containing
    * just the first character of each preservation attribute
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.tools.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.tools.DistCpConstants;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * The per map bandwidth of a running job, read from the file named by
+ * {@link DistCpConstants#CONF_LABEL_BANDWIDTH_FILE}. The file holds the
+ * bandwidth in MB/s and is re-read at most once per refresh interval, so
+ * whoever runs the job can change its bandwidth without restarting it.
+ * A bandwidth of zero or less means unlimited. When the file can't be read
+ * the last known bandwidth is kept.
+ */
+public class DynamicBandwidth {
+  private static final Log LOG = LogFactory.getLog(DynamicBandwidth.class);
+
+  private static final Map<String, DynamicBandwidth> INSTANCES =
+      new HashMap<String, DynamicBandwidth>();
+
+  private final Path file;
+  private final Configuration conf;
+  private final long refreshMs;
+  private long bandwidthMB;
+  private long lastRefresh = Long.MIN_VALUE;
+
+  @VisibleForTesting
+  DynamicBandwidth(Path file, Configuration conf, long refreshMs,
+      long bandwidthMB) {
+    this.file = file;
+    this.conf = conf;
+    this.refreshMs = refreshMs;
+    this.bandwidthMB = bandwidthMB;
+  }
+
+  /**
+   * Returns the bandwidth for the file configured in the job, shared by all
+   * the copies in the task.
+   */
+  public static synchronized DynamicBandwidth get(Configuration conf) {
+    String file = conf.get(DistCpConstants.CONF_LABEL_BANDWIDTH_FILE);
+    DynamicBandwidth bandwidth = INSTANCES.get(file);
+    if (bandwidth == null) {
+      long refreshMs = conf.getLong(
+          DistCpConstants.CONF_LABEL_BANDWIDTH_REFRESH_MS,
+          DistCpConstants.DEFAULT_BANDWIDTH_REFRESH_MS);
+      long bandwidthMB = conf.getInt(DistCpConstants.CONF_LABEL_BANDWIDTH_MB,
+          DistCpConstants.DEFAULT_BANDWIDTH_MB);
+      bandwidth = new DynamicBandwidth(new Path(file), conf, refreshMs,
+          bandwidthMB);
+      INSTANCES.put(file, bandwidth);
+    }
+    return bandwidth;
+  }
+
+  /**
+   * @return the current bandwidth in bytes per second, Long.MAX_VALUE when
+   *         unlimited
+   */
+  public synchronized long getMaxBytesPerSec() {
+    long now = System.currentTimeMillis();
+    if (lastRefresh == Long.MIN_VALUE || now - lastRefresh >= refreshMs) {
+      lastRefresh = now;
+      refresh();
+    }
+    return bandwidthMB <= 0 ? Long.MAX_VALUE : bandwidthMB * 1024 * 1024;
+  }
+
+  private void refresh() {
+    try {
+      FileSystem fs = file.getFileSystem(conf);
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+          fs.open(file), StandardCharsets.UTF_8))) {
+        String line = reader.readLine();
+        if (line != null && !line.trim().isEmpty()) {
+          long value = Long.parseLong(line.trim());
+          if (value != bandwidthMB) {
+            LOG.info("Map bandwidth changed from " + bandwidthMB + " to "
+                + value + " MB/s");
+            bandwidthMB = value;
+          }
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      LOG.warn("Unable to read map bandwidth from " + file + ", keeping "
+          + bandwidthMB + " MB/s", e);
+    }
+  }
+}
@@ -37,6 +37,7 @@ public class ThrottledInputStream extends InputStream {
 
   private final InputStream rawStream;
   private final long maxBytesPerSec;
+  private final DynamicBandwidth bandwidth;
   private final long startTime = System.currentTimeMillis();
 
   private long bytesRead = 0;
@@ -52,6 +53,17 @@ public class ThrottledInputStream extends InputStream {
     assert maxBytesPerSec > 0 : "Bandwidth " + maxBytesPerSec + " is invalid";
     this.rawStream = rawStream;
     this.maxBytesPerSec = maxBytesPerSec;
+    this.bandwidth = null;
+  }
+
+  /**
+   * Throttles to a bandwidth that may change while the stream is read.
+   */
+  public ThrottledInputStream(InputStream rawStream,
+      DynamicBandwidth bandwidth) {
+    this.rawStream = rawStream;
+    this.maxBytesPerSec = Long.MAX_VALUE;
+    this.bandwidth = bandwidth;
   }
 
   @Override
@@ -111,8 +123,12 @@ public class ThrottledInputStream extends InputStream {
     return readLen;
   }
 
+  private long getMaxBytesPerSec() {
+    return bandwidth != null ? bandwidth.getMaxBytesPerSec() : maxBytesPerSec;
+  }
+
   private void throttle() throws IOException {
-    while (getBytesPerSec() > maxBytesPerSec) {
+    while (getBytesPerSec() > getMaxBytesPerSec()) {
       try {
         Thread.sleep(SLEEP_DURATION_MS);
         totalSleepTime += SLEEP_DURATION_MS;
@@ -157,7 +173,7 @@ public class ThrottledInputStream extends InputStream {
   public String toString() {
     return "ThrottledInputStream{" +
         "bytesRead=" + bytesRead +
-        ", maxBytesPerSec=" + maxBytesPerSec +
+        ", maxBytesPerSec=" + getMaxBytesPerSec() +
         ", bytesPerSec=" + getBytesPerSec() +
         ", totalSleepTime=" + totalSleepTime +
         '}';
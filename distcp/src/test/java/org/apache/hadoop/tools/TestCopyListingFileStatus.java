@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.tools;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCopyListingFileStatus {
+
+  private static final byte[] XATTR_VALUE = {1, 2, 3};
+
+  private static FileStatus fileStatus(String path) {
+    return new FileStatus(1024L * 1024, false, 3, 256, 1000L, 2000L, null,
+        "user", "group", new Path("/data/" + path));
+  }
+
+  /**
+   * Serializes a file status in the layout of listings written before
+   * chunks were introduced: the ACL entries and the xAttrs, without chunk
+   * fields.
+   */
+  private static byte[] legacyRecord(FileStatus status,
+      Map<String, byte[]> xAttrs) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    status.write(out);
+    out.writeByte(-1);
+    out.writeInt(xAttrs.size());
+    for (Map.Entry<String, byte[]> entry : xAttrs.entrySet()) {
+      WritableUtils.writeString(out, entry.getKey());
+      out.writeInt(entry.getValue().length);
+      out.write(entry.getValue());
+    }
+    return Arrays.copyOf(out.getData(), out.getLength());
+  }
+
+  private static byte[] serialize(CopyListingFileStatus status)
+      throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    status.write(out);
+    return Arrays.copyOf(out.getData(), out.getLength());
+  }
+
+  private static CopyListingFileStatus deserialize(byte[] bytes,
+      CopyListingFileStatus status) throws IOException {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(bytes, bytes.length);
+    status.readFields(in);
+    Assert.assertEquals(0, in.available());
+    return status;
+  }
+
+  @Test
+  public void testReadLegacyRecord() throws Exception {
+    Map<String, byte[]> xAttrs =
+        Collections.singletonMap("user.name", XATTR_VALUE);
+    CopyListingFileStatus status = deserialize(
+        legacyRecord(fileStatus("a"), xAttrs), new CopyListingFileStatus());
+    Assert.assertEquals(new Path("/data/a"), status.getPath());
+    Assert.assertEquals(1024L * 1024, status.getLen());
+    Assert.assertArrayEquals(XATTR_VALUE,
+        status.getXAttrs().get("user.name"));
+    Assert.assertEquals(0, status.getChunkOffset());
+    Assert.assertEquals(Long.MAX_VALUE, status.getChunkLength());
+    Assert.assertFalse(status.isSplit());
+  }
+
+  @Test
+  public void testWholeFileKeepsLegacyLayout() throws Exception {
+    CopyListingFileStatus status =
+        new CopyListingFileStatus(fileStatus("a"));
+    status.setXAttrs(Collections.singletonMap("user.name", XATTR_VALUE));
+    Assert.assertArrayEquals(legacyRecord(fileStatus("a"),
+        status.getXAttrs()), serialize(status));
+  }
+
+  @Test
+  public void testChunkRoundTrip() throws Exception {
+    CopyListingFileStatus chunk = new CopyListingFileStatus(
+        new CopyListingFileStatus(fileStatus("a")), 512, 256);
+    CopyListingFileStatus read =
+        deserialize(serialize(chunk), new CopyListingFileStatus());
+    Assert.assertEquals(chunk, read);
+    Assert.assertTrue(read.isSplit());
+    Assert.assertEquals(256, read.getSizeToCopy());
+
+    // a reused instance does not keep the chunk of the previous record
+    deserialize(legacyRecord(fileStatus("b"),
+        Collections.<String, byte[]>emptyMap()), read);
+    Assert.assertEquals(new Path("/data/b"), read.getPath());
+    Assert.assertFalse(read.isSplit());
+    Assert.assertEquals(Long.MAX_VALUE, read.getChunkLength());
+  }
+
+  @Test
+  public void testReadLegacyListing() throws Exception {
+    File dir = Files.createTempDirectory("legacy-listing").toFile();
+    try {
+      Configuration conf = new Configuration();
+      Path listing = new Path(dir.getAbsolutePath(), "fileList.seq_sorted");
+      SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+          SequenceFile.Writer.file(listing),
+          SequenceFile.Writer.keyClass(Text.class),
+          SequenceFile.Writer.valueClass(CopyListingFileStatus.class),
+          SequenceFile.Writer.compression(SequenceFile.CompressionType.NONE));
+      try {
+        for (String name : new String[] {"a", "b"}) {
+          DataOutputBuffer key = new DataOutputBuffer();
+          new Text("/" + name).write(key);
+          writer.appendRaw(key.getData(), 0, key.getLength(),
+              new LegacyValue(legacyRecord(fileStatus(name),
+                  Collections.singletonMap("user.name", XATTR_VALUE))));
+        }
+      } finally {
+        writer.close();
+      }
+
+      SequenceFile.Reader reader =
+          new SequenceFile.Reader(conf, SequenceFile.Reader.file(listing));
+      try {
+        Text key = new Text();
+        CopyListingFileStatus value = new CopyListingFileStatus();
+        for (String name : new String[] {"a", "b"}) {
+          Assert.assertTrue(reader.next(key, value));
+          Assert.assertEquals("/" + name, key.toString());
+          Assert.assertEquals(new Path("/data/" + name), value.getPath());
+          Assert.assertArrayEquals(XATTR_VALUE,
+              value.getXAttrs().get("user.name"));
+          Assert.assertFalse(value.isSplit());
+        }
+        Assert.assertFalse(reader.next(key, value));
+      } finally {
+        reader.close();
+      }
+    } finally {
+      FileUtil.fullyDelete(dir);
+    }
+  }
+
+  /**
+   * Raw value of a record serialized in the legacy layout.
+   */
+  private static final class LegacyValue implements SequenceFile.ValueBytes {
+    private final byte[] bytes;
+
+    private LegacyValue(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void writeUncompressedBytes(DataOutputStream outStream)
+        throws IOException {
+      outStream.write(bytes);
+    }
+
+    @Override
+    public void writeCompressedBytes(DataOutputStream outStream)
+        throws IOException {
+      throw new IOException("Legacy records are written uncompressed");
+    }
+
+    @Override
+    public int getSize() {
+      return bytes.length;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.tools;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.protocol.SnapshotDiffReport.DiffType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDiffPathTrie {
+
+  private static DiffInfo rename(String source, String target) {
+    return new DiffInfo(new Path(source), new Path(target), DiffType.RENAME);
+  }
+
+  @Test
+  public void testDeepestRename() {
+    DiffPathTrie trie = new DiffPathTrie();
+    DiffInfo outer = rename("a", "x");
+    DiffInfo inner = rename("a/b", "y");
+    trie.put(outer.getSource(), outer);
+    trie.put(inner.getSource(), inner);
+    Assert.assertEquals(2, trie.size());
+
+    Assert.assertSame(inner, trie.getDeepest(new Path("a/b/c"), false));
+    Assert.assertSame(outer, trie.getDeepest(new Path("a/b"), false));
+    Assert.assertSame(inner, trie.getDeepest(new Path("a/b"), true));
+    Assert.assertSame(outer, trie.getDeepest(new Path("a/bc"), true));
+    Assert.assertNull(trie.getDeepest(new Path("a"), false));
+    Assert.assertNull(trie.getDeepest(new Path("ab/c"), true));
+  }
+
+  /**
+   * The rename lookup DistCpSync did before the trie: a scan of the renames
+   * sorted by {@link DiffInfo#sourceComparator}.
+   */
+  private static DiffInfo scanRenameItem(DiffInfo diff,
+      DiffInfo[] renameDiffArray) {
+    for (DiffInfo renameItem : renameDiffArray) {
+      if (diff.getSource().equals(renameItem.getSource())) {
+        if (diff.getType() == DiffType.MODIFY) {
+          return renameItem;
+        }
+      } else if (isParentOf(renameItem.getSource(), diff.getSource())) {
+        return renameItem;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isParentOf(Path parent, Path child) {
+    String parentPath = parent.toString();
+    String childPath = child.toString();
+    if (!parentPath.endsWith(Path.SEPARATOR)) {
+      parentPath += Path.SEPARATOR;
+    }
+    return childPath.length() > parentPath.length() &&
+        childPath.startsWith(parentPath);
+  }
+
+  @Test
+  public void testRenameItemMatchesSortedScan() {
+    DiffInfo[] renames = {rename("a", "x"), rename("a/b", "y"),
+        rename("a/b/c", "z"), rename("a/bc", "w"), rename("d/e", "v"),
+        rename("d/e/f/g", "u")};
+    DiffPathTrie trie = new DiffPathTrie();
+    for (DiffInfo diff : renames) {
+      trie.put(diff.getSource(), diff);
+    }
+    DiffInfo[] sorted = Arrays.copyOf(renames, renames.length);
+    Arrays.sort(sorted, DiffInfo.sourceComparator);
+
+    String[] paths = {"a", "a/b", "a/b/c", "a/b/c/f", "a/b/cd", "a/bc",
+        "a/bc/g", "a/bcd", "d", "d/e", "d/e/f", "d/e/f/g", "d/e/f/g/h", "q"};
+    for (DiffType type : new DiffType[] {DiffType.MODIFY, DiffType.CREATE}) {
+      for (String path : paths) {
+        DiffInfo diff = new DiffInfo(new Path(path), null, type);
+        Assert.assertSame(type + " " + path, scanRenameItem(diff, sorted),
+            DistCpSync.getRenameItem(diff, trie));
+      }
+    }
+
+    // nested renames resolve to the innermost one
+    Assert.assertSame(renames[2], DistCpSync.getRenameItem(
+        new DiffInfo(new Path("a/b/c/f"), null, DiffType.CREATE), trie));
+    Assert.assertSame(renames[1], DistCpSync.getRenameItem(
+        new DiffInfo(new Path("a/b/c"), null, DiffType.CREATE), trie));
+    Assert.assertSame(renames[2], DistCpSync.getRenameItem(
+        new DiffInfo(new Path("a/b/c"), null, DiffType.MODIFY), trie));
+    Assert.assertSame(renames[4], DistCpSync.getRenameItem(
+        new DiffInfo(new Path("d/e/f"), null, DiffType.MODIFY), trie));
+  }
+
+  @Test
+  public void testDescendants() {
+    DiffPathTrie trie = new DiffPathTrie();
+    DiffInfo first = rename("s1", "d/a");
+    DiffInfo second = rename("s2", "d/b/c");
+    DiffInfo other = rename("s3", "dd/a");
+    trie.put(first.getTarget(), first);
+    trie.put(second.getTarget(), second);
+    trie.put(other.getTarget(), other);
+
+    List<DiffInfo> descendants = trie.getDescendants(new Path("d"));
+    Assert.assertEquals(2, descendants.size());
+    Assert.assertSame(first, descendants.get(0));
+    Assert.assertSame(second, descendants.get(1));
+    Assert.assertTrue(trie.getDescendants(new Path("d/a")).isEmpty());
+    Assert.assertTrue(trie.getDescendants(new Path("e")).isEmpty());
+  }
+}
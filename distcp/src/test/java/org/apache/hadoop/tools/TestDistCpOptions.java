@@ -307,7 +307,7 @@ public class TestDistCpOptions {
         + "append=false, useDiff=false, useRdiff=false, "
         + "fromSnapshot=null, toSnapshot=null, "
         + "skipCRC=false, blocking=true, numListstatusThreads=0, maxMaps=20, "
-        + "mapBandwidth=100, sslConfigurationFile='null', "
+        + "mapBandwidth=100, blocksPerChunk=0, sslConfigurationFile='null', "
         + "copyStrategy='uniformsize', preserveStatus=[], "
         + "preserveRawXattrs=false, atomicWorkPath=null, logPath=null, "
         + "sourceFileListing=abc, sourcePaths=null, targetPath=xyz, "
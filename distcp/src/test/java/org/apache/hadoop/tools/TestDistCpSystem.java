@@ -24,12 +24,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
@@ -235,4 +238,49 @@ public class TestDistCpSystem extends TestCase {
       }
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testChunkedCopyOfLargeFile() throws Exception {
+    MiniDFSCluster cluster = null;
+    Configuration conf = new Configuration();
+    conf.setLong("dfs.namenode.fs-limits.min-block-size", 1024);
+    try {
+      cluster = new MiniDFSCluster.Builder(conf).numDataNodes(2).build();
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+
+      // 11 blocks of 1024 bytes, the last one partial.
+      byte[] data = new byte[10 * 1024 + 100];
+      new Random(0x5eed).nextBytes(data);
+      Path srcFile = new Path("/" + SRCDAT + "/large");
+      OutputStream out = fs.create(srcFile, true, 4096, (short) 1, 1024);
+      try {
+        out.write(data);
+      } finally {
+        out.close();
+      }
+
+      String[] args = new String[] {"-blocksperchunk", "3", "-m", "4",
+          fs.makeQualified(new Path("/" + SRCDAT)).toString(),
+          fs.makeQualified(new Path("/" + DSTDAT)).toString()};
+      Assert.assertThat(ToolRunner.run(conf, new DistCp(), args), is(0));
+
+      Path dstFile = new Path("/" + DSTDAT + "/large");
+      assertEquals(data.length, fs.getFileStatus(dstFile).getLen());
+      byte[] copied = new byte[data.length];
+      FSDataInputStream in = fs.open(dstFile);
+      try {
+        in.readFully(0, copied);
+      } finally {
+        in.close();
+      }
+      assertTrue(Arrays.equals(data, copied));
+      assertEquals(fs.getFileChecksum(srcFile), fs.getFileChecksum(dstFile));
+      assertEquals(1, fs.listStatus(new Path("/" + DSTDAT)).length);
+    } finally {
+      if (cluster != null) {
+        cluster.shutdown();
+      }
+    }
+  }
+}
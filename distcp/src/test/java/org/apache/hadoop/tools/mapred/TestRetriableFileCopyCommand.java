@@ -22,14 +22,19 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.*;
+import org.apache.hadoop.tools.DistCpConstants;
 import org.apache.hadoop.tools.mapred.CopyMapper.FileAction;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
 
 public class TestRetriableFileCopyCommand {
   @SuppressWarnings("rawtypes")
@@ -57,4 +62,44 @@ public class TestRetriableFileCopyCommand {
     assertNotNull("close didn't fail", actualEx);
     assertEquals(expectedEx, actualEx);
   }
+
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void testPipelinedUnthrottledCopy() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(DistCpConstants.CONF_LABEL_BANDWIDTH_MB,
+        DistCpConstants.UNLIMITED_BANDWIDTH_MB);
+    conf.setBoolean(DistCpConstants.CONF_LABEL_COPY_PIPELINED, true);
+    conf.setBoolean(DistCpConstants.CONF_LABEL_COPY_BYTE_BUFFER_READS, true);
+    conf.setInt(DistCpConstants.CONF_LABEL_COPY_PIPELINE_DEPTH, 3);
+    Mapper.Context context = mock(Mapper.Context.class);
+    doReturn(conf).when(context).getConfiguration();
+
+    byte[] data = new byte[100 * 1024 + 17];
+    new Random(0xd15c).nextBytes(data);
+    File f = File.createTempFile(this.getClass().getSimpleName(), null);
+    f.deleteOnExit();
+    FileOutputStream fos = new FileOutputStream(f);
+    try {
+      fos.write(data);
+    } finally {
+      fos.close();
+    }
+    FileStatus stat = new FileStatus(data.length, false, 1, 1024, 0,
+        new Path(f.toURI()));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long copied = new RetriableFileCopyCommand("testPipelinedUnthrottledCopy",
+        FileAction.OVERWRITE).copyBytes(stat, 0, out, 4096, context);
+    assertEquals(data.length, copied);
+    assertTrue(Arrays.equals(data, out.toByteArray()));
+
+    int offset = 40 * 1024;
+    out = new ByteArrayOutputStream();
+    copied = new RetriableFileCopyCommand("testPipelinedUnthrottledAppend",
+        FileAction.APPEND).copyBytes(stat, offset, out, 4096, context);
+    assertEquals(data.length - offset, copied);
+    assertTrue(Arrays.equals(Arrays.copyOfRange(data, offset, data.length),
+        out.toByteArray()));
+  }
 }
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.tools.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.tools.DistCpConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDynamicBandwidth {
+
+  private static void write(File file, String value) throws IOException {
+    Files.write(file.toPath(), value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testRefresh() throws Exception {
+    File file = File.createTempFile("bandwidth", ".txt");
+    file.deleteOnExit();
+    write(file, "5\n");
+    DynamicBandwidth bandwidth = new DynamicBandwidth(
+        new Path(file.toURI()), new Configuration(), 0, 100);
+    Assert.assertEquals(5L * 1024 * 1024, bandwidth.getMaxBytesPerSec());
+
+    write(file, "7");
+    Assert.assertEquals(7L * 1024 * 1024, bandwidth.getMaxBytesPerSec());
+
+    write(file, "0");
+    Assert.assertEquals(Long.MAX_VALUE, bandwidth.getMaxBytesPerSec());
+
+    write(file, "garbage");
+    Assert.assertEquals(Long.MAX_VALUE, bandwidth.getMaxBytesPerSec());
+
+    write(file, "3");
+    Assert.assertTrue(file.delete());
+    Assert.assertEquals(Long.MAX_VALUE, bandwidth.getMaxBytesPerSec());
+  }
+
+  @Test
+  public void testRefreshInterval() throws Exception {
+    File file = File.createTempFile("bandwidth", ".txt");
+    file.deleteOnExit();
+    write(file, "5");
+    DynamicBandwidth bandwidth = new DynamicBandwidth(
+        new Path(file.toURI()), new Configuration(), 60000, 100);
+    Assert.assertEquals(5L * 1024 * 1024, bandwidth.getMaxBytesPerSec());
+    write(file, "7");
+    Assert.assertEquals(5L * 1024 * 1024, bandwidth.getMaxBytesPerSec());
+  }
+
+  @Test
+  public void testMissingFileKeepsConfiguredBandwidth() throws Exception {
+    File file = File.createTempFile("bandwidth", ".txt");
+    Assert.assertTrue(file.delete());
+    Configuration conf = new Configuration();
+    conf.set(DistCpConstants.CONF_LABEL_BANDWIDTH_FILE, file.toURI().toString());
+    conf.setInt(DistCpConstants.CONF_LABEL_BANDWIDTH_MB, 4);
+    DynamicBandwidth bandwidth = DynamicBandwidth.get(conf);
+    Assert.assertSame(bandwidth, DynamicBandwidth.get(conf));
+    Assert.assertEquals(4L * 1024 * 1024, bandwidth.getMaxBytesPerSec());
+  }
+}
@@ -48,6 +48,11 @@ public enum FSDRProperties {
 
     DISTCP_MAX_MAPS("distcpMaxMaps", "Maximum number of maps used during distcp", false),
     DISTCP_MAP_BANDWIDTH_IN_MB("distcpMapBandwidth", "Bandwidth in MB/s used by each mapper during replication", false),
+    DISTCP_BLOCKS_PER_CHUNK("distcpBlocksPerChunk",
+            "Files with more blocks are split into chunks of this many blocks, copied in parallel", false),
+    REPLICATION_PRIORITY("replicationPriority",
+            "Priority (LOW, NORMAL or HIGH) of the replication when sharing the link bandwidth", false),
+    BANDWIDTH_WEIGHT("bandwidthWeight", "Weight of the replication when sharing the link bandwidth", false),
 
     SOURCE_SNAPSHOT_RETENTION_AGE_LIMIT("sourceSnapshotRetentionAgeLimit",
             "Delete source snapshots older than this age", false),
@@ -102,6 +102,9 @@ public enum ReplicationPolicyProperties {
         //custom properties
         allowedUpdateProps.add(FSDRProperties.DISTCP_MAP_BANDWIDTH_IN_MB.getName());
         allowedUpdateProps.add(FSDRProperties.DISTCP_MAX_MAPS.getName());
+        allowedUpdateProps.add(FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName());
+        allowedUpdateProps.add(FSDRProperties.REPLICATION_PRIORITY.getName());
+        allowedUpdateProps.add(FSDRProperties.BANDWIDTH_WEIGHT.getName());
         allowedUpdateProps.add(FSDRProperties.TDE_SAMEKEY.getName());
         allowedUpdateProps.add(FSDRProperties.QUEUE_NAME.getName());
         allowedUpdateProps.add(FSDRProperties.ENABLE_SNAPSHOTBASED_REPLICATION.getName());
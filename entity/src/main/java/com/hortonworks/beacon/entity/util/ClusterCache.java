@@ -0,0 +1,205 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.entity.util;
+
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.client.entity.Cluster;
+import com.hortonworks.beacon.client.entity.PeerInfo;
+import com.hortonworks.beacon.entity.BeaconCluster;
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the active clusters and their HA configuration.
+ *
+ * Entries are private snapshots, callers always get their own copy. Every change to cluster, cluster properties or
+ * cluster pairing made through {@link ClusterDao} invalidates the whole cache and bumps its version; a value loaded
+ * while the version changed is not cached. A thread which modified clusters in its open transaction reads from the
+ * store until {@link #afterTransaction()} is called, which invalidates the cache once more so that values loaded by
+ * other threads before the commit are dropped.
+ */
+public final class ClusterCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterCache.class);
+    private static final ClusterCache INSTANCE = new ClusterCache();
+
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final ThreadLocal<Boolean> modified = new ThreadLocal<>();
+
+    private ClusterCache() {
+    }
+
+    public static ClusterCache get() {
+        return INSTANCE;
+    }
+
+    long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns a copy of the cached cluster or null if the cluster is not cached.
+     */
+    BeaconCluster getCluster(String clusterName) {
+        Snapshot snapshot = lookup(clusterName);
+        if (snapshot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copyOf(snapshot.cluster);
+    }
+
+    /**
+     * Returns a copy of the cached HA configuration of the cluster or null if it is not cached.
+     */
+    Configuration getHAConfiguration(String clusterName) {
+        Snapshot snapshot = lookup(clusterName);
+        if (snapshot == null || snapshot.haConfiguration == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new Configuration(snapshot.haConfiguration);
+    }
+
+    void putCluster(Cluster cluster, long loadedVersion) {
+        if (isCacheable(loadedVersion)) {
+            snapshots.put(cluster.getName(), new Snapshot(copyOf(cluster), null));
+            if (version.get() != loadedVersion) {
+                snapshots.remove(cluster.getName());
+            }
+        }
+    }
+
+    void putHAConfiguration(String clusterName, Configuration conf, long loadedVersion) {
+        Snapshot snapshot = lookup(clusterName);
+        if (snapshot != null && isCacheable(loadedVersion)) {
+            Configuration haConfiguration = new Configuration(conf);
+            // Load the default resources once, copies of the snapshot share the loaded properties.
+            haConfiguration.size();
+            snapshots.replace(clusterName, snapshot, new Snapshot(snapshot.cluster, haConfiguration));
+            if (version.get() != loadedVersion) {
+                snapshots.remove(clusterName);
+            }
+        }
+    }
+
+    /**
+     * Drops all cached clusters. Called for every cluster, cluster property and pairing change.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshots.clear();
+        invalidations.incrementAndGet();
+        RequestContext requestContext = RequestContext.get();
+        if (requestContext != null && requestContext.isTransactionActive()) {
+            modified.set(Boolean.TRUE);
+        }
+        LOG.debug("Cluster cache invalidated, version: {}", version.get());
+    }
+
+    /**
+     * To be called once a transaction which may have modified clusters is committed or rolled back.
+     */
+    public void afterTransaction() {
+        if (modified.get() != null) {
+            modified.remove();
+            invalidate();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    private Snapshot lookup(String clusterName) {
+        return clusterName == null || modified.get() != null ? null : snapshots.get(clusterName);
+    }
+
+    private boolean isCacheable(long loadedVersion) {
+        return modified.get() == null && version.get() == loadedVersion;
+    }
+
+    private static BeaconCluster copyOf(Cluster cluster) {
+        BeaconCluster copy = new BeaconCluster(cluster);
+        if (cluster.getTags() != null) {
+            copy.setTags(new ArrayList<>(cluster.getTags()));
+        }
+        if (cluster.getPeers() != null) {
+            copy.setPeers(new ArrayList<>(cluster.getPeers()));
+        }
+        if (cluster.getPeersInfo() != null) {
+            List<PeerInfo> peersInfo = new ArrayList<>();
+            for (PeerInfo peerInfo : cluster.getPeersInfo()) {
+                PeerInfo peerInfoCopy = new PeerInfo();
+                peerInfoCopy.setClusterName(peerInfo.getClusterName());
+                peerInfoCopy.setPairStatus(peerInfo.getPairStatus());
+                peerInfoCopy.setStatusMessage(peerInfo.getStatusMessage());
+                peersInfo.add(peerInfoCopy);
+            }
+            copy.setPeersInfo(peersInfo);
+        }
+        if (cluster.getCustomProperties() != null) {
+            Properties customProperties = new Properties();
+            customProperties.putAll(cluster.getCustomProperties());
+            copy.setCustomProperties(customProperties);
+        }
+        return copy;
+    }
+
+    /**
+     * Immutable cache entry, never handed out to the callers.
+     */
+    private static final class Snapshot {
+        private final Cluster cluster;
+        private final Configuration haConfiguration;
+
+        private Snapshot(Cluster cluster, Configuration haConfiguration) {
+            this.cluster = cluster;
+            this.haConfiguration = haConfiguration;
+        }
+    }
+}
@@ -55,10 +55,14 @@ import static com.hortonworks.beacon.entity.util.ClusterHelper.convertToString;
  */
 public final class ClusterDao {
 
+    private final ClusterCache clusterCache = ClusterCache.get();
+
     public void submitCluster(Cluster cluster) {
         ClusterBean bean = getClusterBean(cluster);
         ClusterExecutor executor = new ClusterExecutor(bean);
         executor.submitCluster();
+        clusterCache.invalidate();
+        FSListing.removeListings(cluster.getName());
     }
 
     private ClusterBean getClusterBean(Cluster cluster) {
@@ -136,10 +140,17 @@ public final class ClusterDao {
     }
 
     public BeaconCluster getActiveCluster(String clusterName) throws BeaconStoreException {
+        BeaconCluster cluster = clusterCache.getCluster(clusterName);
+        if (cluster != null) {
+            return cluster;
+        }
+        long cacheVersion = clusterCache.getVersion();
         ClusterBean bean = new ClusterBean(clusterName);
         ClusterExecutor executor = new ClusterExecutor(bean);
         ClusterBean clusterBean = executor.getActiveCluster();
-        return getCluster(clusterBean);
+        cluster = getCluster(clusterBean);
+        clusterCache.putCluster(cluster, cacheVersion);
+        return cluster;
     }
 
     public void unpairPairedCluster(Cluster localCluster, Cluster remoteCluster)
@@ -159,6 +170,7 @@ public final class ClusterDao {
                     pairBean.setLastModifiedTime(lastModifiedTime);
                     ClusterPairExecutor executor = new ClusterPairExecutor(pairBean);
                     executor.updateStatus();
+                    clusterCache.invalidate();
                 }
             }
         }
@@ -177,6 +189,8 @@ public final class ClusterDao {
         clusterBean.setRetirementTime(new Date());
         ClusterExecutor executor = new ClusterExecutor(clusterBean);
         executor.retireCluster();
+        clusterCache.invalidate();
+        FSListing.removeListings(cluster.getName());
     }
 
     public void updatePairStatus(ClusterPairBean clusterPairBean, ClusterStatus updatedStatus)
@@ -194,6 +208,7 @@ public final class ClusterDao {
         }
         ClusterPairExecutor executor = new ClusterPairExecutor(clusterPairBean);
         executor.updateStatus();
+        clusterCache.invalidate();
     }
 
     public ClusterStatus getPairedClusterStatus(String cluster, String pairedCluster) throws BeaconException {
@@ -278,6 +293,7 @@ public final class ClusterDao {
         bean.setLastModifiedTime(new Date());
         ClusterPairExecutor executor = new ClusterPairExecutor(bean);
         executor.pairCluster();
+        clusterCache.invalidate();
     }
 
     BeaconCluster getLocalCluster() throws BeaconException {
@@ -292,5 +308,7 @@ public final class ClusterDao {
                                              PropertiesIgnoreCase newProps, PropertiesIgnoreCase deletedProps) {
         ClusterUpdateExecutor executor = new ClusterUpdateExecutor();
         executor.persistUpdatedCluster(getClusterBean(updatedCluster), updatedProps, newProps, deletedProps);
+        clusterCache.invalidate();
+        FSListing.removeListings(updatedCluster.getName());
     }
 }
@@ -116,7 +116,14 @@ public final class ClusterHelper {
     }
 
     public static Configuration getHAConfigurationOrDefault(String clusterName) throws BeaconException {
-        return getHAConfigurationOrDefault(getActiveCluster(clusterName));
+        ClusterCache clusterCache = ClusterCache.get();
+        Configuration conf = clusterCache.getHAConfiguration(clusterName);
+        if (conf == null) {
+            long cacheVersion = clusterCache.getVersion();
+            conf = getHAConfigurationOrDefault(getActiveCluster(clusterName));
+            clusterCache.putHAConfiguration(clusterName, conf, cacheVersion);
+        }
+        return conf;
     }
 
     public static Configuration getHAConfigurationOrDefault(Cluster cluster) {
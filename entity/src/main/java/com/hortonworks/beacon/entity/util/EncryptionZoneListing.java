@@ -23,8 +23,6 @@ package com.hortonworks.beacon.entity.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.fs.RemoteIterator;
@@ -37,7 +35,7 @@ import com.hortonworks.beacon.exceptions.BeaconException;
 /**
  * Cache of HDFS encryption zones.
  */
-public final class EncryptionZoneListing extends FSListing<Map> {
+public final class EncryptionZoneListing extends FSListing<String> {
 
     private static final EncryptionZoneListing INSTANCE = new EncryptionZoneListing();
 
@@ -49,11 +47,10 @@ public final class EncryptionZoneListing extends FSListing<Map> {
     }
 
     public String getEncryptionKeyName(String clusterName, String baseEncryptedPath) {
-        Map listing = listingMap.get(clusterName);
-        if (listing != null) {
-            return (String) listing.get(baseEncryptedPath);
+        if (baseEncryptedPath == null) {
+            return null;
         }
-        return null;
+        return getListing(clusterName).get(baseEncryptedPath);
     }
 
     /**
@@ -74,8 +71,8 @@ public final class EncryptionZoneListing extends FSListing<Map> {
     }
 
     @Override
-    protected Map getListing(String clusterName, String fsEndPoint) throws BeaconException {
-        Map<String, String> encryptionZonesLocal = new HashMap<>();
+    protected PathTrie<String> getListing(String clusterName, String fsEndPoint) throws BeaconException {
+        PathTrie.Builder<String> encryptionZonesLocal = new PathTrie.Builder<>();
         try {
             HdfsAdmin hdfsAdmin = HdfsAdminFactory.getInstance().createHDFSAdmin(fsEndPoint, clusterName);
             RemoteIterator<EncryptionZone> iterator = hdfsAdmin.listEncryptionZones();
@@ -88,36 +85,12 @@ public final class EncryptionZoneListing extends FSListing<Map> {
         } catch (IOException e) {
             throw new BeaconException(e);
         }
-        return encryptionZonesLocal;
+        return encryptionZonesLocal.build();
     }
 
     @Override
     protected String getBaseListing(String clusterName, String pathToCheck) {
-        int lastIndex = 0;
-        String tmpPathToCheck;
-
-        while (true) {
-            lastIndex = pathToCheck.indexOf(File.separator, lastIndex) + 1;
-            if (lastIndex == -1) {
-                break;
-            }
-            tmpPathToCheck = pathToCheck.substring(0, lastIndex);
-            if (StringUtils.isEmpty(tmpPathToCheck)) {
-                break;
-            }
-            if (contains(clusterName, tmpPathToCheck)) {
-                return tmpPathToCheck;
-            }
-        }
-        return null;
-    }
-
-    @Override
-    protected boolean contains(String clusterName, String path) {
-        if (listingMap.containsKey(clusterName)) {
-            return listingMap.get(clusterName).containsKey(path);
-        }
-        return false;
+        return getListing(clusterName).getLongestPrefix(pathToCheck);
     }
 
     @Override
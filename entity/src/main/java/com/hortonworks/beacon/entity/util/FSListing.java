@@ -24,46 +24,94 @@ package com.hortonworks.beacon.entity.util;
 
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hortonworks.beacon.exceptions.BeaconException;
 
 /**
  * class on various HDFS Listing like snapshot listingMap, encryption zone listingMap.
+ * The listing of a cluster is an immutable {@link PathTrie} which is read without locking. The first lookup for a
+ * cluster and an explicit refresh (path /) load the listing synchronously, an expired listing keeps being served
+ * while a single background refresh per cluster replaces it. Known changes to a single path are applied to the
+ * current listing and replayed on top of a refresh which was already running.
+ * @param <V> value stored for a listed path
  */
-public abstract class FSListing<T> {
+public abstract class FSListing<V> {
 
-    private Map<String, Long> lastUpdated = new ConcurrentHashMap<>();
     private static final Logger LOG = LoggerFactory.getLogger(FSListing.class);
-    protected Map<String, T> listingMap = new ConcurrentHashMap<>();
+    private static final int REFRESH_THREADS = 2;
+    private static final ExecutorService REFRESH_EXECUTOR = new ThreadPoolExecutor(REFRESH_THREADS,
+            REFRESH_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder().setNameFormat("FSListing-refresh-%d").setDaemon(true).build());
+    private static final List<FSListing<?>> INSTANCES = new CopyOnWriteArrayList<>();
+
+    private final ConcurrentMap<String, ClusterListing<V>> listings = new ConcurrentHashMap<>();
+
+    protected FSListing() {
+        INSTANCES.add(this);
+    }
+
+    /**
+     * Drops all listings of the cluster, used when the cluster is submitted, updated or deleted.
+     */
+    public static void removeListings(String clusterName) {
+        for (FSListing<?> instance : INSTANCES) {
+            instance.listings.remove(clusterName);
+        }
+    }
 
     public void updateListing(String clusterName, String fsEndPoint, String path) throws BeaconException {
-        String rootPath = Path.SEPARATOR;
-        if (path.equals(rootPath) || !isListingValid(clusterName)) {
-            LOG.debug("Updating the cache for cluster: {}", clusterName);
-            synchronized(this) {
-                if (path.equals(rootPath) || !isListingValid(clusterName)) {
-                    T listing = getListing(clusterName, fsEndPoint);
-                    listingMap.put(clusterName, listing);
-                    lastUpdated.put(clusterName, System.currentTimeMillis());
-                }
+        ClusterListing<V> listing = getClusterListing(clusterName);
+        boolean rootPath = path.equals(Path.SEPARATOR);
+        if (rootPath || listing.trie == null) {
+            refresh(clusterName, fsEndPoint, listing, rootPath);
+        } else if (!isListingValid(listing)) {
+            refreshAsync(clusterName, fsEndPoint, listing);
+        }
+    }
+
+    /**
+     * Applies a known change of a single path to the cluster listing, a null value removes the path.
+     */
+    protected void updatePath(String clusterName, String path, V value) {
+        ClusterListing<V> listing = getClusterListing(clusterName);
+        String listingPath = toListingPath(path);
+        synchronized (listing) {
+            if (listing.trie != null) {
+                listing.trie = listing.trie.with(listingPath, value);
             }
+            listing.pathUpdates.put(listingPath, value);
         }
+        LOG.debug("Updated listing of cluster {} for path {}", clusterName, listingPath);
+    }
+
+    protected PathTrie<V> getListing(String clusterName) {
+        ClusterListing<V> listing = listings.get(clusterName);
+        PathTrie<V> trie = listing != null ? listing.trie : null;
+        return trie != null ? trie : PathTrie.<V>empty();
     }
 
-    protected abstract T getListing(String clusterName, String fsEndPoint) throws BeaconException;
+    protected abstract PathTrie<V> getListing(String clusterName, String fsEndPoint) throws BeaconException;
 
     protected String getBaseListing(String clusterName, String fsEndPoint, String path) throws BeaconException {
         if (StringUtils.isNotEmpty(path)) {
-            String decodedPath = Path.getPathWithoutSchemeAndAuthority(new Path(path)).toString();
-            String pathToCheck = decodedPath.endsWith(File.separator)
-                    ? decodedPath : decodedPath + File.separator;
+            String pathToCheck = toListingPath(path);
             LOG.debug("Path to check: {}", pathToCheck);
             updateListing(clusterName, fsEndPoint, pathToCheck);
             return getBaseListing(clusterName, pathToCheck);
@@ -73,15 +121,83 @@ public abstract class FSListing<T> {
 
     protected abstract String getBaseListing(String clusterName, String pathToCheck);
 
-    protected abstract boolean contains(String clusterName, String tmpPathToCheck);
+    protected boolean contains(String clusterName, String path) {
+        return getListing(clusterName).contains(path);
+    }
+
+    private static String toListingPath(String path) {
+        String decodedPath = Path.getPathWithoutSchemeAndAuthority(new Path(path)).toString();
+        return decodedPath.endsWith(File.separator) ? decodedPath : decodedPath + File.separator;
+    }
 
-    protected boolean isListingValid(String clusterName) {
-        if (lastUpdated.containsKey(clusterName)
-                && (System.currentTimeMillis() - lastUpdated.get(clusterName))/1000 < getRefreshFrequency()) {
-            return true;
+    private ClusterListing<V> getClusterListing(String clusterName) {
+        ClusterListing<V> listing = listings.get(clusterName);
+        if (listing == null) {
+            listing = new ClusterListing<>();
+            ClusterListing<V> existing = listings.putIfAbsent(clusterName, listing);
+            listing = existing != null ? existing : listing;
         }
-        return false;
+        return listing;
+    }
+
+    private void refresh(String clusterName, String fsEndPoint, ClusterListing<V> listing, boolean force)
+            throws BeaconException {
+        synchronized (listing.refreshLock) {
+            if (!force && listing.trie != null) {
+                return;
+            }
+            LOG.debug("Updating the cache for cluster: {}", clusterName);
+            synchronized (listing) {
+                listing.pathUpdates.clear();
+            }
+            PathTrie<V> trie = getListing(clusterName, fsEndPoint);
+            synchronized (listing) {
+                for (Map.Entry<String, V> update : listing.pathUpdates.entrySet()) {
+                    trie = trie.with(update.getKey(), update.getValue());
+                }
+                listing.pathUpdates.clear();
+                listing.trie = trie;
+                listing.lastUpdated = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private void refreshAsync(final String clusterName, final String fsEndPoint, final ClusterListing<V> listing) {
+        if (!listing.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        REFRESH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!isListingValid(listing)) {
+                        refresh(clusterName, fsEndPoint, listing, true);
+                    }
+                } catch (Throwable t) {
+                    LOG.warn("Background refresh of the listing for cluster {} failed", clusterName, t);
+                } finally {
+                    listing.refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    private boolean isListingValid(ClusterListing<V> listing) {
+        return listing.trie != null
+                && (System.currentTimeMillis() - listing.lastUpdated)/1000 < getRefreshFrequency();
     }
 
     protected abstract int getRefreshFrequency();
+
+    /**
+     * Listing state of a cluster.
+     */
+    private static final class ClusterListing<V> {
+        private volatile PathTrie<V> trie;
+        private volatile long lastUpdated;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final Object refreshLock = new Object();
+        // Path updates since the running refresh started, guarded by the listing.
+        private final Map<String, V> pathUpdates = new HashMap<>();
+    }
 }
@@ -0,0 +1,204 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.entity.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Immutable trie of file system paths, one level per path component.
+ * Updates copy the nodes along the updated path and share the rest, so a trie can be published to concurrent
+ * readers without locking. Lookups, including the longest ancestor lookup, are O(path depth).
+ * Paths are stored in the listing format, i.e. with a trailing separator, for example /data/app1/.
+ * @param <V> value stored for a path
+ */
+public final class PathTrie<V> {
+
+    private static final PathTrie<Object> EMPTY = new PathTrie<>(new Node<>(null, null,
+            Collections.<String, Node<Object>>emptyMap()));
+
+    private final Node<V> root;
+
+    private PathTrie(Node<V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PathTrie<V> empty() {
+        return (PathTrie<V>) EMPTY;
+    }
+
+    public V get(String path) {
+        Node<V> node = root;
+        for (String component : components(path)) {
+            node = node.children.get(component);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.value;
+    }
+
+    public boolean contains(String path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Returns the path of the deepest entry which is the given path or one of its ancestors, or null.
+     */
+    public String getLongestPrefix(String path) {
+        Node<V> node = root;
+        String longest = node.value != null ? node.path : null;
+        for (String component : components(path)) {
+            node = node.children.get(component);
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                longest = node.path;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Returns a trie with the path set to the value, a null value removes the path.
+     */
+    public PathTrie<V> with(String path, V value) {
+        String[] components = components(path);
+        Node<V> updated = with(root, components, 0, toListingPath(components), value);
+        return updated == root ? this : new PathTrie<>(updated != null ? updated
+                : new Node<V>(null, null, Collections.<String, Node<V>>emptyMap()));
+    }
+
+    public PathTrie<V> without(String path) {
+        return with(path, null);
+    }
+
+    private static <V> Node<V> with(Node<V> node, String[] components, int depth, String path, V value) {
+        if (depth == components.length) {
+            if (value == null && node.value == null) {
+                return node;
+            }
+            return prune(new Node<>(value != null ? path : null, value, node.children));
+        }
+        Node<V> child = node.children.get(components[depth]);
+        if (child == null) {
+            if (value == null) {
+                return node;
+            }
+            child = new Node<>(null, null, Collections.<String, Node<V>>emptyMap());
+        }
+        Node<V> updatedChild = with(child, components, depth + 1, path, value);
+        if (updatedChild == child) {
+            return node;
+        }
+        Map<String, Node<V>> children = new HashMap<>(node.children);
+        if (updatedChild == null) {
+            children.remove(components[depth]);
+        } else {
+            children.put(components[depth], updatedChild);
+        }
+        return prune(new Node<>(node.path, node.value, Collections.unmodifiableMap(children)));
+    }
+
+    private static <V> Node<V> prune(Node<V> node) {
+        return node.value == null && node.children.isEmpty() ? null : node;
+    }
+
+    private static String[] components(String path) {
+        String trimmed = path.startsWith(Path.SEPARATOR) ? path.substring(1) : path;
+        if (trimmed.endsWith(Path.SEPARATOR)) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(Path.SEPARATOR);
+    }
+
+    private static String toListingPath(String[] components) {
+        StringBuilder path = new StringBuilder(Path.SEPARATOR);
+        for (String component : components) {
+            path.append(component).append(Path.SEPARATOR);
+        }
+        return path.toString();
+    }
+
+    /**
+     * Builder for a full listing, avoids copying the nodes for every path.
+     * @param <V> value stored for a path
+     */
+    public static final class Builder<V> {
+        private final MutableNode<V> root = new MutableNode<>();
+
+        public Builder<V> put(String path, V value) {
+            String[] components = components(path);
+            MutableNode<V> node = root;
+            for (String component : components) {
+                MutableNode<V> child = node.children.get(component);
+                if (child == null) {
+                    child = new MutableNode<>();
+                    node.children.put(component, child);
+                }
+                node = child;
+            }
+            node.path = toListingPath(components);
+            node.value = value;
+            return this;
+        }
+
+        public PathTrie<V> build() {
+            Node<V> node = root.freeze();
+            return node != null ? new PathTrie<>(node) : PathTrie.<V>empty();
+        }
+    }
+
+    private static final class MutableNode<V> {
+        private String path;
+        private V value;
+        private final Map<String, MutableNode<V>> children = new HashMap<>();
+
+        private Node<V> freeze() {
+            Map<String, Node<V>> frozen = new HashMap<>();
+            for (Map.Entry<String, MutableNode<V>> entry : children.entrySet()) {
+                Node<V> child = entry.getValue().freeze();
+                if (child != null) {
+                    frozen.put(entry.getKey(), child);
+                }
+            }
+            return prune(new Node<>(value != null ? path : null, value, Collections.unmodifiableMap(frozen)));
+        }
+    }
+
+    private static final class Node<V> {
+        private final String path;
+        private final V value;
+        private final Map<String, Node<V>> children;
+
+        private Node(String path, V value, Map<String, Node<V>> children) {
+            this.path = path;
+            this.value = value;
+            this.children = children;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.hortonworks.beacon.store.bean.PolicyBean;
 import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
 import com.hortonworks.beacon.store.bean.PolicyPropertiesBean;
 import com.hortonworks.beacon.store.executors.InstanceJobExecutor;
+import com.hortonworks.beacon.store.executors.PageCursor;
 import com.hortonworks.beacon.store.executors.PolicyExecutor;
 import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor;
 import com.hortonworks.beacon.store.executors.PolicyInstanceListExecutor;
@@ -154,33 +155,78 @@ public final class PolicyDao {
         return executor.executeUpdate(PolicyExecutor.PolicyQuery.DELETE_POLICY);
     }
 
+    /**
+     * Lists a page of policies, starting after the continuation token when one is given and at the offset otherwise.
+     * Unless exactTotal is set the total isn't counted but estimated from the policies listed so far, which is exact
+     * on the last page. It is counted anyway when the page starts past the end.
+     */
     public PolicyList getFilteredPolicy(String fieldStr, String filterBy, String orderBy,
-                                        String sortOrder, Integer offset, Integer resultsPerPage, int instanceCount)
-            throws BeaconException {
+                                        String sortOrder, Integer offset, Integer resultsPerPage, int instanceCount,
+                                        String token, boolean exactTotal) throws BeaconException {
         PolicyListExecutor executor = new PolicyListExecutor();
-        long totalCount = executor.getFilteredPolicyCount(filterBy, orderBy, sortOrder, resultsPerPage);
-        if (totalCount > 0) {
+        PageCursor cursor = PageCursor.fromToken(token);
+        long totalCount = exactTotal ? executor.getFilteredPolicyCount(filterBy, orderBy, sortOrder, resultsPerPage)
+                : -1;
+        if (totalCount != 0) {
+            // One more policy is fetched to tell whether there is a next page.
             List<PolicyBean> filteredPolicy = executor.getFilteredPolicy(filterBy, orderBy, sortOrder, offset,
-                    resultsPerPage);
+                    resultsPerPage + 1, cursor);
+            boolean hasMore = filteredPolicy.size() > resultsPerPage;
+            if (hasMore) {
+                filteredPolicy = filteredPolicy.subList(0, resultsPerPage);
+            }
+            long position = (cursor != null ? cursor.getPosition() : offset) + filteredPolicy.size();
+            boolean counted = exactTotal;
+            if (!counted && PageCursor.isPastEnd(cursor, offset, filteredPolicy.size())) {
+                totalCount = executor.getFilteredPolicyCount(filterBy, orderBy, sortOrder, resultsPerPage);
+                counted = true;
+            } else if (!counted) {
+                totalCount = position + (hasMore ? 1 : 0);
+            }
+            String nextToken = hasMore && !filteredPolicy.isEmpty()
+                    ? executor.getNextToken(filteredPolicy.get(filteredPolicy.size() - 1), orderBy, position)
+                    : null;
             HashSet<String> fields = new HashSet<>(Arrays.asList(fieldStr.toUpperCase().split(",")));
             PolicyList.PolicyElement[] policyElements = buildPolicyElements(fields, filteredPolicy, instanceCount);
-            return new PolicyList(policyElements, totalCount);
+            return new PolicyList(policyElements, totalCount, counted, nextToken);
         }
         return new PolicyList(new PolicyList.PolicyElement[]{}, totalCount);
     }
 
     private PolicyList.PolicyElement[] buildPolicyElements(HashSet<String> fields, List<PolicyBean> entities,
                                                                   int instanceCount) {
+        // Instances and reports of the whole page are fetched together to keep the number of queries constant.
+        List<String> policyIds = new ArrayList<>();
+        for (PolicyBean entity : entities) {
+            policyIds.add(entity.getId());
+        }
+        PolicyInstanceExecutor executor = new PolicyInstanceExecutor(new PolicyInstanceBean());
+        Map<String, List<PolicyInstanceBean>> recentInstances = null;
+        if (fields.contains(PolicyList.PolicyFieldList.INSTANCES.name())) {
+            recentInstances = executor.getInstanceRecent(policyIds, instanceCount);
+        }
+        Map<String, List<PolicyInstanceBean>> instanceReports = null;
+        if (fields.contains(PolicyList.PolicyFieldList.REPORT.name())) {
+            instanceReports = executor.getInstanceReport(policyIds);
+        }
+
         PolicyList.PolicyElement[] elements = new PolicyList.PolicyElement[entities.size()];
         int elementIndex = 0;
         for (PolicyBean entity : entities) {
-            elements[elementIndex++] = getPolicyElement(entity, fields, instanceCount);
+            elements[elementIndex++] = getPolicyElement(entity, fields,
+                    getOrEmpty(recentInstances, entity.getId()), getOrEmpty(instanceReports, entity.getId()));
         }
         return elements;
     }
 
+    private static List<PolicyInstanceBean> getOrEmpty(Map<String, List<PolicyInstanceBean>> beans, String policyId) {
+        List<PolicyInstanceBean> policyBeans = beans != null ? beans.get(policyId) : null;
+        return policyBeans != null ? policyBeans : Collections.<PolicyInstanceBean>emptyList();
+    }
+
     private PolicyList.PolicyElement getPolicyElement(PolicyBean bean, HashSet<String> fields,
-                                                             int instanceCount) {
+                                                      List<PolicyInstanceBean> instances,
+                                                      List<PolicyInstanceBean> instanceReport) {
         PolicyList.PolicyElement elem = new PolicyList.PolicyElement();
         elem.policyId = bean.getId();
         elem.name = bean.getName();
@@ -219,11 +265,6 @@ public final class PolicyDao {
         }
 
         if (fields.contains(PolicyList.PolicyFieldList.INSTANCES.name())) {
-            PolicyInstanceBean instanceBean = new PolicyInstanceBean();
-            instanceBean.setPolicyId(bean.getId());
-            PolicyInstanceExecutor executor = new PolicyInstanceExecutor(instanceBean);
-            List<PolicyInstanceBean> instances = executor.getInstanceRecent(
-                    PolicyInstanceExecutor.PolicyInstanceQuery.GET_INSTANCE_RECENT, instanceCount);
             elem.instances = new PolicyInstanceList.InstanceElement[instances.size()];
             for (int i = 0; i < instances.size(); i++) {
                 elem.instances[i] = createInstanceElement(bean.getName(), bean.getType(),
@@ -241,12 +282,6 @@ public final class PolicyDao {
 
         if (fields.contains(PolicyList.PolicyFieldList.REPORT.name())) {
             PolicyReport report = new PolicyReport();
-            PolicyInstanceBean instanceBean = new PolicyInstanceBean();
-            String policyId = bean.getId();
-            instanceBean.setPolicyId(policyId);
-            PolicyInstanceExecutor executor = new PolicyInstanceExecutor(instanceBean);
-            List<PolicyInstanceBean> instanceReport = executor.getInstanceReport(
-                    PolicyInstanceExecutor.PolicyInstanceQuery.GET_INSTANCE_REPORT, 10);
             Map<String, PolicyInstanceList.InstanceElement> elementMap = new HashMap<>();
             for (PolicyInstanceBean policyInstanceBean : instanceReport) {
                 PolicyInstanceList.InstanceElement instanceElement = new PolicyInstanceList.InstanceElement();
@@ -421,16 +456,40 @@ public final class PolicyDao {
         return executor.existsClustersPolicies(PolicyExecutor.PolicyQuery.GET_CLUSTER_CLOUD_POLICY);
     }
 
+    /**
+     * Lists a page of instances, the same way as {@link #getFilteredPolicy} lists the policies.
+     */
     public PolicyInstanceList getFilteredJobInstance(String filters, String orderBy, String sortOrder,
                                                             Integer offset, Integer resultsPerPage,
-                                                            boolean isArchived) throws Exception {
+                                                            boolean isArchived, String token,
+                                                            boolean exactTotal) throws Exception {
         PolicyInstanceListExecutor executor = new PolicyInstanceListExecutor();
-        long totalCount = executor.getFilteredPolicyInstanceCount(filters, orderBy, sortOrder,
-                resultsPerPage, isArchived);
+        PageCursor cursor = PageCursor.fromToken(token);
+        long totalCount = exactTotal
+                ? executor.getFilteredPolicyInstanceCount(filters, orderBy, sortOrder, resultsPerPage, isArchived)
+                : -1;
         List<PolicyInstanceList.InstanceElement> elements = new ArrayList<>();
-        if (totalCount > 0) {
+        String nextToken = null;
+        boolean counted = exactTotal;
+        if (totalCount != 0) {
             List<Object[]> resultList = executor.getFilteredJobInstance(filters, orderBy, sortOrder, offset,
-                    resultsPerPage, isArchived);
+                    resultsPerPage + 1, isArchived, cursor);
+            boolean hasMore = resultList.size() > resultsPerPage;
+            if (hasMore) {
+                resultList = resultList.subList(0, resultsPerPage);
+            }
+            long position = (cursor != null ? cursor.getPosition() : offset) + resultList.size();
+            if (!counted && PageCursor.isPastEnd(cursor, offset, resultList.size())) {
+                totalCount = executor.getFilteredPolicyInstanceCount(filters, orderBy, sortOrder, resultsPerPage,
+                        isArchived);
+                counted = true;
+            } else if (!counted) {
+                totalCount = position + (hasMore ? 1 : 0);
+            }
+            if (hasMore && !resultList.isEmpty()) {
+                PolicyInstanceBean last = (PolicyInstanceBean) resultList.get(resultList.size() - 1)[4];
+                nextToken = executor.getNextToken(last, orderBy, position);
+            }
             for (Object[] objects : resultList) {
                 String name = (String) objects[0];
                 String type = (String) objects[1];
@@ -442,12 +501,12 @@ public final class PolicyDao {
                 elements.add(element);
             }
         }
-        return new PolicyInstanceList(elements, totalCount);
+        return new PolicyInstanceList(elements, totalCount, counted, nextToken);
     }
 
-    private PolicyInstanceList.InstanceElement createInstanceElement(String name, String type,
-                                                                            String executionType, String user,
-                                                                            PolicyInstanceBean bean) {
+    public PolicyInstanceList.InstanceElement createInstanceElement(String name, String type,
+                                                                    String executionType, String user,
+                                                                    PolicyInstanceBean bean) {
         PolicyInstanceList.InstanceElement element = new PolicyInstanceList.InstanceElement();
         element.id = bean.getInstanceId();
         element.policyId = bean.getPolicyId();
@@ -78,6 +78,16 @@ public class HMSMetadataClient implements HiveMetadataClient {
         }
     }
 
+    boolean isValid() {
+        try {
+            client.getMetaConf(HiveConf.ConfVars.METASTORE_TRY_DIRECT_SQL.varname);
+            return true;
+        } catch (TException e) {
+            LOG.debug("Hive metastore connection check failed", e);
+            return false;
+        }
+    }
+
     @Override
     public List<String> listDatabases() throws BeaconException {
         try {
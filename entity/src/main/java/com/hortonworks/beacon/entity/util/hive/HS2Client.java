@@ -56,7 +56,7 @@ import java.util.Properties;
 public class HS2Client implements HiveMetadataClient, HiveServerClient {
     private static final String DESC_DATABASE = "DESC DATABASE EXTENDED ";
     private static final String SHOW_DATABASES = "SHOW DATABASES";
-    private static final String SHOW_TABLES = "SHOW TABLES";
+    private static final String SHOW_TABLES_IN = "SHOW TABLES IN ";
     private static final String SHOW_FUNCTIONS = "SHOW FUNCTIONS";
     private static final String DROP_TABLE = "DROP TABLE IF EXISTS";
     private static final String DROP_FUNCTION = "DROP FUNCTION IF EXISTS";
@@ -67,7 +67,6 @@ public class HS2Client implements HiveMetadataClient, HiveServerClient {
     private static final int DB_NOT_EXIST_EC = 10072;
     private static final String DB_NOT_EXIST_STATE = "42000";
 
-    private static final String USE = "USE ";
     private static final Logger LOG = LoggerFactory.getLogger(HS2Client.class);
 
     private static final String DRIVER_NAME = "org.apache.hive.jdbc.HiveDriver";
@@ -259,8 +258,8 @@ public class HS2Client implements HiveMetadataClient, HiveServerClient {
         Statement statement = null;
         try {
             statement = getConnection().createStatement();
-            statement.execute(USE + dbName);
-            try (ResultSet res = statement.executeQuery(SHOW_TABLES)) {
+            // Doesn't switch the session database, the connection may be reused from the pool.
+            try (ResultSet res = statement.executeQuery(SHOW_TABLES_IN + dbName)) {
                 while (res.next()) {
                     String tableName = res.getString(1);
                     tables.add(tableName);
@@ -422,6 +421,15 @@ public class HS2Client implements HiveMetadataClient, HiveServerClient {
 
     }
 
+    boolean isValid(int timeoutSecs) {
+        try {
+            return connection == null || connection.isValid(timeoutSecs);
+        } catch (SQLException e) {
+            LOG.debug("Hive server connection check failed", e);
+            return false;
+        }
+    }
+
     public Connection getConnection() throws BeaconException {
         if (connection != null) {
             return connection;
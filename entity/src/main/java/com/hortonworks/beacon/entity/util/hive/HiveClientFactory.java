@@ -66,23 +66,44 @@ public final class HiveClientFactory {
         return new HS2Client(connectionString, cluster);
     }
 
-    public static HiveMetadataClient getMetadataClient(Cluster cluster) throws BeaconException {
+    /**
+     * Returns a metadata client of the cluster from {@link HiveClientPool}, closing it returns it to the pool.
+     */
+    public static HiveMetadataClient getMetadataClient(final Cluster cluster) throws BeaconException {
         BeaconCluster beaconCluster = new BeaconCluster(cluster);
         if (hiveMetadataClient != null) {
             return hiveMetadataClient;
         }
 
-        if (beaconCluster.getHmsEndpoint() != null) {
-            return new HMSMetadataClient(cluster);
+        String hmsEndpoint = beaconCluster.getHmsEndpoint();
+        if (hmsEndpoint != null) {
+            return HiveClientPool.get().borrow(getPoolKey("hms", cluster, hmsEndpoint),
+                    new HiveClientPool.ClientCreator() {
+                        @Override
+                        public HiveMetadataClient create() throws BeaconException {
+                            return new HMSMetadataClient(cluster);
+                        }
+                    });
         }
         if (cluster.getHsEndpoint() != null) {
-            return new HS2Client(cluster);
+            return HiveClientPool.get().borrow(getPoolKey("hs2", cluster, cluster.getHsEndpoint()),
+                    new HiveClientPool.ClientCreator() {
+                        @Override
+                        public HiveMetadataClient create() throws BeaconException {
+                            return new HS2Client(cluster);
+                        }
+                    });
         }
 
         throw new BeaconException("Failed to get HiveMetadataClient for cluster {}. Specify HMS/HS2 endpoint",
                 cluster.getName());
     }
 
+    private static String getPoolKey(String type, Cluster cluster, String endpoint) {
+        // Cluster version is part of the key so that clients of an updated cluster aren't reused.
+        return type + '|' + cluster.getName() + '|' + cluster.getVersion() + '|' + endpoint;
+    }
+
     public static void close(HiveMetadataClient client) {
         if (client != null) {
             try {
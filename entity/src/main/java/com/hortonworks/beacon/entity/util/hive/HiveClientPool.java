@@ -0,0 +1,270 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.entity.util.hive;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Engine;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of hive metadata clients, kept per metastore/HiveServer2 endpoint so that listing and validation calls
+ * don't open a new connection every time. Clients idle for longer than the validation interval are health
+ * checked before they are handed out again and clients idle for longer than the idle timeout are closed.
+ * The number of clients in use isn't capped, only the number kept idle per endpoint.
+ */
+public final class HiveClientPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveClientPool.class);
+
+    private static final int DEF_MAX_IDLE = 4;
+    private static final int DEF_IDLE_TIMEOUT_SECS = 300;
+    private static final int DEF_VALIDATION_INTERVAL_SECS = 30;
+    private static final int VALIDATION_TIMEOUT_SECS = 5;
+    private static final long MAX_EVICTION_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("HiveClientPool-evictor-%d").setDaemon(true).build());
+
+    private static HiveClientPool instance;
+
+    /**
+     * Creates a new client for an endpoint when there is no idle one.
+     */
+    interface ClientCreator {
+        HiveMetadataClient create() throws BeaconException;
+    }
+
+    private static final class IdleClient {
+        private final HiveMetadataClient client;
+        private final long idleSince;
+
+        private IdleClient(HiveMetadataClient client, long idleSince) {
+            this.client = client;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private final ConcurrentMap<String, Deque<IdleClient>> idleClients = new ConcurrentHashMap<>();
+    private final int maxIdle;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    @VisibleForTesting
+    HiveClientPool(int maxIdle, long idleTimeoutMillis, long validationIntervalMillis) {
+        this.maxIdle = maxIdle;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    public static synchronized HiveClientPool get() {
+        if (instance == null) {
+            Engine engine = BeaconConfig.getInstance().getEngine();
+            int maxIdle = engine.getHiveClientPoolMaxIdle() > 0 ? engine.getHiveClientPoolMaxIdle() : DEF_MAX_IDLE;
+            int idleTimeout = engine.getHiveClientPoolIdleTimeout() > 0
+                    ? engine.getHiveClientPoolIdleTimeout() : DEF_IDLE_TIMEOUT_SECS;
+            int validationInterval = engine.getHiveClientPoolValidationInterval() > 0
+                    ? engine.getHiveClientPoolValidationInterval() : DEF_VALIDATION_INTERVAL_SECS;
+            instance = new HiveClientPool(maxIdle, TimeUnit.SECONDS.toMillis(idleTimeout),
+                    TimeUnit.SECONDS.toMillis(validationInterval));
+        }
+        return instance;
+    }
+
+    /**
+     * Hands out an idle client of the endpoint, or a new one when none of the idle clients is usable.
+     * The returned client goes back to the pool on close.
+     */
+    HiveMetadataClient borrow(String key, ClientCreator creator) throws BeaconException {
+        Deque<IdleClient> idle = getIdleClients(key);
+        while (true) {
+            IdleClient candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                break;
+            }
+            if (System.currentTimeMillis() - candidate.idleSince < validationIntervalMillis
+                    || isValid(candidate.client)) {
+                reused.incrementAndGet();
+                return new PooledMetadataClient(this, key, candidate.client);
+            }
+            LOG.debug("Discarding stale hive client for {}", key);
+            discard(candidate.client);
+        }
+        created.incrementAndGet();
+        return new PooledMetadataClient(this, key, creator.create());
+    }
+
+    void release(String key, HiveMetadataClient client, boolean reusable) {
+        if (reusable) {
+            Deque<IdleClient> idle = getIdleClients(key);
+            synchronized (idle) {
+                if (idle.size() < maxIdle) {
+                    idle.addFirst(new IdleClient(client, System.currentTimeMillis()));
+                    scheduleEviction();
+                    return;
+                }
+            }
+        }
+        discard(client);
+    }
+
+    /**
+     * Closes the clients which have been idle for longer than the idle timeout.
+     */
+    @VisibleForTesting
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<HiveMetadataClient> expired = new ArrayList<>();
+        for (Deque<IdleClient> idle : idleClients.values()) {
+            synchronized (idle) {
+                // Most recently released clients are at the head, so the expired ones are at the tail.
+                Iterator<IdleClient> iterator = idle.descendingIterator();
+                while (iterator.hasNext()) {
+                    IdleClient next = iterator.next();
+                    if (next.idleSince > cutoff) {
+                        break;
+                    }
+                    iterator.remove();
+                    expired.add(next.client);
+                }
+            }
+        }
+        for (HiveMetadataClient client : expired) {
+            discard(client);
+        }
+        if (!expired.isEmpty()) {
+            LOG.debug("Evicted {} idle hive clients", expired.size());
+        }
+    }
+
+    /**
+     * Closes all the idle clients.
+     */
+    public void clear() {
+        List<HiveMetadataClient> idleList = new ArrayList<>();
+        for (Deque<IdleClient> idle : idleClients.values()) {
+            synchronized (idle) {
+                for (IdleClient idleClient : idle) {
+                    idleList.add(idleClient.client);
+                }
+                idle.clear();
+            }
+        }
+        for (HiveMetadataClient client : idleList) {
+            discard(client);
+        }
+    }
+
+    public int getIdleCount() {
+        int count = 0;
+        for (Deque<IdleClient> idle : idleClients.values()) {
+            synchronized (idle) {
+                count += idle.size();
+            }
+        }
+        return count;
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    private Deque<IdleClient> getIdleClients(String key) {
+        Deque<IdleClient> idle = idleClients.get(key);
+        if (idle == null) {
+            Deque<IdleClient> newIdle = new ArrayDeque<>();
+            idle = idleClients.putIfAbsent(key, newIdle);
+            if (idle == null) {
+                idle = newIdle;
+            }
+        }
+        return idle;
+    }
+
+    private void scheduleEviction() {
+        if (evictionScheduled.compareAndSet(false, true)) {
+            long period = Math.max(1, Math.min(idleTimeoutMillis / 2, MAX_EVICTION_PERIOD_MILLIS));
+            EVICTOR.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        evictIdle();
+                    } catch (Throwable t) {
+                        LOG.warn("Failed to evict idle hive clients", t);
+                    }
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void discard(HiveMetadataClient client) {
+        discarded.incrementAndGet();
+        HiveClientFactory.close(client);
+    }
+
+    private static boolean isValid(HiveMetadataClient client) {
+        try {
+            if (client instanceof HS2Client) {
+                return ((HS2Client) client).isValid(VALIDATION_TIMEOUT_SECS);
+            }
+            if (client instanceof HMSMetadataClient) {
+                return ((HMSMetadataClient) client).isValid();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            LOG.debug("Hive client health check failed", e);
+            return false;
+        }
+    }
+}
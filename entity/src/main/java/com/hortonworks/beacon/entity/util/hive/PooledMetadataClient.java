@@ -0,0 +1,151 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.entity.util.hive;
+
+import com.hortonworks.beacon.entity.exceptions.ValidationException;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import org.apache.hadoop.fs.Path;
+
+import java.util.List;
+
+/**
+ * Hive metadata client borrowed from {@link HiveClientPool}. Close returns the underlying client to the pool,
+ * unless a call on it failed for a reason other than invalid input.
+ */
+final class PooledMetadataClient implements HiveMetadataClient {
+    private final HiveClientPool pool;
+    private final String key;
+    private final HiveMetadataClient client;
+    private boolean broken;
+    private boolean closed;
+
+    PooledMetadataClient(HiveClientPool pool, String key, HiveMetadataClient client) {
+        this.pool = pool;
+        this.key = key;
+        this.client = client;
+    }
+
+    @Override
+    public List<String> listDatabases() throws BeaconException {
+        try {
+            return client.listDatabases();
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public Path getDatabaseLocation(String dbName) throws BeaconException {
+        try {
+            return client.getDatabaseLocation(dbName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public List<String> getTables(String dbName) throws BeaconException {
+        try {
+            return client.getTables(dbName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public List<String> getFunctions(String dbName) throws BeaconException {
+        try {
+            return client.getFunctions(dbName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public boolean doesDBExist(String dbName) throws BeaconException {
+        try {
+            return client.doesDBExist(dbName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public void dropTable(String dbName, String tableName) throws BeaconException {
+        try {
+            client.dropTable(dbName, tableName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public void dropDatabase(String dbName) throws BeaconException {
+        try {
+            client.dropDatabase(dbName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public void dropFunction(String dbName, String functionName) throws BeaconException {
+        try {
+            client.dropFunction(dbName, functionName);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public String getDatabaseProperty(String dbName, String propertyKey) throws BeaconException {
+        try {
+            return client.getDatabaseProperty(dbName, propertyKey);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public void setDatabaseProperty(String dbName, String key, String value) throws BeaconException {
+        try {
+            client.setDatabaseProperty(dbName, key, value);
+        } catch (BeaconException e) {
+            throw failed(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            pool.release(key, client, !broken);
+        }
+    }
+
+    private BeaconException failed(BeaconException e) {
+        if (!(e instanceof ValidationException)) {
+            broken = true;
+        }
+        return e;
+    }
+}
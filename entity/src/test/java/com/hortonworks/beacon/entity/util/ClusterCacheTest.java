@@ -0,0 +1,103 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.entity.util;
+
+import com.hortonworks.beacon.client.entity.Cluster;
+import com.hortonworks.beacon.entity.BeaconCluster;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Test class for {@link ClusterCache}.
+ */
+public class ClusterCacheTest {
+
+    private ClusterCache cache = ClusterCache.get();
+
+    @Before
+    public void setup() {
+        cache.invalidate();
+    }
+
+    @Test
+    public void testReadThroughSnapshot() {
+        Assert.assertNull(cache.getCluster("source"));
+        cache.putCluster(buildCluster("source"), cache.getVersion());
+
+        long hits = cache.getHits();
+        BeaconCluster cached = cache.getCluster("source");
+        Assert.assertNotNull(cached);
+        Assert.assertEquals(hits + 1, cache.getHits());
+        Assert.assertEquals(Arrays.asList("target"), cached.getPeers());
+
+        // Changes made by a caller don't leak into the cached snapshot
+        cached.getPeers().clear();
+        cached.getCustomProperties().setProperty("dfs.nameservices", "changed");
+        BeaconCluster again = cache.getCluster("source");
+        Assert.assertEquals(Arrays.asList("target"), again.getPeers());
+        Assert.assertEquals("ns1", again.getCustomProperties().getProperty("dfs.nameservices"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        cache.putCluster(buildCluster("source"), cache.getVersion());
+        cache.invalidate();
+        Assert.assertNull(cache.getCluster("source"));
+
+        // A value loaded before an invalidation is not cached
+        long loadedVersion = cache.getVersion();
+        cache.invalidate();
+        cache.putCluster(buildCluster("source"), loadedVersion);
+        Assert.assertNull(cache.getCluster("source"));
+    }
+
+    @Test
+    public void testHAConfiguration() {
+        Cluster cluster = buildCluster("source");
+        cache.putCluster(cluster, cache.getVersion());
+        Assert.assertNull(cache.getHAConfiguration("source"));
+
+        cache.putHAConfiguration("source", ClusterHelper.getHAConfigurationOrDefault(cluster), cache.getVersion());
+        Configuration conf = cache.getHAConfiguration("source");
+        Assert.assertEquals("ns1", conf.get("dfs.nameservices"));
+        conf.set("dfs.nameservices", "changed");
+        Assert.assertEquals("ns1", cache.getHAConfiguration("source").get("dfs.nameservices"));
+    }
+
+    private Cluster buildCluster(String name) {
+        Cluster cluster = new Cluster();
+        cluster.setName(name);
+        cluster.setFsEndpoint("hdfs://ns1");
+        cluster.setTags(new ArrayList<String>());
+        cluster.setPeers(new ArrayList<>(Arrays.asList("target")));
+        Properties properties = new Properties();
+        properties.setProperty("dfs.nameservices", "ns1");
+        cluster.setCustomProperties(properties);
+        return cluster;
+    }
+}
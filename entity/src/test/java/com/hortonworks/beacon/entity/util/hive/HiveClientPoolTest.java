@@ -0,0 +1,112 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.entity.util.hive;
+
+import com.hortonworks.beacon.entity.exceptions.ValidationException;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test class for {@link HiveClientPool}.
+ */
+public class HiveClientPoolTest {
+
+    private static final String KEY = "hms|source|1|thrift://localhost:9083";
+
+    private static HiveClientPool.ClientCreator creator(final HiveMetadataClient client) {
+        return new HiveClientPool.ClientCreator() {
+            @Override
+            public HiveMetadataClient create() {
+                return client;
+            }
+        };
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        HiveClientPool pool = new HiveClientPool(1, 60000, 60000);
+        HiveMetadataClient client = Mockito.mock(HiveMetadataClient.class);
+        HiveMetadataClient other = Mockito.mock(HiveMetadataClient.class);
+
+        HiveMetadataClient first = pool.borrow(KEY, creator(client));
+        HiveMetadataClient second = pool.borrow(KEY, creator(other));
+        Assert.assertEquals(2, pool.getCreated());
+        first.close();
+        first.close();
+        second.close();
+        // Only one client is kept idle, the other one is closed
+        Assert.assertEquals(1, pool.getIdleCount());
+        Mockito.verify(client, Mockito.never()).close();
+        Mockito.verify(other).close();
+
+        HiveMetadataClient third = pool.borrow(KEY, creator(other));
+        Assert.assertEquals(1, pool.getReused());
+        third.listDatabases();
+        Mockito.verify(client).listDatabases();
+        third.close();
+        Assert.assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testFailedClientIsDiscarded() throws Exception {
+        HiveClientPool pool = new HiveClientPool(2, 60000, 60000);
+        HiveMetadataClient client = Mockito.mock(HiveMetadataClient.class);
+        Mockito.when(client.getDatabaseLocation("missing")).thenThrow(new ValidationException("missing"));
+        Mockito.when(client.getDatabaseLocation("broken")).thenThrow(new BeaconException("broken"));
+
+        HiveMetadataClient pooled = pool.borrow(KEY, creator(client));
+        try {
+            pooled.getDatabaseLocation("missing");
+            Assert.fail("Expected ValidationException");
+        } catch (ValidationException e) {
+            // expected
+        }
+        pooled.close();
+        Assert.assertEquals(1, pool.getIdleCount());
+
+        pooled = pool.borrow(KEY, creator(client));
+        try {
+            pooled.getDatabaseLocation("broken");
+            Assert.fail("Expected BeaconException");
+        } catch (BeaconException e) {
+            // expected
+        }
+        pooled.close();
+        Assert.assertEquals(0, pool.getIdleCount());
+        Mockito.verify(client).close();
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        HiveClientPool pool = new HiveClientPool(2, 1, 60000);
+        HiveMetadataClient client = Mockito.mock(HiveMetadataClient.class);
+        pool.borrow(KEY, creator(client)).close();
+        Assert.assertEquals(1, pool.getIdleCount());
+
+        Thread.sleep(10);
+        pool.evictIdle();
+        Assert.assertEquals(0, pool.getIdleCount());
+        Mockito.verify(client).close();
+    }
+}
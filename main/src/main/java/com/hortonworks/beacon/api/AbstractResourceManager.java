@@ -43,16 +43,18 @@ abstract class AbstractResourceManager {
     protected ClusterDao clusterDao = new ClusterDao();
     protected EventsDao eventsDao = new EventsDao();
     protected DatasetListing datasetListing = new DatasetListing();
+    protected HistoryExport historyExport = new HistoryExport();
     protected LogRetrieval logRetrieval = new LogRetrieval();
     protected static CloudCredDao cloudCredDao = new CloudCredDao();
 
     PolicyInstanceList listInstance(String filters, String orderBy, String sortOrder, Integer offset,
-                                            Integer resultsPerPage, boolean isArchived) throws BeaconException {
+                                    Integer resultsPerPage, boolean isArchived, String token,
+                                    boolean exactTotal) throws BeaconException {
         resultsPerPage = resultsPerPage <= getMaxResultsPerPage() ? resultsPerPage : getMaxResultsPerPage();
         offset = checkAndSetOffset(offset);
         try {
             return policyDao.getFilteredJobInstance(filters, orderBy, sortOrder,
-                    offset, resultsPerPage, isArchived);
+                    offset, resultsPerPage, isArchived, token, exactTotal);
         } catch (Exception e) {
             throw new BeaconException(e.getMessage(), e);
         }
@@ -56,6 +56,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -94,6 +95,31 @@ public class BeaconResource extends AbstractResourceManager {
         }
     }
 
+    @GET
+    @Path("file/list/page")
+    @Produces({MediaType.APPLICATION_JSON})
+    @Timed(absolute = true, name="api.beacon.file.list.page")
+    public Response listFilesPage(@QueryParam("filePath") String filePath,
+                                  @QueryParam("filter") String filter,
+                                  @DefaultValue("0") @QueryParam("pageSize") Integer pageSize,
+                                  @QueryParam("token") String token) {
+        try {
+            if (StringUtils.isBlank(filePath)) {
+                throw BeaconWebException.newAPIException("FS Path can't be empty");
+            }
+            LOG.info("List FS path {} page on cluster {}", filePath, ClusterHelper.getLocalCluster().getName());
+            StreamingOutput page = datasetListing.listFilesPage(ClusterHelper.getLocalCluster(), filePath, filter,
+                    pageSize, token);
+            return Response.ok(page, MediaType.APPLICATION_JSON_TYPE).build();
+        } catch (BeaconWebException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw BeaconWebException.newAPIException(e, Status.BAD_REQUEST);
+        } catch (Throwable throwable) {
+            throw BeaconWebException.newAPIException(throwable, Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GET
     @Path("hive/listDBs")
     @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
@@ -171,11 +197,14 @@ public class BeaconResource extends AbstractResourceManager {
                                             @DefaultValue("DESC") @QueryParam("sortOrder") String sortOrder,
                                             @DefaultValue("0") @QueryParam("offset") Integer offset,
                                             @QueryParam("numResults") Integer resultsPerPage,
-                                            @DefaultValue("false") @QueryParam("archived") String archived) {
+                                            @DefaultValue("false") @QueryParam("archived") String archived,
+                                            @QueryParam("token") String token,
+                                            @DefaultValue("false") @QueryParam("exactTotal") String exactTotal) {
         resultsPerPage = resultsPerPage == null ? getDefaultResultsPerPage() : resultsPerPage;
         try {
             boolean isArchived = Boolean.parseBoolean(archived);
-            return listInstance(filters, orderBy, sortOrder, offset, resultsPerPage, isArchived);
+            return listInstance(filters, orderBy, sortOrder, offset, resultsPerPage, isArchived, token,
+                    Boolean.parseBoolean(exactTotal));
         } catch (NoSuchElementException e) {
             throw BeaconWebException.newAPIException(e, Response.Status.NOT_FOUND);
         } catch (BeaconWebException e) {
@@ -185,6 +214,26 @@ public class BeaconResource extends AbstractResourceManager {
         }
     }
 
+    @GET
+    @Path("instance/export")
+    @Produces({HistoryExport.NDJSON_TYPE, HistoryExport.GZIP_TYPE})
+    @Timed(absolute = true, name="api.beacon.exportInstances")
+    public Response exportInstances(@QueryParam("policyName") String policyName,
+                                    @QueryParam("start") String startStr,
+                                    @QueryParam("end") String endStr,
+                                    @QueryParam("token") String token,
+                                    @DefaultValue("false") @QueryParam("gzip") String gzip) {
+        try {
+            boolean compress = Boolean.parseBoolean(gzip);
+            StreamingOutput output = historyExport.exportInstances(policyName, startStr, endStr, token, compress);
+            return Response.ok(output, compress ? HistoryExport.GZIP_TYPE : HistoryExport.NDJSON_TYPE).build();
+        } catch (IllegalArgumentException e) {
+            throw BeaconWebException.newAPIException(e, Status.BAD_REQUEST);
+        } catch (Throwable throwable) {
+            throw BeaconWebException.newAPIException(throwable, Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GET
     @Path("logs")
     @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
@@ -0,0 +1,190 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.api;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hortonworks.beacon.client.result.FileListResult.FileList;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Engine;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Looks up whether the objects of a cloud listing are encrypted, one metadata request per object issued
+ * concurrently on a shared pool. Results are cached by object version, the path with its length and modification
+ * time, so listing the same prefix again costs no requests. A listing waits for its lookups no longer than the time
+ * budget; objects not looked up by then are marked as of unknown encryption.
+ */
+final class CloudEncryptionProber {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CloudEncryptionProber.class);
+    private static final int DEF_THREADS = 16;
+    private static final int DEF_TIMEOUT = 10000;
+    private static final int MAX_CACHED_OBJECTS = 100000;
+
+    private static CloudEncryptionProber instance;
+
+    /**
+     * Reads the encryption of a single cloud object.
+     */
+    interface ObjectProbe {
+        /**
+         * @return server side encryption algorithm of the object, null or empty if it is not encrypted
+         */
+        String getEncryptionAlgorithm(Path path) throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final long timeout;
+    private final Map<String, Boolean> cache;
+
+    CloudEncryptionProber(ExecutorService executor, long timeout, final int maxCachedObjects) {
+        this.executor = executor;
+        this.timeout = timeout;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxCachedObjects;
+            }
+        });
+    }
+
+    static synchronized CloudEncryptionProber get() {
+        if (instance == null) {
+            Engine engine = BeaconConfig.getInstance().getEngine();
+            int threads = engine.getCloudEncryptionProbeThreads() > 0
+                    ? engine.getCloudEncryptionProbeThreads() : DEF_THREADS;
+            int probeTimeout = engine.getCloudEncryptionProbeTimeout() > 0
+                    ? engine.getCloudEncryptionProbeTimeout() : DEF_TIMEOUT;
+            ExecutorService probeExecutor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("CloudEncryptionProber-%d").setDaemon(true).build());
+            instance = new CloudEncryptionProber(probeExecutor, probeTimeout, MAX_CACHED_OBJECTS);
+        }
+        return instance;
+    }
+
+    /**
+     * Fills in the encryption of the files of a listing, the entry at each index describing the status at the same
+     * index. Directories are left as they are. After the first failed lookup the objects not yet looked up are
+     * skipped, as a failure usually means the credentials can't read object metadata at all.
+     */
+    void probe(List<FileStatus> statuses, List<FileList> fileLists, final ObjectProbe probe) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Future<Boolean>> lookups = new ArrayList<>(statuses.size());
+        for (int i = 0; i < statuses.size(); i++) {
+            final FileStatus status = statuses.get(i);
+            if (status.isDirectory()) {
+                lookups.add(null);
+                continue;
+            }
+            Boolean encrypted = cache.get(cacheKey(status));
+            if (encrypted != null) {
+                fileLists.get(i).isEncrypted = encrypted;
+                lookups.add(null);
+                continue;
+            }
+            lookups.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return lookup(status, probe, failed);
+                }
+            }));
+        }
+
+        int unknown = 0;
+        boolean expired = false;
+        for (int i = 0; i < lookups.size(); i++) {
+            Future<Boolean> lookup = lookups.get(i);
+            if (lookup == null) {
+                continue;
+            }
+            Boolean encrypted = null;
+            if (!expired) {
+                try {
+                    encrypted = lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    expired = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    expired = true;
+                } catch (ExecutionException e) {
+                    LOG.warn("Encryption lookup of {} failed", statuses.get(i).getPath(), e.getCause());
+                }
+            }
+            if (expired) {
+                // Lookups already running still complete and fill the cache for the next listing.
+                lookup.cancel(false);
+            }
+            if (encrypted != null) {
+                fileLists.get(i).isEncrypted = encrypted;
+            } else {
+                fileLists.get(i).encryptionUnknown = true;
+                unknown++;
+            }
+        }
+        if (unknown > 0) {
+            LOG.info("Encryption of {} of {} objects is unknown, time budget expired: {}", unknown,
+                    statuses.size(), expired);
+        }
+    }
+
+    private Boolean lookup(FileStatus status, ObjectProbe probe, AtomicBoolean failed) {
+        if (failed.get()) {
+            return null;
+        }
+        try {
+            boolean encrypted = StringUtils.isNotBlank(probe.getEncryptionAlgorithm(status.getPath()));
+            cache.put(cacheKey(status), encrypted);
+            return encrypted;
+        } catch (Exception e) {
+            if (failed.compareAndSet(false, true)) {
+                LOG.warn("Exception while retrieving encryption algo of object {}, will skip for rest",
+                        status.getPath(), e);
+            }
+            return null;
+        }
+    }
+
+    private static String cacheKey(FileStatus status) {
+        return status.getPath() + "#" + status.getLen() + "#" + status.getModificationTime();
+    }
+}
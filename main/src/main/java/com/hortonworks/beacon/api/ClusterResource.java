@@ -41,6 +41,7 @@ import com.hortonworks.beacon.entity.EntityValidatorFactory;
 import com.hortonworks.beacon.entity.exceptions.EntityAlreadyExistsException;
 import com.hortonworks.beacon.entity.exceptions.ValidationException;
 import com.hortonworks.beacon.entity.util.ClusterBuilder;
+import com.hortonworks.beacon.entity.util.ClusterCache;
 import com.hortonworks.beacon.entity.util.ClusterHelper;
 import com.hortonworks.beacon.events.BeaconEvents;
 import com.hortonworks.beacon.events.EventEntityType;
@@ -255,6 +256,7 @@ public class ClusterResource extends AbstractResourceManager {
                 cluster.getName());
         } finally {
             RequestContext.get().rollbackTransaction();
+            ClusterCache.get().afterTransaction();
         }
     }
 
@@ -298,6 +300,7 @@ public class ClusterResource extends AbstractResourceManager {
             throw BeaconWebException.newAPIException(e);
         } finally {
             RequestContext.get().rollbackTransaction();
+            ClusterCache.get().afterTransaction();
         }
         return new APIResult(APIResult.Status.SUCCEEDED, "Cluster {} removed successfully.", clusterName);
     }
@@ -347,6 +350,7 @@ public class ClusterResource extends AbstractResourceManager {
             throw BeaconWebException.newAPIException(e, Response.Status.BAD_REQUEST);
         } finally {
             RequestContext.get().rollbackTransaction();
+            ClusterCache.get().afterTransaction();
         }
     }
 
@@ -382,6 +386,7 @@ public class ClusterResource extends AbstractResourceManager {
             throw BeaconWebException.newAPIException(e, Response.Status.BAD_REQUEST);
         } finally {
             RequestContext.get().rollbackTransaction();
+            ClusterCache.get().afterTransaction();
         }
     }
 
@@ -419,6 +424,7 @@ public class ClusterResource extends AbstractResourceManager {
             LOG.debug("Cluster update processing completed.");
         } finally {
             RequestContext.get().rollbackTransaction();
+            ClusterCache.get().afterTransaction();
         }
     }
 
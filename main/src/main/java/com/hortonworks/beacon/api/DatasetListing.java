@@ -22,6 +22,9 @@
 
 package com.hortonworks.beacon.api;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.hortonworks.beacon.api.exception.BeaconWebException;
 import com.hortonworks.beacon.client.entity.CloudCred;
 import com.hortonworks.beacon.client.entity.Cluster;
@@ -47,9 +50,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Helper class for Listing stored data.
@@ -58,6 +74,17 @@ import java.util.List;
 final class DatasetListing {
 
     private static final Logger LOG = LoggerFactory.getLogger(DatasetListing.class);
+    private static final int DEF_DB_LOOKUP_THREADS = 8;
+    private static final int MIN_DB_LOOKUP_BATCH = 16;
+    private static final int DEF_PAGE_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 10000;
+    private static final int ENRICH_THREADS = 4;
+    private static final int ENRICH_BATCH_SIZE = 256;
+    private static final int MAX_PENDING_ENRICH_BATCHES = 2 * ENRICH_THREADS;
+    private static final Gson GSON = new Gson();
+
+    private static ExecutorService dbLookupExecutor;
+    private static ExecutorService enrichExecutor;
 
     FileListResult listFiles(BeaconCluster cluster, String path, String filter) throws BeaconException {
         if (filter == null) {
@@ -91,8 +118,6 @@ final class DatasetListing {
             }
 
             EncryptionZoneListing encryptionZoneListing = EncryptionZoneListing.get();
-            SnapshotListing snapshotListing = SnapshotListing.get();
-
             String baseEncryptedPath = encryptionZoneListing.getBaseEncryptedPath(cluster.getName(),
                     cluster.getFsEndpoint(), path);
             boolean parentEncrypted = encryptionZoneListing.isEncrypted(baseEncryptedPath);
@@ -102,21 +127,7 @@ final class DatasetListing {
             FileListResult.FileList[] fileLists = new FileListResult.FileList[fileStatusList.size()];
             int index = 0;
             for (FileStatus status : fileStatusList) {
-                FileList fileList = createFileList(status);
-                if (!parentEncrypted) {
-                    String encryptedPath = encryptionZoneListing.getBaseEncryptedPath(cluster.getName(),
-                            cluster.getFsEndpoint(), status.getPath().toString());
-                    fileList.isEncrypted = encryptionZoneListing.isEncrypted(encryptedPath);
-                    fileList.encryptionKeyName = encryptionZoneListing.getEncryptionKeyName(cluster.getName(),
-                            encryptedPath);
-                } else {
-                    fileList.isEncrypted = true;
-                    fileList.encryptionKeyName = parentEncryptionKey;
-                }
-                fileList.snapshottable =
-                        snapshotListing.isSnapshottable(cluster.getName(), cluster.getFsEndpoint(),
-                                status.getPath().toString());
-                fileLists[index++] = fileList;
+                fileLists[index++] = createFileList(cluster, status, parentEncrypted, parentEncryptionKey);
             }
             fileListResult.setCollection(fileLists);
             fileListResult.setTotalResults(totalResults);
@@ -127,36 +138,146 @@ final class DatasetListing {
         return fileListResult;
     }
 
+    /**
+     * Lists one page of the children of a directory, starting after the continuation token of the previous page.
+     * The children are read lazily, enriched with their encryption and snapshot details in parallel batches and
+     * streamed to the client as they are ready, so neither the directory nor the page is held in memory. The
+     * response carries the token of the next page unless the listing is complete.
+     */
+    StreamingOutput listFilesPage(final BeaconCluster cluster, final String path, String filter, int pageSize,
+                                  String token) throws BeaconException {
+        final String nameFilter = filter == null ? StringUtils.EMPTY : filter;
+        final int limit = pageSize > 0 ? Math.min(pageSize, MAX_PAGE_SIZE) : getDefaultPageSize();
+        final DirectoryCursor cursor;
+        try {
+            FileSystem fs = cluster.getFileSystem();
+            if (fs == null) {
+                throw new BeaconException("File system of cluster {} is not available", cluster.getName());
+            }
+            cursor = DirectoryCursor.open(fs, new Path(path), token);
+        } catch (IOException ioe) {
+            throw new BeaconException(ioe, "Exception occurred while listing {}", path);
+        }
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                try {
+                    writeFilesPage(cluster, path, cursor, nameFilter, limit, output);
+                } catch (IOException e) {
+                    LOG.error("Exception occurred while streaming the listing of {}", path, e);
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private void writeFilesPage(BeaconCluster cluster, String path, DirectoryCursor cursor, String filter,
+                                int limit, OutputStream output) throws IOException {
+        boolean parentEncrypted;
+        String parentEncryptionKey;
+        try {
+            EncryptionZoneListing encryptionZoneListing = EncryptionZoneListing.get();
+            String baseEncryptedPath = encryptionZoneListing.getBaseEncryptedPath(cluster.getName(),
+                    cluster.getFsEndpoint(), path);
+            parentEncrypted = encryptionZoneListing.isEncrypted(baseEncryptedPath);
+            parentEncryptionKey = encryptionZoneListing.getEncryptionKeyName(cluster.getName(), baseEncryptedPath);
+        } catch (BeaconException e) {
+            throw new IOException(e);
+        }
+
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        writer.beginObject();
+        writer.name("status").value(APIResult.Status.SUCCEEDED.name());
+        writer.name("fileList").beginArray();
+        Deque<Future<FileList[]>> enrichments = new ArrayDeque<>();
+        int results = 0;
+        try {
+            List<FileStatus> batch = new ArrayList<>();
+            while (results < limit && cursor.hasNext()) {
+                FileStatus status = cursor.next();
+                if (!status.getPath().getName().contains(filter)) {
+                    continue;
+                }
+                batch.add(status);
+                results++;
+                if (batch.size() == ENRICH_BATCH_SIZE) {
+                    enrichments.add(submitEnrichment(cluster, batch, parentEncrypted, parentEncryptionKey));
+                    batch = new ArrayList<>();
+                }
+                // Streams the batches already enriched, and bounds the ones waiting to be written.
+                while (!enrichments.isEmpty()
+                        && (enrichments.peek().isDone() || enrichments.size() > MAX_PENDING_ENRICH_BATCHES)) {
+                    writeFileLists(writer, enrichments.poll());
+                }
+            }
+            if (!batch.isEmpty()) {
+                enrichments.add(submitEnrichment(cluster, batch, parentEncrypted, parentEncryptionKey));
+            }
+            while (!enrichments.isEmpty()) {
+                writeFileLists(writer, enrichments.poll());
+            }
+        } finally {
+            for (Future<FileList[]> enrichment : enrichments) {
+                enrichment.cancel(true);
+            }
+        }
+        writer.endArray();
+        writer.name("results").value(results);
+        writer.name("message").value(results > 0 ? "Success" : "Empty");
+        if (cursor.hasNext()) {
+            writer.name("nextToken").value(cursor.getToken());
+        }
+        writer.endObject();
+        writer.flush();
+    }
+
+    private static Future<FileList[]> submitEnrichment(final BeaconCluster cluster, final List<FileStatus> statuses,
+                                                       final boolean parentEncrypted,
+                                                       final String parentEncryptionKey) {
+        return getEnrichExecutor().submit(new Callable<FileList[]>() {
+            @Override
+            public FileList[] call() throws BeaconException {
+                FileList[] fileLists = new FileList[statuses.size()];
+                for (int i = 0; i < fileLists.length; i++) {
+                    fileLists[i] = createFileList(cluster, statuses.get(i), parentEncrypted, parentEncryptionKey);
+                }
+                return fileLists;
+            }
+        });
+    }
+
+    private static void writeFileLists(JsonWriter writer, Future<FileList[]> enrichment) throws IOException {
+        FileList[] fileLists;
+        try {
+            fileLists = enrichment.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while listing files");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        for (FileList fileList : fileLists) {
+            GSON.toJson(fileList, FileList.class, writer);
+        }
+    }
+
     FileListResult listCloudFiles(CloudCred.Provider provider, Configuration conf, String path) {
         try {
             Path cloudPath = new org.apache.hadoop.fs.Path(path);
             FileSystem fileSystem = FileSystem.get(cloudPath.toUri(), conf);
             RemoteIterator<FileStatus> iterator = fileSystem.listStatusIterator(cloudPath);
-            ArrayList<FileList> fileLists = new ArrayList<>();
-            boolean expThrown = false;
+            List<FileStatus> statuses = new ArrayList<>();
+            List<FileList> fileLists = new ArrayList<>();
             while (iterator.hasNext()) {
                 FileStatus status = iterator.next();
                 FileList fileList = createFileList(status);
-                if (CloudCred.Provider.AWS.equals(provider) && !status.isDirectory() && !expThrown) {
-                    try {
-                        String objectPath;
-                        String pathSeperator = Path.SEPARATOR;
-                        if (path.endsWith(pathSeperator)) {
-                            objectPath = path + fileList.pathSuffix;
-                        } else {
-                            objectPath = path + pathSeperator + fileList.pathSuffix;
-                        }
-                        fileList.isEncrypted = isObjectEncypted(fileSystem, objectPath);
-                    } catch (BeaconException e) {
-                        expThrown = true;
-                        LOG.warn("Exception while retrieving encryption algo of AWS S3 object {}, will skip for rest",
-                                fileList.pathSuffix, e);
-                    }
-                } else {
-                    fileList.isEncrypted = status.isEncrypted();
-                }
+                fileList.isEncrypted = status.isEncrypted();
+                statuses.add(status);
                 fileLists.add(fileList);
             }
+            if (CloudCred.Provider.AWS.equals(provider)) {
+                CloudEncryptionProber.get().probe(statuses, fileLists, s3EncryptionProbe(fileSystem));
+            }
             FileListResult listResult = new FileListResult(APIResult.Status.SUCCEEDED, "Success");
             listResult.setCollection(fileLists.toArray(new FileList[fileLists.size()]));
             return listResult;
@@ -165,16 +286,36 @@ final class DatasetListing {
         }
     }
 
-    private static boolean isObjectEncypted(FileSystem fs, String pathSuffix) throws BeaconException {
-        try {
-            String encAlgo = ((S3AFileSystem)fs).getObjectMetadata(new Path(pathSuffix)).getSSEAlgorithm();
-            return StringUtils.isNotBlank(encAlgo);
-        } catch (Exception ex) {
-            throw new BeaconException(ex);
+    private static CloudEncryptionProber.ObjectProbe s3EncryptionProbe(FileSystem fs) {
+        final S3AFileSystem s3aFileSystem = (S3AFileSystem) fs;
+        return new CloudEncryptionProber.ObjectProbe() {
+            @Override
+            public String getEncryptionAlgorithm(Path path) throws IOException {
+                return s3aFileSystem.getObjectMetadata(path).getSSEAlgorithm();
+            }
+        };
+    }
+
+    private static FileList createFileList(BeaconCluster cluster, FileStatus status, boolean parentEncrypted,
+                                           String parentEncryptionKey) throws BeaconException {
+        EncryptionZoneListing encryptionZoneListing = EncryptionZoneListing.get();
+        FileList fileList = createFileList(status);
+        if (!parentEncrypted) {
+            String encryptedPath = encryptionZoneListing.getBaseEncryptedPath(cluster.getName(),
+                    cluster.getFsEndpoint(), status.getPath().toString());
+            fileList.isEncrypted = encryptionZoneListing.isEncrypted(encryptedPath);
+            fileList.encryptionKeyName = encryptionZoneListing.getEncryptionKeyName(cluster.getName(),
+                    encryptedPath);
+        } else {
+            fileList.isEncrypted = true;
+            fileList.encryptionKeyName = parentEncryptionKey;
         }
+        fileList.snapshottable = SnapshotListing.get().isSnapshottable(cluster.getName(), cluster.getFsEndpoint(),
+                status.getPath().toString());
+        return fileList;
     }
 
-    private FileList createFileList(FileStatus status) {
+    private static FileList createFileList(FileStatus status) {
         FileList fileList = new FileList();
         fileList.accessTime = status.getAccessTime();
         fileList.blockSize = status.getBlockSize();
@@ -204,10 +345,11 @@ final class DatasetListing {
             }
             if (StringUtils.isBlank(dbName)) {
                 DBListResult.DBList[] dbLists = new DBListResult.DBList[databases.size()];
+                List<Path> dbLocations = getDatabaseLocations(cluster, hiveClient, databases);
                 int index = 0;
                 for (String db : databases) {
                     DBListResult.DBList dbList = new DBListResult.DBList();
-                    Path dbLocation = hiveClient.getDatabaseLocation(db);
+                    Path dbLocation = dbLocations.get(index);
                     String baseEncryptedPath = encryptionZoneListing.getBaseEncryptedPath(cluster.getName(),
                             cluster.getFsEndpoint(), dbLocation.toString());
                     dbList.isEncrypted = StringUtils.isNotEmpty(baseEncryptedPath);
@@ -232,4 +374,87 @@ final class DatasetListing {
             HiveClientFactory.close(hiveClient);
         }
     }
+
+    /**
+     * Looks up the locations of the databases, in the same order. Large lists are split in batches which are
+     * looked up in parallel, each with its own pooled hive client.
+     */
+    private List<Path> getDatabaseLocations(final Cluster cluster, HiveMetadataClient hiveClient,
+                                            List<String> databases) throws BeaconException {
+        int batchSize = Math.max(MIN_DB_LOOKUP_BATCH,
+                (databases.size() + getDBLookupThreads() - 1) / getDBLookupThreads());
+        if (databases.size() <= batchSize) {
+            return getDatabaseLocations(hiveClient, databases);
+        }
+        List<Future<List<Path>>> futures = new ArrayList<>();
+        for (int start = 0; start < databases.size(); start += batchSize) {
+            final List<String> batch = databases.subList(start, Math.min(start + batchSize, databases.size()));
+            futures.add(getDBLookupExecutor().submit(new Callable<List<Path>>() {
+                @Override
+                public List<Path> call() throws BeaconException {
+                    HiveMetadataClient batchClient = null;
+                    try {
+                        batchClient = HiveClientFactory.getMetadataClient(cluster);
+                        return getDatabaseLocations(batchClient, batch);
+                    } finally {
+                        HiveClientFactory.close(batchClient);
+                    }
+                }
+            }));
+        }
+        List<Path> locations = new ArrayList<>(databases.size());
+        try {
+            for (Future<List<Path>> future : futures) {
+                locations.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeaconException(e, "Interrupted while listing databases of cluster {}", cluster.getName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BeaconException) {
+                throw (BeaconException) e.getCause();
+            }
+            throw new BeaconException(e.getCause(), "Failed to list databases of cluster {}", cluster.getName());
+        } finally {
+            for (Future<List<Path>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return locations;
+    }
+
+    private static List<Path> getDatabaseLocations(HiveMetadataClient hiveClient, List<String> databases)
+            throws BeaconException {
+        List<Path> locations = new ArrayList<>(databases.size());
+        for (String db : databases) {
+            locations.add(hiveClient.getDatabaseLocation(db));
+        }
+        return locations;
+    }
+
+    private static int getDBLookupThreads() {
+        int threads = BeaconConfig.getInstance().getEngine().getHiveDBLookupThreads();
+        return threads > 0 ? threads : DEF_DB_LOOKUP_THREADS;
+    }
+
+    private static synchronized ExecutorService getDBLookupExecutor() {
+        if (dbLookupExecutor == null) {
+            dbLookupExecutor = Executors.newFixedThreadPool(getDBLookupThreads(),
+                    new ThreadFactoryBuilder().setNameFormat("DatasetListing-db-lookup-%d").setDaemon(true).build());
+        }
+        return dbLookupExecutor;
+    }
+
+    private static int getDefaultPageSize() {
+        long maxFilePerPage = BeaconConfig.getInstance().getEngine().getMaxFileListPerPage();
+        return maxFilePerPage > 0 ? (int) Math.min(maxFilePerPage, MAX_PAGE_SIZE) : DEF_PAGE_SIZE;
+    }
+
+    private static synchronized ExecutorService getEnrichExecutor() {
+        if (enrichExecutor == null) {
+            enrichExecutor = Executors.newFixedThreadPool(ENRICH_THREADS,
+                    new ThreadFactoryBuilder().setNameFormat("DatasetListing-enrich-%d").setDaemon(true).build());
+        }
+        return enrichExecutor;
+    }
 }
@@ -0,0 +1,157 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.api;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.hdfs.DFSUtil;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.protocol.DirectoryListing;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily lists the children of a directory, resuming after the child named by a continuation token. On HDFS the
+ * children are fetched from the NameNode in batches starting after that child, so resuming costs the same at any
+ * position. On other file systems the children up to the token are skipped, relying on the children being listed in
+ * name order as object stores do. The listing resumes at the first child named after the token, so it continues
+ * even if the child named by the token has been deleted in between.
+ */
+final class DirectoryCursor {
+
+    private final RemoteIterator<FileStatus> iterator;
+    private FileStatus pending;
+    private String lastName;
+
+    private DirectoryCursor(RemoteIterator<FileStatus> iterator, String lastName) {
+        this.iterator = iterator;
+        this.lastName = lastName;
+    }
+
+    static DirectoryCursor open(FileSystem fs, Path path, String token) throws IOException {
+        String startAfter = fromToken(token);
+        if (fs instanceof DistributedFileSystem) {
+            return new DirectoryCursor(new HdfsListingIterator((DistributedFileSystem) fs, path, startAfter),
+                    startAfter);
+        }
+        DirectoryCursor cursor = new DirectoryCursor(fs.listStatusIterator(path), startAfter);
+        if (startAfter != null) {
+            while (cursor.iterator.hasNext()) {
+                FileStatus next = cursor.iterator.next();
+                if (next.getPath().getName().compareTo(startAfter) > 0) {
+                    cursor.pending = next;
+                    break;
+                }
+            }
+        }
+        return cursor;
+    }
+
+    boolean hasNext() throws IOException {
+        if (pending == null && iterator.hasNext()) {
+            pending = iterator.next();
+        }
+        return pending != null;
+    }
+
+    FileStatus next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FileStatus next = pending;
+        pending = null;
+        lastName = next.getPath().getName();
+        return next;
+    }
+
+    /**
+     * @return token to resume the listing after the last child returned, null if none was returned yet
+     */
+    String getToken() {
+        return lastName == null ? null : Base64.encodeBase64URLSafeString(lastName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String fromToken(String token) {
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+        if (!Base64.isBase64(token)) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        return new String(Base64.decodeBase64(token), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Iterates the listing batches of the NameNode, each one starting after the last child of the previous one.
+     */
+    private static final class HdfsListingIterator implements RemoteIterator<FileStatus> {
+        private final DistributedFileSystem fs;
+        private final Path path;
+        private final String src;
+        private DirectoryListing listing;
+        private int index;
+
+        private HdfsListingIterator(DistributedFileSystem fs, Path path, String startAfter) throws IOException {
+            this.fs = fs;
+            this.path = path;
+            this.src = Path.getPathWithoutSchemeAndAuthority(fs.makeQualified(path)).toUri().getPath();
+            this.listing = list(startAfter == null ? HdfsFileStatus.EMPTY_NAME : DFSUtil.string2Bytes(startAfter));
+        }
+
+        private DirectoryListing list(byte[] startAfter) throws IOException {
+            DirectoryListing directoryListing = fs.getClient().listPaths(src, startAfter);
+            if (directoryListing == null) {
+                throw new FileNotFoundException("File " + path + " does not exist.");
+            }
+            return directoryListing;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            while (index >= listing.getPartialListing().length) {
+                if (!listing.hasMore()) {
+                    return false;
+                }
+                listing = list(listing.getLastName());
+                index = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public FileStatus next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more entry in " + path);
+            }
+            return listing.getPartialListing()[index++].makeQualified(fs.getUri(), path);
+        }
+    }
+}
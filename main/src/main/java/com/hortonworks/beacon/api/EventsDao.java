@@ -29,10 +29,12 @@ import com.hortonworks.beacon.entity.util.PolicyDao;
 import com.hortonworks.beacon.events.EventEntityType;
 import com.hortonworks.beacon.events.EventInfo;
 import com.hortonworks.beacon.events.Events;
+import com.hortonworks.beacon.events.EventsWriter;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.store.BeaconStoreException;
 import com.hortonworks.beacon.store.bean.EventBean;
 import com.hortonworks.beacon.store.executors.EventsExecutor;
+import com.hortonworks.beacon.store.executors.PageCursor;
 import com.hortonworks.beacon.util.DateUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -50,75 +52,94 @@ public final class EventsDao {
     private static final Logger LOG = LoggerFactory.getLogger(EventsDao.class);
     private static final long SECOND_IN_MILLIS = 1000L;
     private static final int DEFAULT_FREQUENCY_IN_SECOND = 300;
+    private static final long EVENTS_FLUSH_TIMEOUT_MILLIS = 5000;
     private PolicyDao policyDao = new PolicyDao();
 
+    static EventsExecutor getEventsExecutor() {
+        // Events are written asynchronously, make the ones added so far visible to the listing.
+        EventsWriter.get().flush(EVENTS_FLUSH_TIMEOUT_MILLIS);
+        return new EventsExecutor();
+    }
+
     EventsResult getEventsWithPolicyName(String policyName, String startDate, String endDate, String orderBy,
-                                         String sortOrder, int offset, int resultsPage) throws BeaconException {
-        EventsExecutor eventExecutor = new EventsExecutor();
+                                         String sortOrder, int offset, int resultsPage, String token,
+                                         boolean exactTotal) throws BeaconException {
+        EventsExecutor eventExecutor = getEventsExecutor();
         int frequency = getPolicyFrequency(policyName);
         Date endDateTime = StringUtils.isBlank(endDate) ? null : getEndDate(endDate);
         Date startDateTime = StringUtils.isBlank(startDate)
                 ? null : getStartDate(startDate, endDateTime, frequency, resultsPage);
-        long totalResults = eventExecutor.getEventsWithPolicyNameCount(policyName, startDateTime, endDateTime);
+        PageCursor cursor = PageCursor.fromToken(token);
         List<EventBean> beanList = eventExecutor.getEventsWithPolicyName(policyName,
-                startDateTime, endDateTime, orderBy, sortOrder, offset, resultsPage);
+                startDateTime, endDateTime, orderBy, sortOrder, offset, resultsPage + 1, cursor);
+        long totalResults = exactTotal || PageCursor.isPastEnd(cursor, offset, beanList.size())
+                ? eventExecutor.getEventsWithPolicyNameCount(policyName, startDateTime, endDateTime) : -1;
 
-        return getEventsResult(beanList, totalResults);
+        return getEventsResult(eventExecutor, beanList, totalResults, orderBy, offset, resultsPage, cursor);
     }
 
     EventsResult getEventsWithName(int eventId, String startDate, String endDate, String orderBy, String sortOrder,
-                                   Integer offset, Integer resultsPage) throws BeaconException {
-        EventsExecutor eventExecutor = new EventsExecutor();
+                                   Integer offset, Integer resultsPage, String token,
+                                   boolean exactTotal) throws BeaconException {
+        EventsExecutor eventExecutor = getEventsExecutor();
         Date endDateTime = StringUtils.isBlank(endDate) ? null : getEndDate(endDate);
         Date startDateTime = StringUtils.isBlank(startDate)
                 ? null : getStartDate(startDate, endDateTime, DEFAULT_FREQUENCY_IN_SECOND, resultsPage);
-        long totalResults = eventExecutor.getEventsWithNameCount(eventId, startDateTime, endDateTime);
+        PageCursor cursor = PageCursor.fromToken(token);
         List<EventBean> beanList = eventExecutor.getEventsWithName(eventId, startDateTime, endDateTime,
-                orderBy, sortOrder, offset, resultsPage);
+                orderBy, sortOrder, offset, resultsPage + 1, cursor);
+        long totalResults = exactTotal || PageCursor.isPastEnd(cursor, offset, beanList.size())
+                ? eventExecutor.getEventsWithNameCount(eventId, startDateTime, endDateTime) : -1;
 
-        return getEventsResult(beanList, totalResults);
+        return getEventsResult(eventExecutor, beanList, totalResults, orderBy, offset, resultsPage, cursor);
     }
 
     EventsResult getEntityTypeEvents(String eventEntityType, String startDate, String endDate,
                                             String orderBy, String sortOrder,
-                                            Integer offset, Integer resultsPage) throws BeaconException {
+                                            Integer offset, Integer resultsPage, String token,
+                                            boolean exactTotal) throws BeaconException {
         LOG.info("Get events for type: {}", eventEntityType);
-        EventsExecutor eventExecutor = new EventsExecutor();
+        EventsExecutor eventExecutor = getEventsExecutor();
         Date endDateTime = StringUtils.isBlank(endDate) ? null : getEndDate(endDate);
         Date startDateTime = StringUtils.isBlank(startDate)
                 ? null : getStartDate(startDate, endDateTime, DEFAULT_FREQUENCY_IN_SECOND, resultsPage);
-        long totalResults = eventExecutor.getEntityTypeEventsCount(eventEntityType, startDateTime, endDateTime);
+        PageCursor cursor = PageCursor.fromToken(token);
         List<EventBean> beanList = eventExecutor.getEntityTypeEvents(eventEntityType,
-                startDateTime, endDateTime, orderBy, sortOrder, offset, resultsPage);
+                startDateTime, endDateTime, orderBy, sortOrder, offset, resultsPage + 1, cursor);
+        long totalResults = exactTotal || PageCursor.isPastEnd(cursor, offset, beanList.size())
+                ? eventExecutor.getEntityTypeEventsCount(eventEntityType, startDateTime, endDateTime) : -1;
 
-        return getEventsResult(beanList, totalResults);
+        return getEventsResult(eventExecutor, beanList, totalResults, orderBy, offset, resultsPage, cursor);
     }
 
     EventsResult getInstanceEvents(String instanceId) {
-        EventsExecutor eventExecutor = new EventsExecutor();
+        EventsExecutor eventExecutor = getEventsExecutor();
         List<EventBean> beanList = eventExecutor.getInstanceEvents(instanceId);
 
         return getEventsResult(beanList);
     }
 
     EventsResult getEventsWithPolicyActionId(String policyName, int actionid) {
-        EventsExecutor eventExecutor = new EventsExecutor();
+        EventsExecutor eventExecutor = getEventsExecutor();
         List<EventBean> beanList = eventExecutor.getEventsWithPolicyActionId(policyName, actionid);
 
         return getEventsResult(beanList);
     }
 
     EventsResult getAllEventsInfo(String startDate, String endDate, String orderBy, String sortOrder,
-                                         Integer offset, Integer resultsPage) throws BeaconException {
-        EventsExecutor eventExecutor = new EventsExecutor();
+                                         Integer offset, Integer resultsPage, String token,
+                                         boolean exactTotal) throws BeaconException {
+        EventsExecutor eventExecutor = getEventsExecutor();
         Date endDateTime = StringUtils.isBlank(endDate) ? null : getEndDate(endDate);
         Date startDateTime = StringUtils.isBlank(startDate)
                 ? null : getStartDate(startDate, endDateTime, DEFAULT_FREQUENCY_IN_SECOND, resultsPage);
-        long totalResults = eventExecutor.getAllEventsInfoCount(startDateTime, endDateTime);
+        PageCursor cursor = PageCursor.fromToken(token);
         List<EventBean> beanList = eventExecutor.getAllEventsInfo(startDateTime, endDateTime, orderBy, sortOrder,
-                offset, resultsPage);
+                offset, resultsPage + 1, cursor);
+        long totalResults = exactTotal || PageCursor.isPastEnd(cursor, offset, beanList.size())
+                ? eventExecutor.getAllEventsInfoCount(startDateTime, endDateTime) : -1;
 
-        return getEventsResult(beanList, totalResults);
+        return getEventsResult(eventExecutor, beanList, totalResults, orderBy, offset, resultsPage, cursor);
     }
 
     EventsResult getSupportedEventDetails() {
@@ -130,6 +151,25 @@ public final class EventsDao {
         return getEventsList(eventNameList);
     }
 
+    /**
+     * Builds a page of events listed with one extra event to tell whether there is a next page. A negative total
+     * is replaced by the estimate from the events listed so far, which is exact on the last page. Callers count the
+     * total anyway when the page starts past the end, see {@link PageCursor#isPastEnd}.
+     */
+    private EventsResult getEventsResult(EventsExecutor eventExecutor, List<EventBean> eventBeanList,
+                                         long totalResults, String orderBy, int offset, int resultsPage,
+                                         PageCursor cursor) throws BeaconException {
+        boolean hasMore = eventBeanList.size() > resultsPage;
+        List<EventBean> page = hasMore ? eventBeanList.subList(0, resultsPage) : eventBeanList;
+        long position = (cursor != null ? cursor.getPosition() : offset) + page.size();
+        String nextToken = hasMore && !page.isEmpty()
+                ? eventExecutor.getNextToken(page.get(page.size() - 1), orderBy, position) : null;
+        EventsResult eventResult = getEventsResult(page, totalResults >= 0
+                ? totalResults : position + (hasMore ? 1 : 0));
+        eventResult.setPaging(totalResults >= 0, nextToken);
+        return eventResult;
+    }
+
     private EventsResult getEventsResult(List<EventBean> eventBeanList, long totalResults) {
         EventsResult eventResult;
         long numSyncEvents = 0;
@@ -143,30 +183,37 @@ public final class EventsDao {
         EventsResult.EventInstance[] events = new EventsResult.EventInstance[eventBeanList.size()];
         int index = 0;
         for (EventBean bean : eventBeanList) {
-            EventsResult.EventInstance eventInstance = new EventsResult.EventInstance();
-            if (StringUtils.isNotBlank(bean.getPolicyId())) {
-                eventInstance.policyId = bean.getPolicyId();
-            }
-            if (StringUtils.isNotBlank(bean.getPolicyId())) {
-                eventInstance.instanceId = bean.getInstanceId();
+            EventsResult.EventInstance eventInstance = toEventInstance(bean);
+            if (Boolean.TRUE.equals(eventInstance.syncEvent)) {
+                numSyncEvents++;
             }
-            eventInstance.event = getEventName(bean.getEventId());
-            eventInstance.eventType = bean.getEventEntityType();
-            if (EventEntityType.POLICY.getName().equals(eventInstance.eventType)) {
-                if (EventInfo.getEventInfo(bean.getEventInfo()).getSyncEvent()) {
-                    eventInstance.syncEvent = true;
-                    numSyncEvents++;
-                }
-            }
-            eventInstance.severity = bean.getEventSeverity();
-            eventInstance.timestamp = DateUtil.formatDate(bean.getEventTimeStamp());
-            eventInstance.message = bean.getEventMessage();
             events[index++] = eventInstance;
         }
         eventResult.setCollection(events, totalResults, numSyncEvents);
         return eventResult;
     }
 
+    static EventsResult.EventInstance toEventInstance(EventBean bean) {
+        EventsResult.EventInstance eventInstance = new EventsResult.EventInstance();
+        if (StringUtils.isNotBlank(bean.getPolicyId())) {
+            eventInstance.policyId = bean.getPolicyId();
+        }
+        if (StringUtils.isNotBlank(bean.getPolicyId())) {
+            eventInstance.instanceId = bean.getInstanceId();
+        }
+        eventInstance.event = getEventName(bean.getEventId());
+        eventInstance.eventType = bean.getEventEntityType();
+        if (EventEntityType.POLICY.getName().equals(eventInstance.eventType)) {
+            if (EventInfo.getEventInfo(bean.getEventInfo()).getSyncEvent()) {
+                eventInstance.syncEvent = true;
+            }
+        }
+        eventInstance.severity = bean.getEventSeverity();
+        eventInstance.timestamp = DateUtil.formatDate(bean.getEventTimeStamp());
+        eventInstance.message = bean.getEventMessage();
+        return eventInstance;
+    }
+
     private EventsResult getEventsResult(List<EventBean> eventBeanList) {
         return getEventsResult(eventBeanList, eventBeanList.size());
     }
@@ -249,7 +296,7 @@ public final class EventsDao {
         return eventEntityType;
     }
 
-    private String getEventName(int eventId) {
+    private static String getEventName(int eventId) {
         return Events.getEvent(eventId).getName();
     }
 }
@@ -40,6 +40,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * Beacon events resource management operations as REST API. Root resource (exposed at "myresource" path).
@@ -60,7 +62,9 @@ public class EventsResource extends AbstractResourceManager {
                                              @DefaultValue("eventTimeStamp") @QueryParam("orderBy") String orderBy,
                                              @DefaultValue("DESC") @QueryParam("sortOrder") String sortOrder,
                                              @DefaultValue("0") @QueryParam("offset") Integer offset,
-                                             @QueryParam("numResults") Integer resultsPerPage) {
+                                             @QueryParam("numResults") Integer resultsPerPage,
+                                             @QueryParam("token") String token,
+                                             @DefaultValue("false") @QueryParam("exactTotal") String exactTotal) {
 
         if (StringUtils.isBlank(policyName)) {
             throw BeaconWebException.newAPIException("Policy name cannot be null or empty");
@@ -71,7 +75,7 @@ public class EventsResource extends AbstractResourceManager {
             resultsPerPage = resultsPerPage <= getMaxResultsPerPage() ? resultsPerPage : getMaxResultsPerPage();
             offset = checkAndSetOffset(offset);
             return getEventsWithPolicyName(policyName, startDate, endDate, orderBy, sortOrder,
-                    offset, resultsPerPage);
+                    offset, resultsPerPage, token, Boolean.parseBoolean(exactTotal));
         } catch (BeaconWebException e) {
             throw e;
         } catch (Throwable throwable) {
@@ -89,7 +93,9 @@ public class EventsResource extends AbstractResourceManager {
                                        @DefaultValue("eventTimeStamp") @QueryParam("orderBy") String orderBy,
                                        @DefaultValue("DESC") @QueryParam("sortOrder") String sortOrder,
                                        @DefaultValue("0") @QueryParam("offset") Integer offset,
-                                       @QueryParam("numResults") Integer resultsPerPage) {
+                                       @QueryParam("numResults") Integer resultsPerPage,
+                                       @QueryParam("token") String token,
+                                       @DefaultValue("false") @QueryParam("exactTotal") String exactTotal) {
         if (StringUtils.isBlank(eventName)) {
             throw BeaconWebException.newAPIException("Event Type cannot be null or empty");
         }
@@ -97,7 +103,8 @@ public class EventsResource extends AbstractResourceManager {
         try {
             resultsPerPage = resultsPerPage <= getMaxResultsPerPage() ? resultsPerPage : getMaxResultsPerPage();
             offset = checkAndSetOffset(offset);
-            return getEventsWithName(eventName, startStr, endStr, orderBy, sortOrder, offset, resultsPerPage);
+            return getEventsWithName(eventName, startStr, endStr, orderBy, sortOrder, offset, resultsPerPage,
+                    token, Boolean.parseBoolean(exactTotal));
         } catch (BeaconWebException e) {
             throw e;
         } catch (Throwable throwable) {
@@ -115,7 +122,9 @@ public class EventsResource extends AbstractResourceManager {
                                          @DefaultValue("eventTimeStamp") @QueryParam("orderBy") String orderBy,
                                          @DefaultValue("DESC") @QueryParam("sortOrder") String sortOrder,
                                          @DefaultValue("0") @QueryParam("offset") Integer offset,
-                                         @QueryParam("numResults") Integer resultsPerPage) {
+                                         @QueryParam("numResults") Integer resultsPerPage,
+                                         @QueryParam("token") String token,
+                                         @DefaultValue("false") @QueryParam("exactTotal") String exactTotal) {
         if (StringUtils.isBlank(entityType)) {
             throw BeaconWebException.newAPIException("Event Type cannot be null or empty");
         }
@@ -123,7 +132,8 @@ public class EventsResource extends AbstractResourceManager {
         try {
             resultsPerPage = resultsPerPage <= getMaxResultsPerPage() ? resultsPerPage : getMaxResultsPerPage();
             offset = checkAndSetOffset(offset);
-            return getEntityTypeEvents(entityType, startStr, endStr, orderBy, sortOrder, offset, resultsPerPage);
+            return getEntityTypeEvents(entityType, startStr, endStr, orderBy, sortOrder, offset, resultsPerPage,
+                    token, Boolean.parseBoolean(exactTotal));
         } catch (BeaconWebException e) {
             throw e;
         } catch (Throwable throwable) {
@@ -179,12 +189,15 @@ public class EventsResource extends AbstractResourceManager {
                                       @DefaultValue("eventTimeStamp") @QueryParam("orderBy") String orderBy,
                                       @DefaultValue("DESC") @QueryParam("sortOrder") String sortOrder,
                                       @DefaultValue("0") @QueryParam("offset") Integer offset,
-                                      @QueryParam("numResults") Integer resultsPerPage) {
+                                      @QueryParam("numResults") Integer resultsPerPage,
+                                      @QueryParam("token") String token,
+                                      @DefaultValue("false") @QueryParam("exactTotal") String exactTotal) {
         resultsPerPage = resultsPerPage == null ? getDefaultResultsPerPage() : resultsPerPage;
         try {
             resultsPerPage = resultsPerPage <= getMaxResultsPerPage() ? resultsPerPage : getMaxResultsPerPage();
             offset = checkAndSetOffset(offset);
-            return getAllEventsInfo(startStr, endStr, orderBy, sortOrder, offset, resultsPerPage);
+            return getAllEventsInfo(startStr, endStr, orderBy, sortOrder, offset, resultsPerPage, token,
+                    Boolean.parseBoolean(exactTotal));
         }  catch (BeaconWebException e) {
             throw e;
         } catch (Throwable throwable) {
@@ -192,6 +205,26 @@ public class EventsResource extends AbstractResourceManager {
         }
     }
 
+    @GET
+    @Path("export")
+    @Produces({HistoryExport.NDJSON_TYPE, HistoryExport.GZIP_TYPE})
+    @Timed(absolute = true, name="api.beacon.events.export")
+    public Response exportEvents(@QueryParam("policyName") String policyName,
+                                 @QueryParam("start") String startStr,
+                                 @QueryParam("end") String endStr,
+                                 @QueryParam("token") String token,
+                                 @DefaultValue("false") @QueryParam("gzip") String gzip) {
+        try {
+            boolean compress = Boolean.parseBoolean(gzip);
+            StreamingOutput output = historyExport.exportEvents(policyName, startStr, endStr, token, compress);
+            return Response.ok(output, compress ? HistoryExport.GZIP_TYPE : HistoryExport.NDJSON_TYPE).build();
+        } catch (IllegalArgumentException e) {
+            throw BeaconWebException.newAPIException(e, Response.Status.BAD_REQUEST);
+        } catch (Throwable throwable) {
+            throw BeaconWebException.newAPIException(throwable, Response.Status.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @GET
     @Path("/")
     @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
@@ -217,18 +250,19 @@ public class EventsResource extends AbstractResourceManager {
 
     private EventsResult getEventsWithPolicyName(String policyName, String startDate, String endDate,
                                                  String orderBy, String sortOrder,
-                                                 Integer offset, Integer resultsPage) throws BeaconException {
+                                                 Integer offset, Integer resultsPage, String token,
+                                                 boolean exactTotal) throws BeaconException {
         try {
             return eventsDao.getEventsWithPolicyName(policyName, startDate, endDate, orderBy, sortOrder,
-                    offset, resultsPage);
+                    offset, resultsPage, token, exactTotal);
         } catch (Exception e) {
             throw new BeaconException(e.getMessage(), e);
         }
     }
 
     private EventsResult getEventsWithName(String eventName, String startStr, String endStr,
-                                           String orderBy, String sortOrder, Integer offset, Integer resultsPage)
-            throws BeaconException {
+                                           String orderBy, String sortOrder, Integer offset, Integer resultsPage,
+                                           String token, boolean exactTotal) throws BeaconException {
         try {
             Events event = eventsDao.validateEventName(eventName);
             if (event == null) {
@@ -237,7 +271,7 @@ public class EventsResource extends AbstractResourceManager {
 
             LOG.debug("Events id: {} for event name: {}", event.getId(), eventName);
             return eventsDao.getEventsWithName(event.getId(), startStr, endStr,
-                    orderBy, sortOrder,  offset, resultsPage);
+                    orderBy, sortOrder,  offset, resultsPage, token, exactTotal);
         } catch (Exception e) {
             throw new BeaconException(e.getMessage(), e);
         }
@@ -245,13 +279,14 @@ public class EventsResource extends AbstractResourceManager {
 
     private EventsResult getEntityTypeEvents(String entityType, String startStr, String endStr,
                                              String orderBy, String sortOrder,
-                                             Integer offset, Integer resultsPage) throws BeaconException {
+                                             Integer offset, Integer resultsPage, String token,
+                                             boolean exactTotal) throws BeaconException {
         try {
             EventEntityType type = eventsDao.validateEventEntityType(entityType);
             if (type != null) {
                 LOG.debug("Find events for the entity type: {}", type.getName());
                 return eventsDao.getEntityTypeEvents(type.getName(), startStr, endStr,
-                        orderBy, sortOrder, offset, resultsPage);
+                        orderBy, sortOrder, offset, resultsPage, token, exactTotal);
             } else {
                 throw new BeaconException("Event name: {} is not supported", entityType);
             }
@@ -278,9 +313,11 @@ public class EventsResource extends AbstractResourceManager {
 
 
     private EventsResult getAllEventsInfo(String startStr, String endStr, String orderBy, String sortOrder,
-                                          Integer offset, Integer resultsPage) throws BeaconException {
+                                          Integer offset, Integer resultsPage, String token,
+                                          boolean exactTotal) throws BeaconException {
         try {
-            return eventsDao.getAllEventsInfo(startStr, endStr, orderBy, sortOrder, offset, resultsPage);
+            return eventsDao.getAllEventsInfo(startStr, endStr, orderBy, sortOrder, offset, resultsPage, token,
+                    exactTotal);
         } catch (Exception e) {
             throw new BeaconException(e.getMessage(), e);
         }
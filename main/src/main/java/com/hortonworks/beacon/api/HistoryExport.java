@@ -0,0 +1,163 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.entity.util.PolicyDao;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.store.bean.EventBean;
+import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
+import com.hortonworks.beacon.store.executors.EventsExecutor;
+import com.hortonworks.beacon.store.executors.PageCursor;
+import com.hortonworks.beacon.store.executors.PolicyInstanceListExecutor;
+import com.hortonworks.beacon.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the event and instance history as newline delimited JSON, optionally gzip compressed.
+ */
+final class HistoryExport {
+
+    static final String NDJSON_TYPE = "application/x-ndjson";
+    static final String GZIP_TYPE = "application/gzip";
+
+    private static final Logger LOG = LoggerFactory.getLogger(HistoryExport.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String TOKEN = "token";
+    private static final Gson GSON = new Gson();
+
+    private final PolicyDao policyDao = new PolicyDao();
+
+    StreamingOutput exportEvents(final String policyName, String start, String end, String token, boolean gzip) {
+        final Date startDate = DateUtil.parseDate(start);
+        final Date endDate = DateUtil.parseDate(end);
+        return new HistoryOutput<EventBean>(PageCursor.fromToken(token), gzip) {
+            private final EventsExecutor executor = EventsDao.getEventsExecutor();
+
+            @Override
+            List<EventBean> nextBatch(PageCursor cursor, int limit) throws BeaconException {
+                return executor.getEventsForExport(policyName, startDate, endDate, cursor, limit);
+            }
+
+            @Override
+            Object toRecord(EventBean bean) {
+                return EventsDao.toEventInstance(bean);
+            }
+
+            @Override
+            PageCursor getCursor(EventBean bean, long position) {
+                return new PageCursor(position, bean.getEventTimeStamp(), bean.getId());
+            }
+        };
+    }
+
+    StreamingOutput exportInstances(final String policyName, String start, String end, String token, boolean gzip) {
+        final Date startDate = DateUtil.parseDate(start);
+        final Date endDate = DateUtil.parseDate(end);
+        return new HistoryOutput<Object[]>(PageCursor.fromToken(token), gzip) {
+            private final PolicyInstanceListExecutor executor = new PolicyInstanceListExecutor();
+
+            @Override
+            List<Object[]> nextBatch(PageCursor cursor, int limit) {
+                return executor.getInstancesForExport(policyName, startDate, endDate, cursor, limit);
+            }
+
+            @Override
+            Object toRecord(Object[] row) {
+                return policyDao.createInstanceElement((String) row[0], (String) row[1], (String) row[2],
+                        (String) row[3], (PolicyInstanceBean) row[4]);
+            }
+
+            @Override
+            PageCursor getCursor(Object[] row, long position) {
+                PolicyInstanceBean bean = (PolicyInstanceBean) row[4];
+                return new PageCursor(position, bean.getStartTime(), bean.getInstanceId());
+            }
+        };
+    }
+
+    /**
+     * Writes the rows after the cursor batch by batch, one JSON object per line. Each object carries the token to
+     * resume the export after it. The batches are read with keyset queries and detached once written, so the memory
+     * used doesn't depend on the size of the history.
+     */
+    private abstract static class HistoryOutput<T> implements StreamingOutput {
+        private final PageCursor start;
+        private final boolean gzip;
+
+        HistoryOutput(PageCursor start, boolean gzip) {
+            this.start = start;
+            this.gzip = gzip;
+        }
+
+        abstract List<T> nextBatch(PageCursor cursor, int limit) throws BeaconException;
+
+        abstract Object toRecord(T row);
+
+        abstract PageCursor getCursor(T row, long position);
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            OutputStream out = gzip ? new GZIPOutputStream(output) : output;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            PageCursor cursor = start;
+            long position = start != null ? start.getPosition() : 0;
+            try {
+                List<T> batch;
+                do {
+                    batch = nextBatch(cursor, BATCH_SIZE);
+                    for (T row : batch) {
+                        cursor = getCursor(row, ++position);
+                        JsonObject record = GSON.toJsonTree(toRecord(row)).getAsJsonObject();
+                        record.addProperty(TOKEN, cursor.toToken());
+                        GSON.toJson(record, writer);
+                        writer.write('\n');
+                    }
+                    writer.flush();
+                    RequestContext.get().getEntityManager().clear();
+                } while (batch.size() == BATCH_SIZE);
+            } catch (BeaconException e) {
+                LOG.error("Exception occurred while exporting the history after {} records", position, e);
+                throw new IOException(e);
+            }
+            writer.flush();
+            if (out instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) out).finish();
+            }
+        }
+    }
+}
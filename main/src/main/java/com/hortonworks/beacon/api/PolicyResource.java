@@ -178,13 +178,15 @@ public class PolicyResource extends AbstractResourceManager {
                            @DefaultValue("asc") @QueryParam("sortOrder") String sortOrder,
                            @DefaultValue("0") @QueryParam("offset") Integer offset,
                            @QueryParam("numResults") Integer resultsPerPage,
-                           @DefaultValue("3") @QueryParam("instanceCount") Integer instanceCount) {
+                           @DefaultValue("3") @QueryParam("instanceCount") Integer instanceCount,
+                           @QueryParam("token") String token,
+                           @DefaultValue("false") @QueryParam("exactTotal") String exactTotal) {
         resultsPerPage = resultsPerPage == null ? getDefaultResultsPerPage() : resultsPerPage;
         instanceCount = instanceCount > getMaxInstanceCount() ? getMaxInstanceCount() : instanceCount;
         resultsPerPage = resultsPerPage <= getMaxResultsPerPage() ? resultsPerPage : getMaxResultsPerPage();
         offset = checkAndSetOffset(offset);
         PolicyList policyList = getPolicyList(fields, orderBy, filterBy, sortOrder,
-                offset, resultsPerPage, instanceCount);
+                offset, resultsPerPage, instanceCount, token, Boolean.parseBoolean(exactTotal));
         LOG.info("Request for policy list is processed successfully. filterBy: [{}]", filterBy);
         return policyList;
     }
@@ -388,12 +390,16 @@ public class PolicyResource extends AbstractResourceManager {
                                                   @DefaultValue("DESC") @QueryParam("sortOrder") String sortOrder,
                                                   @DefaultValue("0") @QueryParam("offset") Integer offset,
                                                   @QueryParam("numResults") Integer resultsPerPage,
-                                                  @DefaultValue("false") @QueryParam("archived") String archived) {
+                                                  @DefaultValue("false") @QueryParam("archived") String archived,
+                                                  @QueryParam("token") String token,
+                                                  @DefaultValue("false") @QueryParam("exactTotal")
+                                                          String exactTotal) {
         BeaconLogUtils.prefixPolicy(policyName);
         resultsPerPage = resultsPerPage == null ? getDefaultResultsPerPage() : resultsPerPage;
         try {
             boolean isArchived = Boolean.parseBoolean(archived);
-            return listPolicyInstance(policyName, filters, orderBy, sortOrder, offset, resultsPerPage, isArchived);
+            return listPolicyInstance(policyName, filters, orderBy, sortOrder, offset, resultsPerPage, isArchived,
+                    token, Boolean.parseBoolean(exactTotal));
         } catch (NoSuchElementException e) {
             throw BeaconWebException.newAPIException(e, Response.Status.NOT_FOUND);
         } catch (BeaconWebException e) {
@@ -833,10 +839,11 @@ public class PolicyResource extends AbstractResourceManager {
     }
 
     private PolicyList getPolicyList(String fieldStr, String orderBy, String filterBy,
-                                     String sortOrder, Integer offset, Integer resultsPerPage, int instanceCount) {
+                                     String sortOrder, Integer offset, Integer resultsPerPage, int instanceCount,
+                                     String token, boolean exactTotal) {
         try {
             return policyDao.getFilteredPolicy(fieldStr, filterBy, orderBy, sortOrder,
-                    offset, resultsPerPage, instanceCount);
+                    offset, resultsPerPage, instanceCount, token, exactTotal);
         } catch (Exception e) {
             throw BeaconWebException.newAPIException(e);
         }
@@ -945,7 +952,8 @@ public class PolicyResource extends AbstractResourceManager {
     }
 
     private PolicyInstanceList listPolicyInstance(String policyName, String filters, String orderBy, String sortOrder,
-                                Integer offset, Integer resultsPerPage, boolean isArchived) throws BeaconException {
+                                Integer offset, Integer resultsPerPage, boolean isArchived, String token,
+                                boolean exactTotal) throws BeaconException {
         if (!isArchived) {
             ReplicationPolicy policy = policyDao.getActivePolicy(policyName);
             ValidationUtil.validateIfAPIRequestAllowed(policy);
@@ -964,7 +972,7 @@ public class PolicyResource extends AbstractResourceManager {
         }
         newFilters.append("name" + BeaconConstants.COLON_SEPARATOR).append(policyName);
         filters = newFilters.toString();
-        return listInstance(filters, orderBy, sortOrder, offset, resultsPerPage, isArchived);
+        return listInstance(filters, orderBy, sortOrder, offset, resultsPerPage, isArchived, token, exactTotal);
     }
 
 
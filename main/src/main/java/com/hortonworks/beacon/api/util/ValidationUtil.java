@@ -240,6 +240,8 @@ public final class ValidationUtil {
                         frequencyInSec, deftReplicationFrequencyInSec);
             }
         }
+        FSPolicyHelper.validateBlocksPerChunk(
+                properties.getPropertyIgnoreCase(FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName()));
         boolean enableSnapshotBasedRepl = Boolean.parseBoolean(
                 properties.getPropertyIgnoreCase(FSDRProperties.ENABLE_SNAPSHOTBASED_REPLICATION.getName()));
         if (enableSnapshotBasedRepl) {
@@ -21,11 +21,19 @@
  */
 package com.hortonworks.beacon.servlet;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.jvm.CachedThreadStatesGaugeSet;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.codahale.metrics.servlets.MetricsServlet;
+import com.hortonworks.beacon.entity.util.ClusterCache;
+import com.hortonworks.beacon.events.EventsWriter;
+import com.hortonworks.beacon.replication.JobClients;
+import com.hortonworks.beacon.replication.JobMonitor;
+import com.hortonworks.beacon.scheduler.StateJournal;
+import com.hortonworks.beacon.scheduler.internal.StoreCleanupService;
+import com.hortonworks.beacon.scheduler.quartz.JobContinuations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +52,202 @@ public class BeaconMetricsServletContextListener extends MetricsServlet.ContextL
         METRIC_REGISTRY.register("gc", new GarbageCollectorMetricSet());
         METRIC_REGISTRY.register("threads", new CachedThreadStatesGaugeSet(10, TimeUnit.MINUTES));
         METRIC_REGISTRY.register("memory", new MemoryUsageGaugeSet());
+        registerStateJournalGauges();
+        registerClusterCacheGauges();
+        registerEventsWriterGauges();
+        registerJobMonitorGauges();
+        registerJobClientsGauges();
+        registerJobContinuationsGauges();
+        registerStoreCleanupGauges();
+    }
+
+    private static void registerStateJournalGauges() {
+        METRIC_REGISTRY.register("scheduler.journal.updates", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StateJournal.getRecordedUpdates();
+            }
+        });
+        METRIC_REGISTRY.register("scheduler.journal.statements", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StateJournal.getExecutedStatements();
+            }
+        });
+        METRIC_REGISTRY.register("scheduler.journal.statements.saved", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StateJournal.getSavedStatements();
+            }
+        });
+        METRIC_REGISTRY.register("scheduler.journal.flushes", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StateJournal.getFlushCount();
+            }
+        });
+    }
+
+    private static void registerClusterCacheGauges() {
+        METRIC_REGISTRY.register("cluster.cache.hits", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return ClusterCache.get().getHits();
+            }
+        });
+        METRIC_REGISTRY.register("cluster.cache.misses", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return ClusterCache.get().getMisses();
+            }
+        });
+        METRIC_REGISTRY.register("cluster.cache.invalidations", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return ClusterCache.get().getInvalidations();
+            }
+        });
+        METRIC_REGISTRY.register("cluster.cache.size", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return ClusterCache.get().size();
+            }
+        });
+    }
+
+    private static void registerEventsWriterGauges() {
+        METRIC_REGISTRY.register("events.queue.size", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return EventsWriter.get().getQueueSize();
+            }
+        });
+        METRIC_REGISTRY.register("events.written", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getWritten();
+            }
+        });
+        METRIC_REGISTRY.register("events.failed", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getFailed();
+            }
+        });
+        METRIC_REGISTRY.register("events.dropped", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getDropped();
+            }
+        });
+        METRIC_REGISTRY.register("events.flushes", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getFlushCount();
+            }
+        });
+        METRIC_REGISTRY.register("events.flush.latency.avg", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getAvgFlushMillis();
+            }
+        });
+        METRIC_REGISTRY.register("events.flush.latency.max", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getMaxFlushMillis();
+            }
+        });
+        METRIC_REGISTRY.register("events.delay.avg", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return EventsWriter.get().getAvgEventDelayMillis();
+            }
+        });
+    }
+
+    private static void registerJobMonitorGauges() {
+        METRIC_REGISTRY.register("jobmonitor.watched", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return JobMonitor.get().getWatchedCount();
+            }
+        });
+        METRIC_REGISTRY.register("jobmonitor.polls", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return JobMonitor.get().getPolls();
+            }
+        });
+        METRIC_REGISTRY.register("jobmonitor.completed", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return JobMonitor.get().getCompleted();
+            }
+        });
+    }
+
+    private static void registerJobClientsGauges() {
+        METRIC_REGISTRY.register("jobclients.clients", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return JobClients.get().getClientCount();
+            }
+        });
+        METRIC_REGISTRY.register("jobclients.status.hits", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return JobClients.get().getStatusHits();
+            }
+        });
+        METRIC_REGISTRY.register("jobclients.status.misses", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return JobClients.get().getStatusMisses();
+            }
+        });
+    }
+
+    private static void registerJobContinuationsGauges() {
+        METRIC_REGISTRY.register("jobcontinuations.parked", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return JobContinuations.get().getParkedCount();
+            }
+        });
+    }
+
+    private static void registerStoreCleanupGauges() {
+        METRIC_REGISTRY.register("store.cleanup.rows.deleted", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StoreCleanupService.get().getRowsDeleted();
+            }
+        });
+        METRIC_REGISTRY.register("store.cleanup.rows.archived", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StoreCleanupService.get().getRowsArchived();
+            }
+        });
+        METRIC_REGISTRY.register("store.cleanup.rows.rate", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StoreCleanupService.get().getRowsPerSecond();
+            }
+        });
+        METRIC_REGISTRY.register("store.cleanup.batch.size", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return StoreCleanupService.get().getBatchSize();
+            }
+        });
+        METRIC_REGISTRY.register("store.cleanup.lock.waits", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return StoreCleanupService.get().getLockWaits();
+            }
+        });
     }
 
     @Override
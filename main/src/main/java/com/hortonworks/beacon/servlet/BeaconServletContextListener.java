@@ -23,6 +23,7 @@
 package com.hortonworks.beacon.servlet;
 
 import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.events.EventsWriterService;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.scheduler.quartz.BeaconQuartzScheduler;
 import com.hortonworks.beacon.service.BeaconStoreService;
@@ -41,7 +42,9 @@ import java.util.List;
  */
 public class BeaconServletContextListener implements ServletContextListener {
     private static final Logger LOG = LoggerFactory.getLogger(BeaconServletContextListener.class);
-    static final List<String> DEFAULT_SERVICES = Arrays.asList(BeaconStoreService.class.getName());
+    // The events writer service comes right after the store, so that it is destroyed just before the store.
+    static final List<String> DEFAULT_SERVICES = Arrays.asList(BeaconStoreService.class.getName(),
+            EventsWriterService.class.getName());
     static final List<String> DEPENDENT_SERVICES = Arrays.asList(BeaconQuartzScheduler.class.getName());
 
     @Override
@@ -0,0 +1,195 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.api;
+
+import com.hortonworks.beacon.client.result.FileListResult.FileList;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests CloudEncryptionProber against an in-memory object store.
+ */
+public class CloudEncryptionProberTest {
+
+    private static final String BUCKET = "s3a://bucket/data/";
+
+    private ExecutorService executor;
+    private FakeObjectStore store;
+
+    @BeforeMethod
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+        store = new FakeObjectStore();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        store.release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testProbeConcurrentlyAndCache() throws Exception {
+        store.latency = 200;
+        List<FileStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            statuses.add(file("object-" + i));
+            store.put("object-" + i, i % 2 == 0 ? "AES256" : null);
+        }
+        statuses.add(new FileStatus(0, true, 1, 0, 0, new Path(BUCKET + "dir")));
+        CloudEncryptionProber prober = new CloudEncryptionProber(executor, 10000, 100);
+
+        long start = System.currentTimeMillis();
+        List<FileList> fileLists = probe(prober, statuses);
+        Assert.assertTrue(System.currentTimeMillis() - start < 8 * store.latency);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertEquals(fileLists.get(i).isEncrypted, i % 2 == 0);
+            Assert.assertNull(fileLists.get(i).encryptionUnknown);
+        }
+        Assert.assertNull(fileLists.get(8).encryptionUnknown);
+        Assert.assertEquals(store.requests.get(), 8);
+
+        fileLists = probe(prober, statuses);
+        Assert.assertTrue(fileLists.get(0).isEncrypted);
+        Assert.assertEquals(store.requests.get(), 8);
+
+        // a new version of the object is looked up again
+        statuses.set(1, new FileStatus(1, false, 1, 0, 1, new Path(BUCKET + "object-1")));
+        store.put("object-1", "aws:kms");
+        fileLists = probe(prober, statuses);
+        Assert.assertTrue(fileLists.get(1).isEncrypted);
+        Assert.assertEquals(store.requests.get(), 9);
+    }
+
+    @Test
+    public void testTimeBudget() throws Exception {
+        store.blocked = true;
+        List<FileStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            statuses.add(file("object-" + i));
+            store.put("object-" + i, "AES256");
+        }
+        CloudEncryptionProber prober = new CloudEncryptionProber(executor, 100, 100);
+
+        long start = System.currentTimeMillis();
+        List<FileList> fileLists = probe(prober, statuses);
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        for (FileList fileList : fileLists) {
+            Assert.assertTrue(fileList.encryptionUnknown);
+            Assert.assertFalse(fileList.isEncrypted);
+        }
+        // the lookups that were running complete in the background and are reused
+        store.release.countDown();
+        for (int i = 0; i < 50 && store.requests.get() < 8; i++) {
+            Thread.sleep(100);
+        }
+        store.blocked = false;
+        int requests = store.requests.get();
+        fileLists = probe(new CloudEncryptionProber(executor, 10000, 100), statuses);
+        Assert.assertTrue(fileLists.get(0).isEncrypted);
+        Assert.assertEquals(store.requests.get(), requests + 20);
+
+        fileLists = probe(prober, statuses.subList(0, 8));
+        Assert.assertEquals(store.requests.get(), requests + 20);
+        for (FileList fileList : fileLists) {
+            Assert.assertTrue(fileList.isEncrypted);
+        }
+    }
+
+    @Test
+    public void testSkipAfterFailure() throws Exception {
+        List<FileStatus> statuses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            statuses.add(file("object-" + i));
+        }
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        CloudEncryptionProber prober = new CloudEncryptionProber(singleThread, 10000, 100);
+        List<FileList> fileLists = probe(prober, statuses);
+        singleThread.shutdown();
+        for (FileList fileList : fileLists) {
+            Assert.assertTrue(fileList.encryptionUnknown);
+        }
+        Assert.assertEquals(store.requests.get(), 1);
+    }
+
+    private List<FileList> probe(CloudEncryptionProber prober, List<FileStatus> statuses) {
+        List<FileList> fileLists = new ArrayList<>();
+        for (int i = 0; i < statuses.size(); i++) {
+            fileLists.add(new FileList());
+        }
+        prober.probe(statuses, fileLists, store);
+        return fileLists;
+    }
+
+    private static FileStatus file(String name) {
+        return new FileStatus(1, false, 1, 0, 0, new Path(BUCKET + name));
+    }
+
+    /**
+     * Stand-in for the metadata requests of an object store.
+     */
+    private static final class FakeObjectStore implements CloudEncryptionProber.ObjectProbe {
+        private final Map<String, String> algorithms = new ConcurrentHashMap<>();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile long latency;
+        private volatile boolean blocked;
+
+        void put(String name, String algorithm) {
+            algorithms.put(name, algorithm == null ? "" : algorithm);
+        }
+
+        @Override
+        public String getEncryptionAlgorithm(Path path) throws IOException {
+            try {
+                if (blocked) {
+                    release.await(30, TimeUnit.SECONDS);
+                }
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            requests.incrementAndGet();
+            String algorithm = algorithms.get(path.getName());
+            if (algorithm == null) {
+                throw new IOException("Access denied: " + path);
+            }
+            return algorithm;
+        }
+    }
+}
@@ -22,6 +22,9 @@
 
 package com.hortonworks.beacon.api;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.hortonworks.beacon.client.entity.Cluster;
 import com.hortonworks.beacon.client.result.FileListResult;
 import com.hortonworks.beacon.entity.BeaconCluster;
@@ -42,6 +45,7 @@ import org.powermock.modules.testng.PowerMockTestCase;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.NoSuchElementException;
 
@@ -161,6 +165,79 @@ public class DatasetListingTest extends PowerMockTestCase {
         Assert.assertEquals(fileListResult.fileList[0].snapshottable, true);
     }
 
+    @Test
+    public void testListFilesPage() throws Exception {
+        String path = "/data3/paged/";
+        FileStatus[] fileStatuses = new FileStatus[3];
+        for (int i = 0; i < fileStatuses.length; i++) {
+            fileStatuses[i] = new FileStatus();
+            fileStatuses[i].setPath(new Path(path + "dir-" + i));
+        }
+        FileSystemClientFactory.setFileSystem(fs);
+        when(FSUtils.getStagingUri(cluster.getFsEndpoint(), path)).thenReturn(path);
+        when(fs.listStatusIterator(new Path(path)))
+                .thenReturn(getRemoteFileStatusIterator(fileStatuses, new Path(path)))
+                .thenReturn(getRemoteFileStatusIterator(fileStatuses, new Path(path)));
+        when(EncryptionZoneListing.get()).thenReturn(encryptionZoneListing);
+        when(SnapshotListing.get()).thenReturn(snapshotListing);
+        when(snapshotListing.isSnapshottable(cluster.getName(), cluster.getFsEndpoint(), path + "dir-1"))
+                .thenReturn(true);
+
+        DatasetListing datasetListing = new DatasetListing();
+        JsonObject page = listPage(datasetListing, path, 2, null);
+        Assert.assertEquals(page.get("results").getAsInt(), 2);
+        JsonArray fileList = page.getAsJsonArray("fileList");
+        Assert.assertEquals(fileList.get(0).getAsJsonObject().get("pathSuffix").getAsString(), "dir-0");
+        Assert.assertEquals(fileList.get(1).getAsJsonObject().get("pathSuffix").getAsString(), "dir-1");
+        Assert.assertTrue(fileList.get(1).getAsJsonObject().get("snapshottable").getAsBoolean());
+        Assert.assertTrue(page.has("nextToken"));
+
+        page = listPage(datasetListing, path, 2, page.get("nextToken").getAsString());
+        Assert.assertEquals(page.get("results").getAsInt(), 1);
+        fileList = page.getAsJsonArray("fileList");
+        Assert.assertEquals(fileList.get(0).getAsJsonObject().get("pathSuffix").getAsString(), "dir-2");
+        Assert.assertFalse(fileList.get(0).getAsJsonObject().get("snapshottable").getAsBoolean());
+        Assert.assertFalse(page.has("nextToken"));
+    }
+
+    @Test
+    public void testListFilesPageAfterDeletedEntry() throws Exception {
+        String path = "/data4/paged/";
+        FileStatus[] fileStatuses = new FileStatus[4];
+        for (int i = 0; i < fileStatuses.length; i++) {
+            fileStatuses[i] = new FileStatus();
+            fileStatuses[i].setPath(new Path(path + "dir-" + i));
+        }
+        // dir-1, the last child of the first page, is deleted before the second page is listed
+        FileStatus[] remaining = {fileStatuses[0], fileStatuses[2], fileStatuses[3]};
+        FileSystemClientFactory.setFileSystem(fs);
+        when(FSUtils.getStagingUri(cluster.getFsEndpoint(), path)).thenReturn(path);
+        when(fs.listStatusIterator(new Path(path)))
+                .thenReturn(getRemoteFileStatusIterator(fileStatuses, new Path(path)))
+                .thenReturn(getRemoteFileStatusIterator(remaining, new Path(path)));
+        when(EncryptionZoneListing.get()).thenReturn(encryptionZoneListing);
+        when(SnapshotListing.get()).thenReturn(snapshotListing);
+
+        DatasetListing datasetListing = new DatasetListing();
+        JsonObject page = listPage(datasetListing, path, 2, null);
+        Assert.assertEquals(page.get("results").getAsInt(), 2);
+        Assert.assertTrue(page.has("nextToken"));
+
+        page = listPage(datasetListing, path, 2, page.get("nextToken").getAsString());
+        Assert.assertEquals(page.get("results").getAsInt(), 2);
+        JsonArray fileList = page.getAsJsonArray("fileList");
+        Assert.assertEquals(fileList.get(0).getAsJsonObject().get("pathSuffix").getAsString(), "dir-2");
+        Assert.assertEquals(fileList.get(1).getAsJsonObject().get("pathSuffix").getAsString(), "dir-3");
+        Assert.assertFalse(page.has("nextToken"));
+    }
+
+    private JsonObject listPage(DatasetListing datasetListing, String path, int pageSize, String token)
+            throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        datasetListing.listFilesPage(cluster, path, "", pageSize, token).write(output);
+        return new JsonParser().parse(output.toString("UTF-8")).getAsJsonObject();
+    }
+
     private RemoteIterator<FileStatus> getRemoteFileStatusIterator(final FileStatus[] fileStatuses, final Path path) {
         return new RemoteIterator<FileStatus>() {
             private final FileStatus[] stats = fileStatuses;
@@ -26,7 +26,6 @@ import com.hortonworks.beacon.client.entity.Cluster;
 import com.hortonworks.beacon.store.bean.EventBean;
 import com.hortonworks.beacon.store.bean.PolicyBean;
 import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
-import com.hortonworks.beacon.store.executors.EventsExecutor;
 
 /**
  * Create a method for events and invoke the method from beacon components.
@@ -38,7 +37,7 @@ public final class BeaconEvents {
     }
 
     public static void createEvents(Events event, EventEntityType entityType) {
-        persistEvents(createEventsBean(event, entityType));
+        persistEvents(event, createEventsBean(event, entityType));
     }
 
     public static void createEvents(Events event, EventEntityType entityType, Cluster cluster) {
@@ -46,15 +45,15 @@ public final class BeaconEvents {
     }
 
     public static void createEvents(Events event, String eventMessage, EventEntityType entityType, Cluster cluster) {
-        persistEvents(createEventsBean(event, eventMessage, entityType, cluster));
+        persistEvents(event, createEventsBean(event, eventMessage, entityType, cluster));
     }
 
     public static void createEvents(Events event, EventEntityType entityType, PolicyBean bean, EventInfo eventInfo) {
-        persistEvents(createEventsBean(event, entityType, bean, eventInfo));
+        persistEvents(event, createEventsBean(event, entityType, bean, eventInfo));
     }
 
     public static void createEvents(Events event, EventEntityType entityType, PolicyInstanceBean bean) {
-        persistEvents(createEventsBean(event, entityType, bean));
+        persistEvents(event, createEventsBean(event, entityType, bean));
     }
 
     static EventBean createEventsBean(Events event, EventEntityType entityType) {
@@ -77,8 +76,7 @@ public final class BeaconEvents {
         return beaconEvent.getEventBean();
     }
 
-    private static void persistEvents(EventBean eventBean) {
-        EventsExecutor eventsExecutor = new EventsExecutor();
-        eventsExecutor.persistEvents(eventBean);
+    private static void persistEvents(Events event, EventBean eventBean) {
+        EventsWriter.get().add(eventBean, event.getEventSeverity());
     }
 }
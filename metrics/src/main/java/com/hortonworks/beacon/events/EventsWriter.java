@@ -0,0 +1,380 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.events;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Engine;
+import com.hortonworks.beacon.store.bean.EventBean;
+import com.hortonworks.beacon.store.executors.EventsExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the beacon events to the store asynchronously, so that adding an event doesn't add a database write to
+ * the caller's transaction. Events are queued in a bounded queue and a single writer thread inserts them in
+ * batches, each batch in its own transaction.
+ *
+ * When the queue fills up, events are shed by severity: info events are dropped once the queue is
+ * {@link #INFO_LIMIT_PERCENT} percent full, warn events when it is full, and error and critical events make the
+ * caller wait for up to {@link #BLOCK_TIMEOUT_MILLIS} for space before they are dropped.
+ */
+public class EventsWriter implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventsWriter.class);
+
+    private static final int DEF_QUEUE_CAPACITY = 10000;
+    private static final int DEF_BATCH_SIZE = 100;
+    private static final int DEF_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int INFO_LIMIT_PERCENT = 80;
+    private static final long BLOCK_TIMEOUT_MILLIS = 5000;
+
+    private static EventsWriter instance;
+
+    private final Queue<QueuedEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+    private final int infoLimit;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    // Notified by the writer after each batch, waited on by blocked producers and flush callers.
+    private final Object progress = new Object();
+    private volatile Thread writerThread;
+    private volatile boolean flushRequested;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private final AtomicLong eventDelayMillis = new AtomicLong();
+
+    private static final class QueuedEvent {
+        private final EventBean bean;
+        private final long queuedTime;
+
+        private QueuedEvent(EventBean bean) {
+            this.bean = bean;
+            this.queuedTime = System.currentTimeMillis();
+        }
+    }
+
+    @VisibleForTesting
+    EventsWriter(int capacity, int batchSize, long flushIntervalMillis) {
+        this.capacity = capacity;
+        this.infoLimit = Math.max(1, capacity * INFO_LIMIT_PERCENT / 100);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    }
+
+    public static synchronized EventsWriter get() {
+        if (instance == null) {
+            Engine engine = BeaconConfig.getInstance().getEngine();
+            int capacity = engine.getEventQueueCapacity() > 0 ? engine.getEventQueueCapacity() : DEF_QUEUE_CAPACITY;
+            int batchSize = engine.getEventBatchSize() > 0 ? engine.getEventBatchSize() : DEF_BATCH_SIZE;
+            int flushInterval = engine.getEventFlushInterval() > 0
+                    ? engine.getEventFlushInterval() : DEF_FLUSH_INTERVAL_MILLIS;
+            instance = new EventsWriter(capacity, batchSize, flushInterval);
+        }
+        return instance;
+    }
+
+    /**
+     * Queues the event to be written.
+     * @return false if the event was dropped because the queue is full
+     */
+    public boolean add(EventBean bean, EventSeverity severity) {
+        if (!reserve(severity)) {
+            dropped.incrementAndGet();
+            LOG.warn("Events queue is full, dropping {} event {} of {}", severity.getName(), bean.getEventId(),
+                    bean.getPolicyId());
+            return false;
+        }
+        queue.offer(new QueuedEvent(bean));
+        enqueued.incrementAndGet();
+        Thread writer = startWriter();
+        if (size.get() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the events added before the call have been written.
+     * @return false if they were not written within the timeout
+     */
+    public boolean flush(long timeoutMillis) {
+        long target = enqueued.get();
+        if (processed.get() >= target) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            flushRequested = true;
+            LockSupport.unpark(startWriter());
+            while (processed.get() < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    LOG.warn("Timed out flushing {} events", target - processed.get());
+                    return false;
+                }
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes out the queued events and stops the writer thread. An event added afterwards starts a new writer.
+     * @return false if the queued events were not written within the timeout
+     */
+    public boolean stop(long timeoutMillis) {
+        boolean flushed = flush(timeoutMillis);
+        Thread writer;
+        synchronized (this) {
+            writer = writerThread;
+            writerThread = null;
+        }
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!flushed) {
+            LOG.warn("Stopped the events writer with {} events not written", size.get());
+        }
+        return flushed;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            // Once stopped, the events queued up to now are written before the thread exits.
+            boolean stopping = writerThread != Thread.currentThread();
+            if (!stopping && size.get() < batchSize && !flushRequested) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            flushRequested = false;
+            try {
+                writeQueued();
+            } catch (Throwable t) {
+                LOG.error("Events writer failed", t);
+            }
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private void writeQueued() {
+        while (true) {
+            List<QueuedEvent> batch = new ArrayList<>(batchSize);
+            QueuedEvent next;
+            while (batch.size() < batchSize && (next = queue.poll()) != null) {
+                batch.add(next);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            size.addAndGet(-batch.size());
+
+            long start = System.currentTimeMillis();
+            List<EventBean> beans = new ArrayList<>(batch.size());
+            for (QueuedEvent event : batch) {
+                beans.add(event.bean);
+            }
+            writeBatch(beans);
+            long end = System.currentTimeMillis();
+            recordFlush(end - start);
+            for (QueuedEvent event : batch) {
+                eventDelayMillis.addAndGet(end - event.queuedTime);
+            }
+
+            processed.addAndGet(batch.size());
+            synchronized (progress) {
+                progress.notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(List<EventBean> beans) {
+        try {
+            write(beans);
+            written.addAndGet(beans.size());
+        } catch (RuntimeException e) {
+            if (beans.size() == 1) {
+                failed.incrementAndGet();
+                LOG.error("Exception occurred while adding event {} of {}", beans.get(0).getEventId(),
+                        beans.get(0).getPolicyId(), e);
+                return;
+            }
+            // Retry the events one by one so that a single bad event doesn't fail the others.
+            LOG.warn("Exception occurred while adding {} events, retrying individually: {}", beans.size(),
+                    e.getMessage());
+            for (EventBean bean : beans) {
+                writeBatch(Collections.singletonList(bean));
+            }
+        }
+    }
+
+    /**
+     * Inserts the events in a single transaction.
+     */
+    @VisibleForTesting
+    void write(List<EventBean> beans) {
+        RequestContext.setInitialValue();
+        try {
+            RequestContext.get().startTransaction();
+            new EventsExecutor().addEvents(beans);
+            RequestContext.get().commitTransaction();
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    private boolean reserve(EventSeverity severity) {
+        int limit = severity == EventSeverity.INFO ? infoLimit : capacity;
+        if (tryReserve(limit)) {
+            return true;
+        }
+        if (severity == EventSeverity.INFO || severity == EventSeverity.WARN) {
+            return false;
+        }
+        long deadline = System.currentTimeMillis() + BLOCK_TIMEOUT_MILLIS;
+        synchronized (progress) {
+            while (!tryReserve(limit)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.unpark(startWriter());
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean tryReserve(int limit) {
+        while (true) {
+            int current = size.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private Thread startWriter() {
+        Thread writer = writerThread;
+        if (writer == null) {
+            synchronized (this) {
+                writer = writerThread;
+                if (writer == null) {
+                    writer = new Thread(this, "EventsWriter");
+                    writer.setDaemon(true);
+                    writerThread = writer;
+                    writer.start();
+                }
+            }
+        }
+        return writer;
+    }
+
+    private void recordFlush(long millis) {
+        flushes.incrementAndGet();
+        flushMillis.addAndGet(millis);
+        long max = maxFlushMillis.get();
+        while (millis > max && !maxFlushMillis.compareAndSet(max, millis)) {
+            max = maxFlushMillis.get();
+        }
+    }
+
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * Average time taken to write a batch.
+     */
+    public long getAvgFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0 : flushMillis.get() / count;
+    }
+
+    public long getMaxFlushMillis() {
+        return maxFlushMillis.get();
+    }
+
+    /**
+     * Average time from queueing an event to it being written.
+     */
+    public long getAvgEventDelayMillis() {
+        long count = processed.get();
+        return count == 0 ? 0 : eventDelayMillis.get() / count;
+    }
+}
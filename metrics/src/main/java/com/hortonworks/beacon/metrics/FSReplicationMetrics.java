@@ -22,12 +22,12 @@
 
 package com.hortonworks.beacon.metrics;
 
-import org.apache.hadoop.mapred.TIPStatus;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.TaskReport;
-import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.TaskCompletionEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +35,11 @@ import java.io.IOException;
 
 /**
  * Obtain and store Filesystem Replication counters from Distcp job.
+ *
+ * The metrics are built from the job status and the aggregated job counters, fetched once per call. The completed
+ * maps of a running job are counted from its task completion events, of which only the ones since the previous call
+ * are fetched, so an instance is meant to be reused for the same job. The task reports, which have an entry for
+ * every task of the job, are not fetched.
  */
 public class FSReplicationMetrics {
 
@@ -44,42 +49,57 @@ public class FSReplicationMetrics {
     private static final String TOTAL_LAUNCHED_MAPS = "TOTAL_LAUNCHED_MAPS";
     private static final String NUM_KILLED_MAPS = "NUM_KILLED_MAPS";
     private static final String NUM_FAILED_MAPS = "NUM_FAILED_MAPS";
+    private static final int EVENTS_BATCH_SIZE = 1000;
     private Progress progress = new Progress();
+    private int nextEvent;
+    private long completedMaps;
 
     public void obtainJobMetrics(Job job, boolean isJobComplete) {
+        obtainJobMetrics(job, null, isJobComplete);
+    }
+
+    /**
+     * @param status latest status of the job, fetched from the job when null
+     */
+    public void obtainJobMetrics(Job job, JobStatus status, boolean isJobComplete) {
         if (job == null) {
             return;
         }
 
         try {
+            JobStatus jobStatus = status != null ? status : job.getStatus();
             long timeTaken;
-            if (isJobComplete) {
-                timeTaken = job.getFinishTime() - job.getStartTime();
+            if (isJobComplete && jobStatus.getFinishTime() > 0) {
+                timeTaken = jobStatus.getFinishTime() - jobStatus.getStartTime();
             } else {
-                timeTaken = System.currentTimeMillis() - job.getStartTime();
+                timeTaken = System.currentTimeMillis() - jobStatus.getStartTime();
             }
             progress.setTimeTaken(timeTaken);
-            if (job.isComplete()) {
+            if (jobStatus.isJobComplete()) {
                 progress.setJobProgress(100);
             } else {
-                float jobProgress = job.getStatus().getMapProgress() * 100;
+                float jobProgress = jobStatus.getMapProgress() * 100;
                 progress.setJobProgress(Math.round(jobProgress * 100.0f)/100.0f);
             }
             progress.setUnit(ProgressUnit.MAPTASKS.getName());
-            populateReplicationCountersMap(job);
+            populateReplicationCountersMap(job, jobStatus);
         } catch (IOException | InterruptedException e) {
             LOG.error("Exception occurred while obtaining job counters/progress", e);
         }
     }
 
-    private void populateReplicationCountersMap(Job job) throws IOException, InterruptedException {
-        addTotalMapTasks(job);
-        addReplicationCounters(job);
-        addCompletedMapTasks(job);
+    private void populateReplicationCountersMap(Job job, JobStatus status) throws IOException, InterruptedException {
+        Counters counters = job.getCounters();
+        if (counters == null) {
+            return;
+        }
+        addTotalMapTasks(counters);
+        addReplicationCounters(counters);
+        addCompletedMapTasks(job, status);
     }
 
-    private void addTotalMapTasks(Job job) throws IOException {
-        CounterGroup counterGroup = job.getCounters().getGroup(JOB_COUNTER_GROUP);
+    private void addTotalMapTasks(Counters counters) {
+        CounterGroup counterGroup = counters.getGroup(JOB_COUNTER_GROUP);
         if (counterGroup!=null) {
             progress.setTotal(counterGroup.findCounter(TOTAL_LAUNCHED_MAPS).getValue());
             progress.setFailed(counterGroup.findCounter(NUM_FAILED_MAPS).getValue());
@@ -91,8 +111,8 @@ public class FSReplicationMetrics {
         }
     }
 
-    private void addReplicationCounters(Job job) throws IOException {
-        CounterGroup counterGroup = job.getCounters().getGroup(COUNTER_GROUP);
+    private void addReplicationCounters(Counters counters) {
+        CounterGroup counterGroup = counters.getGroup(COUNTER_GROUP);
         for (Counter counter : counterGroup) {
             if (counter.getName().equals(ReplicationJobMetrics.BYTESCOPIED.name())) {
                 progress.setBytesCopied(counter.getValue());
@@ -103,19 +123,31 @@ public class FSReplicationMetrics {
             }
         }
     }
-    private void addCompletedMapTasks(Job job) throws IOException, InterruptedException {
-        long completedTasks=0;
-        if (job.isComplete()) {
-            completedTasks = progress.getTotal();
-        } else {
-            for (TaskReport task : job.getTaskReports(TaskType.MAP)) {
-                if (task.getCurrentStatus() == TIPStatus.COMPLETE
-                        && task.getState().equals("SUCCEEDED")) {
-                    completedTasks++;
+
+    private void addCompletedMapTasks(Job job, JobStatus status) throws IOException, InterruptedException {
+        if (status.isJobComplete()) {
+            progress.setCompleted(progress.getTotal());
+            return;
+        }
+        while (true) {
+            TaskCompletionEvent[] events = job.getTaskCompletionEvents(nextEvent, EVENTS_BATCH_SIZE);
+            if (events == null || events.length == 0) {
+                break;
+            }
+            for (TaskCompletionEvent event : events) {
+                if (event.isMapTask() && event.getStatus() == TaskCompletionEvent.Status.SUCCEEDED) {
+                    completedMaps++;
+                } else if (event.isMapTask() && event.getStatus() == TaskCompletionEvent.Status.OBSOLETE) {
+                    // The output of a succeeded map was lost, the map runs again.
+                    completedMaps--;
                 }
             }
+            nextEvent += events.length;
+            if (events.length < EVENTS_BATCH_SIZE) {
+                break;
+            }
         }
-        progress.setCompleted(completedTasks);
+        progress.setCompleted(Math.max(completedMaps, 0));
     }
 
     public Progress getProgress() {
@@ -35,13 +35,16 @@ import static com.hortonworks.beacon.constants.BeaconConstants.DATABASE_BOOTSTRA
 import static com.hortonworks.beacon.constants.BeaconConstants.DATASET_BOOTSTRAP;
 
 /**
- * Obtain and store Hive Replication counters.
+ * Obtain and store Hive Replication counters. The query log is consumed in batches, each call continuing from the
+ * progress of the earlier ones.
  */
 public class HiveReplicationMetrics {
 
     private static final Logger LOG = LoggerFactory.getLogger(HiveReplicationMetrics.class);
 
     private Progress jobProgress = new Progress();
+    private ParseHiveQueryLogV2 queryLogParser;
+    private HiveActionType parsedActionType;
 
     private static final float BOOTSTRAP_WEIGHTAGE = 0.9f;
     private static final float INCREMENTAL_WEIGHTAGE = (1 - BOOTSTRAP_WEIGHTAGE);
@@ -68,7 +71,11 @@ public class HiveReplicationMetrics {
         }
 
         if (queryLog.size()!=0) {
-            ParseHiveQueryLogV2 pq = new ParseHiveQueryLogV2();
+            if (queryLogParser == null || parsedActionType != actionType) {
+                queryLogParser = new ParseHiveQueryLogV2();
+                parsedActionType = actionType;
+            }
+            ParseHiveQueryLogV2 pq = queryLogParser;
             printHiveQueryLog(queryLog);
             pq.parseQueryLog(queryLog, actionType);
             if (HiveActionType.EXPORT == actionType) {
@@ -93,8 +100,13 @@ public class HiveReplicationMetrics {
     }
 
     private void printHiveQueryLog(List<String> queryLogList) {
+        // The REPL progress lines, one per table or event, are summarized by the parser.
         for (String queryLogMessage: queryLogList) {
-            LOG.info(queryLogMessage);
+            if (queryLogMessage.contains(ParseHiveQueryLogV2.REPL_LOG_MARKER)) {
+                LOG.debug(queryLogMessage);
+            } else {
+                LOG.info(queryLogMessage);
+            }
         }
     }
 
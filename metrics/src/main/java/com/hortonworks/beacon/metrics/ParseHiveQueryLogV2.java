@@ -29,19 +29,20 @@ import com.hortonworks.beacon.entity.HiveLoadMetrics;
 import com.hortonworks.beacon.util.HiveActionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Class to parseQueryLog hive query log to obtain metrics.
+ * Class to parseQueryLog hive query log to obtain metrics. An instance keeps the progress across the batches of
+ * the query log of a single statement.
  */
 public final class ParseHiveQueryLogV2 {
 
     private static final Logger LOG = LoggerFactory.getLogger(ParseHiveQueryLogV2.class);
 
-    private static final String REPL_LOG_REGEX = "REPL::(.*): (.*)";
+    static final String REPL_LOG_MARKER = "REPL::";
+    private static final String REPL_LOG_REGEX = REPL_LOG_MARKER + "(.*): (.*)";
     private static final Pattern PATTERN = Pattern.compile(REPL_LOG_REGEX);
     private static final Gson GSON = new Gson();
 
@@ -79,87 +80,100 @@ public final class ParseHiveQueryLogV2 {
         return null;
     }
 
-    void parseQueryLog(List<String> str, HiveActionType actionType) {
-        long total = 0, completed = 0;
-        HiveReplType replType = null;
-        List<String> queryLogList = getQueryLogsToProcess(str);
-
-        for (String queryLog : queryLogList) {
-            String log = splitReplLogMessage(queryLog);
+    /**
+     * Consumes the next batch of the query log, carrying on from the progress of the earlier batches. Each progress
+     * event reports cumulative counts, so only the START and END events and the latest progress event of the batch
+     * are parsed.
+     *
+     * @return whether the progress changed
+     */
+    boolean parseQueryLog(List<String> queryLog, HiveActionType actionType) {
+        long total = getTotal();
+        long completed = getCompleted();
+        HiveReplType replType = getHiveReplType();
+        String latestLog = null;
+        HiveReplEventType latestEventType = null;
+        String latestMetricInfo = null;
+        for (String queryLogLine : queryLog) {
+            if (!queryLogLine.contains(REPL_LOG_MARKER)) {
+                continue;
+            }
+            String log = splitReplLogMessage(queryLogLine);
             if (log == null) {
                 continue;
             }
             Matcher matcher = PATTERN.matcher(log);
             if (matcher.find()) {
-                LOG.info("Processing Hive repl log: {}", queryLog);
-                String replEventType = matcher.group(1);
-                HiveReplEventType hiveReplEventType = HiveReplEventType.getHiveReplEventType(replEventType);
-                String metricInfo = matcher.group(2);
-                if (actionType == HiveActionType.EXPORT) {
-                    HiveDumpMetrics dumpMetrics = GSON.fromJson(metricInfo, HiveDumpMetrics.class);
-                    switch (hiveReplEventType) {
-                        case START:
-                            replType = HiveReplType.valueOf(dumpMetrics.getDumpType());
-                            total = replType == HiveReplType.BOOTSTRAP ? dumpMetrics.getEstimatedNumTables()
-                                    : dumpMetrics.getEstimatedNumEvents();
-                            break;
-                        case TABLE_DUMP:
-                        case EVENT_DUMP:
-                            total = dumpMetrics.getTotalDumpTable(hiveReplEventType);
-                            completed = dumpMetrics.getCompletedDumpTable(hiveReplEventType);
-                            break;
-                        case END:
-                            replType = HiveReplType.valueOf(dumpMetrics.getDumpType());
-                            completed = replType == HiveReplType.BOOTSTRAP  ? dumpMetrics.getActualNumTables()
-                                    : dumpMetrics.getActualNumEvents();
-                            total = completed;
-                            break;
-                        default:
-                            LOG.debug("Metrics event type {} won't be processed", hiveReplEventType);
-                    }
+                HiveReplEventType hiveReplEventType = HiveReplEventType.getHiveReplEventType(matcher.group(1));
+                if (hiveReplEventType == HiveReplEventType.START || hiveReplEventType == HiveReplEventType.END) {
+                    processReplLog(queryLogLine, hiveReplEventType, matcher.group(2), actionType);
+                    latestLog = null;
                 } else {
-                    HiveLoadMetrics loadMetrics = GSON.fromJson(metricInfo, HiveLoadMetrics.class);
-                    switch (hiveReplEventType) {
-                        case START:
-                            replType = HiveReplType.valueOf(loadMetrics.getLoadType());
-                            total = replType == HiveReplType.BOOTSTRAP ? loadMetrics.getNumTables()
-                                    : loadMetrics.getNumEvents();
-                            break;
-                        case TABLE_LOAD:
-                        case EVENT_LOAD:
-                            total = loadMetrics.getTotalLoadTable(hiveReplEventType);
-                            completed = loadMetrics.getCompletedLoadTable(hiveReplEventType);
-                            break;
-                        case END:
-                            replType = HiveReplType.valueOf(loadMetrics.getLoadType());
-                            completed = replType == HiveReplType.BOOTSTRAP ? loadMetrics.getNumTables()
-                                    : loadMetrics.getNumEvents();
-                            total = completed;
-                            break;
-                        default:
-                            LOG.debug("Metrics event type {} won't be processed", hiveReplEventType);
-                    }
+                    latestLog = queryLogLine;
+                    latestEventType = hiveReplEventType;
+                    latestMetricInfo = matcher.group(2);
                 }
             }
         }
-        setHiveProgress(total, completed, replType);
+        if (latestLog != null) {
+            processReplLog(latestLog, latestEventType, latestMetricInfo, actionType);
+        }
+        return total != getTotal() || completed != getCompleted() || replType != getHiveReplType();
     }
 
-    private List<String> getQueryLogsToProcess(List<String> str) {
-        List<String> queryLogList = new ArrayList<>();
-        boolean startLogAvailable = false;
-        for (String queryLog : str) {
-            if (queryLog.contains(HiveReplEventType.START.getName())) {
-                queryLogList.add(queryLog);
-                startLogAvailable = true;
+    private void processReplLog(String queryLog, HiveReplEventType hiveReplEventType, String metricInfo,
+                                HiveActionType actionType) {
+        LOG.info("Processing Hive repl log: {}", queryLog);
+        long total = getTotal();
+        long completed = getCompleted();
+        HiveReplType replType = getHiveReplType();
+        if (actionType == HiveActionType.EXPORT) {
+            HiveDumpMetrics dumpMetrics = GSON.fromJson(metricInfo, HiveDumpMetrics.class);
+            switch (hiveReplEventType) {
+                case START:
+                    replType = HiveReplType.valueOf(dumpMetrics.getDumpType());
+                    total = replType == HiveReplType.BOOTSTRAP ? dumpMetrics.getEstimatedNumTables()
+                            : dumpMetrics.getEstimatedNumEvents();
+                    completed = 0;
+                    break;
+                case TABLE_DUMP:
+                case EVENT_DUMP:
+                    total = dumpMetrics.getTotalDumpTable(hiveReplEventType);
+                    completed = dumpMetrics.getCompletedDumpTable(hiveReplEventType);
+                    break;
+                case END:
+                    replType = HiveReplType.valueOf(dumpMetrics.getDumpType());
+                    completed = replType == HiveReplType.BOOTSTRAP  ? dumpMetrics.getActualNumTables()
+                            : dumpMetrics.getActualNumEvents();
+                    total = completed;
+                    break;
+                default:
+                    LOG.debug("Metrics event type {} won't be processed", hiveReplEventType);
             }
-            if (queryLog.contains(HiveReplEventType.END.getName())) {
-                queryLogList.add(queryLog);
+        } else {
+            HiveLoadMetrics loadMetrics = GSON.fromJson(metricInfo, HiveLoadMetrics.class);
+            switch (hiveReplEventType) {
+                case START:
+                    replType = HiveReplType.valueOf(loadMetrics.getLoadType());
+                    total = replType == HiveReplType.BOOTSTRAP ? loadMetrics.getNumTables()
+                            : loadMetrics.getNumEvents();
+                    completed = 0;
+                    break;
+                case TABLE_LOAD:
+                case EVENT_LOAD:
+                    total = loadMetrics.getTotalLoadTable(hiveReplEventType);
+                    completed = loadMetrics.getCompletedLoadTable(hiveReplEventType);
+                    break;
+                case END:
+                    replType = HiveReplType.valueOf(loadMetrics.getLoadType());
+                    completed = replType == HiveReplType.BOOTSTRAP ? loadMetrics.getNumTables()
+                            : loadMetrics.getNumEvents();
+                    total = completed;
+                    break;
+                default:
+                    LOG.debug("Metrics event type {} won't be processed", hiveReplEventType);
             }
         }
-        if ((startLogAvailable && str.size() > 1) || queryLogList.size() == 0) {
-            queryLogList.add(str.get(str.size() - 1));
-        }
-        return queryLogList;
+        setHiveProgress(total, completed, replType);
     }
 }
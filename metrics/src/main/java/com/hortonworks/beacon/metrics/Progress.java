@@ -160,6 +160,45 @@ public class Progress {
         this.jobProgress = jobProgress;
     }
 
+    public Progress copy() {
+        Progress copy = new Progress();
+        copy.total = total;
+        copy.completed = completed;
+        copy.exportTotal = exportTotal;
+        copy.exportCompleted = exportCompleted;
+        copy.importTotal = importTotal;
+        copy.importCompleted = importCompleted;
+        copy.failed = failed;
+        copy.killed = killed;
+        copy.filesCopied = filesCopied;
+        copy.dirCopied = dirCopied;
+        copy.bytesCopied = bytesCopied;
+        copy.timeTaken = timeTaken;
+        copy.unit = unit;
+        copy.jobProgress = jobProgress;
+        return copy;
+    }
+
+    /**
+     * @return whether the other progress reports the same counters, regardless of the time taken
+     */
+    public boolean isSameProgress(Progress other) {
+        return other != null
+                && total == other.total
+                && completed == other.completed
+                && exportTotal == other.exportTotal
+                && exportCompleted == other.exportCompleted
+                && importTotal == other.importTotal
+                && importCompleted == other.importCompleted
+                && failed == other.failed
+                && killed == other.killed
+                && filesCopied == other.filesCopied
+                && dirCopied == other.dirCopied
+                && bytesCopied == other.bytesCopied
+                && Float.compare(jobProgress, other.jobProgress) == 0
+                && (unit == null ? other.unit == null : unit.equals(other.unit));
+    }
+
     @Override
     public String toString() {
         return "Progress{"
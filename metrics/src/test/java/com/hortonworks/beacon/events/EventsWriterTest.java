@@ -0,0 +1,133 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.events;
+
+import com.hortonworks.beacon.store.bean.EventBean;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test for {@link EventsWriter}.
+ */
+public class EventsWriterTest {
+
+    /**
+     * Writer which records the written batches instead of storing them, optionally held until released.
+     */
+    private static class RecordingWriter extends EventsWriter {
+        private final List<List<EventBean>> batches = new CopyOnWriteArrayList<>();
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+
+        RecordingWriter(int capacity, int batchSize, CountDownLatch release) {
+            super(capacity, batchSize, 60000);
+            this.release = release;
+        }
+
+        @Override
+        void write(List<EventBean> beans) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(beans);
+            threads.add(Thread.currentThread());
+        }
+    }
+
+    private static EventBean createBean(int eventId) {
+        EventBean bean = new EventBean();
+        bean.setEventId(eventId);
+        return bean;
+    }
+
+    @Test
+    public void testBatchedWrite() {
+        RecordingWriter writer = new RecordingWriter(100, 4, new CountDownLatch(0));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(writer.add(createBean(i), EventSeverity.INFO));
+        }
+        Assert.assertTrue(writer.flush(10000));
+        Assert.assertEquals(writer.getWritten(), 10);
+        Assert.assertEquals(writer.getQueueSize(), 0);
+
+        int next = 0;
+        for (List<EventBean> batch : writer.batches) {
+            Assert.assertTrue(batch.size() <= 4);
+            for (EventBean bean : batch) {
+                Assert.assertEquals(bean.getEventId(), next++);
+            }
+        }
+        Assert.assertEquals(next, 10);
+    }
+
+    @Test
+    public void testDropBySeverity() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter writer = new RecordingWriter(10, 1, release);
+        // The writer is held on the first event, the rest stay queued.
+        Assert.assertTrue(writer.add(createBean(0), EventSeverity.INFO));
+        int accepted = 0;
+        for (int i = 1; i <= 10; i++) {
+            if (writer.add(createBean(i), EventSeverity.INFO)) {
+                accepted++;
+            }
+        }
+        // Info events are dropped once the queue is 80% full, warn events still fit.
+        Assert.assertTrue(accepted <= 8);
+        Assert.assertTrue(writer.getDropped() > 0);
+        Assert.assertTrue(writer.add(createBean(11), EventSeverity.WARN));
+
+        release.countDown();
+        Assert.assertTrue(writer.flush(10000));
+        Assert.assertEquals(writer.getWritten() + writer.getDropped(), 12);
+    }
+
+    @Test
+    public void testStopDrains() throws Exception {
+        // Neither the batch size nor the flush interval is reached, only stopping writes the events.
+        RecordingWriter writer = new RecordingWriter(100, 50, new CountDownLatch(0));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(writer.add(createBean(i), EventSeverity.INFO));
+        }
+        Assert.assertTrue(writer.stop(10000));
+        Assert.assertEquals(writer.getWritten(), 5);
+        Assert.assertEquals(writer.getQueueSize(), 0);
+        Thread stopped = writer.threads.get(0);
+        stopped.join(10000);
+        Assert.assertFalse(stopped.isAlive());
+
+        // An event added after the stop starts a new writer.
+        Assert.assertTrue(writer.add(createBean(5), EventSeverity.INFO));
+        Assert.assertTrue(writer.flush(10000));
+        Assert.assertEquals(writer.getWritten(), 6);
+        Assert.assertNotSame(writer.threads.get(writer.threads.size() - 1), stopped);
+        writer.stop(10000);
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.metrics;
+
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobCounter;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCompletionEvent;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test for FS Replication metrics.
+ */
+public class FSReplicationMetricsTest {
+
+    private static final int EVENTS_BATCH_SIZE = 1000;
+
+    private static JobStatus status(boolean complete) {
+        JobStatus status = Mockito.mock(JobStatus.class);
+        Mockito.when(status.isJobComplete()).thenReturn(complete);
+        Mockito.when(status.getStartTime()).thenReturn(System.currentTimeMillis() - 1000);
+        Mockito.when(status.getFinishTime()).thenReturn(complete ? System.currentTimeMillis() : 0);
+        return status;
+    }
+
+    private static Job job(long totalMaps) throws Exception {
+        Counters counters = new Counters();
+        counters.findCounter(JobCounter.TOTAL_LAUNCHED_MAPS).setValue(totalMaps);
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getCounters()).thenReturn(counters);
+        return job;
+    }
+
+    private static TaskCompletionEvent[] events(int from, int count, TaskType type,
+                                                TaskCompletionEvent.Status status) {
+        TaskCompletionEvent[] events = new TaskCompletionEvent[count];
+        for (int i = 0; i < count; i++) {
+            TaskAttemptID attemptId = new TaskAttemptID("test", 1, type, from + i, 0);
+            events[i] = new TaskCompletionEvent(from + i, attemptId, from + i, type == TaskType.MAP, status, "");
+        }
+        return events;
+    }
+
+    private static TaskCompletionEvent[] concat(TaskCompletionEvent[]... parts) {
+        int length = 0;
+        for (TaskCompletionEvent[] part : parts) {
+            length += part.length;
+        }
+        TaskCompletionEvent[] events = new TaskCompletionEvent[length];
+        int offset = 0;
+        for (TaskCompletionEvent[] part : parts) {
+            System.arraycopy(part, 0, events, offset, part.length);
+            offset += part.length;
+        }
+        return events;
+    }
+
+    @Test
+    public void testCompletedMapsCounted() throws Exception {
+        Job job = job(10);
+        Mockito.when(job.getTaskCompletionEvents(0, EVENTS_BATCH_SIZE)).thenReturn(concat(
+                events(0, 3, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED),
+                events(3, 1, TaskType.MAP, TaskCompletionEvent.Status.FAILED),
+                events(4, 1, TaskType.MAP, TaskCompletionEvent.Status.KILLED),
+                events(5, 2, TaskType.REDUCE, TaskCompletionEvent.Status.SUCCEEDED)));
+
+        FSReplicationMetrics metrics = new FSReplicationMetrics();
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getTotal(), 10);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 3);
+    }
+
+    @Test
+    public void testEventsFetchedInBatches() throws Exception {
+        Job job = job(EVENTS_BATCH_SIZE + 5);
+        Mockito.when(job.getTaskCompletionEvents(0, EVENTS_BATCH_SIZE)).thenReturn(
+                events(0, EVENTS_BATCH_SIZE, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED));
+        Mockito.when(job.getTaskCompletionEvents(EVENTS_BATCH_SIZE, EVENTS_BATCH_SIZE)).thenReturn(
+                events(EVENTS_BATCH_SIZE, 2, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED));
+
+        FSReplicationMetrics metrics = new FSReplicationMetrics();
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), EVENTS_BATCH_SIZE + 2);
+        Mockito.verify(job, Mockito.times(2)).getTaskCompletionEvents(Matchers.anyInt(), Matchers.anyInt());
+    }
+
+    @Test
+    public void testObsoleteMapUncounted() throws Exception {
+        Job job = job(3);
+        Mockito.when(job.getTaskCompletionEvents(0, EVENTS_BATCH_SIZE)).thenReturn(
+                events(0, 3, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED));
+        FSReplicationMetrics metrics = new FSReplicationMetrics();
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 3);
+
+        // The output of a map is lost, it runs again and succeeds.
+        Mockito.when(job.getTaskCompletionEvents(3, EVENTS_BATCH_SIZE)).thenReturn(
+                events(1, 1, TaskType.MAP, TaskCompletionEvent.Status.OBSOLETE));
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 2);
+
+        Mockito.when(job.getTaskCompletionEvents(4, EVENTS_BATCH_SIZE)).thenReturn(
+                events(1, 1, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED));
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 3);
+    }
+
+    @Test
+    public void testReuseAcrossTicks() throws Exception {
+        Job job = job(5);
+        Mockito.when(job.getTaskCompletionEvents(0, EVENTS_BATCH_SIZE)).thenReturn(
+                events(0, 2, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED));
+        FSReplicationMetrics metrics = new FSReplicationMetrics();
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 2);
+
+        // No new events, the count stays.
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 2);
+
+        Mockito.when(job.getTaskCompletionEvents(2, EVENTS_BATCH_SIZE)).thenReturn(
+                events(2, 2, TaskType.MAP, TaskCompletionEvent.Status.SUCCEEDED));
+        metrics.obtainJobMetrics(job, status(false), false);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 4);
+
+        // Only the events since the previous tick are fetched.
+        Mockito.verify(job, Mockito.times(1)).getTaskCompletionEvents(0, EVENTS_BATCH_SIZE);
+        Mockito.verify(job, Mockito.times(2)).getTaskCompletionEvents(2, EVENTS_BATCH_SIZE);
+
+        // Once the job is complete, all its maps are completed without fetching the events.
+        metrics.obtainJobMetrics(job, status(true), true);
+        Assert.assertEquals(metrics.getProgress().getCompleted(), 5);
+        Assert.assertEquals(metrics.getProgress().getJobProgress(), 100.0f);
+        Mockito.verify(job, Mockito.times(3)).getTaskCompletionEvents(Matchers.anyInt(), Matchers.anyInt());
+    }
+
+    @Test
+    public void testTimeTakenWithoutFinishTime() throws Exception {
+        Job job = job(1);
+        FSReplicationMetrics metrics = new FSReplicationMetrics();
+        metrics.obtainJobMetrics(job, status(false), true);
+        Assert.assertTrue(metrics.getProgress().getTimeTaken() >= 1000);
+    }
+}
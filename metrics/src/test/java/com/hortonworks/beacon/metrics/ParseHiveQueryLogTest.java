@@ -22,6 +22,7 @@
 
 package com.hortonworks.beacon.metrics;
 
+import com.hortonworks.beacon.HiveReplType;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.util.HiveActionType;
 import org.testng.Assert;
@@ -55,4 +56,42 @@ public class ParseHiveQueryLogTest {
         Assert.assertEquals(hiveQueryLog.getTotal(), 4);
         Assert.assertEquals(hiveQueryLog.getCompleted(), 3);
     }
+
+    @Test
+    public void testParseQueryLogInBatches() throws BeaconException {
+        ParseHiveQueryLogV2 hiveQueryLog = new ParseHiveQueryLogV2();
+        List<String> dump = new ArrayList<>();
+        dump.add("INFO  : REPL::START: {\"dbName\":\"default\",\"dumpType\":\"BOOTSTRAP\",\"estimatedNumTables\":4,"
+                + "\"estimatedNumFunctions\":0,\"dumpStartTime\":1504271329}");
+        dump.add("INFO  : REPL::TABLE_DUMP: {\"dbName\":\"default\",\"tableName\":\"t1\","
+                + "\"tableType\":\"MANAGED_TABLE\",\"tablesDumpProgress\":\"1/4\",\"dumpTime\":1504271331}");
+        Assert.assertTrue(hiveQueryLog.parseQueryLog(dump, HiveActionType.EXPORT));
+        Assert.assertEquals(hiveQueryLog.getTotal(), 4);
+        Assert.assertEquals(hiveQueryLog.getCompleted(), 1);
+
+        // a batch without repl events keeps the progress
+        dump.clear();
+        dump.add("INFO  : Compiling command(queryId=hive_20170901130849_1): REPL DUMP default");
+        Assert.assertFalse(hiveQueryLog.parseQueryLog(dump, HiveActionType.EXPORT));
+        Assert.assertEquals(hiveQueryLog.getTotal(), 4);
+        Assert.assertEquals(hiveQueryLog.getCompleted(), 1);
+
+        dump.clear();
+        dump.add("INFO  : REPL::TABLE_DUMP: {\"dbName\":\"default\",\"tableName\":\"t2\","
+                + "\"tableType\":\"MANAGED_TABLE\",\"tablesDumpProgress\":\"2/4\",\"dumpTime\":1504271332}");
+        dump.add("INFO  : REPL::TABLE_DUMP: {\"dbName\":\"default\",\"tableName\":\"t3\","
+                + "\"tableType\":\"MANAGED_TABLE\",\"tablesDumpProgress\":\"3/4\",\"dumpTime\":1504271332}");
+        dump.add("INFO  : Completed executing command(queryId=hive_20170901130849_1)");
+        Assert.assertTrue(hiveQueryLog.parseQueryLog(dump, HiveActionType.EXPORT));
+        Assert.assertEquals(hiveQueryLog.getTotal(), 4);
+        Assert.assertEquals(hiveQueryLog.getCompleted(), 3);
+
+        dump.clear();
+        dump.add("INFO  : REPL::END: {\"dbName\":\"default\",\"dumpType\":\"BOOTSTRAP\",\"actualNumTables\":4,"
+                + "\"actualNumFunctions\":0,\"dumpEndTime\":1504271333,\"dumpDir\":\"/tmp/dump/next\","
+                + "\"lastReplId\":\"13\"}");
+        Assert.assertTrue(hiveQueryLog.parseQueryLog(dump, HiveActionType.EXPORT));
+        Assert.assertEquals(hiveQueryLog.getCompleted(), 4);
+        Assert.assertEquals(hiveQueryLog.getHiveReplType(), HiveReplType.BOOTSTRAP);
+    }
 }
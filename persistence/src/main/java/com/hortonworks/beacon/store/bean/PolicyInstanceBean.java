@@ -63,7 +63,7 @@ import java.util.Date;
         @NamedQuery(name = "GET_INSTANCE_FAILED", query = "select OBJECT(b) from PolicyInstanceBean b "
                 + "where b.policyId = :policyId AND b.status = :status order by b.endTime DESC"),
         @NamedQuery(name = "GET_INSTANCE_RECENT", query = "select OBJECT(b) from PolicyInstanceBean b "
-                + "where b.policyId = :policyId order by b.startTime DESC"),
+                + "where b.policyId = :policyId order by b.startTime DESC, b.instanceId DESC"),
         @NamedQuery(name = "GET_INSTANCE_FOR_RERUN", query = "select b.instanceId, b.currentOffset, b.status "
                 + "from PolicyInstanceBean b where b.policyId = :policyId AND b.status <> 'SKIPPED' "
                 + "order by b.startTime DESC"),
@@ -85,6 +85,9 @@ import java.util.Date;
         @NamedQuery(name = "GET_INSTANCE_REPORT", query = "select b.status, max(b.endTime) as endTime "
                 + "from PolicyInstanceBean b "
                 + "where b.policyId = :policyId AND b.status <> 'RUNNING' group by b.status order by endTime"),
+        @NamedQuery(name = "GET_INSTANCE_REPORT_BULK", query = "select b.policyId, b.status, max(b.endTime) "
+                + "from PolicyInstanceBean b where b.policyId in ( :policyIds ) AND b.status <> 'RUNNING' "
+                + "group by b.policyId, b.status"),
         @NamedQuery(name = "DELETE_POLICY_INSTANCE_BATCH", query = "delete from PolicyInstanceBean b "
                 + "where b.instanceId in ( :instanceIds )"),
         @NamedQuery(name = "GET_POLICY_INSTANCE_IDS", query = "select b.instanceId from PolicyInstanceBean b "
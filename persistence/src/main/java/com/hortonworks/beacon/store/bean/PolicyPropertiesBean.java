@@ -43,6 +43,8 @@ import java.util.Date;
 @NamedQueries({
         @NamedQuery(name = "GET_POLICY_PROP", query = "select OBJECT(b) from PolicyPropertiesBean b "
                 + "where b.policyId = :policyId"),
+        @NamedQuery(name = "GET_POLICY_PROP_BULK", query = "select OBJECT(b) from PolicyPropertiesBean b "
+                + "where b.policyId in ( :policyIds )"),
         @NamedQuery(name = "UPDATE_POLICY_PROP", query = "update PolicyPropertiesBean b set b.value = :valueParam "
                 + "where b.policyId = :policyIdParam AND b.name = :nameParam")
     })
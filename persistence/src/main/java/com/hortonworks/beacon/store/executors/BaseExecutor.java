@@ -23,13 +23,18 @@
 package com.hortonworks.beacon.store.executors;
 
 import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.DbStore;
 import com.hortonworks.beacon.constants.BeaconConstants;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +43,10 @@ abstract class BaseExecutor {
     protected static final String AND = " AND ";
     protected static final String OR = " OR ";
     protected static final String EQUAL = " = ";
+    private static final String KEYSET_VALUE = "keysetValue";
+    private static final String KEYSET_ID = "keysetId";
+    // Upper bound of the IN list size for the bulk queries.
+    protected static final int BULK_QUERY_BATCH_SIZE = 500;
 
     protected Map<String, List<String>> parseFilterBy(String filterBy) {
         // Filter the results by specific field:value, eliminate empty values
@@ -62,6 +71,89 @@ abstract class BaseExecutor {
         return filterByFieldValues;
     }
 
+    /**
+     * Splits the values into lists of at most {@link #BULK_QUERY_BATCH_SIZE}, to be bound to IN conditions.
+     */
+    protected static List<List<String>> batches(Collection<String> values) {
+        return batches(values, BULK_QUERY_BATCH_SIZE);
+    }
+
+    protected static List<List<String>> batches(Collection<String> values, int batchSize) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        for (String value : values) {
+            batch.add(value);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Condition selecting the rows after the cursor in the order of (column, idColumn), both sorted the same way.
+     */
+    protected static String getKeysetCondition(String column, String idColumn, String sortOrder) {
+        String operator = SortOrder.DESC.name().equals(sortOrder) ? " < " : " > ";
+        return "(" + column + operator + ":" + KEYSET_VALUE + OR + "(" + column + EQUAL + ":" + KEYSET_VALUE
+                + AND + idColumn + operator + ":" + KEYSET_ID + "))";
+    }
+
+    protected static void setKeysetParameters(Query query, PageCursor cursor) {
+        query.setParameter(KEYSET_VALUE, cursor.getValue());
+        query.setParameter(KEYSET_ID, cursor.getId());
+    }
+
+    /**
+     * @return the cursor after the given row, null if the row can't be resumed from
+     */
+    protected static String getNextToken(long position, Object value, Object id) {
+        return value != null && id != null ? new PageCursor(position, value, id).toToken() : null;
+    }
+
+    /**
+     * Reads the results of the query with a forward only cursor, fetching the given number of rows at a time.
+     */
+    protected static void setForwardOnly(Query query, int fetchSize) {
+        query.setHint("openjpa.FetchPlan.ResultSetType", ResultSet.TYPE_FORWARD_ONLY);
+        query.setHint("openjpa.FetchPlan.FetchDirection", ResultSet.FETCH_FORWARD);
+        query.setHint("openjpa.FetchPlan.FetchBatchSize", fetchSize);
+    }
+
+    /**
+     * Copies the given columns of the rows of the table having one of the given values in the column into the
+     * archive table, BEACON_*_ARCHIVE, with a single statement. The columns are named as the order of the archive
+     * table columns may differ from the table once upgraded.
+     * @return the number of rows archived
+     */
+    protected int archiveRows(String table, String column, Collection<String> values, String... columns) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String columnList = StringUtils.join(columns, ", ");
+        String sql = "INSERT INTO " + table + "_ARCHIVE (" + columnList + ") SELECT " + columnList + " FROM " + table
+                + " WHERE " + column + " IN (" + placeholders + ")";
+        Query query = getEntityManager().createNativeQuery(sql);
+        int position = 1;
+        for (String value : values) {
+            query.setParameter(position++, value);
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * @return the identifier quoted for the database, for the columns named after a reserved word
+     */
+    protected static String quoteIdentifier(String identifier) {
+        return BeaconConfig.getInstance().getDbStore().getDBType() == DbStore.DBType.MYSQL
+                ? "`" + identifier + "`" : "\"" + identifier + "\"";
+    }
+
     protected EntityManager getEntityManager() {
         return RequestContext.get().getEntityManager();
     }
@@ -31,6 +31,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -68,6 +69,13 @@ public class EventsExecutor extends BaseExecutor {
         return eventBean;
     }
 
+    public void addEvents(List<EventBean> eventBeans) {
+        EntityManager entityManager = getEntityManager();
+        for (EventBean eventBean : eventBeans) {
+            entityManager.persist(eventBean);
+        }
+    }
+
     public void persistEvents(EventBean eventBean) {
         try {
             addEvents(eventBean);
@@ -96,18 +104,19 @@ public class EventsExecutor extends BaseExecutor {
     }
 
     public long getEventsWithPolicyNameCount(String policyName, Date startDate, Date endDate) throws BeaconException {
-        Query query = getEventsQuery(COUNT_EVENT_QUERY, POLICY_NAME_FILTER, startDate, endDate, " ", " ");
+        Query query = getEventsQuery(COUNT_EVENT_QUERY, POLICY_NAME_FILTER, startDate, endDate, " ", " ", null);
         query.setParameter("policyName", policyName);
         return (long)query.getResultList().get(0);
     }
 
     public List<EventBean> getEventsWithPolicyName(String policyName, Date startDate, Date endDate,
                                                    String orderBy, String sortOrder,
-                                                   int offset, int resultsPage) throws BeaconException {
+                                                   int offset, int resultsPage,
+                                                   PageCursor cursor) throws BeaconException {
         Query query = getEventsQuery(EVENT_BASE_QUERY, POLICY_NAME_FILTER, startDate, endDate,
-                orderBy, sortOrder);
+                orderBy, sortOrder, cursor);
         query.setParameter("policyName", policyName);
-        query.setFirstResult(offset);
+        query.setFirstResult(cursor != null ? 0 : offset);
         query.setMaxResults(resultsPage);
         List resultList = query.getResultList();
         List<EventBean> eventBeanList = new ArrayList<>();
@@ -119,18 +128,19 @@ public class EventsExecutor extends BaseExecutor {
 
     public long getEventsWithNameCount(int eventId, Date startDate, Date endDate) throws BeaconException {
         Query query = getEventsQuery(COUNT_EVENT_QUERY, ID_FILTER, startDate, endDate,
-                " ", " ");
+                " ", " ", null);
         query.setParameter("eventId", eventId);
         return (long)query.getResultList().get(0);
     }
 
     public List<EventBean> getEventsWithName(int eventId, Date startDate, Date endDate,
                                              String orderBy, String sortOrder,
-                                             int offset, int resultsPage) throws BeaconException {
+                                             int offset, int resultsPage,
+                                             PageCursor cursor) throws BeaconException {
         Query query = getEventsQuery(EVENT_BASE_QUERY, ID_FILTER, startDate, endDate,
-                orderBy, sortOrder);
+                orderBy, sortOrder, cursor);
         query.setParameter("eventId", eventId);
-        query.setFirstResult(offset);
+        query.setFirstResult(cursor != null ? 0 : offset);
         query.setMaxResults(resultsPage);
         List resultList = query.getResultList();
         List<EventBean> eventBeanList = new ArrayList<>();
@@ -142,18 +152,19 @@ public class EventsExecutor extends BaseExecutor {
 
     public long getEntityTypeEventsCount(String eventEntityType, Date startDate, Date endDate) throws BeaconException {
         Query query = getEventsQuery(COUNT_EVENT_QUERY, ENTITY_TYPE_FILTER, startDate, endDate,
-                " ", " ");
+                " ", " ", null);
         query.setParameter("eventEntityType", eventEntityType);
         return (long)query.getResultList().get(0);
     }
 
     public List<EventBean> getEntityTypeEvents(String eventEntityType, Date startDate, Date endDate,
                                                String orderBy, String sortOrder,
-                                               int offset, int resultsPage) throws BeaconException {
+                                               int offset, int resultsPage,
+                                               PageCursor cursor) throws BeaconException {
         Query query = getEventsQuery(EVENT_BASE_QUERY, ENTITY_TYPE_FILTER, startDate, endDate,
-                orderBy, sortOrder);
+                orderBy, sortOrder, cursor);
         query.setParameter("eventEntityType", eventEntityType);
-        query.setFirstResult(offset);
+        query.setFirstResult(cursor != null ? 0 : offset);
         query.setMaxResults(resultsPage);
         List resultList = query.getResultList();
         List<EventBean> eventBeanList = new ArrayList<>();
@@ -193,10 +204,11 @@ public class EventsExecutor extends BaseExecutor {
 
 
     public List<EventBean> getAllEventsInfo(Date startDate, Date endDate, String orderBy, String sortOrder,
-                                            int offset, int resultsPage) throws BeaconException {
+                                            int offset, int resultsPage,
+                                            PageCursor cursor) throws BeaconException {
         Query query = getEventsQuery(EVENT_BASE_QUERY, " ", startDate, endDate,
-                orderBy, sortOrder);
-        query.setFirstResult(offset);
+                orderBy, sortOrder, cursor);
+        query.setFirstResult(cursor != null ? 0 : offset);
         query.setMaxResults(resultsPage);
         LOG.debug("Executing All events info query: [{}]", query.toString());
         List resultList = query.getResultList();
@@ -210,13 +222,41 @@ public class EventsExecutor extends BaseExecutor {
     public long getAllEventsInfoCount(Date startDate, Date endDate) throws BeaconException {
 
         Query query  = getEventsQuery(COUNT_EVENT_QUERY, " ", startDate, endDate,
-                " ", " ");
+                " ", " ", null);
         LOG.debug("Executing All events info count query: [{}]", query.toString());
         return (long)query.getResultList().get(0);
     }
 
+    /**
+     * Lists the events after the cursor in the order of (eventTimeStamp, id), to export the event history in batches.
+     */
+    public List<EventBean> getEventsForExport(String policyName, Date startDate, Date endDate, PageCursor cursor,
+                                              int limit) throws BeaconException {
+        Query query = getEventsQuery(EVENT_BASE_QUERY, StringUtils.isNotBlank(policyName) ? POLICY_NAME_FILTER : " ",
+                startDate, endDate, EventsFieldType.EVENTTIMESTAMP.name(), SortOrder.ASC.name(), cursor);
+        if (StringUtils.isNotBlank(policyName)) {
+            query.setParameter("policyName", policyName);
+        }
+        query.setMaxResults(limit);
+        setForwardOnly(query, limit);
+        List resultList = query.getResultList();
+        List<EventBean> eventBeanList = new ArrayList<>();
+        for (Object result : resultList) {
+            eventBeanList.add((EventBean) result);
+        }
+        return eventBeanList;
+    }
+
+    /**
+     * @return token to resume the listing after the given event, null if the sort column doesn't allow it
+     */
+    public String getNextToken(EventBean last, String orderBy, long position) throws BeaconException {
+        EventsFieldType fieldType = EventsFieldType.getField(orderBy);
+        return fieldType.keyset ? getNextToken(position, fieldType.getValue(last), last.getId()) : null;
+    }
+
     private Query getEventsQuery(String query, String filter, Date startDate, Date endDate,
-                                  String orderBy, String sortOrder) throws BeaconException {
+                                  String orderBy, String sortOrder, PageCursor cursor) throws BeaconException {
         StringBuilder queryBuilder = new StringBuilder(query);
         boolean filterApplied = false;
         if (StringUtils.isNotBlank(filter)) {
@@ -232,12 +272,26 @@ public class EventsExecutor extends BaseExecutor {
             }
         }
 
+        boolean keyset = false;
         if (StringUtils.isNotBlank(orderBy) && StringUtils.isNotBlank(sortOrder)) {
-            queryBuilder.append(getOrderQuery(EventsFieldType.getFieldType(orderBy),
-                    SortOrder.getSortOrder(sortOrder)));
+            EventsFieldType fieldType = EventsFieldType.getField(orderBy);
+            String order = SortOrder.getSortOrder(sortOrder);
+            if (cursor != null) {
+                if (!fieldType.keyset) {
+                    throw new IllegalArgumentException("Continuation token is not supported with orderBy: "
+                            + orderBy);
+                }
+                queryBuilder.append(filterApplied || startDate != null || endDate != null ? AND : " WHERE ")
+                        .append(getKeysetCondition("a." + fieldType.fieldName, "a.id", order));
+                keyset = true;
+            }
+            queryBuilder.append(getOrderQuery(fieldType.fieldName, order)).append(", a.id ").append(order);
         }
         String queryStr = queryBuilder.toString();
         Query eventQuery = getEntityManager().createQuery(queryStr);
+        if (keyset) {
+            setKeysetParameters(eventQuery, cursor);
+        }
         if (startDate != null) {
             eventQuery.setParameter(START_DATE_CONFIG, new Timestamp(startDate.getTime()));
         }
@@ -271,29 +325,50 @@ public class EventsExecutor extends BaseExecutor {
      */
 
     public enum EventsFieldType {
-        POLICYID("policyId"),
-        INSTANCEID("instanceId"),
-        EVENTENTITYTYPE("eventEntityType"),
-        EVENTID("eventId"),
-        EVENTSEVERITY("eventSeverity"),
-        EVENTTIMESTAMP("eventTimeStamp"),
-        EVENTMESSAGE("eventMessage"),
-        EVENTINFO("eventInfo");
+        POLICYID("policyId", false),
+        INSTANCEID("instanceId", false),
+        EVENTENTITYTYPE("eventEntityType", true),
+        EVENTID("eventId", true),
+        EVENTSEVERITY("eventSeverity", true),
+        EVENTTIMESTAMP("eventTimeStamp", true),
+        EVENTMESSAGE("eventMessage", false),
+        EVENTINFO("eventInfo", false);
 
         private String fieldName;
+        // Cursor pagination needs a non null sort column, the null ordering differs between the databases.
+        private boolean keyset;
 
-        EventsFieldType(String fieldName) {
+        EventsFieldType(String fieldName, boolean keyset) {
             this.fieldName = fieldName;
+            this.keyset = keyset;
         }
 
         public static String getFieldType(String eventsType) throws BeaconException {
+            return getField(eventsType).fieldName;
+        }
+
+        private static EventsFieldType getField(String eventsType) throws BeaconException {
             try {
-                EventsFieldType eventsFieldsType = valueOf(eventsType.toUpperCase());
-                return eventsFieldsType.fieldName;
+                return valueOf(eventsType.toUpperCase());
             } catch (IllegalArgumentException e) {
                 throw new BeaconException("Invalid filter type provided. Input filter type: " + eventsType);
             }
         }
+
+        private Object getValue(EventBean bean) {
+            switch (this) {
+                case EVENTENTITYTYPE:
+                    return bean.getEventEntityType();
+                case EVENTID:
+                    return bean.getEventId();
+                case EVENTSEVERITY:
+                    return bean.getEventSeverity();
+                case EVENTTIMESTAMP:
+                    return bean.getEventTimeStamp();
+                default:
+                    return null;
+            }
+        }
     }
 
 }
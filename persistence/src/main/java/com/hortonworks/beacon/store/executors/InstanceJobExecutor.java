@@ -83,11 +83,20 @@ public class InstanceJobExecutor extends BaseExecutor {
         return beanList;
     }
 
-    public void executeBatchDelete(List<String> instanceIds, InstanceJobQuery namedQuery) {
+    public int executeBatchDelete(List<String> instanceIds, InstanceJobQuery namedQuery) {
         Query query = getEntityManager().createNamedQuery(namedQuery.name());
         query.setParameter("instanceIds", instanceIds);
         int update = query.executeUpdate();
         LOG.debug("Records deleted from InstanceJobBean table namedQuery [{}], count [{}]", namedQuery, update);
+        return update;
+    }
+
+    public int archiveInstanceJobs(List<String> instanceIds) {
+        int archived = archiveRows("BEACON_INSTANCE_JOB", "INSTANCE_ID", instanceIds, "INSTANCE_ID",
+                quoteIdentifier("offset"), "STATUS", "START_TIME", "END_TIME", "MESSAGE", "RETIREMENT_TIME",
+                "RUN_COUNT", "CONTEXT_DATA");
+        LOG.debug("Records archived from InstanceJobBean table, count [{}]", archived);
+        return archived;
     }
 
     private Query getQuery(InstanceJobQuery namedQuery) {
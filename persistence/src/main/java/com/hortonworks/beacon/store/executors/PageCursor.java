@@ -0,0 +1,152 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.store.executors;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+
+/**
+ * Continuation token of the list APIs. It holds the sort column value and the id of the last row returned, so the
+ * next page is selected with a (sortColumn, id) condition served by the index instead of skipping the rows before
+ * it, along with the number of rows returned so far.
+ */
+public final class PageCursor {
+
+    private static final byte STRING = 'S';
+    private static final byte TIMESTAMP = 'T';
+    private static final byte INTEGER = 'I';
+    private static final byte LONG = 'L';
+
+    private final long position;
+    private final Object value;
+    private final Object id;
+
+    public PageCursor(long position, Object value, Object id) {
+        this.position = position;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * @return the cursor of the token, null if the token is blank
+     */
+    public static PageCursor fromToken(String token) {
+        if (StringUtils.isBlank(token)) {
+            return null;
+        }
+        if (!Base64.isBase64(token)) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.decodeBase64(token)))) {
+            long position = in.readLong();
+            Object value = readValue(in);
+            Object id = readValue(in);
+            if (position < 0 || in.read() != -1) {
+                throw new IOException("Unexpected token content");
+            }
+            return new PageCursor(position, value, id);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+    }
+
+    /**
+     * @return whether an empty page starts past the end of the rows, where the total can't be estimated from the
+     * rows listed so far and has to be counted
+     */
+    public static boolean isPastEnd(PageCursor cursor, int offset, int rows) {
+        return rows == 0 && (cursor != null || offset > 0);
+    }
+
+    public String toToken() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(position);
+            writeValue(out, value);
+            writeValue(out, id);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.encodeBase64URLSafeString(bytes.toByteArray());
+    }
+
+    /**
+     * @return number of rows returned before the page this cursor starts
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    private static void writeValue(DataOutputStream out, Object object) throws IOException {
+        if (object instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) object);
+        } else if (object instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) object;
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (object instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) object);
+        } else if (object instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) object);
+        } else {
+            throw new IllegalArgumentException("Unsupported cursor value: " + object);
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case STRING:
+                return in.readUTF();
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            default:
+                throw new IOException("Unknown cursor value type: " + type);
+        }
+    }
+}
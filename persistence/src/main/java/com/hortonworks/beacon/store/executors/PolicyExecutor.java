@@ -38,6 +38,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -72,6 +73,11 @@ public class PolicyExecutor extends BaseExecutor {
     }
 
     private static final Logger LOG = LoggerFactory.getLogger(PolicyExecutor.class);
+    private static final String[] ARCHIVE_COLUMNS = {"ID", "NAME", "DESCRIPTION", "VERSION", "CHANGE_ID", "STATUS",
+        "LAST_INSTANCE_STATUS", "TYPE", "SOURCE_CLUSTER", "TARGET_CLUSTER", "SOURCE_DATASET", "TARGET_DATASET",
+        "CREATED_TIME", "LAST_MODIFIED_TIME", "START_TIME", "END_TIME", "FREQUENCY", "NOTIFICATION_TYPE",
+        "NOTIFICATION_TO", "RETRY_COUNT", "RETRY_DELAY", "TAGS", "PLUGINS", "EXECUTION_TYPE", "RETIREMENT_TIME",
+        "JOBS", "USERNAME"};
 
     private PolicyBean bean;
 
@@ -266,11 +272,18 @@ public class PolicyExecutor extends BaseExecutor {
         return policiesToBeArchived;
     }
 
-    public void executeBatchDelete(PolicyQuery namedQuery, String... policyIds) {
+    public int executeBatchDelete(PolicyQuery namedQuery, String... policyIds) {
         Query query = getQuery(namedQuery);
         query.setParameter("policyIds", policyIds);
         int deleted = query.executeUpdate();
         LOG.debug("Records deleted from PolicyBean table namedQuery [{}], count [{}]", namedQuery, deleted);
+        return deleted;
+    }
+
+    public int archivePolicies(String... policyIds) {
+        int archived = archiveRows("BEACON_POLICY", "ID", Arrays.asList(policyIds), ARCHIVE_COLUMNS);
+        LOG.debug("Records archived from PolicyBean table, count [{}]", archived);
+        return archived;
     }
 
     public boolean existsClustersPolicies(PolicyQuery namedQuery) {
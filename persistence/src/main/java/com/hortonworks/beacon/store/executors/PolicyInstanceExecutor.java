@@ -22,6 +22,8 @@
 
 package com.hortonworks.beacon.store.executors;
 
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.DbStore;
 import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
 import com.hortonworks.beacon.util.StringFormat;
 
@@ -32,8 +34,11 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Beacon store executor for policy instances.
@@ -41,6 +46,21 @@ import java.util.List;
 public class PolicyInstanceExecutor extends BaseExecutor {
 
     private static final Logger LOG = LoggerFactory.getLogger(PolicyInstanceExecutor.class);
+    private static final String[] ARCHIVE_COLUMNS = {"ID", "POLICY_ID", "START_TIME", "END_TIME", "RETIREMENT_TIME",
+        "STATUS", "MESSAGE", "RUN_COUNT", "CURRENT_OFFSET", "TRACKING_INFO"};
+
+    private static final String INSTANCE_RECENT_COLUMNS = "id, policy_id, start_time, end_time, retirement_time, "
+            + "status, message, run_count, current_offset, tracking_info";
+    private static final String INSTANCE_RECENT_WINDOW_QUERY = "SELECT " + INSTANCE_RECENT_COLUMNS + " FROM "
+            + "(SELECT i.*, ROW_NUMBER() OVER (PARTITION BY i.policy_id ORDER BY i.start_time DESC, i.id DESC) "
+            + "AS row_num "
+            + "FROM BEACON_POLICY_INSTANCE i WHERE i.policy_id IN ({})) r "
+            + "WHERE r.row_num <= ? ORDER BY r.policy_id, r.start_time DESC, r.id DESC";
+    // One branch per policy of a UNION ALL, the row limit is appended.
+    private static final String INSTANCE_RECENT_POLICY_QUERY = "(SELECT " + INSTANCE_RECENT_COLUMNS
+            + " FROM BEACON_POLICY_INSTANCE WHERE policy_id = ? ORDER BY start_time DESC, id DESC ";
+    // Upper bound of the branches of a UNION ALL query, kept lower than the IN list size as each is a subquery.
+    private static final int UNION_QUERY_BATCH_SIZE = 50;
 
     /**
      * Enums for PolicyInstanceBean.
@@ -65,6 +85,7 @@ public class PolicyInstanceExecutor extends BaseExecutor {
         GET_INSTANCE_STATUS_RECENT,
         UPDATE_INSTANCE_STATUS_RETIRE,
         GET_INSTANCE_REPORT,
+        GET_INSTANCE_REPORT_BULK,
         GET_POLICY_INSTANCE_IDS,
         DELETE_POLICY_INSTANCE_BATCH,
         GET_ALL_POLICY_INSTANCES
@@ -218,11 +239,18 @@ public class PolicyInstanceExecutor extends BaseExecutor {
         return instancesList;
     }
 
-    public void executeBatchDelete(List<String> instanceIds, PolicyInstanceQuery namedQuery) {
+    public int executeBatchDelete(List<String> instanceIds, PolicyInstanceQuery namedQuery) {
         Query query = getEntityManager().createNamedQuery(namedQuery.name());
         query.setParameter("instanceIds", instanceIds);
         int deleted = query.executeUpdate();
         LOG.debug("Records deleted from PolicyInstanceBean table namedQuery [{}], count [{}]", namedQuery, deleted);
+        return deleted;
+    }
+
+    public int archivePolicyInstances(List<String> instanceIds) {
+        int archived = archiveRows("BEACON_POLICY_INSTANCE", "ID", instanceIds, ARCHIVE_COLUMNS);
+        LOG.debug("Records archived from PolicyInstanceBean table, count [{}]", archived);
+        return archived;
     }
 
     public List<PolicyInstanceBean> getInstanceRecent(PolicyInstanceQuery namedQuery, int results) {
@@ -268,4 +296,99 @@ public class PolicyInstanceExecutor extends BaseExecutor {
         }
         return beans;
     }
+
+    /**
+     * Most recent instances of each of the given policies, ordered by start time and then id, both descending.
+     * A windowed top-N query over batched IN lists is used where the store supports it. Otherwise a batch of
+     * policies is queried with a UNION ALL of a row limited query per policy, each of which reads only the newest
+     * instances from the policy id and start time index, where a correlated top-N query would be quadratic in the
+     * instances of a policy. Either way a page of policies costs a constant number of queries.
+     * @param policyIds policy ids
+     * @param results max number of instances per policy
+     * @return policy id to its recent instances, policies without instances are not present
+     */
+    public Map<String, List<PolicyInstanceBean>> getInstanceRecent(Collection<String> policyIds, int results) {
+        Map<String, List<PolicyInstanceBean>> instances = new HashMap<>();
+        boolean windowed = isWindowQuerySupported();
+        for (List<String> batch : windowed ? batches(policyIds) : batches(policyIds, UNION_QUERY_BATCH_SIZE)) {
+            List resultList = windowed
+                    ? getInstanceRecentWindowed(batch, results) : getInstanceRecentUnion(batch, results);
+            for (Object result : resultList) {
+                PolicyInstanceBean instanceBean = (PolicyInstanceBean) result;
+                List<PolicyInstanceBean> beans = instances.get(instanceBean.getPolicyId());
+                if (beans == null) {
+                    beans = new ArrayList<>();
+                    instances.put(instanceBean.getPolicyId(), beans);
+                }
+                beans.add(instanceBean);
+            }
+        }
+        LOG.debug("Recent instances retrieved for [{}] policies", policyIds.size());
+        return instances;
+    }
+
+    private List getInstanceRecentWindowed(List<String> policyIds, int results) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < policyIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String sql = StringFormat.format(INSTANCE_RECENT_WINDOW_QUERY, placeholders.toString());
+        Query query = getEntityManager().createNativeQuery(sql, PolicyInstanceBean.class);
+        int position = 1;
+        for (String policyId : policyIds) {
+            query.setParameter(position++, policyId);
+        }
+        query.setParameter(position, results);
+        return query.getResultList();
+    }
+
+    private List getInstanceRecentUnion(List<String> policyIds, int results) {
+        // The row limit is an int, so it is inlined rather than bound.
+        String limit = BeaconConfig.getInstance().getDbStore().getDBType() == DbStore.DBType.MYSQL
+                ? "LIMIT " + results + ")" : "FETCH FIRST " + results + " ROWS ONLY)";
+        StringBuilder sql = new StringBuilder("SELECT ").append(INSTANCE_RECENT_COLUMNS).append(" FROM (");
+        for (int i = 0; i < policyIds.size(); i++) {
+            sql.append(i == 0 ? "" : " UNION ALL ").append(INSTANCE_RECENT_POLICY_QUERY).append(limit);
+        }
+        // The order of the rows of a UNION ALL is not defined, whatever the order of its branches.
+        sql.append(") r ORDER BY policy_id, start_time DESC, id DESC");
+        Query query = getEntityManager().createNativeQuery(sql.toString(), PolicyInstanceBean.class);
+        int position = 1;
+        for (String policyId : policyIds) {
+            query.setParameter(position++, policyId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Latest end time per instance status of each of the given policies, with a constant number of queries.
+     * @param policyIds policy ids
+     * @return policy id to the report beans having status and end time set
+     */
+    public Map<String, List<PolicyInstanceBean>> getInstanceReport(Collection<String> policyIds) {
+        Map<String, List<PolicyInstanceBean>> reports = new HashMap<>();
+        for (List<String> batch : batches(policyIds)) {
+            Query query = getEntityManager().createNamedQuery(PolicyInstanceQuery.GET_INSTANCE_REPORT_BULK.name());
+            query.setParameter("policyIds", batch);
+            List<Object[]> resultList = query.getResultList();
+            for (Object[] objects : resultList) {
+                String policyId = (String) objects[0];
+                PolicyInstanceBean policyInstanceBean = new PolicyInstanceBean();
+                policyInstanceBean.setStatus((String) objects[1]);
+                policyInstanceBean.setEndTime((Date) objects[2]);
+                List<PolicyInstanceBean> beans = reports.get(policyId);
+                if (beans == null) {
+                    beans = new ArrayList<>();
+                    reports.put(policyId, beans);
+                }
+                beans.add(policyInstanceBean);
+            }
+        }
+        return reports;
+    }
+
+    // MySQL 5.x and derby don't support window functions.
+    private static boolean isWindowQuerySupported() {
+        return BeaconConfig.getInstance().getDbStore().getDBType() == DbStore.DBType.POSTGRESQL;
+    }
 }
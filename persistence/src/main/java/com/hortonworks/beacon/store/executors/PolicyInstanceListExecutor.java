@@ -25,6 +25,7 @@ package com.hortonworks.beacon.store.executors;
 import com.hortonworks.beacon.RequestContext;
 import com.hortonworks.beacon.constants.BeaconConstants;
 import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
 import com.hortonworks.beacon.util.DateUtil;
 import com.hortonworks.beacon.util.ReplicationHelper;
 import org.apache.commons.lang3.StringUtils;
@@ -33,7 +34,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,20 +54,23 @@ public class PolicyInstanceListExecutor extends BaseExecutor {
                         + "WHERE b.policyId = pb.id";
 
     enum Filters {
-        NAME("name", " = ", false),
-        STATUS("status", " = ", false),
-        TYPE("type", " = ", true),
-        START_TIME("startTime", " >= ", true),
-        END_TIME("endTime", " <= ", true);
+        NAME("name", " = ", false, false),
+        STATUS("status", " = ", false, true),
+        TYPE("type", " = ", true, false),
+        START_TIME("startTime", " >= ", true, true),
+        END_TIME("endTime", " <= ", true, false);
 
         private String filterType;
         private String operation;
         private boolean isParse;
+        // Cursor pagination needs a non null instance column, the null ordering differs between the databases.
+        private boolean keyset;
 
-        Filters(String fieldName, String operation, boolean isParse) {
+        Filters(String fieldName, String operation, boolean isParse, boolean keyset) {
             this.filterType = fieldName;
             this.operation = operation;
             this.isParse = isParse;
+            this.keyset = keyset;
         }
 
         public String getFilterType() {
@@ -89,13 +95,75 @@ public class PolicyInstanceListExecutor extends BaseExecutor {
         }
     }
 
-    public List<Object[]> getFilteredJobInstance(String filter, String orderBy, String sortOrder,
-                                       Integer offset, Integer limitBy, boolean isArchived) throws Exception {
+    public List<Object[]> getFilteredJobInstance(String filter, String orderBy, String sortOrder, Integer offset,
+                                                 Integer limitBy, boolean isArchived,
+                                                 PageCursor cursor) throws Exception {
         Map<String, String> filterMap = parseFilters(filter);
-        Query filterQuery = createFilterQuery(filterMap, orderBy, sortOrder, offset, limitBy, BASE_QUERY, isArchived);
+        Query filterQuery = createFilterQuery(filterMap, orderBy, sortOrder, offset, limitBy, BASE_QUERY, isArchived,
+                cursor);
         return (List<Object[]>) filterQuery.getResultList();
     }
 
+    /**
+     * Lists the instances, active and retired, after the cursor in the order of (startTime, instanceId), to export
+     * the instance history in batches.
+     */
+    public List<Object[]> getInstancesForExport(String policyName, Date startDate, Date endDate, PageCursor cursor,
+                                                int limit) {
+        StringBuilder queryBuilder = new StringBuilder(BASE_QUERY);
+        if (StringUtils.isNotBlank(policyName)) {
+            queryBuilder.append(AND).append("pb.name = :name");
+        }
+        if (startDate != null) {
+            queryBuilder.append(AND).append("b.startTime >= :startTime");
+        }
+        if (endDate != null) {
+            queryBuilder.append(AND).append("b.startTime <= :endTime");
+        }
+        String order = SortOrder.ASC.name();
+        if (cursor != null) {
+            queryBuilder.append(AND).append(getKeysetCondition("b.startTime", "b.instanceId", order));
+        }
+        queryBuilder.append(" ORDER BY b.startTime ").append(order).append(", b.instanceId ").append(order);
+
+        Query query = getEntityManager().createQuery(queryBuilder.toString());
+        if (StringUtils.isNotBlank(policyName)) {
+            query.setParameter("name", policyName);
+        }
+        if (startDate != null) {
+            query.setParameter("startTime", new Timestamp(startDate.getTime()));
+        }
+        if (endDate != null) {
+            query.setParameter("endTime", new Timestamp(endDate.getTime()));
+        }
+        if (cursor != null) {
+            setKeysetParameters(query, cursor);
+        }
+        query.setMaxResults(limit);
+        setForwardOnly(query, limit);
+        LOG.debug("Executing query: [{}]", queryBuilder.toString());
+        return (List<Object[]>) query.getResultList();
+    }
+
+    /**
+     * @return token to resume the listing after the given instance, null if the sort column doesn't allow it
+     */
+    public String getNextToken(PolicyInstanceBean last, String orderBy, long position) {
+        Filters orderByField = Filters.getFilter(orderBy);
+        Object value;
+        switch (orderByField) {
+            case STATUS:
+                value = last.getStatus();
+                break;
+            case START_TIME:
+                value = last.getStartTime();
+                break;
+            default:
+                return null;
+        }
+        return getNextToken(position, value, last.getInstanceId());
+    }
+
     private Map<String, String> parseFilters(String filters) {
         Map<String, String> filterMap = new HashMap<>();
         if (StringUtils.isNotBlank(filters)) {
@@ -117,7 +185,8 @@ public class PolicyInstanceListExecutor extends BaseExecutor {
     }
 
     private Query createFilterQuery(Map<String, String> filterMap, String orderBy, String sortOrder, Integer offset,
-                                    Integer limitBy, String baseQuery, boolean isArchived) throws BeaconException {
+                                    Integer limitBy, String baseQuery, boolean isArchived,
+                                    PageCursor cursor) throws BeaconException {
         List<String> paramNames = new ArrayList<>();
         List<Object> paramValues = new ArrayList<>();
         baseQuery = isArchived
@@ -141,16 +210,32 @@ public class PolicyInstanceListExecutor extends BaseExecutor {
             paramValues.add(getParsedValue(fieldFilter, filter.getValue()));
             index++;
         }
+        boolean keyset = false;
         if (!baseQuery.startsWith(COUNT_QUERY)){
+            Filters orderByField = Filters.getFilter(orderBy);
+            String order = SortOrder.getSortOrder(sortOrder);
+            if (cursor != null) {
+                if (!orderByField.keyset) {
+                    throw new IllegalArgumentException("Continuation token is not supported with orderBy: "
+                            + orderBy);
+                }
+                queryBuilder.append(AND).append(getKeysetCondition("b." + orderByField.getFilterType(),
+                        "b.instanceId", order));
+                keyset = true;
+            }
             queryBuilder.append(" ORDER BY ");
-            queryBuilder.append("b." + Filters.getFilter(orderBy).getFilterType());
-            queryBuilder.append(" ").append(SortOrder.getSortOrder(sortOrder));
+            queryBuilder.append("b." + orderByField.getFilterType());
+            queryBuilder.append(" ").append(order);
+            queryBuilder.append(", b.instanceId ").append(order);
         }
 
         EntityManager entityManager = RequestContext.get().getEntityManager();
         Query query = entityManager.createQuery(queryBuilder.toString());
-        query.setFirstResult(offset);
+        query.setFirstResult(keyset ? 0 : offset);
         query.setMaxResults(limitBy);
+        if (keyset) {
+            setKeysetParameters(query, cursor);
+        }
         for (int i = 0; i < paramNames.size(); i++) {
             query.setParameter(paramNames.get(i), paramValues.get(i));
         }
@@ -178,7 +263,7 @@ public class PolicyInstanceListExecutor extends BaseExecutor {
                                                Integer limitBy, boolean isArchived) throws BeaconException {
         Map<String, String> filterMap = parseFilters(filter);
         Query countQuery = createFilterQuery(filterMap, orderBy, sortOrder, 0,
-                limitBy, COUNT_QUERY, isArchived);
+                limitBy, COUNT_QUERY, isArchived, null);
         return (long) countQuery.getSingleResult();
     }
 }
@@ -33,7 +33,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -77,43 +79,88 @@ public class PolicyListExecutor extends BaseExecutor {
      * Order by these Fields is supported by REST API.
      */
     private enum PolicyOrderByField {
-        SOURCECLUSTER("sourceCluster"),
-        TARGETCLUSTER("targetCluster"),
-        NAME("name"),
-        TYPE("type"),
-        STATUS("status"),
-        ENDTIME("endTime"),
-        STARTTIME("startTime"),
-        CREATIONTIME("creationTime"),
-        FREQUENCY("frequencyInSec");
+        SOURCECLUSTER("sourceCluster", false),
+        TARGETCLUSTER("targetCluster", false),
+        NAME("name", true),
+        TYPE("type", true),
+        STATUS("status", true),
+        ENDTIME("endTime", false),
+        STARTTIME("startTime", true),
+        CREATIONTIME("creationTime", true),
+        FREQUENCY("frequencyInSec", true);
 
         private String orderType;
+        // Cursor pagination needs a non null sort column, the null ordering differs between the databases.
+        private boolean keyset;
 
-        PolicyOrderByField(String filterType) {
+        PolicyOrderByField(String filterType, boolean keyset) {
             this.orderType = filterType;
+            this.keyset = keyset;
+        }
+
+        private static PolicyOrderByField getOrderByField(String orderBy) {
+            return valueOf(orderBy.toUpperCase());
+        }
+
+        private Object getValue(PolicyBean bean) {
+            switch (this) {
+                case NAME:
+                    return bean.getName();
+                case TYPE:
+                    return bean.getType();
+                case STATUS:
+                    return bean.getStatus();
+                case STARTTIME:
+                    return toTimestamp(bean.getStartTime());
+                case CREATIONTIME:
+                    return toTimestamp(bean.getCreationTime());
+                case FREQUENCY:
+                    return bean.getFrequencyInSec();
+                default:
+                    return null;
+            }
         }
     }
 
-    public List<PolicyBean> getFilteredPolicy(String filterBy, String orderBy,
-                                              String sortOrder, Integer offset, Integer resultsPerPage)
-            throws BeaconException {
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
+    public List<PolicyBean> getFilteredPolicy(String filterBy, String orderBy, String sortOrder, Integer offset,
+                                              Integer resultsPerPage, PageCursor cursor) throws BeaconException {
         Map<String, List<String>> filterMap = parseFilterBy(filterBy);
         Query filterQuery = createFilterQuery(filterMap, orderBy, sortOrder, offset,
-                resultsPerPage, BASE_QUERY);
+                resultsPerPage, BASE_QUERY, cursor);
         List resultList = filterQuery.getResultList();
         List<PolicyBean> beanList = new ArrayList<>();
+        List<String> policyIds = new ArrayList<>();
         for (Object result : resultList) {
             PolicyBean policyBean = (PolicyBean) result;
-            PolicyPropertiesExecutor executor = new PolicyPropertiesExecutor(policyBean.getId());
-            List<PolicyPropertiesBean> policyProperties = executor.getPolicyProperties();
-            policyBean.setCustomProperties(policyProperties);
             beanList.add(policyBean);
+            policyIds.add(policyBean.getId());
+        }
+        // Properties of the whole page are loaded with a single query.
+        PolicyPropertiesExecutor executor = new PolicyPropertiesExecutor();
+        Map<String, List<PolicyPropertiesBean>> properties = executor.getPolicyProperties(policyIds);
+        for (PolicyBean policyBean : beanList) {
+            List<PolicyPropertiesBean> policyProperties = properties.get(policyBean.getId());
+            policyBean.setCustomProperties(policyProperties != null
+                    ? policyProperties : new ArrayList<PolicyPropertiesBean>());
         }
         return beanList;
     }
 
+    /**
+     * @return token to resume the listing after the given policy, null if the sort column doesn't allow it
+     */
+    public String getNextToken(PolicyBean last, String orderBy, long position) {
+        PolicyOrderByField orderByField = PolicyOrderByField.getOrderByField(orderBy);
+        return orderByField.keyset ? getNextToken(position, orderByField.getValue(last), last.getId()) : null;
+    }
+
     private Query createFilterQuery(Map<String, List<String>> filterMap, String orderBy, String sortOrder,
-                                    Integer offset, Integer limitBy, String baseQuery) throws BeaconException {
+                                    Integer offset, Integer limitBy, String baseQuery,
+                                    PageCursor cursor) throws BeaconException {
         List<String> paramNames = new ArrayList<>();
         List<Object> paramValues = new ArrayList<>();
         int index = 1;
@@ -139,14 +186,27 @@ public class PolicyListExecutor extends BaseExecutor {
             }
         }
         if (!baseQuery.equalsIgnoreCase(COUNT_QUERY)){
+            PolicyOrderByField orderByField = PolicyOrderByField.getOrderByField(orderBy);
+            String order = SortOrder.getSortOrder(sortOrder);
+            if (cursor != null) {
+                if (!orderByField.keyset) {
+                    throw new IllegalArgumentException("Continuation token is not supported with orderBy: "
+                            + orderBy);
+                }
+                queryBuilder.append(AND).append(getKeysetCondition("b." + orderByField.orderType, "b.id", order));
+            }
             queryBuilder.append(" ORDER BY ");
-            queryBuilder.append("b." + PolicyOrderByField.valueOf(orderBy.toUpperCase()).orderType);
-            queryBuilder.append(" ").append(SortOrder.getSortOrder(sortOrder));
+            queryBuilder.append("b." + orderByField.orderType);
+            queryBuilder.append(" ").append(order);
+            queryBuilder.append(", b.id ").append(order);
         }
         EntityManager entityManager = RequestContext.get().getEntityManager();
         Query query = entityManager.createQuery(queryBuilder.toString());
-        query.setFirstResult(offset);
+        query.setFirstResult(cursor != null ? 0 : offset);
         query.setMaxResults(limitBy);
+        if (cursor != null && !baseQuery.equalsIgnoreCase(COUNT_QUERY)) {
+            setKeysetParameters(query, cursor);
+        }
         for (int i = 0; i < paramNames.size(); i++) {
             query.setParameter(paramNames.get(i), paramValues.get(i));
         }
@@ -157,7 +217,8 @@ public class PolicyListExecutor extends BaseExecutor {
     public long getFilteredPolicyCount(String filterBy, String orderBy, String sortOrder, Integer resultsPerPage)
             throws BeaconException {
         Map<String, List<String>> filterMap = parseFilterBy(filterBy);
-        Query filterQuery = createFilterQuery(filterMap, orderBy, sortOrder, 0, resultsPerPage, COUNT_QUERY);
+        Query filterQuery = createFilterQuery(filterMap, orderBy, sortOrder, 0, resultsPerPage, COUNT_QUERY,
+                null);
         return (long) filterQuery.getSingleResult();
     }
 }
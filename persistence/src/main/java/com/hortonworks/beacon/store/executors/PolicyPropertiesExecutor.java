@@ -30,7 +30,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Beacon store executor for policy properties.
@@ -38,6 +42,7 @@ import java.util.List;
 public class PolicyPropertiesExecutor extends BaseExecutor {
 
     private static final Logger LOG = LoggerFactory.getLogger(PolicyPropertiesBean.class);
+    private static final String[] ARCHIVE_COLUMNS = {"ID", "POLICY_ID", "CREATED_TIME", "NAME", "VALUE", "TYPE"};
     private String policyId;
 
     public PolicyPropertiesExecutor(String policyId) {
@@ -52,6 +57,7 @@ public class PolicyPropertiesExecutor extends BaseExecutor {
      */
     public enum PolicyPropertiesQuery {
         GET_POLICY_PROP,
+        GET_POLICY_PROP_BULK,
         UPDATE_POLICY_PROP
     }
 
@@ -68,12 +74,43 @@ public class PolicyPropertiesExecutor extends BaseExecutor {
         return beans;
     }
 
-    public void deleteRetiredPolicyProps(String... policyIds) {
+    /**
+     * Properties of all the given policies, with one query per {@link #BULK_QUERY_BATCH_SIZE} policies.
+     * @param policyIds policy ids
+     * @return policy id to its properties, policies without properties are not present
+     */
+    Map<String, List<PolicyPropertiesBean>> getPolicyProperties(Collection<String> policyIds) {
+        Map<String, List<PolicyPropertiesBean>> properties = new HashMap<>();
+        for (List<String> batch : batches(policyIds)) {
+            Query query = getEntityManager().createNamedQuery(PolicyPropertiesQuery.GET_POLICY_PROP_BULK.name());
+            query.setParameter("policyIds", batch);
+            List resultList = query.getResultList();
+            for (Object result : resultList) {
+                PolicyPropertiesBean bean = (PolicyPropertiesBean) result;
+                List<PolicyPropertiesBean> beans = properties.get(bean.getPolicyId());
+                if (beans == null) {
+                    beans = new ArrayList<>();
+                    properties.put(bean.getPolicyId(), beans);
+                }
+                beans.add(bean);
+            }
+        }
+        return properties;
+    }
+
+    public int deleteRetiredPolicyProps(String... policyIds) {
         String query = "delete from PolicyPropertiesBean pp where "
                 + "pp.policyId IN ( :policyIds )";
         Query nativeQuery = getEntityManager().createQuery(query);
         nativeQuery.setParameter("policyIds", policyIds);
         int executeUpdate = nativeQuery.executeUpdate();
         LOG.debug("Records deleted for PolicyPropertiesBean, count [{}]", executeUpdate);
+        return executeUpdate;
+    }
+
+    public int archiveRetiredPolicyProps(String... policyIds) {
+        int archived = archiveRows("BEACON_POLICY_PROP", "POLICY_ID", Arrays.asList(policyIds), ARCHIVE_COLUMNS);
+        LOG.debug("Records archived for PolicyPropertiesBean, count [{}]", archived);
+        return archived;
     }
 }
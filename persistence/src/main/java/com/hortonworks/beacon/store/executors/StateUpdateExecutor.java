@@ -0,0 +1,111 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.store.executors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.Query;
+import java.util.Map;
+
+/**
+ * Beacon store executor for coalesced column updates on the scheduler state tables.
+ * Unlike the named update queries, the set of updated columns is decided at runtime, so that several
+ * logical updates of the same row can be written with a single statement.
+ */
+public class StateUpdateExecutor extends BaseExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateUpdateExecutor.class);
+    private static final String KEY_PARAM_PREFIX = "key_";
+
+    /**
+     * Scheduler state tables supported for coalesced updates.
+     */
+    public enum StateTable {
+        POLICY("PolicyBean"),
+        POLICY_INSTANCE("PolicyInstanceBean"),
+        INSTANCE_JOB("InstanceJobBean");
+
+        private final String entityName;
+
+        StateTable(String entityName) {
+            this.entityName = entityName;
+        }
+
+        public String getEntityName() {
+            return entityName;
+        }
+    }
+
+    private final StateTable table;
+
+    public StateUpdateExecutor(StateTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Update the given fields of the rows matching the keys.
+     * @param fields bean field name to value to be set
+     * @param keys bean field name to value used for the row selection
+     * @param condition additional JPQL condition on the bean alias 'b', can be null
+     * @return number of rows updated
+     */
+    public int executeUpdate(Map<String, Object> fields, Map<String, Object> keys, String condition) {
+        if (fields.isEmpty()) {
+            return 0;
+        }
+        StringBuilder jpql = new StringBuilder("update ").append(table.getEntityName()).append(" b set ");
+        boolean first = true;
+        for (String field : fields.keySet()) {
+            if (!first) {
+                jpql.append(", ");
+            }
+            jpql.append("b.").append(field).append(EQUAL).append(':').append(field);
+            first = false;
+        }
+        jpql.append(" where ");
+        first = true;
+        for (String key : keys.keySet()) {
+            if (!first) {
+                jpql.append(AND);
+            }
+            jpql.append("b.").append(key).append(EQUAL).append(':').append(KEY_PARAM_PREFIX).append(key);
+            first = false;
+        }
+        if (StringUtils.isNotBlank(condition)) {
+            jpql.append(AND).append(condition);
+        }
+
+        Query query = getEntityManager().createQuery(jpql.toString());
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Object> entry : keys.entrySet()) {
+            query.setParameter(KEY_PARAM_PREFIX + entry.getKey(), entry.getValue());
+        }
+        int update = query.executeUpdate();
+        LOG.debug("Records updated for {} table query [{}], count [{}]", table.getEntityName(), jpql, update);
+        return update;
+    }
+}
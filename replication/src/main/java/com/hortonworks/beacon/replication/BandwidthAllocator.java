@@ -0,0 +1,346 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.replication;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Engine;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shares the bandwidth budget of a link, the pair of source and target clusters, between the replication jobs
+ * running on it. Each job gets a share of the budget proportional to its weight times its priority factor; a job
+ * capped by its own per map bandwidth gets no more than it can use, and what it leaves is divided among the others.
+ * The share of a job is split evenly among its maps, and written to the bandwidth file the maps of the job re-read
+ * while they copy, so the shares of the running jobs change as jobs start and finish.
+ */
+public final class BandwidthAllocator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BandwidthAllocator.class);
+
+    // Stands for the cloud end of a link, which has no cluster name.
+    public static final String CLOUD_ENDPOINT = "cloud";
+    private static final String BANDWIDTH_DIR = ".beacon/bandwidth";
+
+    private static BandwidthAllocator instance;
+
+    private final int defaultBudget;
+    private final Map<String, Integer> budgets;
+    private final Path bandwidthDir;
+    private final Map<String, List<Allocation>> links = new HashMap<>();
+
+    /**
+     * Priority of a replication when sharing the link bandwidth.
+     */
+    public enum Priority {
+        LOW(1),
+        NORMAL(2),
+        HIGH(4);
+
+        private final int factor;
+
+        Priority(int factor) {
+            this.factor = factor;
+        }
+
+        public int getFactor() {
+            return factor;
+        }
+
+        public static Priority parse(String priority) {
+            return StringUtils.isBlank(priority) ? NORMAL : valueOf(priority.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * The share of the link bandwidth held by a running job.
+     */
+    public static final class Allocation {
+        private final String link;
+        private final double weight;
+        private final int mapBandwidthCap;
+        private final FileSystem fs;
+        private final Path file;
+        private int maps;
+        private int mapBandwidth;
+        private boolean released;
+
+        private Allocation(String link, double weight, int mapBandwidthCap, int maps, FileSystem fs, Path file) {
+            this.link = link;
+            this.weight = weight;
+            this.mapBandwidthCap = mapBandwidthCap;
+            this.maps = maps;
+            this.fs = fs;
+            this.file = file;
+        }
+
+        /**
+         * @return the current bandwidth of each map of the job in MB/s
+         */
+        public synchronized int getMapBandwidth() {
+            return mapBandwidth;
+        }
+
+        /**
+         * @return the file the maps of the job read their bandwidth from
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        private double getDemand() {
+            return mapBandwidthCap > 0 ? (double) mapBandwidthCap * maps : Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param bandwidthDir directory of the bandwidth files, the home directory of the job file system when null
+     */
+    @VisibleForTesting
+    BandwidthAllocator(int defaultBudget, Map<String, Integer> budgets, Path bandwidthDir) {
+        this.defaultBudget = defaultBudget;
+        this.budgets = budgets;
+        this.bandwidthDir = bandwidthDir;
+    }
+
+    public static synchronized BandwidthAllocator get() {
+        if (instance == null) {
+            Engine engine = BeaconConfig.getInstance().getEngine();
+            instance = new BandwidthAllocator(engine.getDefaultLinkBandwidth(),
+                    parseBudgets(engine.getLinkBandwidthBudgets()), null);
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    static Map<String, Integer> parseBudgets(String budgets) {
+        Map<String, Integer> parsed = new HashMap<>();
+        if (StringUtils.isBlank(budgets)) {
+            return parsed;
+        }
+        for (String budget : budgets.split(",")) {
+            String[] linkAndBudget = budget.split("=");
+            if (linkAndBudget.length != 2) {
+                throw new IllegalArgumentException("Invalid link bandwidth budget: " + budget);
+            }
+            parsed.put(linkAndBudget[0].trim(), Integer.parseInt(linkAndBudget[1].trim()));
+        }
+        return parsed;
+    }
+
+    private static String getLink(String sourceCluster, String targetCluster) {
+        return (StringUtils.isBlank(sourceCluster) ? CLOUD_ENDPOINT : sourceCluster) + ":"
+                + (StringUtils.isBlank(targetCluster) ? CLOUD_ENDPOINT : targetCluster);
+    }
+
+    private int getBudget(String link) {
+        Integer budget = budgets.get(link);
+        return budget != null ? budget : defaultBudget;
+    }
+
+    /**
+     * Adds a job to the jobs sharing its link, and writes its bandwidth file in the home directory of the job
+     * file system.
+     *
+     * @param maps expected number of maps of the job
+     * @param mapBandwidthCap the per map bandwidth the job is limited to in MB/s, 0 or less when not limited
+     * @return the allocation of the job, null when the bandwidth of the link isn't managed
+     */
+    public Allocation register(String sourceCluster, String targetCluster, Priority priority, double weight,
+                               int maps, int mapBandwidthCap, Configuration jobConf) throws IOException {
+        String link = getLink(sourceCluster, targetCluster);
+        if (getBudget(link) <= 0) {
+            return null;
+        }
+        FileSystem fs = FileSystem.get(jobConf);
+        Path dir = bandwidthDir != null ? bandwidthDir : new Path(fs.getHomeDirectory(), BANDWIDTH_DIR);
+        Path file = fs.makeQualified(new Path(dir, UUID.randomUUID().toString()));
+        double effectiveWeight = (weight > 0 ? weight : 1) * priority.getFactor();
+        Allocation allocation = new Allocation(link, effectiveWeight, mapBandwidthCap, Math.max(maps, 1), fs, file);
+        synchronized (this) {
+            List<Allocation> allocations = links.get(link);
+            if (allocations == null) {
+                allocations = new ArrayList<>();
+                links.put(link, allocations);
+            }
+            allocations.add(allocation);
+        }
+        // The new allocation always changes, so this also writes its file before the job is submitted.
+        rebalance(link);
+        return allocation;
+    }
+
+    /**
+     * Re-divides the link once the actual number of maps of a submitted job is known.
+     */
+    public void updateMaps(Allocation allocation, int maps) {
+        if (allocation == null || maps <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (allocation.maps == maps) {
+                return;
+            }
+            allocation.maps = maps;
+        }
+        rebalance(allocation.link);
+    }
+
+    /**
+     * Removes a finished job from its link, giving its share to the other jobs.
+     */
+    public void release(Allocation allocation) {
+        if (allocation == null) {
+            return;
+        }
+        synchronized (this) {
+            List<Allocation> allocations = links.get(allocation.link);
+            if (allocations == null || !allocations.remove(allocation)) {
+                return;
+            }
+            if (allocations.isEmpty()) {
+                links.remove(allocation.link);
+            }
+        }
+        synchronized (allocation) {
+            allocation.released = true;
+            try {
+                allocation.fs.delete(allocation.file, false);
+            } catch (IOException e) {
+                LOG.warn("Unable to delete the bandwidth file {}", allocation.file, e);
+            }
+        }
+        rebalance(allocation.link);
+    }
+
+    @VisibleForTesting
+    synchronized int getAllocationCount(String sourceCluster, String targetCluster) {
+        List<Allocation> allocations = links.get(getLink(sourceCluster, targetCluster));
+        return allocations != null ? allocations.size() : 0;
+    }
+
+    private void rebalance(String link) {
+        List<Allocation> changed = new ArrayList<>();
+        synchronized (this) {
+            List<Allocation> allocations = links.get(link);
+            if (allocations == null) {
+                return;
+            }
+            double[] weights = new double[allocations.size()];
+            double[] demands = new double[allocations.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = allocations.get(i).weight;
+                demands[i] = allocations.get(i).getDemand();
+            }
+            double[] shares = divide(getBudget(link), weights, demands);
+            for (int i = 0; i < shares.length; i++) {
+                Allocation allocation = allocations.get(i);
+                int mapBandwidth = Math.max(1, (int) (shares[i] / allocation.maps));
+                synchronized (allocation) {
+                    if (allocation.mapBandwidth != mapBandwidth) {
+                        allocation.mapBandwidth = mapBandwidth;
+                        changed.add(allocation);
+                    }
+                }
+            }
+        }
+        for (Allocation allocation : changed) {
+            write(allocation);
+        }
+    }
+
+    private static void write(Allocation allocation) {
+        synchronized (allocation) {
+            if (allocation.released) {
+                return;
+            }
+            int mapBandwidth = allocation.mapBandwidth;
+            try (FSDataOutputStream out = allocation.fs.create(allocation.file, true)) {
+                out.write(String.valueOf(mapBandwidth).getBytes(StandardCharsets.UTF_8));
+                LOG.debug("Allocated {} MB/s per map on link {} in {}", mapBandwidth, allocation.link,
+                        allocation.file);
+            } catch (IOException e) {
+                LOG.warn("Unable to write the bandwidth file {}", allocation.file, e);
+            }
+        }
+    }
+
+    /**
+     * Divides a budget in proportion to the weights, giving no one more than its demand and sharing what the
+     * capped ones leave among the others.
+     */
+    @VisibleForTesting
+    static double[] divide(double budget, double[] weights, double[] demands) {
+        double[] shares = new double[weights.length];
+        boolean[] capped = new boolean[weights.length];
+        double remaining = budget;
+        boolean cappedAny = true;
+        while (cappedAny) {
+            cappedAny = false;
+            double totalWeight = 0;
+            for (int i = 0; i < weights.length; i++) {
+                if (!capped[i]) {
+                    totalWeight += weights[i];
+                }
+            }
+            if (totalWeight <= 0) {
+                break;
+            }
+            for (int i = 0; i < weights.length; i++) {
+                if (!capped[i] && demands[i] <= remaining * weights[i] / totalWeight) {
+                    shares[i] = demands[i];
+                    capped[i] = true;
+                    cappedAny = true;
+                }
+            }
+            if (cappedAny) {
+                remaining = budget;
+                for (int i = 0; i < weights.length; i++) {
+                    if (capped[i]) {
+                        remaining -= shares[i];
+                    }
+                }
+            } else {
+                for (int i = 0; i < weights.length; i++) {
+                    if (!capped[i]) {
+                        shares[i] = remaining * weights[i] / totalWeight;
+                    }
+                }
+            }
+        }
+        return shares;
+    }
+}
@@ -85,6 +85,13 @@ public abstract class InstanceReplication implements BeaconJob {
     protected FileSystem sourceFs;
     protected FileSystem targetFs;
 
+    private HiveReplicationMetrics hiveReplicationMetrics;
+    private Statement hiveMetricsStatement;
+    private FSReplicationMetrics fsReplicationMetrics;
+    private Job fsMetricsJob;
+    private Progress storedHiveProgress;
+    private long hiveProgressStoreTime;
+
     public InstanceReplication(ReplicationJobDetails details) {
         this.details = details;
         this.properties = details.getProperties();
@@ -197,12 +204,21 @@ public abstract class InstanceReplication implements BeaconJob {
         return replicationMetrics.toJsonString();
     }
 
-    protected void captureFSReplicationMetrics(Job job, ReplicationMetrics.JobType jobType,
-                                               JobContext jobContext,
-                                               boolean isJobComplete) {
+    protected synchronized void captureFSReplicationMetrics(Job job, ReplicationMetrics.JobType jobType,
+                                                            JobContext jobContext,
+                                                            boolean isJobComplete) {
         try {
-            FSReplicationMetrics fsReplicationMetrics = new FSReplicationMetrics();
-            fsReplicationMetrics.obtainJobMetrics(job, isJobComplete);
+            // The metrics of a job are captured incrementally by the same metrics instance.
+            if (fsReplicationMetrics == null || fsMetricsJob != job) {
+                fsReplicationMetrics = new FSReplicationMetrics();
+                fsMetricsJob = job;
+            }
+            // A status cached while the job was running would give the completed job no finish time.
+            org.apache.hadoop.mapreduce.JobStatus status = null;
+            if (job != null) {
+                status = isJobComplete ? JobClients.get().refreshStatus(job) : JobClients.get().getStatus(job);
+            }
+            fsReplicationMetrics.obtainJobMetrics(job, status, isJobComplete);
             Progress progress = fsReplicationMetrics.getProgress();
             LOG.info("FS Job Progress: {}", progress);
             String replicationMetricsJsonString = getTrackingInfoAsJsonString(getJob(job),
@@ -213,11 +229,10 @@ public abstract class InstanceReplication implements BeaconJob {
         }
     }
 
-    protected void getFSReplicationProgress(ScheduledThreadPoolExecutor timer, final JobContext jobContext,
-                                            final Job job, final ReplicationMetrics.JobType jobType,
-                                            int replicationMetricsInterval) {
-        timer.scheduleAtFixedRate(new Runnable() {
-            public void run() {
+    protected JobMonitor.ProgressListener getFSReplicationProgressListener(final JobContext jobContext,
+                                                                         final ReplicationMetrics.JobType jobType) {
+        return new JobMonitor.ProgressListener() {
+            public void onProgress(Job job) {
                 try {
                     RequestContext.setInitialValue();
                     BeaconLogUtils.prefixId(jobContext.getJobInstanceId());
@@ -226,17 +241,22 @@ public abstract class InstanceReplication implements BeaconJob {
                     RequestContext.get().clear();
                 }
             }
-        }, 0, replicationMetricsInterval, TimeUnit.SECONDS);
+        };
     }
 
-    protected void captureHiveReplicationMetrics(JobContext jobContext, HiveActionType actionType,
-                                                 Statement statement) {
+    protected synchronized void captureHiveReplicationMetrics(JobContext jobContext, HiveActionType actionType,
+                                                              Statement statement) {
         try {
             HiveStatement hiveStatement = (HiveStatement) statement;
             if (hiveStatement == null || hiveStatement.isClosed()) {
                 return;
             }
-            final HiveReplicationMetrics hiveReplicationMetrics = new HiveReplicationMetrics();
+            // The query log of a statement is returned in batches, which are parsed by the same metrics instance.
+            if (hiveReplicationMetrics == null || hiveMetricsStatement != statement) {
+                hiveReplicationMetrics = new HiveReplicationMetrics();
+                hiveMetricsStatement = statement;
+                storedHiveProgress = null;
+            }
             List<String> queryLog = hiveStatement.getQueryLog();
             boolean bootstrap = false;
             if (Boolean.valueOf(jobContext.getJobContextMap().get(BeaconConstants.DATASET_BOOTSTRAP))) {
@@ -247,17 +267,35 @@ public abstract class InstanceReplication implements BeaconJob {
             if (queryLog.size() != 0 || complete) {
                 hiveReplicationMetrics.obtainJobMetrics(jobContext, queryLog, actionType);
                 Progress progress = hiveReplicationMetrics.getJobProgress();
+                if (!complete && !isHiveProgressToStore(progress)) {
+                    return;
+                }
                 String queryId = jobContext.getQueryId();
                 String replicationMetricsJsonString = getTrackingInfoAsJsonString(queryId, progress,
                         ReplicationMetrics.JobType.MAIN, (bootstrap ? ProgressUnit.TABLE : ProgressUnit.EVENTS));
                 LOG.info("Hive Job Progress: {}", progress);
                 ReplicationUtils.storeTrackingInfo(jobContext, replicationMetricsJsonString);
+                storedHiveProgress = progress.copy();
+                hiveProgressStoreTime = System.currentTimeMillis();
             }
         } catch (Exception e) {
             LOG.error("Exception occurred while populating metrics periodically", e);
         }
     }
 
+    private boolean isHiveProgressToStore(Progress progress) {
+        if (progress.isSameProgress(storedHiveProgress)) {
+            LOG.debug("Hive Job Progress unchanged: {}", progress);
+            return false;
+        }
+        long minInterval = TimeUnit.SECONDS.toMillis(ReplicationUtils.getTrackingInfoMinInterval());
+        if (System.currentTimeMillis() - hiveProgressStoreTime < minInterval) {
+            LOG.debug("Hive Job Progress stored less than {} ms ago: {}", minInterval, progress);
+            return false;
+        }
+        return true;
+    }
+
     protected void getHiveReplicationProgress(ScheduledThreadPoolExecutor timer, final JobContext jobContext,
                                               final HiveActionType hiveActionType,
                                               int replicationMetricsInterval,
@@ -0,0 +1,233 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Engine;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The MR client handles shared by all the replications, one per cluster, and a bounded cache of the latest job
+ * statuses. A {@link JobClient} holds the connections to the resource manager and the job history server, so
+ * creating one for every job lookup opens new connections each time.
+ *
+ * The job statuses fetched by the {@link JobMonitor} are cached for a short time, so that the replication metrics
+ * captured for a job right after it is polled don't fetch its status again.
+ *
+ * A client dropped after a failed call may still be in use by other replications, so it is closed after a grace
+ * period rather than right away.
+ */
+public final class JobClients {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobClients.class);
+
+    private static final int DEF_STATUS_CACHE_SIZE = 1000;
+    private static final int DEF_STATUS_CACHE_TTL_MILLIS = 5000;
+    private static final long CLIENT_CLOSE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final String RM_HA_ENABLED = "yarn.resourcemanager.ha.enabled";
+    private static final String RM_CLUSTER_ID = "yarn.resourcemanager.cluster-id";
+    private static final String RM_ADDRESS = "yarn.resourcemanager.address";
+    private static final String FRAMEWORK_NAME = "mapreduce.framework.name";
+
+    private static JobClients instance;
+
+    private final ConcurrentMap<String, JobClient> clients = new ConcurrentHashMap<>();
+    private final Map<JobID, CachedStatus> statuses;
+    private final long statusTtlMillis;
+    private final long closeDelayMillis;
+    private final ScheduledExecutorService closer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("JobClientCloser-%d").setDaemon(true).build());
+    private final AtomicLong statusHits = new AtomicLong();
+    private final AtomicLong statusMisses = new AtomicLong();
+
+    @VisibleForTesting
+    JobClients(final int statusCacheSize, long statusTtlMillis, long closeDelayMillis) {
+        this.statusTtlMillis = statusTtlMillis;
+        this.closeDelayMillis = closeDelayMillis;
+        statuses = new LinkedHashMap<JobID, CachedStatus>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<JobID, CachedStatus> eldest) {
+                return size() > statusCacheSize;
+            }
+        };
+    }
+
+    public static synchronized JobClients get() {
+        if (instance == null) {
+            Engine engine = BeaconConfig.getInstance().getEngine();
+            int size = engine.getJobStatusCacheSize() > 0 ? engine.getJobStatusCacheSize() : DEF_STATUS_CACHE_SIZE;
+            int ttl = engine.getJobStatusCacheTtl() > 0 ? engine.getJobStatusCacheTtl() : DEF_STATUS_CACHE_TTL_MILLIS;
+            instance = new JobClients(size, ttl, CLIENT_CLOSE_DELAY_MILLIS);
+        }
+        return instance;
+    }
+
+    public long getStatusHits() {
+        return statusHits.get();
+    }
+
+    public long getStatusMisses() {
+        return statusMisses.get();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Returns the shared client of the cluster the configuration points to, creating it as the login user on the
+     * first use.
+     */
+    public JobClient getJobClient(final Configuration conf) throws BeaconException {
+        String key = getClusterKey(conf);
+        JobClient client = clients.get(key);
+        if (client != null) {
+            return client;
+        }
+        synchronized (clients) {
+            client = clients.get(key);
+            if (client == null) {
+                try {
+                    client = UserGroupInformation.getLoginUser().doAs(new PrivilegedExceptionAction<JobClient>() {
+                        public JobClient run() throws Exception {
+                            return new JobClient(new JobConf(conf));
+                        }
+                    });
+                } catch (InterruptedException | IOException e) {
+                    throw new BeaconException("Exception creating job client: ", e);
+                }
+                LOG.info("Created the job client for cluster [{}]", key);
+                clients.put(key, client);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Drops the client of the cluster after a failed call, the next use creates a new one. The dropped client is
+     * closed once the calls other replications may have in flight on it are done.
+     */
+    public void invalidate(Configuration conf) {
+        String key = getClusterKey(conf);
+        JobClient client = clients.remove(key);
+        if (client != null) {
+            closeLater(key, client);
+        }
+    }
+
+    @VisibleForTesting
+    void closeLater(final String key, final JobClient client) {
+        LOG.info("Closing the job client for cluster [{}] in [{}] ms", key, closeDelayMillis);
+        closer.schedule(new Runnable() {
+            public void run() {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    LOG.warn("Unable to close the job client for cluster [{}]", key, e);
+                }
+            }
+        }, closeDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the status of the job, from the cache if it was fetched within the cache time to live.
+     */
+    public JobStatus getStatus(Job job) throws IOException, InterruptedException {
+        JobID jobId = job.getJobID();
+        if (jobId != null) {
+            synchronized (statuses) {
+                CachedStatus cached = statuses.get(jobId);
+                if (cached != null && System.currentTimeMillis() - cached.fetchedMillis <= statusTtlMillis) {
+                    statusHits.incrementAndGet();
+                    return cached.status;
+                }
+            }
+        }
+        return refreshStatus(job);
+    }
+
+    /**
+     * Returns the status of the job fetched from the job, bypassing the cache. Used once the job is complete, as a
+     * status cached while it was running has no finish time.
+     */
+    public JobStatus refreshStatus(Job job) throws IOException, InterruptedException {
+        statusMisses.incrementAndGet();
+        JobStatus status = job.getStatus();
+        putStatus(status);
+        return status;
+    }
+
+    /**
+     * Caches a status just fetched for a job.
+     */
+    public void putStatus(JobStatus status) {
+        if (status != null && status.getJobID() != null) {
+            synchronized (statuses) {
+                statuses.remove(status.getJobID());
+                statuses.put(status.getJobID(), new CachedStatus(status, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * Clients are shared by the resource manager they talk to, the HA cluster id when resource manager HA is on.
+     */
+    private static String getClusterKey(Configuration conf) {
+        String framework = conf.get(FRAMEWORK_NAME, "local");
+        String rm = conf.getBoolean(RM_HA_ENABLED, false) ? conf.get(RM_CLUSTER_ID) : conf.get(RM_ADDRESS);
+        return StringUtils.isBlank(rm) ? framework : framework + "/" + rm;
+    }
+
+    private static final class CachedStatus {
+        private final JobStatus status;
+        private final long fetchedMillis;
+
+        private CachedStatus(JobStatus status, long fetchedMillis) {
+            this.status = status;
+            this.fetchedMillis = fetchedMillis;
+        }
+    }
+}
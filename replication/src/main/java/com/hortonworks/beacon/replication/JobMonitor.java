@@ -0,0 +1,259 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Engine;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the in-flight MR jobs of all the replications, instead of each replication polling its own job.
+ * A single dispatcher thread finds the jobs due for a status check every cycle, and a small pool of threads checks
+ * them and runs the progress listeners. Each job is polled with adaptive backoff: the interval starts at the minimum
+ * poll interval, doubles up to the maximum while the job makes no progress, and drops back to the minimum when it
+ * does. Jobs are polled one by one, listing the jobs of the cluster would cost more than the polls it saves, as it
+ * lists the completed jobs too. The completion of a job is delivered through the future returned by
+ * {@link #watch}.
+ */
+public final class JobMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobMonitor.class);
+
+    private static final int DEF_THREADS = 4;
+    private static final int DEF_MIN_POLL_INTERVAL_MILLIS = 1000;
+    private static final int DEF_MAX_POLL_INTERVAL_MILLIS = 30000;
+
+    private static JobMonitor instance;
+
+    private final long minPollIntervalMillis;
+    private final long maxPollIntervalMillis;
+    private final Queue<WatchedJob> watched = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService pollers;
+    private boolean dispatcherStarted;
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Called with the job at most once per progress interval while it runs.
+     */
+    public interface ProgressListener {
+        void onProgress(Job job);
+    }
+
+    @VisibleForTesting
+    JobMonitor(int threads, long minPollIntervalMillis, long maxPollIntervalMillis) {
+        this.minPollIntervalMillis = minPollIntervalMillis;
+        this.maxPollIntervalMillis = Math.max(minPollIntervalMillis, maxPollIntervalMillis);
+        dispatcher = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("job-monitor"));
+        pollers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("job-monitor-poller"));
+    }
+
+    public static synchronized JobMonitor get() {
+        if (instance == null) {
+            Engine engine = BeaconConfig.getInstance().getEngine();
+            int threads = engine.getJobMonitorThreads() > 0 ? engine.getJobMonitorThreads() : DEF_THREADS;
+            int minInterval = engine.getJobMonitorMinPollInterval() > 0
+                    ? engine.getJobMonitorMinPollInterval() : DEF_MIN_POLL_INTERVAL_MILLIS;
+            int maxInterval = engine.getJobMonitorMaxPollInterval() > 0
+                    ? engine.getJobMonitorMaxPollInterval() : DEF_MAX_POLL_INTERVAL_MILLIS;
+            instance = new JobMonitor(threads, minInterval, maxInterval);
+        }
+        return instance;
+    }
+
+    /**
+     * Starts tracking a submitted job.
+     *
+     * @param listener notified of the progress of the job, can be null
+     * @param progressIntervalMillis minimum interval between two progress notifications
+     * @return future completed with whether the job succeeded, or failed with the error from checking the job
+     *         status. Cancelling it stops the tracking.
+     */
+    public ListenableFuture<Boolean> watch(Job job, ProgressListener listener, long progressIntervalMillis) {
+        startDispatcher();
+        WatchedJob watchedJob = new WatchedJob(job, listener, progressIntervalMillis, minPollIntervalMillis);
+        watched.add(watchedJob);
+        return watchedJob.completion;
+    }
+
+    private synchronized void startDispatcher() {
+        if (!dispatcherStarted) {
+            long tick = Math.max(10, minPollIntervalMillis / 2);
+            dispatcher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            }, tick, tick, TimeUnit.MILLISECONDS);
+            dispatcherStarted = true;
+        }
+    }
+
+    public int getWatchedCount() {
+        return watched.size();
+    }
+
+    public long getPolls() {
+        return polls.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        pollers.shutdownNow();
+    }
+
+    private void dispatch() {
+        try {
+            long now = System.currentTimeMillis();
+            List<WatchedJob> due = new ArrayList<>();
+            for (WatchedJob watchedJob : watched) {
+                if (watchedJob.completion.isDone()) {
+                    watched.remove(watchedJob);
+                } else if (!watchedJob.polling && watchedJob.nextPollMillis <= now) {
+                    watchedJob.polling = true;
+                    due.add(watchedJob);
+                }
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            for (final WatchedJob watchedJob : due) {
+                pollers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        poll(watchedJob);
+                    }
+                });
+            }
+        } catch (Throwable t) {
+            LOG.error("Error while dispatching the job status checks", t);
+        }
+    }
+
+    private void poll(WatchedJob watchedJob) {
+        Job job = watchedJob.job;
+        try {
+            // Also refreshes the status held by the job, which its callers read once it completes.
+            JobStatus status = job.getStatus();
+            polls.incrementAndGet();
+            JobClients.get().putStatus(status);
+            long now = System.currentTimeMillis();
+            if (status.isJobComplete()) {
+                watched.remove(watchedJob);
+                completed.incrementAndGet();
+                watchedJob.completion.set(status.getState() == JobStatus.State.SUCCEEDED);
+                return;
+            }
+
+            float progress = status.getMapProgress() + status.getReduceProgress();
+            if (progress != watchedJob.lastProgress) {
+                watchedJob.lastProgress = progress;
+                watchedJob.pollIntervalMillis = minPollIntervalMillis;
+            } else {
+                watchedJob.pollIntervalMillis = Math.min(watchedJob.pollIntervalMillis * 2, maxPollIntervalMillis);
+            }
+            watchedJob.nextPollMillis = now + watchedJob.pollIntervalMillis;
+
+            if (watchedJob.listener != null
+                    && now - watchedJob.lastProgressMillis >= watchedJob.progressIntervalMillis) {
+                watchedJob.lastProgressMillis = now;
+                watchedJob.listener.onProgress(job);
+            }
+        } catch (Throwable t) {
+            LOG.error("Unable to get the status of job {}", job.getJobID(), t);
+            watched.remove(watchedJob);
+            watchedJob.completion.setException(t);
+        } finally {
+            watchedJob.polling = false;
+        }
+    }
+
+    /**
+     * A job being tracked. The poll fields are only updated by the poller which has it marked as polling.
+     */
+    private static final class WatchedJob {
+        private final Job job;
+        private final ProgressListener listener;
+        private final long progressIntervalMillis;
+        private final SettableFuture<Boolean> completion = SettableFuture.create();
+        private volatile boolean polling;
+        private volatile long nextPollMillis;
+        private volatile long pollIntervalMillis;
+        private volatile long lastProgressMillis;
+        private volatile float lastProgress = -1;
+
+        private WatchedJob(Job job, ProgressListener listener, long progressIntervalMillis,
+                           long pollIntervalMillis) {
+            this.job = job;
+            this.listener = listener;
+            this.progressIntervalMillis = progressIntervalMillis;
+            this.pollIntervalMillis = pollIntervalMillis;
+        }
+    }
+
+    /**
+     * Names the monitor threads and makes them daemons.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
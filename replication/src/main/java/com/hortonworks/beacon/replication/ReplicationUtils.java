@@ -313,6 +313,10 @@ public final class ReplicationUtils {
         return BeaconConfig.getInstance().getScheduler().getReplicationMetricsInterval();
     }
 
+    public static int getTrackingInfoMinInterval() {
+        return BeaconConfig.getInstance().getScheduler().getTrackingInfoMinInterval();
+    }
+
     public static boolean isSourceDataConflictAndTgtClusterConflict(ReplicationPolicy policy) throws BeaconException {
         PolicyBean policyBean = new PolicyBean();
         policyBean.setType(policy.getType());
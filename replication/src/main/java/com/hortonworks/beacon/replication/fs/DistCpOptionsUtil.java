@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import com.hortonworks.beacon.entity.FSDRProperties;
 import com.hortonworks.beacon.entity.util.ReplicationDistCpOption;
 import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.util.FSUtils;
 import com.hortonworks.beacon.util.FileSystemClientFactory;
 
 /**
@@ -77,6 +78,8 @@ final class DistCpOptionsUtil {
             distcpOptions.setMapBandwidth(Integer.parseInt(maxBandwidth));
         }
 
+        setBlocksPerChunk(fsDRProperties, distcpOptions, sourcePaths, targetPath);
+
         //BUG-111601 - HDFS onprem to cloud replications are slow
         distcpOptions.setCopyStrategy(DYNAMIC);
 
@@ -213,7 +216,31 @@ final class DistCpOptionsUtil {
         if (maxBandwidth != null) {
             distcpOptions.setMapBandwidth(Integer.parseInt(maxBandwidth));
         }
+
+        setBlocksPerChunk(fsDRProperties, distcpOptions, sourcePaths, targetPath);
         LOG.info("DistCp options submitted: [{}]", distcpOptions.toString());
         return distcpOptions;
     }
+
+    /**
+     * Chunks of a split file are stitched together with HDFS concat, so large files are split only when both
+     * the source and the target are HDFS. The property is ignored for replication to or from cloud.
+     */
+    private static void setBlocksPerChunk(Properties fsDRProperties, DistCpOptions distcpOptions,
+                                          List<Path> sourcePaths, Path targetPath) throws BeaconException {
+        String blocksPerChunk = fsDRProperties.getProperty(FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName());
+        if (StringUtils.isBlank(blocksPerChunk)) {
+            return;
+        }
+        boolean hdfs = !FSUtils.isHCFS(targetPath);
+        for (Path sourcePath : sourcePaths) {
+            hdfs = hdfs && !FSUtils.isHCFS(sourcePath);
+        }
+        if (hdfs) {
+            distcpOptions.setBlocksPerChunk(Integer.parseInt(blocksPerChunk.trim()));
+        } else {
+            LOG.info("Ignoring {}={}, files are split only between HDFS clusters",
+                    FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName(), blocksPerChunk);
+        }
+    }
 }
@@ -35,6 +35,7 @@ import com.hortonworks.beacon.constants.BeaconConstants;
 import com.hortonworks.beacon.entity.entityNeo.FSDataSet;
 import com.hortonworks.beacon.entity.util.PolicyHelper;
 import com.hortonworks.beacon.entity.util.ReplicationPolicyBuilder;
+import com.hortonworks.beacon.replication.BandwidthAllocator;
 import com.hortonworks.beacon.util.FSUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.fs.Path;
@@ -100,6 +101,12 @@ public final class FSPolicyHelper {
 
         map.put(FSDRProperties.DISTCP_MAP_BANDWIDTH_IN_MB.getName(),
                 customProp.getProperty(FSDRProperties.DISTCP_MAP_BANDWIDTH_IN_MB.getName()));
+        map.put(FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName(),
+                customProp.getProperty(FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName()));
+        map.put(FSDRProperties.REPLICATION_PRIORITY.getName(),
+                customProp.getProperty(FSDRProperties.REPLICATION_PRIORITY.getName()));
+        map.put(FSDRProperties.BANDWIDTH_WEIGHT.getName(),
+                customProp.getProperty(FSDRProperties.BANDWIDTH_WEIGHT.getName()));
         String defSnapshotRetCount = String.valueOf(config.getEngine().getSnapshotRetentionNumber());
         map.put(FSDRProperties.SOURCE_SNAPSHOT_RETENTION_AGE_LIMIT.getName(),
 
@@ -163,6 +170,43 @@ public final class FSPolicyHelper {
                 FSDRProperties.SOURCE_SNAPSHOT_RETENTION_AGE_LIMIT.getName()));
         validateRetentionAgeLimit(properties.getProperty(
                 FSDRProperties.TARGET_SNAPSHOT_RETENTION_AGE_LIMIT.getName()));
+        validateBandwidthShare(properties.getProperty(FSDRProperties.REPLICATION_PRIORITY.getName()),
+                properties.getProperty(FSDRProperties.BANDWIDTH_WEIGHT.getName()));
+        validateBlocksPerChunk(properties.getProperty(FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName()));
+    }
+
+    /**
+     * The blocks per chunk are parsed only when the replication runs, so an invalid value is rejected on submit
+     * and update rather than failing every instance.
+     */
+    public static void validateBlocksPerChunk(String blocksPerChunk) throws BeaconException {
+        if (StringUtils.isBlank(blocksPerChunk)) {
+            return;
+        }
+        try {
+            if (Integer.parseInt(blocksPerChunk.trim()) <= 0) {
+                throw new BeaconException("{} should be greater than 0: {}",
+                        FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName(), blocksPerChunk);
+            }
+        } catch (NumberFormatException e) {
+            throw new BeaconException(e, "Invalid {}: {}", FSDRProperties.DISTCP_BLOCKS_PER_CHUNK.getName(),
+                    blocksPerChunk);
+        }
+    }
+
+    private static void validateBandwidthShare(String priority, String weight) throws BeaconException {
+        try {
+            BandwidthAllocator.Priority.parse(priority);
+        } catch (IllegalArgumentException e) {
+            throw new BeaconException(e, "Invalid replication priority: {}", priority);
+        }
+        try {
+            if (StringUtils.isNotBlank(weight) && Double.parseDouble(weight) <= 0) {
+                throw new BeaconException("Bandwidth weight should be greater than 0: {}", weight);
+            }
+        } catch (NumberFormatException e) {
+            throw new BeaconException(e, "Invalid bandwidth weight: {}", weight);
+        }
     }
 
     private static void validateRetentionAgeLimit(String ageLimit) throws BeaconException {
@@ -22,47 +22,63 @@
 
 package com.hortonworks.beacon.replication.fs;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.hortonworks.beacon.api.PropertiesIgnoreCase;
 import com.hortonworks.beacon.client.entity.ReplicationPolicy;
 import com.hortonworks.beacon.config.BeaconConfig;
 import com.hortonworks.beacon.entity.FSDRProperties;
 import com.hortonworks.beacon.entity.util.PolicyDao;
 import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.job.AsyncBeaconJob;
 import com.hortonworks.beacon.job.JobContext;
 import com.hortonworks.beacon.metrics.ReplicationMetrics;
+import com.hortonworks.beacon.replication.BandwidthAllocator;
 import com.hortonworks.beacon.replication.InstanceReplication;
+import com.hortonworks.beacon.replication.JobClients;
+import com.hortonworks.beacon.replication.JobMonitor;
 import com.hortonworks.beacon.replication.ReplicationJobDetails;
 import com.hortonworks.beacon.replication.ReplicationUtils;
 import com.hortonworks.beacon.util.FSUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.JobID;
 import org.apache.hadoop.mapred.RunningJob;
+import org.apache.hadoop.mapred.TIPStatus;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobStatus;
-import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TaskReport;
+import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.tools.DistCp;
+import org.apache.hadoop.tools.DistCpConstants;
 import org.apache.hadoop.tools.DistCpOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.security.PrivilegedExceptionAction;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 /**
  * FileSystem Replication implementation.
  */
-public abstract class FSReplication extends InstanceReplication {
+public abstract class FSReplication extends InstanceReplication implements AsyncBeaconJob {
 
     private static final Logger LOG = LoggerFactory.getLogger(FSReplication.class);
 
     private static final int MAX_JOB_RETRIES = 10;
+    private static final long INTERRUPT_CHECK_INTERVAL_MILLIS = 1000;
+    private static final int MAX_FAILED_TASKS_LOGGED = 10;
 
     protected boolean isSnapshot;
     protected String sourceStagingUri;
     protected String targetStagingUri;
     protected Job job;
+    private ListenableFuture<Boolean> completion;
+    private BandwidthAllocator.Allocation bandwidthAllocation;
     private PolicyDao policyDao = new PolicyDao();
 
     FSReplication(ReplicationJobDetails details) {
@@ -88,71 +104,186 @@ public abstract class FSReplication extends InstanceReplication {
 
     protected Job performCopy(JobContext jobContext, DistCpOptions options, Configuration conf,
                               ReplicationMetrics.JobType jobType) throws BeaconException, InterruptedException {
-        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
         try {
-            LOG.info("Started DistCp with source path: {} target path: {}", sourceStagingUri, targetStagingUri);
-            DistCp distCp = DistCpFactory.getINSTANCE().getDistCp(conf, options);
+            submitCopy(jobContext, options, conf);
+            handlePostSubmit(jobContext, jobType);
+        } catch (InterruptedException | BeaconException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BeaconException(e);
+        } finally {
+            releaseBandwidth();
+            captureFSReplicationMetrics(job, jobType, jobContext, true);
+        }
+        return job;
+    }
+
+    /**
+     * Submits the DistCp job and returns without waiting for it. The returned handle completes, with whether the
+     * job succeeded, once the job is done; {@link #completeCopy(JobContext, ReplicationMetrics.JobType)} then
+     * finishes the copy.
+     */
+    protected ListenableFuture<Boolean> performCopyAsync(JobContext jobContext, DistCpOptions options,
+                                                         Configuration conf, ReplicationMetrics.JobType jobType)
+            throws BeaconException, InterruptedException {
+        try {
+            submitCopy(jobContext, options, conf);
             if (jobContext.shouldInterrupt().get()) {
-                throw new InterruptedException("before job submit");
+                throw new InterruptedException("after job submit");
             }
+            completion = JobMonitor.get().watch(job, getFSReplicationProgressListener(jobContext, jobType),
+                    TimeUnit.SECONDS.toMillis(ReplicationUtils.getReplicationMetricsInterval()));
+            return completion;
+        } catch (InterruptedException | BeaconException e) {
+            releaseBandwidth();
+            captureFSReplicationMetrics(job, jobType, jobContext, true);
+            throw e;
+        } catch (Exception e) {
+            releaseBandwidth();
+            captureFSReplicationMetrics(job, jobType, jobContext, true);
+            throw new BeaconException(e);
+        }
+    }
 
-            job = distCp.createAndSubmitJob();
-            LOG.info("DistCp Hadoop job: {} for policy instance: [{}]", getJob(job), jobContext.getJobInstanceId());
-            handlePostSubmit(timer, jobContext, jobType);
+    protected void completeCopy(JobContext jobContext, ReplicationMetrics.JobType jobType)
+            throws BeaconException, InterruptedException {
+        try {
+            if (jobContext.shouldInterrupt().get()) {
+                throw new InterruptedException("during job in progress");
+            }
+            boolean succeeded;
+            try {
+                succeeded = completion.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Unable to get the status of job " + job.getJobID(), e.getCause());
+            }
+            if (!succeeded) {
+                throw getJobFailure();
+            }
         } catch (InterruptedException | BeaconException e) {
             throw e;
         } catch (Exception e) {
             throw new BeaconException(e);
         } finally {
-            timer.shutdown();
+            completion = null;
+            releaseBandwidth();
             captureFSReplicationMetrics(job, jobType, jobContext, true);
         }
-        return job;
     }
 
-    protected void handlePostSubmit(ScheduledThreadPoolExecutor timer, JobContext jobContext,
-                                  ReplicationMetrics.JobType jobType) throws Exception {
+    private void submitCopy(JobContext jobContext, DistCpOptions options, Configuration conf) throws Exception {
+        LOG.info("Started DistCp with source path: {} target path: {}", sourceStagingUri, targetStagingUri);
+        allocateBandwidth(options, conf);
+        DistCp distCp = DistCpFactory.getINSTANCE().getDistCp(conf, options);
+        if (jobContext.shouldInterrupt().get()) {
+            throw new InterruptedException("before job submit");
+        }
+
+        job = distCp.createAndSubmitJob();
+        LOG.info("DistCp Hadoop job: {} for policy instance: [{}]", getJob(job), jobContext.getJobInstanceId());
+        BandwidthAllocator.get().updateMaps(bandwidthAllocation,
+                job.getConfiguration().getInt(MRJobConfig.NUM_MAPS, options.getMaxMaps()));
+    }
+
+    /**
+     * Takes a share of the bandwidth of the link between the clusters of the policy, when the link is managed.
+     * The maps of the job then follow the share through the bandwidth file as other jobs start and finish.
+     */
+    private void allocateBandwidth(DistCpOptions options, Configuration conf) throws IOException {
+        releaseBandwidth();
+        String weight = properties.getProperty(FSDRProperties.BANDWIDTH_WEIGHT.getName());
+        String priority = properties.getProperty(FSDRProperties.REPLICATION_PRIORITY.getName());
+        boolean mapBandwidthSet = properties.getProperty(FSDRProperties.DISTCP_MAP_BANDWIDTH_IN_MB.getName()) != null;
+        bandwidthAllocation = BandwidthAllocator.get().register(
+                properties.getProperty(FSDRProperties.SOURCE_CLUSTER_NAME.getName()),
+                properties.getProperty(FSDRProperties.TARGET_CLUSTER_NAME.getName()),
+                BandwidthAllocator.Priority.parse(priority),
+                StringUtils.isNotBlank(weight) ? Double.parseDouble(weight) : 1,
+                options.getMaxMaps(), mapBandwidthSet ? options.getMapBandwidth() : 0, conf);
+        if (bandwidthAllocation != null) {
+            options.setMapBandwidth(bandwidthAllocation.getMapBandwidth());
+            conf.set(DistCpConstants.CONF_LABEL_BANDWIDTH_FILE, bandwidthAllocation.getFile().toString());
+        } else {
+            conf.unset(DistCpConstants.CONF_LABEL_BANDWIDTH_FILE);
+        }
+    }
+
+    private void releaseBandwidth() {
+        BandwidthAllocator.get().release(bandwidthAllocation);
+        bandwidthAllocation = null;
+    }
+
+    protected void handlePostSubmit(JobContext jobContext, ReplicationMetrics.JobType jobType) throws Exception {
         if (jobContext.shouldInterrupt().get()) {
             throw new InterruptedException("after job submit");
         }
 
-        getFSReplicationProgress(timer, jobContext, job, jobType,
-                ReplicationUtils.getReplicationMetricsInterval());
-        if (!waitForCompletion(jobContext)) {
-            JobStatus status = job.getStatus();
-            throw new IOException("Job " + job.getJobID() + " failed with state " + status.getState()
-                    + " due to: " + status.getFailureInfo());
+        if (!waitForCompletion(jobContext, jobType)) {
+            throw getJobFailure();
         }
     }
 
-    public boolean waitForCompletion(JobContext jobContext) throws IOException, InterruptedException {
-        int completionPollIntervalMillis = job.getCompletionPollInterval(new Configuration());
-        while (!job.isComplete()) {
-            if (jobContext.shouldInterrupt().get()) {
-                throw new InterruptedException("during job in progress");
+    private IOException getJobFailure() throws IOException, InterruptedException {
+        JobStatus status = job.getStatus();
+        logFailedTasks();
+        return new IOException("Job " + job.getJobID() + " failed with state " + status.getState()
+                + " due to: " + status.getFailureInfo());
+    }
+
+    /**
+     * Logs the diagnostics of the failed maps of the job. The task reports have an entry for every map of the job,
+     * so they are only fetched here, once the job has failed.
+     */
+    private void logFailedTasks() {
+        try {
+            int logged = 0;
+            for (TaskReport report : job.getTaskReports(TaskType.MAP)) {
+                if (report.getCurrentStatus() == TIPStatus.FAILED && logged++ < MAX_FAILED_TASKS_LOGGED) {
+                    LOG.error("Map task {} of job {} failed: {}", report.getTaskId(), job.getJobID(),
+                            StringUtils.join(report.getDiagnostics(), "; "));
+                }
             }
-            try {
-                Thread.sleep(completionPollIntervalMillis);
-            } catch (InterruptedException ie) {
-                throw ie;
+            if (logged > MAX_FAILED_TASKS_LOGGED) {
+                LOG.error("Job {} has {} failed map tasks", job.getJobID(), logged);
             }
+        } catch (IOException e) {
+            LOG.warn("Unable to get the task reports of job {}", job.getJobID(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return job.isSuccessful();
     }
 
-    JobClient getJobClient() throws BeaconException {
+    /**
+     * Waits for the job through the shared {@link JobMonitor}, which also captures the replication metrics while
+     * the job runs. The wait is checked for interruption every {@link #INTERRUPT_CHECK_INTERVAL_MILLIS}.
+     */
+    public boolean waitForCompletion(JobContext jobContext, ReplicationMetrics.JobType jobType)
+            throws IOException, InterruptedException {
+        Future<Boolean> jobCompletion = JobMonitor.get().watch(job,
+                getFSReplicationProgressListener(jobContext, jobType),
+                TimeUnit.SECONDS.toMillis(ReplicationUtils.getReplicationMetricsInterval()));
         try {
-            UserGroupInformation loginUser = UserGroupInformation.getLoginUser();
-            return loginUser.doAs(new PrivilegedExceptionAction<JobClient>() {
-                public JobClient run() throws Exception {
-                    return new JobClient(new JobConf());
+            while (true) {
+                if (jobContext.shouldInterrupt().get()) {
+                    throw new InterruptedException("during job in progress");
+                }
+                try {
+                    return jobCompletion.get(INTERRUPT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // Check for interruption and keep waiting.
+                } catch (ExecutionException e) {
+                    throw new IOException("Unable to get the status of job " + job.getJobID(), e.getCause());
                 }
-            });
-        } catch (InterruptedException | IOException e) {
-            throw new BeaconException("Exception creating job client: ", e);
+            }
+        } finally {
+            jobCompletion.cancel(false);
         }
     }
 
+    JobClient getJobClient() throws BeaconException {
+        return JobClients.get().getJobClient(new JobConf());
+    }
+
     RunningJob getJobWithRetries(String jobId) throws BeaconException {
         RunningJob runningJob = null;
         if (jobId != null) {
@@ -165,6 +296,7 @@ public abstract class FSReplication extends InstanceReplication {
                 try {
                     runningJob = getJobClient().getJob(JobID.forName(jobId));
                 } catch (IOException ioe) {
+                    JobClients.get().invalidate(new JobConf());
                     throw new BeaconException(ioe);
                 }
 
@@ -184,6 +316,12 @@ public abstract class FSReplication extends InstanceReplication {
 
     public void cleanUp(JobContext jobContext) {
         synchronized (this) {
+            if (completion != null) {
+                // The copy was handed off but never completed, stop watching its job.
+                completion.cancel(false);
+                completion = null;
+            }
+            releaseBandwidth();
             if (job != null) {
                 LOG.debug("Closing the job {}" + job.getJobName());
                 close(job);
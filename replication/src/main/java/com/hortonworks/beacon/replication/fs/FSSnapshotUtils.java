@@ -25,6 +25,7 @@ package com.hortonworks.beacon.replication.fs;
 import com.hortonworks.beacon.client.entity.Cluster;
 import com.hortonworks.beacon.entity.FSDRProperties;
 import com.hortonworks.beacon.entity.entityNeo.DataSet;
+import com.hortonworks.beacon.entity.entityNeo.HDFSDataSet;
 import com.hortonworks.beacon.entity.util.ClusterHelper;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.util.EvictionHelper;
@@ -300,7 +301,7 @@ public final class FSSnapshotUtils {
             IOException, BeaconException {
         LOG.debug("Allowing snapshot on cluster {} at path {}", cluster.getName(), dataset);
         dataset.allowSnapshot();
-        SnapshotListing.get().updateListing(cluster.getName(), cluster.getFsEndpoint(), Path.SEPARATOR);
+        updateSnapshotListing(cluster, dataset, true);
     }
 
     public static void disallowSnapshot(Cluster cluster, DataSet dataSet)
@@ -308,7 +309,17 @@ public final class FSSnapshotUtils {
             IOException, BeaconException {
         LOG.debug("Disallowing snapshot on cluster {} at path {}", cluster.getName(), dataSet.toString());
         dataSet.disallowSnapshot();
-        SnapshotListing.get().updateListing(cluster.getName(), cluster.getFsEndpoint(), Path.SEPARATOR);
+        updateSnapshotListing(cluster, dataSet, false);
+    }
+
+    private static void updateSnapshotListing(Cluster cluster, DataSet dataSet, boolean snapshottable)
+            throws BeaconException {
+        if (dataSet instanceof HDFSDataSet) {
+            SnapshotListing.get().setSnapshottable(cluster.getName(), ((HDFSDataSet) dataSet).getResolvedPath(),
+                    snapshottable);
+        } else {
+            SnapshotListing.get().updateListing(cluster.getName(), cluster.getFsEndpoint(), Path.SEPARATOR);
+        }
     }
 
     static String getLatestSnapshot(FileSystem fileSystem, String path, String snapshotPrefix) throws IOException {
@@ -22,6 +22,7 @@
 
 package com.hortonworks.beacon.replication.fs;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.hortonworks.beacon.ExecutionType;
 import com.hortonworks.beacon.client.entity.Cluster;
 import com.hortonworks.beacon.client.entity.ReplicationPolicy;
@@ -74,6 +75,7 @@ import static org.apache.hadoop.tools.DistCpConstants.CONF_LABEL_LISTSTATUS_THRE
 public class HCFSReplication extends FSReplication {
 
     private static final Logger LOG = LoggerFactory.getLogger(HCFSReplication.class);
+    private static final String META_DIR = ".dlm-engine";
     private boolean isPushRepl;
     private PermissionMetaFileOperator permissionMetaFileOperator;
 
@@ -85,6 +87,28 @@ public class HCFSReplication extends FSReplication {
     @Override
     public void perform(JobContext jobContext) throws BeaconException, InterruptedException {
         performCopy(jobContext, ReplicationMetrics.JobType.MAIN);
+        handlePreserveMeta();
+        performPostReplJobExecution(jobContext, job, ReplicationMetrics.JobType.MAIN);
+    }
+
+    @Override
+    public ListenableFuture<?> performAsync(JobContext jobContext) throws BeaconException, InterruptedException {
+        try {
+            return performCopyAsync(jobContext, getCopyOptions(), getHCFSConfiguration(),
+                    ReplicationMetrics.JobType.MAIN);
+        } catch (IOException e) {
+            throw new BeaconException(e);
+        }
+    }
+
+    @Override
+    public void completePerform(JobContext jobContext) throws BeaconException, InterruptedException {
+        completeCopy(jobContext, ReplicationMetrics.JobType.MAIN);
+        handlePreserveMeta();
+        performPostReplJobExecution(jobContext, job, ReplicationMetrics.JobType.MAIN);
+    }
+
+    private void handlePreserveMeta() throws BeaconException {
         if (properties.containsKey(BeaconConstants.META_LOCATION)) {
             String metaLocation = properties.getProperty(BeaconConstants.META_LOCATION);
             Path metaLocationPath = new Path(metaLocation);
@@ -97,25 +121,24 @@ public class HCFSReplication extends FSReplication {
             }
             performPreserveMeta(properties.getProperty(BeaconConstants.META_LOCATION));
         }
-        performPostReplJobExecution(jobContext, job, ReplicationMetrics.JobType.MAIN);
     }
 
 
     private void performPreserveMeta(String metaLocation) throws BeaconException {
         try {
             Path metaPath = new Path(metaLocation, "fileList.seq");
-            String sortedChildPath = ".dlm-engine/fileList.seq_sorted";
-            FileSystem cloudtargetFs = new Path(targetStagingUri).getFileSystem(getHCFSConfiguration());
+            Configuration hcfsConf = getHCFSConfiguration();
+            FileSystem cloudtargetFs = new Path(targetStagingUri).getFileSystem(hcfsConf);
             ExecutionType executionType = ExecutionType.valueOf(properties.getProperty(FSDRProperties.EXECUTION_TYPE
                     .getName()));
-            Path cloudMetaPath = new Path(targetStagingUri, sortedChildPath);
             if (executionType == ExecutionType.FS_HCFS_SNAPSHOT) {
-                LOG.debug("Source Path: {} Target Path: {}", metaPath.toString(), cloudMetaPath.toString());
-                Configuration conf = getConfiguration();
-                Path sortedSourceListing = DistCpUtils.sortListing(sourceFs, conf, metaPath);
-                if (cloudtargetFs.exists(cloudMetaPath)) {
-                    mergeMeta(sourceFs, sortedSourceListing, cloudMetaPath);
+                Path cloudMetaDir = new Path(targetStagingUri, META_DIR);
+                LOG.debug("Source Path: {} Target Path: {}", metaPath.toString(), cloudMetaDir.toString());
+                if (!cloudtargetFs.exists(cloudMetaDir)) {
+                    cloudtargetFs.mkdirs(cloudMetaDir);
                 }
+                PartitionedMetaStore metaStore = new PartitionedMetaStore(cloudtargetFs, cloudMetaDir, hcfsConf);
+                metaStore.merge(sourceFs, metaPath, getConfiguration());
                 try {
                     boolean deleteSuccessful = sourceFs.delete(metaPath, false);
                     if (!deleteSuccessful) {
@@ -127,21 +150,22 @@ public class HCFSReplication extends FSReplication {
             }
             createMeta(metaLocation);
             Path[] metaFilePath = listFiles(metaLocation);
-            copyMeta(cloudtargetFs, metaFilePath);
+            copyMeta(cloudtargetFs, metaFilePath, hcfsConf);
         } catch (IOException e) {
             throw new BeaconException("Error while preserving the meta information", e);
         }
     }
 
-    private void copyMeta(FileSystem cloudtargetFs, Path[] metaFilePath) throws BeaconException {
-        Path targetPath = new Path(targetStagingUri, ".dlm-engine");
+    private void copyMeta(FileSystem cloudtargetFs, Path[] metaFilePath, Configuration hcfsConf)
+            throws BeaconException {
+        Path targetPath = new Path(targetStagingUri, META_DIR);
         LOG.debug("Copying meta files from [{}] to {}.", Arrays.toString(metaFilePath), targetPath.toString());
         try {
             if (!cloudtargetFs.exists(targetPath)) {
                 cloudtargetFs.mkdirs(targetPath);
             }
             boolean copySuccessful = FileUtil.copy(sourceFs, metaFilePath, cloudtargetFs, targetPath,
-                    true, true, getHCFSConfiguration());
+                    true, true, hcfsConf);
             if (!copySuccessful) {
                 throw new BeaconException("Unable to move meta directory to {}.", targetPath.toString());
             }
@@ -194,71 +218,10 @@ public class HCFSReplication extends FSReplication {
         }
     }
 
-    private void mergeMeta(FileSystem sourceFs, Path sortedSourceListing, Path cloudMetaPath) throws BeaconException {
-        SequenceFile.Reader existingReader = null;
-        SequenceFile.Reader modifiedReader = null;
-        SequenceFile.Writer writer = null;
-        try {
-            Path path = new Path(sortedSourceListing.getParent(), "final.seq");
-            LOG.debug("Final output path: {}", path.toString());
-            existingReader = new SequenceFile.Reader(getHCFSConfiguration(),
-                    SequenceFile.Reader.file(cloudMetaPath));
-            modifiedReader = new SequenceFile.Reader(getConfiguration(),
-                    SequenceFile.Reader.file(sortedSourceListing));
-            CopyListingFileStatus existingFileStatus = new CopyListingFileStatus();
-            Text existingRelPath = new Text();
-            CopyListingFileStatus modifiedFileStatus = new CopyListingFileStatus();
-            Text modifiedRelPath = new Text();
-            writer = permissionMetaFileOperator.writer(path, getConfiguration());
-
-            boolean modifiedAvailable = modifiedReader.next(modifiedRelPath, modifiedFileStatus);
-            boolean existingAvailable = existingReader.next(existingRelPath, existingFileStatus);
-            while (existingAvailable) {
-                // Replace the one which got modified in the current replication.
-                if (modifiedAvailable && modifiedRelPath.compareTo(existingRelPath) <= 0) {
-                    LOG.debug("Path modified: {}, Meta: {}", modifiedRelPath.toString(), modifiedFileStatus.toString());
-                    writer.append(modifiedRelPath, modifiedFileStatus);
-                    modifiedAvailable = modifiedReader.next(modifiedRelPath, modifiedFileStatus);
-                } else {
-                    LOG.debug("Path not modified: {}, Meta: {}", existingRelPath.toString(),
-                            existingFileStatus.toString());
-                    writer.append(existingRelPath, existingFileStatus);
-                    existingAvailable = existingReader.next(existingRelPath, existingFileStatus);
-                }
-            }
-            while (modifiedAvailable) {
-                LOG.debug("Path modified: {}, Meta: {}", modifiedRelPath.toString(), modifiedFileStatus.toString());
-                writer.append(modifiedRelPath, modifiedFileStatus);
-                modifiedAvailable = modifiedReader.next(modifiedRelPath, modifiedFileStatus);
-            }
-            writer.close();
-            boolean copySuccessful = FileUtil.copy(sourceFs, path, sourceFs, sortedSourceListing, true,
-                    getConfiguration());
-            if (!copySuccessful) {
-                throw new BeaconException("Unable to move meta file {} to {}.", path.toString(), sortedSourceListing
-                        .toString());
-            }
-        } catch (IOException e) {
-            throw new BeaconException(e);
-        } finally {
-            IOUtils.closeStream(existingReader);
-            IOUtils.closeStream(modifiedReader);
-            IOUtils.cleanupWithLogger(LOG, writer);
-        }
-    }
-
     private Job performCopy(JobContext jobContext, ReplicationMetrics.JobType jobType)
             throws BeaconException, InterruptedException {
         try {
-            String toSnapshot = null;
-            String fromSnapshot = null;
-            if (isSnapshot && isPushRepl) {
-                toSnapshot = FSSnapshotUtils.getTempSnapshotName(getDetails().getName());
-                String snapshotPrefix = SNAPSHOT_PREFIX + getDetails().getName();
-                fromSnapshot = FSSnapshotUtils.getLatestSnapshot(sourceFs, sourceStagingUri, snapshotPrefix);
-                FSSnapshotUtils.checkAndCreateSnapshot(sourceFs, sourceStagingUri, toSnapshot);
-            }
-            DistCpOptions options = getDistCpOptions(fromSnapshot, toSnapshot);
+            DistCpOptions options = getCopyOptions();
             Configuration conf = getHCFSConfiguration();
             performCopy(jobContext, options, conf, jobType);
         } catch (IOException e) {
@@ -267,6 +230,18 @@ public class HCFSReplication extends FSReplication {
         return job;
     }
 
+    private DistCpOptions getCopyOptions() throws BeaconException, IOException {
+        String toSnapshot = null;
+        String fromSnapshot = null;
+        if (isSnapshot && isPushRepl) {
+            toSnapshot = FSSnapshotUtils.getTempSnapshotName(getDetails().getName());
+            String snapshotPrefix = SNAPSHOT_PREFIX + getDetails().getName();
+            fromSnapshot = FSSnapshotUtils.getLatestSnapshot(sourceFs, sourceStagingUri, snapshotPrefix);
+            FSSnapshotUtils.checkAndCreateSnapshot(sourceFs, sourceStagingUri, toSnapshot);
+        }
+        return getDistCpOptions(fromSnapshot, toSnapshot);
+    }
+
     private Configuration getHCFSConfiguration() throws BeaconException {
         Configuration conf = getConfiguration();
         String policyName = properties.getProperty(ReplicationPolicy.ReplicationPolicyFields.NAME.getName());
@@ -22,6 +22,7 @@
 
 package com.hortonworks.beacon.replication.fs;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.hortonworks.beacon.RequestContext;
 import com.hortonworks.beacon.Timer;
 import com.hortonworks.beacon.client.entity.Cluster;
@@ -54,7 +55,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import static org.apache.hadoop.tools.DistCpConstants.CONF_LABEL_FILTERS_CLASS;
 import static org.apache.hadoop.tools.DistCpConstants.CONF_LABEL_LISTSTATUS_THREADS;
@@ -67,6 +67,8 @@ public class HDFSReplication extends FSReplication {
     private static final Logger LOG = LoggerFactory.getLogger(HDFSReplication.class);
     private static final String RAW_NAMESPACE_PATH = "/.reserved/raw";
 
+    private String pendingReplicationName;
+
     public HDFSReplication(ReplicationJobDetails details) {
         super(details);
     }
@@ -125,6 +127,21 @@ public class HDFSReplication extends FSReplication {
                 ReplicationMetrics.JobType.MAIN);
     }
 
+    @Override
+    public ListenableFuture<?> performAsync(JobContext jobContext) throws BeaconException, InterruptedException {
+        pendingReplicationName = getFSReplicationName(sourceFs, sourceStagingUri);
+        DistCpOptions options = buildDistCpOptions(pendingReplicationName,
+                getLatestSnapshotOnTargetAvailableOnSource(), ReplicationMetrics.JobType.MAIN);
+        return performCopyAsync(jobContext, options, getConfiguration(), ReplicationMetrics.JobType.MAIN);
+    }
+
+    @Override
+    public void completePerform(JobContext jobContext) throws BeaconException, InterruptedException {
+        completeCopy(jobContext, ReplicationMetrics.JobType.MAIN);
+        performPostReplJobExecution(jobContext, job, pendingReplicationName,
+                ReplicationMetrics.JobType.MAIN);
+    }
+
     String getFSReplicationName(FileSystem fileSystem, String stagingUri)
             throws BeaconException {
         boolean tdeEncryptionEnabled = Boolean.parseBoolean(properties.getProperty(
@@ -152,21 +169,25 @@ public class HDFSReplication extends FSReplication {
 
     Job performCopy(JobContext jobContext, String toSnapshot, String fromSnapshot,
                     ReplicationMetrics.JobType jobType) throws BeaconException, InterruptedException {
+        DistCpOptions options = buildDistCpOptions(toSnapshot, fromSnapshot, jobType);
+        Configuration conf = getConfiguration();
+        return performCopy(jobContext, options, conf, jobType);
+    }
+
+    private DistCpOptions buildDistCpOptions(String toSnapshot, String fromSnapshot,
+                                             ReplicationMetrics.JobType jobType) throws BeaconException {
         boolean isInRecoveryMode = jobType == ReplicationMetrics.JobType.RECOVERY;
-        DistCpOptions options = null;
         final String methodName = this.getClass().getSimpleName() + '.'
                 + Thread.currentThread().getStackTrace()[1].getMethodName();
         RequestContext requestContext = RequestContext.get();
         Timer timer = requestContext.startTimer(methodName);
         try {
-            options = getDistCpOptions(toSnapshot, fromSnapshot, isInRecoveryMode);
+            return getDistCpOptions(toSnapshot, fromSnapshot, isInRecoveryMode);
         } catch (IOException e) {
             throw new BeaconException(e);
         } finally {
             timer.stop();
         }
-        Configuration conf = getConfiguration();
-        return performCopy(jobContext, options, conf, jobType);
     }
 
     private Configuration getConfiguration() {
@@ -305,19 +326,16 @@ public class HDFSReplication extends FSReplication {
 
             if (org.apache.hadoop.mapred.JobStatus.State.RUNNING.getValue() == jobStatus.getRunState()
                     || org.apache.hadoop.mapred.JobStatus.State.PREP.getValue() == jobStatus.getRunState()) {
-                ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
                 try {
                     DistCpFactory.getINSTANCE().getDistCp(getConfiguration(),
                             getDistCpOptions(null, null, false));
-                    handlePostSubmit(timer, jobContext, ReplicationMetrics.JobType.MAIN);
+                    handlePostSubmit(jobContext, ReplicationMetrics.JobType.MAIN);
                     performPostReplJobExecution(jobContext, job,
                             getFSReplicationName(sourceFs, sourceStagingUri),
                             ReplicationMetrics.JobType.MAIN);
                     jobContext.setPerformJobAfterRecovery(false);
                 } catch (Exception e) {
                     throw new BeaconException(e);
-                } finally {
-                    timer.shutdown();
                 }
             } else if (org.apache.hadoop.mapred.JobStatus.State.SUCCEEDED.getValue() == jobStatus.getRunState()) {
                 performPostReplJobExecution(jobContext, job,
@@ -0,0 +1,394 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication.fs;
+
+import com.google.gson.Gson;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.tools.CopyListingFileStatus;
+import org.apache.hadoop.tools.util.DistCpUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Permission metadata of a replicated dataset, kept in cloud as sorted, range partitioned segments of
+ * relative path to file status and a manifest listing them. Merging the listing of a run rewrites only the
+ * segments whose range the listing touches, so an incremental run costs in proportion to its snapshot diff rather
+ * than to the size of the dataset. Small listings are ordered in memory; larger ones, like the listing of the first
+ * run, are sorted on the file system.
+ *
+ * Segment files are never modified in place: a run writes new segments, then the manifest, and only then removes
+ * the segments it replaced, so a failed run leaves the previous manifest and its segments intact.
+ */
+class PartitionedMetaStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionedMetaStore.class);
+
+    static final String MANIFEST = "manifest.json";
+    static final String LEGACY_META_FILE = "fileList.seq_sorted";
+    static final int DEF_SEGMENT_ENTRIES = 100000;
+    static final int DEF_MAX_BUFFERED_ENTRIES = 100000;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seq";
+    private static final int MANIFEST_VERSION = 1;
+    private static final Gson GSON = new Gson();
+
+    private final FileSystem fs;
+    private final Path metaDir;
+    private final Configuration conf;
+    private final int segmentEntries;
+    private final int maxBufferedEntries;
+    private final PermissionMetaFileOperator metaFileOperator = new PermissionMetaFileOperator();
+
+    PartitionedMetaStore(FileSystem fs, Path metaDir, Configuration conf) {
+        this(fs, metaDir, conf, DEF_SEGMENT_ENTRIES, DEF_MAX_BUFFERED_ENTRIES);
+    }
+
+    PartitionedMetaStore(FileSystem fs, Path metaDir, Configuration conf, int segmentEntries,
+                         int maxBufferedEntries) {
+        this.fs = fs;
+        this.metaDir = metaDir;
+        this.conf = conf;
+        this.segmentEntries = segmentEntries;
+        this.maxBufferedEntries = maxBufferedEntries;
+    }
+
+    /**
+     * Merges the listing of a run into the store, an entry of the listing replacing the stored entry of the same
+     * path. A store written before segments were introduced is read as a single segment and rewritten.
+     *
+     * @param listingFs file system of the listing
+     * @param listing unsorted listing of relative path to file status
+     * @param listingConf configuration to read the listing
+     * @return number of segments rewritten
+     */
+    int merge(FileSystem listingFs, Path listing, Configuration listingConf) throws IOException {
+        List<Segment> segments = readSegments();
+        Path sortedListing = null;
+        SortedEntries modified = bufferListing(listingFs, listing, listingConf);
+        if (modified == null) {
+            LOG.info("Listing {} has more than {} entries, sorting it", listing, maxBufferedEntries);
+            sortedListing = DistCpUtils.sortListing(listingFs, listingConf, listingFs.makeQualified(listing));
+            modified = new SequenceFileEntries(metaFileOperator.reader(sortedListing, listingConf));
+        }
+
+        String runId = String.valueOf(System.currentTimeMillis());
+        List<Segment> merged = new ArrayList<>();
+        List<Segment> replaced = new ArrayList<>();
+        try {
+            if (segments.isEmpty()) {
+                merged.addAll(rewrite(null, modified, null, runId, merged.size()));
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                Text upperKey = i + 1 < segments.size() ? new Text(segments.get(i + 1).firstKey) : null;
+                if (!modified.hasNextBelow(upperKey)) {
+                    merged.add(segment);
+                    continue;
+                }
+                replaced.add(segment);
+                merged.addAll(rewrite(segment, modified, upperKey, runId, merged.size()));
+            }
+        } finally {
+            IOUtils.closeStream(modified);
+            if (sortedListing != null) {
+                listingFs.delete(sortedListing, false);
+            }
+        }
+
+        writeManifest(merged);
+        for (Segment segment : replaced) {
+            fs.delete(new Path(metaDir, segment.file), false);
+        }
+        removeUnlistedSegments(merged);
+        LOG.info("Merged listing {} into {}: {} of {} segments rewritten", listing, metaDir, replaced.size(),
+                merged.size());
+        return replaced.size();
+    }
+
+    /**
+     * @return paths of the segments in key order, empty if the store doesn't exist
+     */
+    List<Path> getSegmentPaths() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (Segment segment : readSegments()) {
+            paths.add(new Path(metaDir, segment.file));
+        }
+        return paths;
+    }
+
+    private List<Segment> readSegments() throws IOException {
+        Path manifestPath = new Path(metaDir, MANIFEST);
+        if (fs.exists(manifestPath)) {
+            try (Reader reader = new InputStreamReader(fs.open(manifestPath), StandardCharsets.UTF_8)) {
+                Manifest manifest = GSON.fromJson(reader, Manifest.class);
+                if (manifest.version != MANIFEST_VERSION) {
+                    throw new IOException("Unsupported meta manifest version " + manifest.version + " at "
+                            + manifestPath);
+                }
+                return manifest.segments;
+            }
+        }
+        List<Segment> segments = new ArrayList<>();
+        if (fs.exists(new Path(metaDir, LEGACY_META_FILE))) {
+            segments.add(new Segment(LEGACY_META_FILE, "", -1));
+        }
+        return segments;
+    }
+
+    private void writeManifest(List<Segment> segments) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.version = MANIFEST_VERSION;
+        manifest.segments = segments;
+        FSDataOutputStream out = fs.create(new Path(metaDir, MANIFEST), true);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            GSON.toJson(manifest, writer);
+        }
+    }
+
+    private void removeUnlistedSegments(List<Segment> segments) throws IOException {
+        Set<String> listed = new HashSet<>();
+        for (Segment segment : segments) {
+            listed.add(segment.file);
+        }
+        for (FileStatus status : fs.listStatus(metaDir)) {
+            String name = status.getPath().getName();
+            if (name.startsWith(SEGMENT_PREFIX) && !listed.contains(name)) {
+                LOG.info("Removing segment {} left by an earlier run", status.getPath());
+                fs.delete(status.getPath(), false);
+            }
+        }
+    }
+
+    /**
+     * Reads the listing into memory in key order.
+     *
+     * @return the entries, null if the listing has more entries than can be buffered
+     */
+    private SortedEntries bufferListing(FileSystem listingFs, Path listing, Configuration listingConf)
+            throws IOException {
+        TreeMap<Text, CopyListingFileStatus> entries = new TreeMap<>();
+        SequenceFile.Reader reader = metaFileOperator.reader(listingFs.makeQualified(listing), listingConf);
+        try {
+            Text key = new Text();
+            CopyListingFileStatus value = new CopyListingFileStatus();
+            while (reader.next(key, value)) {
+                entries.put(key, value);
+                if (entries.size() > maxBufferedEntries) {
+                    return null;
+                }
+                key = new Text();
+                value = new CopyListingFileStatus();
+            }
+        } finally {
+            IOUtils.closeStream(reader);
+        }
+        return new BufferedEntries(entries);
+    }
+
+    /**
+     * Merges a stored segment with the modified entries below the upper key into new segments of at most the
+     * configured number of entries. The first new segment keeps the lower bound of the stored one.
+     */
+    private List<Segment> rewrite(Segment segment, SortedEntries modified, Text upperKey, String runId,
+                                  int firstIndex) throws IOException {
+        SortedEntries existing = segment == null
+                ? new BufferedEntries(new TreeMap<Text, CopyListingFileStatus>())
+                : new SequenceFileEntries(metaFileOperator.reader(new Path(metaDir, segment.file), conf));
+        List<Segment> written = new ArrayList<>();
+        SequenceFile.Writer writer = null;
+        Segment current = null;
+        try {
+            while (existing.hasNextBelow(null) || modified.hasNextBelow(upperKey)) {
+                SortedEntries next;
+                if (!modified.hasNextBelow(upperKey)) {
+                    next = existing;
+                } else if (!existing.hasNextBelow(null)) {
+                    next = modified;
+                } else {
+                    int compare = modified.key().compareTo(existing.key());
+                    if (compare == 0) {
+                        existing.next();
+                    }
+                    next = compare <= 0 ? modified : existing;
+                }
+                if (current == null || current.entries == segmentEntries) {
+                    IOUtils.closeStream(writer);
+                    String firstKey;
+                    if (current == null) {
+                        firstKey = segment != null ? segment.firstKey : "";
+                    } else {
+                        firstKey = next.key().toString();
+                    }
+                    current = new Segment(SEGMENT_PREFIX + runId + "-" + (firstIndex + written.size())
+                            + SEGMENT_SUFFIX, firstKey, 0);
+                    written.add(current);
+                    writer = metaFileOperator.writer(new Path(metaDir, current.file), conf);
+                }
+                writer.append(next.key(), next.value());
+                current.entries++;
+                next.next();
+            }
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } finally {
+            IOUtils.closeStream(writer);
+            IOUtils.closeStream(existing);
+        }
+        return written;
+    }
+
+    /**
+     * Entry of the manifest.
+     */
+    private static final class Segment {
+        private String file;
+        private String firstKey;
+        private long entries;
+
+        private Segment(String file, String firstKey, long entries) {
+            this.file = file;
+            this.firstKey = firstKey;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Manifest of the store, written as json.
+     */
+    private static final class Manifest {
+        private int version;
+        private List<Segment> segments;
+    }
+
+    /**
+     * Entries in key order, read one at a time.
+     */
+    private interface SortedEntries extends Closeable {
+        /**
+         * @return whether there is a next entry with a key below the upper key, or at all if it is null
+         */
+        boolean hasNextBelow(Text upperKey);
+
+        Text key();
+
+        CopyListingFileStatus value();
+
+        void next() throws IOException;
+    }
+
+    private static final class BufferedEntries implements SortedEntries {
+        private final Iterator<Map.Entry<Text, CopyListingFileStatus>> iterator;
+        private Map.Entry<Text, CopyListingFileStatus> entry;
+
+        private BufferedEntries(TreeMap<Text, CopyListingFileStatus> entries) {
+            this.iterator = entries.entrySet().iterator();
+            this.entry = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public boolean hasNextBelow(Text upperKey) {
+            return entry != null && (upperKey == null || entry.getKey().compareTo(upperKey) < 0);
+        }
+
+        @Override
+        public Text key() {
+            return entry.getKey();
+        }
+
+        @Override
+        public CopyListingFileStatus value() {
+            return entry.getValue();
+        }
+
+        @Override
+        public void next() {
+            entry = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class SequenceFileEntries implements SortedEntries {
+        private final SequenceFile.Reader reader;
+        private final Text key = new Text();
+        private final CopyListingFileStatus value = new CopyListingFileStatus();
+        private boolean available;
+
+        private SequenceFileEntries(SequenceFile.Reader reader) throws IOException {
+            this.reader = reader;
+            next();
+        }
+
+        @Override
+        public boolean hasNextBelow(Text upperKey) {
+            return available && (upperKey == null || key.compareTo(upperKey) < 0);
+        }
+
+        @Override
+        public Text key() {
+            return key;
+        }
+
+        @Override
+        public CopyListingFileStatus value() {
+            return value;
+        }
+
+        @Override
+        public void next() throws IOException {
+            available = reader.next(key, value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -25,10 +25,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashSet;
-import java.util.Set;
 
 import com.hortonworks.beacon.entity.util.FSListing;
+import com.hortonworks.beacon.entity.util.PathTrie;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.fs.FileSystem;
@@ -46,7 +45,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Cache of HDFS snapshot list.
  */
-public final class SnapshotListing extends FSListing<Set> {
+public final class SnapshotListing extends FSListing<Boolean> {
 
     private static final Logger LOG = LoggerFactory.getLogger(SnapshotListing.class);
     private static final SnapshotListing INSTANCE = new SnapshotListing();
@@ -63,11 +62,19 @@ public final class SnapshotListing extends FSListing<Set> {
         return StringUtils.isNotEmpty(baseSnapshotPath);
     }
 
+    /**
+     * Updates the listing after snapshots were allowed or disallowed on the path, without listing all the
+     * snapshottable directories again.
+     */
+    public void setSnapshottable(String clusterName, String path, boolean snapshottable) {
+        updatePath(clusterName, path, snapshottable ? Boolean.TRUE : null);
+    }
+
     @Override
-    protected Set<String> getListing(String clusterName, String fsEndPoint) throws BeaconException {
+    protected PathTrie<Boolean> getListing(String clusterName, String fsEndPoint) throws BeaconException {
         try {
             FileSystem fs = FSUtils.getFileSystem(fsEndPoint, ClusterHelper.getHAConfigurationOrDefault(clusterName));
-            Set<String> listing = new HashSet<>();
+            PathTrie.Builder<Boolean> listing = new PathTrie.Builder<>();
             if (fs instanceof DistributedFileSystem) {
                 DistributedFileSystem hdfs = (DistributedFileSystem) fs;
                 SnapshottableDirectoryStatus[]snapshottableDirListing = hdfs.getSnapshottableDirListing();
@@ -77,11 +84,11 @@ public final class SnapshotListing extends FSListing<Set> {
                         String decodedPath = new URI(snapshotDirPath.toString()).getPath();
                         String snapshotPath = decodedPath.endsWith(File.separator)
                                 ? decodedPath : decodedPath + File.separator;
-                        listing.add(snapshotPath);
+                        listing.put(snapshotPath, Boolean.TRUE);
                     }
                 }
             }
-            return listing;
+            return listing.build();
         } catch (IOException | URISyntaxException e) {
             throw new BeaconException(e);
         }
@@ -95,14 +102,6 @@ public final class SnapshotListing extends FSListing<Set> {
         return null;
     }
 
-    @Override
-    protected boolean contains(String clusterName, String path) {
-        if (listingMap.containsKey(clusterName)) {
-            return listingMap.get(clusterName).contains(path);
-        }
-        return false;
-    }
-
     @Override
     protected int getRefreshFrequency() {
         return BeaconConfig.getInstance().getEngine().getRefreshSnapshotDirs();
@@ -0,0 +1,126 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.replication;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Test class for BandwidthAllocator.
+ */
+public class BandwidthAllocatorTest {
+
+    private File dir;
+    private Configuration conf;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("bandwidth").toFile();
+        conf = new Configuration();
+        conf.set("fs.defaultFS", "file:///");
+    }
+
+    @AfterClass
+    public void teardown() {
+        FileUtil.fullyDelete(dir);
+    }
+
+    private static String read(BandwidthAllocator.Allocation allocation) throws IOException {
+        return new String(Files.readAllBytes(new File(allocation.getFile().toUri()).toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDivideByWeight() {
+        double[] shares = BandwidthAllocator.divide(300, new double[]{1, 2},
+                new double[]{Double.MAX_VALUE, Double.MAX_VALUE});
+        Assert.assertEquals(shares[0], 100.0, 0.001);
+        Assert.assertEquals(shares[1], 200.0, 0.001);
+    }
+
+    @Test
+    public void testDivideRedistributesCappedShare() {
+        double[] shares = BandwidthAllocator.divide(300, new double[]{1, 1, 1},
+                new double[]{40, Double.MAX_VALUE, 110});
+        Assert.assertEquals(shares[0], 40.0, 0.001);
+        Assert.assertEquals(shares[1], 150.0, 0.001);
+        Assert.assertEquals(shares[2], 110.0, 0.001);
+
+        shares = BandwidthAllocator.divide(300, new double[]{1, 4}, new double[]{50, 100});
+        Assert.assertEquals(shares[0], 50.0, 0.001);
+        Assert.assertEquals(shares[1], 100.0, 0.001);
+    }
+
+    @Test
+    public void testParseBudgets() {
+        Map<String, Integer> budgets = BandwidthAllocator.parseBudgets(" dc1:dc2=500, dc1:cloud=100");
+        Assert.assertEquals(budgets.size(), 2);
+        Assert.assertEquals(budgets.get("dc1:dc2"), Integer.valueOf(500));
+        Assert.assertEquals(budgets.get("dc1:cloud"), Integer.valueOf(100));
+        Assert.assertTrue(BandwidthAllocator.parseBudgets(null).isEmpty());
+        Assert.assertEquals(BandwidthAllocator.Priority.parse(null), BandwidthAllocator.Priority.NORMAL);
+        Assert.assertEquals(BandwidthAllocator.Priority.parse("high"), BandwidthAllocator.Priority.HIGH);
+    }
+
+    @Test
+    public void testShareChangesAsJobsComeAndGo() throws IOException {
+        BandwidthAllocator allocator = new BandwidthAllocator(0, Collections.singletonMap("dc1:dc2", 300),
+                new Path(dir.toURI()));
+        Assert.assertNull(allocator.register("dc1", "dc3", BandwidthAllocator.Priority.NORMAL, 1, 10, 0, conf));
+
+        BandwidthAllocator.Allocation low = allocator.register("dc1", "dc2", BandwidthAllocator.Priority.LOW, 1,
+                10, 0, conf);
+        Assert.assertEquals(low.getMapBandwidth(), 30);
+        Assert.assertEquals(read(low), "30");
+
+        BandwidthAllocator.Allocation high = allocator.register("dc1", "dc2", BandwidthAllocator.Priority.HIGH, 1,
+                20, 0, conf);
+        Assert.assertEquals(allocator.getAllocationCount("dc1", "dc2"), 2);
+        Assert.assertEquals(low.getMapBandwidth(), 6);
+        Assert.assertEquals(read(low), "6");
+        Assert.assertEquals(high.getMapBandwidth(), 12);
+        Assert.assertEquals(read(high), "12");
+
+        allocator.updateMaps(high, 4);
+        Assert.assertEquals(high.getMapBandwidth(), 60);
+        Assert.assertEquals(read(high), "60");
+
+        allocator.release(high);
+        Assert.assertFalse(new File(high.getFile().toUri()).exists());
+        Assert.assertEquals(low.getMapBandwidth(), 30);
+        Assert.assertEquals(read(low), "30");
+
+        allocator.release(low);
+        Assert.assertEquals(allocator.getAllocationCount("dc1", "dc2"), 0);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication;
+
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for JobClients.
+ */
+public class JobClientsTest {
+
+    private static Job job(int id) throws Exception {
+        JobID jobId = new JobID("test", id);
+        JobStatus status = Mockito.mock(JobStatus.class);
+        Mockito.when(status.getJobID()).thenReturn(jobId);
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getJobID()).thenReturn(jobId);
+        Mockito.when(job.getStatus()).thenReturn(status);
+        return job;
+    }
+
+    @Test
+    public void testStatusCached() throws Exception {
+        JobClients jobClients = new JobClients(10, 60000, 0);
+        Job job = job(1);
+        JobStatus status = jobClients.getStatus(job);
+        Assert.assertSame(jobClients.getStatus(job), status);
+        Mockito.verify(job, Mockito.times(1)).getStatus();
+        Assert.assertEquals(jobClients.getStatusHits(), 1);
+        Assert.assertEquals(jobClients.getStatusMisses(), 1);
+    }
+
+    @Test
+    public void testStatusExpired() throws Exception {
+        JobClients jobClients = new JobClients(10, 50, 0);
+        Job job = job(1);
+        jobClients.getStatus(job);
+        Thread.sleep(100);
+        jobClients.getStatus(job);
+        Mockito.verify(job, Mockito.times(2)).getStatus();
+    }
+
+    @Test
+    public void testCacheBounded() throws Exception {
+        JobClients jobClients = new JobClients(1, 60000, 0);
+        Job first = job(1);
+        Job second = job(2);
+        jobClients.putStatus(first.getStatus());
+        jobClients.putStatus(second.getStatus());
+        jobClients.getStatus(second);
+        jobClients.getStatus(first);
+        Mockito.verify(second, Mockito.times(1)).getStatus();
+        Mockito.verify(first, Mockito.times(2)).getStatus();
+    }
+
+    @Test
+    public void testRefreshStatus() throws Exception {
+        JobClients jobClients = new JobClients(10, 60000, 0);
+        Job job = job(1);
+        jobClients.getStatus(job);
+        jobClients.refreshStatus(job);
+        Mockito.verify(job, Mockito.times(2)).getStatus();
+        jobClients.getStatus(job);
+        Mockito.verify(job, Mockito.times(2)).getStatus();
+    }
+
+    @Test
+    public void testClientClosedAfterDelay() throws Exception {
+        JobClients jobClients = new JobClients(10, 60000, 500);
+        JobClient client = Mockito.mock(JobClient.class);
+        jobClients.closeLater("local", client);
+        Mockito.verify(client, Mockito.never()).close();
+        Mockito.verify(client, Mockito.timeout(5000)).close();
+    }
+}
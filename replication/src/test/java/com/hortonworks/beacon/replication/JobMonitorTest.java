@@ -0,0 +1,112 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication;
+
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for JobMonitor.
+ */
+public class JobMonitorTest {
+
+    private JobMonitor monitor;
+
+    @BeforeClass
+    public void setup() {
+        monitor = new JobMonitor(2, 10, 40);
+    }
+
+    @AfterClass
+    public void teardown() {
+        monitor.shutdown();
+    }
+
+    private static JobStatus status(JobStatus.State state, float mapProgress) {
+        JobStatus status = Mockito.mock(JobStatus.class);
+        Mockito.when(status.getState()).thenReturn(state);
+        Mockito.when(status.isJobComplete()).thenReturn(state != JobStatus.State.RUNNING);
+        Mockito.when(status.getMapProgress()).thenReturn(mapProgress);
+        return status;
+    }
+
+    @Test
+    public void testJobSucceeded() throws Exception {
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getStatus()).thenReturn(status(JobStatus.State.RUNNING, 0.1f),
+                status(JobStatus.State.RUNNING, 0.5f), status(JobStatus.State.SUCCEEDED, 1.0f));
+        final AtomicInteger progressCalls = new AtomicInteger();
+        Future<Boolean> completion = monitor.watch(job, new JobMonitor.ProgressListener() {
+            @Override
+            public void onProgress(Job job) {
+                progressCalls.incrementAndGet();
+            }
+        }, 0);
+
+        Assert.assertTrue(completion.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(progressCalls.get(), 2);
+        Mockito.verify(job, Mockito.times(3)).getStatus();
+    }
+
+    @Test
+    public void testJobFailed() throws Exception {
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getStatus()).thenReturn(status(JobStatus.State.FAILED, 0.3f));
+        Assert.assertFalse(monitor.watch(job, null, 0).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStatusError() throws Exception {
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getStatus()).thenThrow(new IOException("RM unreachable"));
+        try {
+            monitor.watch(job, null, 0).get(10, TimeUnit.SECONDS);
+            Assert.fail("Expected the status error");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testCancelStopsPolling() throws Exception {
+        Job job = Mockito.mock(Job.class);
+        Mockito.when(job.getStatus()).thenReturn(status(JobStatus.State.RUNNING, 0.1f));
+        Future<Boolean> completion = monitor.watch(job, null, 0);
+        Thread.sleep(100);
+        completion.cancel(false);
+        Thread.sleep(100);
+        int watched = monitor.getWatchedCount();
+        Assert.assertEquals(watched, 0);
+    }
+}
@@ -0,0 +1,338 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication.fs;
+
+import com.google.gson.GsonBuilder;
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.api.PropertiesIgnoreCase;
+import com.hortonworks.beacon.client.entity.Cluster;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.entity.FSDRProperties;
+import com.hortonworks.beacon.entity.util.ClusterBuilder;
+import com.hortonworks.beacon.entity.util.ClusterDao;
+import com.hortonworks.beacon.job.JobContext;
+import com.hortonworks.beacon.replication.ReplicationJobDetails;
+import com.hortonworks.beacon.service.BeaconStoreService;
+import com.hortonworks.beacon.service.ServiceManager;
+import com.hortonworks.beacon.tools.BeaconDBSetup;
+import com.hortonworks.beacon.util.ReplicationType;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.tools.mapred.CopyMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * End to end replication benchmark on a MiniDFSCluster with the local MR runner. It is not picked up by the
+ * regular test run; run it with, for example:
+ * <pre>
+ * mvn test -pl replication -Dtest=HDFSReplicationBenchmark -Dbenchmark.files=10000 -Dbenchmark.sizes=64k:90,8m:10
+ * </pre>
+ * It replicates a synthetic dataset with a full copy, then with snapshot diff copies over several rounds of churn,
+ * then recovers a target that diverged from its last snapshot. For every run it reports files/sec, MB/sec, the time
+ * until the DistCp job was submitted (listing, including the snapshot diff sync), the time from the end of the maps
+ * until the run returned (job commit plus target snapshot handling) and the number of DB statements executed.
+ * The results are written as JSON to benchmark.result.
+ */
+public class HDFSReplicationBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HDFSReplicationBenchmark.class);
+    private static final String SOURCE = "source";
+    private static final String TARGET = "target";
+    private static final String FS_ENDPOINT = "hdfs://localhost:" + MiniHDFSClusterUtil.REPL_BENCHMARK_PORT;
+    private static final long MONITOR_INTERVAL_MILLIS = 10;
+    private static final double MB = 1024 * 1024;
+
+    private final int numFiles = Integer.getInteger("benchmark.files", 1000);
+    private final String sizes = System.getProperty("benchmark.sizes", "4k:80,256k:15,4m:5");
+    private final int depth = Integer.getInteger("benchmark.depth", 3);
+    private final int fanout = Integer.getInteger("benchmark.fanout", 8);
+    private final int rounds = Integer.getInteger("benchmark.rounds", 3);
+    private final double churn = Double.parseDouble(System.getProperty("benchmark.churn", "0.05"));
+    private final long seed = Long.getLong("benchmark.seed", 42L);
+    private final String maxMaps = System.getProperty("benchmark.maps", "4");
+    private final String resultFile = System.getProperty("benchmark.result",
+            "target/hdfs-replication-benchmark.json");
+
+    private MiniDFSCluster miniDFSCluster;
+    private DistributedFileSystem miniDfs;
+    private File baseDir;
+    private final List<RunResult> results = new ArrayList<>();
+    private int instanceCount;
+
+    @BeforeClass
+    public void init() throws Exception {
+        CountingJdbcDriver.install(BeaconConfig.getInstance().getDbStore());
+        RequestContext.setInitialValue();
+        ServiceManager.getInstance().initialize(Collections.singletonList(BeaconStoreService.class.getName()), null);
+        BeaconDBSetup.setupDB();
+
+        ClusterDao clusterDao = new ClusterDao();
+        RequestContext.get().startTransaction();
+        for (String name : new String[]{SOURCE, TARGET}) {
+            PropertiesIgnoreCase clusterProps = new PropertiesIgnoreCase();
+            clusterProps.setProperty(Cluster.ClusterFields.NAME.getName(), name);
+            clusterProps.setProperty(Cluster.ClusterFields.FSENDPOINT.getName(), FS_ENDPOINT);
+            clusterProps.setProperty(Cluster.ClusterFields.DESCRIPTION.getName(), name + " cluster");
+            clusterProps.setProperty(Cluster.ClusterFields.BEACONENDPOINT.getName(), "http://localhost:55000");
+            clusterDao.submitCluster(ClusterBuilder.buildCluster(clusterProps, name));
+        }
+        RequestContext.get().commitTransaction();
+
+        baseDir = Files.createTempDirectory("replication-benchmark").toFile().getAbsoluteFile();
+        miniDFSCluster = MiniHDFSClusterUtil.initMiniDfs(MiniHDFSClusterUtil.REPL_BENCHMARK_PORT, baseDir);
+        miniDfs = miniDFSCluster.getFileSystem();
+    }
+
+    @AfterClass
+    public void teardown() {
+        RequestContext.get().clear();
+        if (miniDFSCluster != null) {
+            MiniHDFSClusterUtil.cleanupDfs(miniDFSCluster, baseDir);
+        }
+    }
+
+    @Test
+    public void benchmarkReplication() throws Exception {
+        LOG.info("Benchmark dataset: files={}, sizes={}, depth={}, fanout={}, rounds={}, churn={}, seed={}",
+                numFiles, sizes, depth, fanout, rounds, churn, seed);
+        benchmarkFullCopy();
+        benchmarkSnapshotCopy();
+
+        StringBuilder report = new StringBuilder(String.format("%n%-10s %5s %8s %10s %10s %10s %10s %10s %6s%n",
+                "run", "round", "files", "files/s", "MB/s", "list(ms)", "commit(ms)", "total(ms)", "db"));
+        for (RunResult result : results) {
+            report.append(result).append(System.lineSeparator());
+        }
+        LOG.info(report.toString());
+        try (Writer writer = new FileWriter(resultFile)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(results, writer);
+        }
+        LOG.info("Benchmark results written to {}", new File(resultFile).getAbsolutePath());
+    }
+
+    private void benchmarkFullCopy() throws Exception {
+        Path source = new Path("/benchmark/full/source");
+        Path target = new Path("/benchmark/full/target");
+        miniDfs.mkdirs(target);
+        new SyntheticDataset(numFiles, sizes, depth, fanout, seed).create(miniDfs, source);
+
+        Properties props = getReplicationProperties("benchmarkFull", source, target, false);
+        HDFSReplication replication = new HDFSReplication(getJobDetails(props));
+        JobContext jobContext = newJobContext();
+        replication.init(jobContext);
+        results.add(perform("full", 0, replication, jobContext));
+    }
+
+    private void benchmarkSnapshotCopy() throws Exception {
+        Path source = new Path("/benchmark/snapshot/source");
+        Path target = new Path("/benchmark/snapshot/target");
+        miniDfs.mkdirs(source);
+        miniDfs.mkdirs(target);
+        miniDfs.allowSnapshot(source);
+        miniDfs.allowSnapshot(target);
+        SyntheticDataset dataset = new SyntheticDataset(numFiles, sizes, depth, fanout, seed);
+        dataset.create(miniDfs, source);
+
+        Properties props = getReplicationProperties("benchmarkSnapshot", source, target, true);
+        for (int round = 0; round <= rounds; round++) {
+            if (round > 0) {
+                dataset.churn(miniDfs, source, churn);
+            }
+            HDFSReplication replication = new HDFSReplication(getJobDetails(props));
+            JobContext jobContext = newJobContext();
+            replication.init(jobContext);
+            results.add(perform(round == 0 ? "snapshot" : "diff", round, replication, jobContext));
+        }
+
+        // Without tracking info for the instance, init reverts the target to the last replicated snapshot, and the
+        // run then copies the changes since that snapshot. The revert is timed as part of the run.
+        dataset.scribble(miniDfs, target, Math.max(1, (int) Math.round(numFiles * churn)));
+        HDFSReplication replication = new HDFSReplication(getJobDetails(props));
+        JobContext jobContext = newJobContext();
+        Run run = new Run(replication);
+        replication.init(jobContext);
+        if (jobContext.isRecovery()) {
+            replication.recover(jobContext);
+        }
+        results.add(perform("recovery", 0, run, replication, jobContext));
+    }
+
+    private RunResult perform(String name, int round, HDFSReplication replication, JobContext jobContext)
+            throws Exception {
+        return perform(name, round, new Run(replication), replication, jobContext);
+    }
+
+    private RunResult perform(String name, int round, Run run, HDFSReplication replication, JobContext jobContext)
+            throws Exception {
+        replication.perform(jobContext);
+        return run.finish(name, round, jobContext);
+    }
+
+    private Properties getReplicationProperties(String name, Path source, Path target, boolean snapshot) {
+        Properties props = new Properties();
+        props.setProperty(FSDRProperties.JOB_NAME.getName(), name);
+        props.setProperty(FSDRProperties.JOB_TYPE.getName(), ReplicationType.FS.getName());
+        props.setProperty(FSDRProperties.JOB_FREQUENCY.getName(), "3600");
+        props.setProperty(FSDRProperties.SOURCE_DATASET.getName(), source.toString());
+        props.setProperty(FSDRProperties.TARGET_DATASET.getName(), target.toString());
+        props.setProperty(FSDRProperties.SOURCE_CLUSTER_NAME.getName(), SOURCE);
+        props.setProperty(FSDRProperties.TARGET_CLUSTER_NAME.getName(), TARGET);
+        props.setProperty(FSDRProperties.DISTCP_MAX_MAPS.getName(), maxMaps);
+        props.setProperty(FSDRProperties.DISTCP_MAP_BANDWIDTH_IN_MB.getName(), "1000");
+        props.setProperty(FSDRProperties.QUEUE_NAME.getName(), "default");
+        props.setProperty(FSDRProperties.TDE_ENCRYPTION_ENABLED.getName(), "false");
+        props.setProperty(FSDRProperties.ENABLE_SNAPSHOTBASED_REPLICATION.getName(), String.valueOf(snapshot));
+        props.setProperty(FSDRProperties.SOURCE_SNAPSHOT_RETENTION_AGE_LIMIT.getName(), "days(7)");
+        props.setProperty(FSDRProperties.SOURCE_SNAPSHOT_RETENTION_NUMBER.getName(), "3");
+        props.setProperty(FSDRProperties.TARGET_SNAPSHOT_RETENTION_AGE_LIMIT.getName(), "days(7)");
+        props.setProperty(FSDRProperties.TARGET_SNAPSHOT_RETENTION_NUMBER.getName(), "3");
+        return props;
+    }
+
+    private ReplicationJobDetails getJobDetails(Properties props) {
+        String name = props.getProperty(FSDRProperties.JOB_NAME.getName());
+        String type = props.getProperty(FSDRProperties.JOB_TYPE.getName());
+        return new ReplicationJobDetails(name + "-" + type, name, type, props);
+    }
+
+    private JobContext newJobContext() {
+        JobContext jobContext = new JobContext();
+        jobContext.setJobInstanceId(String.format("/source/source/benchmark/0/%d/%05d@1",
+                System.currentTimeMillis(), ++instanceCount));
+        return jobContext;
+    }
+
+    /**
+     * Times a single replication run. A monitor thread watches the DistCp job to note when it was submitted and
+     * when its maps were done, so those times are accurate to the monitor interval.
+     */
+    private static final class Run implements Runnable {
+        private final HDFSReplication replication;
+        private final long startMillis = System.currentTimeMillis();
+        private final long startStatements = CountingJdbcDriver.getStatementCount();
+        private final Thread monitor;
+        private volatile boolean stopped;
+        private volatile long submittedMillis = -1;
+        private volatile long mapsDoneMillis = -1;
+
+        private Run(HDFSReplication replication) {
+            this.replication = replication;
+            monitor = new Thread(this, "benchmark-job-monitor");
+            monitor.setDaemon(true);
+            monitor.start();
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                Job job = replication.job;
+                if (job != null) {
+                    long now = System.currentTimeMillis();
+                    if (submittedMillis < 0) {
+                        submittedMillis = now;
+                    }
+                    try {
+                        if (mapsDoneMillis < 0 && job.mapProgress() >= 1.0f) {
+                            mapsDoneMillis = now;
+                        }
+                    } catch (IOException e) {
+                        LOG.debug("Unable to get the map progress of {}", job.getJobName(), e);
+                    }
+                }
+                try {
+                    Thread.sleep(MONITOR_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private RunResult finish(String name, int round, JobContext jobContext) throws Exception {
+            long endMillis = System.currentTimeMillis();
+            stopped = true;
+            monitor.join();
+
+            RunResult result = new RunResult(name, round);
+            result.totalMillis = endMillis - startMillis;
+            result.dbStatements = CountingJdbcDriver.getStatementCount() - startStatements;
+            Job job = replication.job;
+            if (job != null) {
+                Counters counters = job.getCounters();
+                result.files = counters.findCounter(CopyMapper.Counter.COPY).getValue();
+                result.bytes = counters.findCounter(CopyMapper.Counter.BYTESCOPIED).getValue();
+                long submitted = submittedMillis < 0 ? endMillis : submittedMillis;
+                result.listingMillis = submitted - startMillis;
+                result.commitMillis = endMillis - (mapsDoneMillis < 0 ? submitted : mapsDoneMillis);
+            }
+            double seconds = Math.max(result.totalMillis, 1) / 1000.0;
+            result.filesPerSec = result.files / seconds;
+            result.mbPerSec = result.bytes / MB / seconds;
+            replication.cleanUp(jobContext);
+            return result;
+        }
+    }
+
+    /**
+     * Measurements of a single replication run.
+     */
+    private static final class RunResult {
+        private final String run;
+        private final int round;
+        private long files;
+        private long bytes;
+        private double filesPerSec;
+        private double mbPerSec;
+        private long listingMillis;
+        private long commitMillis;
+        private long totalMillis;
+        private long dbStatements;
+
+        private RunResult(String run, int round) {
+            this.run = run;
+            this.round = round;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %5d %8d %10.1f %10.2f %10d %10d %10d %6d", run, round, files, filesPerSec,
+                    mbPerSec, listingMillis, commitMillis, totalMillis, dbStatements);
+        }
+    }
+}
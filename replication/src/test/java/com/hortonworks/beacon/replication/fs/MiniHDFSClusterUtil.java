@@ -38,6 +38,7 @@ public final class MiniHDFSClusterUtil {
 
     public static final int SNAPSHOT_REPL_TEST_PORT1 = 54136;
     public static final int SNAPSHOT_REPL_TEST_PORT2 = 54137;
+    public static final int REPL_BENCHMARK_PORT = 54140;
 
 
     public static MiniDFSCluster initMiniDfs(int port, File baseDir) throws Exception {
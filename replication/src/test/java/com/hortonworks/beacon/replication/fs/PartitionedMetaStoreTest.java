@@ -0,0 +1,285 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication.fs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.AclEntry;
+import org.apache.hadoop.fs.permission.AclEntryScope;
+import org.apache.hadoop.fs.permission.AclEntryType;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.tools.CopyListingFileStatus;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class for PartitionedMetaStore.
+ */
+public class PartitionedMetaStoreTest {
+
+    private final PermissionMetaFileOperator metaFileOperator = new PermissionMetaFileOperator();
+    private Configuration conf;
+    private FileSystem fs;
+    private File baseDir;
+    private Path metaDir;
+    private Path listing;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        conf = new Configuration();
+        fs = FileSystem.getLocal(conf);
+        baseDir = Files.createTempDirectory("partitioned-meta-store").toFile().getAbsoluteFile();
+        metaDir = new Path(baseDir.getAbsolutePath(), "cloud");
+        fs.mkdirs(metaDir);
+        listing = new Path(baseDir.getAbsolutePath(), "fileList.seq");
+    }
+
+    @AfterMethod
+    public void teardown() {
+        FileUtil.fullyDelete(baseDir);
+    }
+
+    @Test
+    public void testMergeRewritesTouchedSegments() throws Exception {
+        PartitionedMetaStore store = new PartitionedMetaStore(fs, metaDir, conf, 4, 100);
+        writeListing(10, "/f7", "/f2", "/f9", "/f0", "/f5", "/f1", "/f8", "/f3", "/f6", "/f4");
+        Assert.assertEquals(store.merge(fs, listing, conf), 0);
+        List<Path> segments = store.getSegmentPaths();
+        Assert.assertEquals(segments.size(), 3);
+        Assert.assertEquals(readKeys(segments), keys("/f0", "/f1", "/f2", "/f3", "/f4", "/f5", "/f6", "/f7", "/f8",
+                "/f9"));
+
+        // only the segment holding /f5 and the new /f55 is rewritten, and split as it outgrows the limit
+        writeListing(20, "/f55", "/f5");
+        Assert.assertEquals(store.merge(fs, listing, conf), 1);
+        List<Path> merged = store.getSegmentPaths();
+        Assert.assertEquals(merged.size(), 4);
+        Assert.assertEquals(merged.get(0), segments.get(0));
+        Assert.assertEquals(merged.get(3), segments.get(2));
+        Assert.assertFalse(fs.exists(segments.get(1)));
+        Assert.assertEquals(readKeys(merged), keys("/f0", "/f1", "/f2", "/f3", "/f4", "/f5", "/f55", "/f6", "/f7",
+                "/f8", "/f9"));
+        Assert.assertEquals(readLength(merged, "/f5"), 20);
+        Assert.assertEquals(readLength(merged, "/f4"), 10);
+
+        // a key below all segments goes to the first one
+        writeListing(30, "/a", "/f56", "/f57");
+        Assert.assertEquals(store.merge(fs, listing, conf), 2);
+        merged = store.getSegmentPaths();
+        Assert.assertEquals(merged.size(), 6);
+        Assert.assertEquals(readKeys(merged).get(0), "/a");
+        Assert.assertEquals(readKeys(merged).size(), 14);
+        Assert.assertEquals(segmentFiles().size(), 6);
+    }
+
+    @Test
+    public void testLargeListingIsSorted() throws Exception {
+        PartitionedMetaStore store = new PartitionedMetaStore(fs, metaDir, conf, 2, 2);
+        writeListing(10, "/c", "/a", "/d", "/b");
+        store.merge(fs, listing, conf);
+        Assert.assertEquals(readKeys(store.getSegmentPaths()), keys("/a", "/b", "/c", "/d"));
+        Assert.assertFalse(fs.exists(new Path(listing.toString() + "_sorted")));
+    }
+
+    @Test
+    public void testMigrateLegacyMeta() throws Exception {
+        Path legacy = new Path(metaDir, PartitionedMetaStore.LEGACY_META_FILE);
+        writeListing(legacy, 10, "/a", "/b", "/c");
+        PartitionedMetaStore store = new PartitionedMetaStore(fs, metaDir, conf, 4, 100);
+        Assert.assertEquals(store.getSegmentPaths().size(), 1);
+
+        writeListing(20, "/b", "/d");
+        Assert.assertEquals(store.merge(fs, listing, conf), 1);
+        Assert.assertFalse(fs.exists(legacy));
+        List<Path> segments = store.getSegmentPaths();
+        Assert.assertEquals(readKeys(segments), keys("/a", "/b", "/c", "/d"));
+        Assert.assertEquals(readLength(segments, "/b"), 20);
+    }
+
+    @Test
+    public void testMigrateLegacyLayoutMeta() throws Exception {
+        // fileList.seq_sorted as written before segments and chunks: records end with the ACL entries and xAttrs
+        Path legacy = new Path(metaDir, PartitionedMetaStore.LEGACY_META_FILE);
+        SequenceFile.Writer writer = metaFileOperator.writer(legacy, conf);
+        try {
+            for (String relPath : new String[]{"/a", "/b", "/c"}) {
+                DataOutputBuffer key = new DataOutputBuffer();
+                new Text(relPath).write(key);
+                writer.appendRaw(key.getData(), 0, key.getLength(), new LegacyRecord(relPath));
+            }
+        } finally {
+            IOUtils.closeStream(writer);
+        }
+
+        PartitionedMetaStore store = new PartitionedMetaStore(fs, metaDir, conf, 4, 100);
+        writeListing(20, "/d");
+        Assert.assertEquals(store.merge(fs, listing, conf), 1);
+        Assert.assertFalse(fs.exists(legacy));
+        List<Path> segments = store.getSegmentPaths();
+        Assert.assertEquals(readKeys(segments), keys("/a", "/b", "/c", "/d"));
+        Assert.assertEquals(readLength(segments, "/b"), 10);
+
+        SequenceFile.Reader reader = metaFileOperator.reader(segments.get(0), conf);
+        try {
+            Text key = new Text();
+            CopyListingFileStatus value = new CopyListingFileStatus();
+            Assert.assertTrue(reader.next(key, value));
+            Assert.assertEquals(value.getPath(), new Path("/data/a"));
+            Assert.assertEquals(value.getOwner(), "hdfs");
+            Assert.assertEquals(value.getAclEntries(), Collections.singletonList(LegacyRecord.ACL_ENTRY));
+            Assert.assertEquals(value.getXAttrs().get(LegacyRecord.XATTR_NAME), LegacyRecord.XATTR_VALUE);
+            Assert.assertFalse(value.isSplit());
+        } finally {
+            IOUtils.closeStream(reader);
+        }
+    }
+
+    private void writeListing(long length, String... relPaths) throws IOException {
+        writeListing(listing, length, relPaths);
+    }
+
+    private void writeListing(Path path, long length, String... relPaths) throws IOException {
+        SequenceFile.Writer writer = metaFileOperator.writer(path, conf);
+        try {
+            for (String relPath : relPaths) {
+                FileStatus status = new FileStatus(length, false, 1, 0, 0, new Path("/data" + relPath));
+                writer.append(new Text(relPath), new CopyListingFileStatus(status));
+            }
+        } finally {
+            IOUtils.closeStream(writer);
+        }
+    }
+
+    private List<String> readKeys(List<Path> segments) throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (Path segment : segments) {
+            SequenceFile.Reader reader = metaFileOperator.reader(segment, conf);
+            try {
+                Text key = new Text();
+                CopyListingFileStatus value = new CopyListingFileStatus();
+                while (reader.next(key, value)) {
+                    keys.add(key.toString());
+                }
+            } finally {
+                IOUtils.closeStream(reader);
+            }
+        }
+        return keys;
+    }
+
+    private long readLength(List<Path> segments, String relPath) throws IOException {
+        for (Path segment : segments) {
+            SequenceFile.Reader reader = metaFileOperator.reader(segment, conf);
+            try {
+                Text key = new Text();
+                CopyListingFileStatus value = new CopyListingFileStatus();
+                while (reader.next(key, value)) {
+                    if (key.toString().equals(relPath)) {
+                        return value.getLen();
+                    }
+                }
+            } finally {
+                IOUtils.closeStream(reader);
+            }
+        }
+        return -1;
+    }
+
+    private Set<String> segmentFiles() throws IOException {
+        Set<String> files = new HashSet<>();
+        for (FileStatus status : fs.listStatus(metaDir)) {
+            if (status.getPath().getName().endsWith(".seq")) {
+                files.add(status.getPath().getName());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * File status serialized in the record layout of CopyListingFileStatus before chunks were introduced.
+     */
+    private static final class LegacyRecord implements SequenceFile.ValueBytes {
+        private static final AclEntry ACL_ENTRY = new AclEntry.Builder().setScope(AclEntryScope.ACCESS)
+                .setType(AclEntryType.USER).setName("beacon").setPermission(FsAction.READ_EXECUTE).build();
+        private static final String XATTR_NAME = "user.origin";
+        private static final byte[] XATTR_VALUE = {1, 2, 3};
+
+        private final DataOutputBuffer record = new DataOutputBuffer();
+
+        private LegacyRecord(String relPath) throws IOException {
+            new FileStatus(10, false, 1, 0, 0, 0, null, "hdfs", "hdfs", new Path("/data" + relPath)).write(record);
+            record.writeByte(1);
+            record.writeByte(ACL_ENTRY.getScope().ordinal());
+            record.writeByte(ACL_ENTRY.getType().ordinal());
+            WritableUtils.writeString(record, ACL_ENTRY.getName());
+            record.writeByte(ACL_ENTRY.getPermission().ordinal());
+            record.writeInt(1);
+            WritableUtils.writeString(record, XATTR_NAME);
+            record.writeInt(XATTR_VALUE.length);
+            record.write(XATTR_VALUE);
+        }
+
+        @Override
+        public void writeUncompressedBytes(DataOutputStream outStream) throws IOException {
+            outStream.write(record.getData(), 0, record.getLength());
+        }
+
+        @Override
+        public void writeCompressedBytes(DataOutputStream outStream) throws IOException {
+            throw new IOException("Legacy records are written uncompressed");
+        }
+
+        @Override
+        public int getSize() {
+            return record.getLength();
+        }
+    }
+
+    private static List<String> keys(String... keys) {
+        List<String> list = new ArrayList<>();
+        for (String key : keys) {
+            list.add(key);
+        }
+        return list;
+    }
+}
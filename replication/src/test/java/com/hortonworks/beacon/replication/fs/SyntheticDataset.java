@@ -0,0 +1,203 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.replication.fs;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a reproducible dataset of files spread over a directory tree, and applies churn to it between
+ * replication rounds. The file sizes follow a weighted distribution such as "4k:80,1m:15,64m:5".
+ */
+class SyntheticDataset {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final short REPLICATION = 1;
+
+    private final int numFiles;
+    private final long[] sizes;
+    private final int[] cumulativeWeights;
+    private final int depth;
+    private final int fanout;
+    private final Random random;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final List<String> files = new ArrayList<>();
+    private int nextFileId;
+
+    SyntheticDataset(int numFiles, String sizeDistribution, int depth, int fanout, long seed) {
+        this.numFiles = numFiles;
+        this.depth = depth;
+        this.fanout = Math.max(1, fanout);
+        this.random = new Random(seed);
+        random.nextBytes(buffer);
+
+        String[] buckets = sizeDistribution.split(",");
+        sizes = new long[buckets.length];
+        cumulativeWeights = new int[buckets.length];
+        int totalWeight = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            String[] bucket = buckets[i].trim().split(":");
+            sizes[i] = parseSize(bucket[0]);
+            totalWeight += bucket.length > 1 ? Integer.parseInt(bucket[1].trim()) : 1;
+            cumulativeWeights[i] = totalWeight;
+        }
+    }
+
+    /**
+     * Writes the initial files under root.
+     */
+    Stats create(FileSystem fs, Path root) throws IOException {
+        Stats stats = new Stats();
+        for (int i = 0; i < numFiles; i++) {
+            String file = newFileName();
+            stats.add(write(fs, new Path(root, file)));
+            files.add(file);
+        }
+        return stats;
+    }
+
+    /**
+     * Changes the given fraction of the files under root, cycling through creates, overwrites, deletes and renames.
+     */
+    Stats churn(FileSystem fs, Path root, double fraction) throws IOException {
+        Stats stats = new Stats();
+        int changes = Math.max(1, (int) Math.round(files.size() * fraction));
+        for (int i = 0; i < changes; i++) {
+            switch (i % 4) {
+                case 0:
+                    String created = newFileName();
+                    stats.add(write(fs, new Path(root, created)));
+                    files.add(created);
+                    break;
+                case 1:
+                    stats.add(write(fs, new Path(root, randomFile())));
+                    break;
+                case 2:
+                    fs.delete(new Path(root, files.remove(random.nextInt(files.size()))), false);
+                    break;
+                default:
+                    int index = random.nextInt(files.size());
+                    String renamed = files.get(index) + ".r";
+                    fs.rename(new Path(root, files.get(index)), new Path(root, renamed));
+                    files.set(index, renamed);
+                    break;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Writes files under root which are not part of the dataset, to make a target diverge from its last snapshot.
+     */
+    Stats scribble(FileSystem fs, Path root, int count) throws IOException {
+        Stats stats = new Stats();
+        for (int i = 0; i < count; i++) {
+            stats.add(write(fs, new Path(root, "stray/file" + i)));
+        }
+        return stats;
+    }
+
+    private String newFileName() {
+        int id = nextFileId++;
+        StringBuilder name = new StringBuilder();
+        int bucket = id;
+        for (int level = 0; level < depth; level++) {
+            name.append("dir").append(bucket % fanout).append(Path.SEPARATOR);
+            bucket /= fanout;
+        }
+        return name.append("file").append(id).toString();
+    }
+
+    private String randomFile() {
+        return files.get(random.nextInt(files.size()));
+    }
+
+    private long write(FileSystem fs, Path path) throws IOException {
+        long size = nextSize();
+        try (FSDataOutputStream out = fs.create(path, true, BUFFER_SIZE, REPLICATION, fs.getDefaultBlockSize(path))) {
+            long remaining = size;
+            while (remaining > 0) {
+                int length = (int) Math.min(remaining, buffer.length);
+                out.write(buffer, random.nextInt(buffer.length - length + 1), length);
+                remaining -= length;
+            }
+        }
+        return size;
+    }
+
+    private long nextSize() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return sizes[i];
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase();
+        long multiplier = 1;
+        switch (value.charAt(value.length() - 1)) {
+            case 'k':
+                multiplier = 1024L;
+                break;
+            case 'm':
+                multiplier = 1024L * 1024;
+                break;
+            case 'g':
+                multiplier = 1024L * 1024 * 1024;
+                break;
+            default:
+                return Long.parseLong(value);
+        }
+        return Long.parseLong(value.substring(0, value.length() - 1)) * multiplier;
+    }
+
+    /**
+     * Number of files and bytes written.
+     */
+    static final class Stats {
+        private int files;
+        private long bytes;
+
+        private void add(long size) {
+            files++;
+            bytes += size;
+        }
+
+        int getFiles() {
+            return files;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.scheduler;
+
+import com.hortonworks.beacon.store.executors.StateUpdateExecutor;
+import com.hortonworks.beacon.store.executors.StateUpdateExecutor.StateTable;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind journal for the scheduler state updates done during a single job transition.
+ *
+ * The updates recorded for the same row are coalesced into one statement and written when the journal is flushed,
+ * which happens before the transition's transaction is committed. As everything is still written within the same
+ * transaction, the committed state is identical to the one written by the individual updates, so
+ * {@link RecoveryService} keeps working on the same store content.
+ *
+ * Updates of a table are always written in the recorded order, and an update is merged only with the last pending
+ * update of its table. Reads of a table from {@link StoreHelper} flush the pending updates of that table first.
+ */
+public final class StateJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateJournal.class);
+    private static final ThreadLocal<StateJournal> CURRENT = new ThreadLocal<>();
+
+    private static final AtomicLong RECORDED_UPDATES = new AtomicLong();
+    private static final AtomicLong EXECUTED_STATEMENTS = new AtomicLong();
+    private static final AtomicLong FLUSHES = new AtomicLong();
+
+    private final List<PendingUpdate> pending = new ArrayList<>();
+
+    private StateJournal() {
+    }
+
+    /**
+     * Start journaling the state updates of the current thread.
+     */
+    public static void begin() {
+        CURRENT.set(new StateJournal());
+    }
+
+    /**
+     * Stop journaling for the current thread, pending updates which were not flushed are discarded.
+     */
+    public static void end() {
+        StateJournal journal = CURRENT.get();
+        CURRENT.remove();
+        if (journal != null && !journal.pending.isEmpty()) {
+            LOG.debug("Discarding {} pending state updates.", journal.pending.size());
+        }
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static StateJournal get() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Flush all the pending updates of the current thread, if journaling is active.
+     */
+    public static void flushCurrent() {
+        StateJournal journal = CURRENT.get();
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    /**
+     * Flush the pending updates of the table before it is read, if journaling is active.
+     */
+    static void barrier(StateTable table) {
+        StateJournal journal = CURRENT.get();
+        if (journal != null) {
+            journal.flush(table);
+        }
+    }
+
+    /**
+     * Returns the pending update of the row to which the fields can be set.
+     * @param table table of the row
+     * @param keys key fields of the row
+     * @param condition additional condition for the update, can be null
+     * @return pending update for the row
+     */
+    public PendingUpdate update(StateTable table, Map<String, Object> keys, String condition) {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            PendingUpdate update = pending.get(i);
+            if (update.table == table) {
+                if (update.keys.equals(keys) && StringUtils.equals(update.condition, condition)) {
+                    update.records++;
+                    return update;
+                }
+                break;
+            }
+        }
+        PendingUpdate update = new PendingUpdate(table, keys, condition);
+        pending.add(update);
+        return update;
+    }
+
+    public void flush() {
+        flush(null);
+    }
+
+    private void flush(StateTable table) {
+        int records = 0;
+        int statements = 0;
+        Iterator<PendingUpdate> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            PendingUpdate update = iterator.next();
+            if (table != null && update.table != table) {
+                continue;
+            }
+            new StateUpdateExecutor(update.table).executeUpdate(update.fields, update.keys, update.condition);
+            iterator.remove();
+            records += update.records;
+            statements++;
+        }
+        if (statements > 0) {
+            FLUSHES.incrementAndGet();
+            RECORDED_UPDATES.addAndGet(records);
+            EXECUTED_STATEMENTS.addAndGet(statements);
+            LOG.debug("Flushed {} state updates with {} statements.", records, statements);
+        }
+    }
+
+    public static long getRecordedUpdates() {
+        return RECORDED_UPDATES.get();
+    }
+
+    public static long getExecutedStatements() {
+        return EXECUTED_STATEMENTS.get();
+    }
+
+    /**
+     * Statements saved by coalescing the flushed updates.
+     */
+    public static long getSavedStatements() {
+        return RECORDED_UPDATES.get() - EXECUTED_STATEMENTS.get();
+    }
+
+    public static long getFlushCount() {
+        return FLUSHES.get();
+    }
+
+    /**
+     * Coalesced update of a single row (or set of rows selected by the keys and condition).
+     */
+    public static final class PendingUpdate {
+        private final StateTable table;
+        private final Map<String, Object> keys;
+        private final String condition;
+        private final Map<String, Object> fields = new LinkedHashMap<>();
+        private int records = 1;
+
+        private PendingUpdate(StateTable table, Map<String, Object> keys, String condition) {
+            this.table = table;
+            this.keys = keys;
+            this.condition = condition;
+        }
+
+        public PendingUpdate set(String field, Object value) {
+            fields.put(field, value);
+            return this;
+        }
+    }
+}
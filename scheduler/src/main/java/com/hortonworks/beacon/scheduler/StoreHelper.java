@@ -31,6 +31,7 @@ import com.hortonworks.beacon.events.EventEntityType;
 import com.hortonworks.beacon.events.Events;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.job.JobContext;
+import com.hortonworks.beacon.job.JobContextCodec;
 import com.hortonworks.beacon.job.JobStatus;
 import com.hortonworks.beacon.scheduler.internal.SyncStatusJob;
 import com.hortonworks.beacon.scheduler.quartz.QuartzDataMapEnum;
@@ -44,6 +45,7 @@ import com.hortonworks.beacon.store.executors.PolicyExecutor;
 import com.hortonworks.beacon.store.executors.PolicyExecutor.PolicyQuery;
 import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor;
 import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor.PolicyInstanceQuery;
+import com.hortonworks.beacon.store.executors.StateUpdateExecutor.StateTable;
 import org.apache.commons.lang3.StringUtils;
 
 import org.quartz.JobDetail;
@@ -54,14 +56,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Helper class for all the DB interaction from scheduler.
+ * State updates are recorded into the {@link StateJournal} when it is active for the current thread.
  */
 public final class StoreHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(StoreHelper.class);
+    private static final String REMAINING_JOBS_CONDITION = "b.endTime IS NULL";
 
     private StoreHelper() {
     }
@@ -87,8 +93,7 @@ public final class StoreHelper {
         bean.setPolicyId(jobContext.getJobInstanceId().split("@")[0]);
         bean.setEndTime(new Date());
         bean.setInstanceId(jobContext.getJobInstanceId());
-        PolicyInstanceExecutor executor = new PolicyInstanceExecutor(bean);
-        executor.executeUpdate(PolicyInstanceExecutor.PolicyInstanceQuery.UPDATE_INSTANCE_COMPLETE);
+        updateInstanceComplete(bean);
         generateInstanceEvents(status, bean);
     }
 
@@ -101,15 +106,31 @@ public final class StoreHelper {
         bean.setEndTime(new Date());
         bean.setInstanceId(jobContext.getJobInstanceId());
         bean.setRetirementTime(retireDate);
+        updateInstanceComplete(bean);
+        generateInstanceEvents(status, bean);
+    }
+
+    private static void updateInstanceComplete(PolicyInstanceBean bean) {
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.POLICY_INSTANCE, instanceKey(bean.getInstanceId()), null)
+                    .set("endTime", bean.getEndTime())
+                    .set("status", bean.getStatus())
+                    .set("message", bean.getMessage());
+            return;
+        }
         PolicyInstanceExecutor executor = new PolicyInstanceExecutor(bean);
         executor.executeUpdate(PolicyInstanceExecutor.PolicyInstanceQuery.UPDATE_INSTANCE_COMPLETE);
-        generateInstanceEvents(status, bean);
     }
 
     public static void updatePolicyLastInstanceStatus(String policyId, String instanceStatus) {
         PolicyBean bean = new PolicyBean();
         bean.setId(policyId);
         bean.setLastInstanceStatus(instanceStatus);
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.POLICY, policyKey(policyId), null)
+                    .set("lastInstanceStatus", bean.getLastInstanceStatus());
+            return;
+        }
         PolicyExecutor executor = new PolicyExecutor(bean);
         executor.executeUpdate(PolicyQuery.UPDATE_POLICY_LAST_INS_STATUS);
     }
@@ -124,9 +145,8 @@ public final class StoreHelper {
         bean.setStatus(status);
         bean.setMessage(truncateMessage(message));
         bean.setEndTime(new Date());
-        bean.setContextData(jobContext.toString());
-        InstanceJobExecutor executor = new InstanceJobExecutor(bean);
-        executor.executeUpdate(InstanceJobExecutor.InstanceJobQuery.UPDATE_JOB_COMPLETE);
+        bean.setContextData(JobContextCodec.encode(jobContext));
+        updateJobComplete(bean);
     }
 
     public static void updateInstanceJobFailRetire(JobContext jobContext, String status,
@@ -135,8 +155,21 @@ public final class StoreHelper {
         bean.setStatus(status);
         bean.setMessage(truncateMessage(message));
         bean.setEndTime(new Date());
-        bean.setContextData(jobContext.toString());
+        bean.setContextData(JobContextCodec.encode(jobContext));
         bean.setRetirementTime(retireDate);
+        updateJobComplete(bean);
+    }
+
+    private static void updateJobComplete(InstanceJobBean bean) {
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.INSTANCE_JOB, instanceJobKey(bean.getInstanceId(), bean.getOffset()),
+                    null)
+                    .set("status", bean.getStatus())
+                    .set("message", bean.getMessage())
+                    .set("endTime", bean.getEndTime())
+                    .set("contextData", bean.getContextData());
+            return;
+        }
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         executor.executeUpdate(InstanceJobExecutor.InstanceJobQuery.UPDATE_JOB_COMPLETE);
     }
@@ -144,6 +177,11 @@ public final class StoreHelper {
     public static void updateInstanceCurrentOffset(JobContext jobContext) {
         PolicyInstanceBean bean = new PolicyInstanceBean(jobContext.getJobInstanceId());
         bean.setCurrentOffset(jobContext.getOffset());
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.POLICY_INSTANCE, instanceKey(bean.getInstanceId()), null)
+                    .set("currentOffset", bean.getCurrentOffset());
+            return;
+        }
         PolicyInstanceExecutor executor = new PolicyInstanceExecutor(bean);
         executor.executeUpdate(PolicyInstanceExecutor.PolicyInstanceQuery.UPDATE_CURRENT_OFFSET);
     }
@@ -154,6 +192,12 @@ public final class StoreHelper {
         InstanceJobBean bean = new InstanceJobBean(instanceId, offset);
         bean.setStatus(status.name());
         bean.setStartTime(new Date());
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.INSTANCE_JOB, instanceJobKey(instanceId, offset), null)
+                    .set("status", bean.getStatus())
+                    .set("startTime", bean.getStartTime());
+            return;
+        }
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         executor.executeUpdate(InstanceJobExecutor.InstanceJobQuery.UPDATE_STATUS_START);
     }
@@ -165,15 +209,23 @@ public final class StoreHelper {
         String instanceId = getInstanceId(qContext.getJobDetail());
 
         LOG.debug("Transferring jobContext from {} to {}", prevOffset, currentOffset);
-        InstanceJobBean bean = new InstanceJobBean(instanceId, prevOffset);
+        StateJournal.barrier(StateTable.INSTANCE_JOB);
+        JobContext jobContext = loadJobContext(instanceId, prevOffset);
+        // Update the offset to current for job.
+        jobContext.setOffset(Integer.parseInt(currentOffset));
+        return jobContext;
+    }
+
+    // The stored context can be a delta on the context of an earlier job, which is then loaded first.
+    private static JobContext loadJobContext(String instanceId, int offset) {
+        InstanceJobBean bean = new InstanceJobBean(instanceId, offset);
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         InstanceJobBean instanceJob = executor.getInstanceJob(InstanceJobExecutor.InstanceJobQuery.GET_INSTANCE_JOB);
 
         String contextData = instanceJob.getContextData();
-        JobContext jobContext = JobContext.parseJobContext(contextData);
-        // Update the offset to current for job.
-        jobContext.setOffset(Integer.parseInt(currentOffset));
-        return jobContext;
+        int baseOffset = JobContextCodec.getBaseOffset(contextData);
+        JobContext base = baseOffset >= 0 && baseOffset < offset ? loadJobContext(instanceId, baseOffset) : null;
+        return JobContextCodec.decode(contextData, base);
     }
 
     private static String getInstanceId(JobDetail jobDetail) throws SchedulerException {
@@ -187,8 +239,7 @@ public final class StoreHelper {
         InstanceJobBean bean = new InstanceJobBean();
         bean.setInstanceId(jobContext.getJobInstanceId());
         bean.setStatus(status);
-        InstanceJobExecutor executor = new InstanceJobExecutor(bean);
-        executor.executeUpdate(InstanceJobExecutor.InstanceJobQuery.INSTANCE_JOB_UPDATE_STATUS);
+        updateRemainingJobStatus(bean);
     }
 
     public static void retireRemainingInstanceJobs(JobContext jobContext, String status, Date retireDate) {
@@ -196,6 +247,16 @@ public final class StoreHelper {
         bean.setInstanceId(jobContext.getJobInstanceId());
         bean.setStatus(status);
         bean.setRetirementTime(retireDate);
+        updateRemainingJobStatus(bean);
+    }
+
+    private static void updateRemainingJobStatus(InstanceJobBean bean) {
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.INSTANCE_JOB, instanceKey(bean.getInstanceId()),
+                    REMAINING_JOBS_CONDITION)
+                    .set("status", bean.getStatus());
+            return;
+        }
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         executor.executeUpdate(InstanceJobExecutor.InstanceJobQuery.INSTANCE_JOB_UPDATE_STATUS);
     }
@@ -209,6 +270,7 @@ public final class StoreHelper {
      * @return key for the next job
      */
     public static JobKey getNextJobFromStore(String instanceId, int offset, String policyId) {
+        StateJournal.barrier(StateTable.INSTANCE_JOB);
         InstanceJobBean bean = new InstanceJobBean(instanceId, offset + 1);
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         InstanceJobBean instanceJob = executor.getInstanceJob(InstanceJobExecutor.InstanceJobQuery.GET_INSTANCE_JOB);
@@ -271,6 +333,7 @@ public final class StoreHelper {
     }
 
     public static int getJobOffset(String policyId, String lastInstanceStatus) {
+        StateJournal.barrier(StateTable.POLICY_INSTANCE);
         PolicyInstanceBean bean = new PolicyInstanceBean();
         bean.setPolicyId(policyId);
         bean.setStatus(lastInstanceStatus);
@@ -287,6 +350,7 @@ public final class StoreHelper {
     }
 
     public static int getJobRunCount(JobContext jobContext) {
+        StateJournal.barrier(StateTable.INSTANCE_JOB);
         InstanceJobBean bean = new InstanceJobBean(jobContext.getJobInstanceId(), jobContext.getOffset());
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         InstanceJobBean instanceJob = executor.getInstanceJob(InstanceJobQuery.GET_INSTANCE_JOB);
@@ -296,11 +360,18 @@ public final class StoreHelper {
     public static void updateJobRunCount(JobContext jobContext, int runCount) {
         InstanceJobBean bean = new InstanceJobBean(jobContext.getJobInstanceId(), jobContext.getOffset());
         bean.setRunCount(runCount);
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.INSTANCE_JOB,
+                    instanceJobKey(bean.getInstanceId(), bean.getOffset()), null)
+                    .set("runCount", bean.getRunCount());
+            return;
+        }
         InstanceJobExecutor executor = new InstanceJobExecutor(bean);
         executor.executeUpdate(InstanceJobQuery.UPDATE_JOB_RETRY_COUNT);
     }
 
     public static int getInstanceRunCount(JobContext jobContext) {
+        StateJournal.barrier(StateTable.POLICY_INSTANCE);
         PolicyInstanceBean bean = new PolicyInstanceBean(jobContext.getJobInstanceId());
         PolicyInstanceExecutor executor = new PolicyInstanceExecutor(bean);
         List<PolicyInstanceBean> instances = executor.executeSelectQuery(PolicyInstanceQuery.GET_INSTANCE_BY_ID);
@@ -310,6 +381,11 @@ public final class StoreHelper {
     public static void updateInstanceRunCount(JobContext jobContext, int runCount) {
         PolicyInstanceBean bean = new PolicyInstanceBean(jobContext.getJobInstanceId());
         bean.setRunCount(runCount);
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.POLICY_INSTANCE, instanceKey(bean.getInstanceId()), null)
+                    .set("runCount", bean.getRunCount());
+            return;
+        }
         PolicyInstanceExecutor executor = new PolicyInstanceExecutor(bean);
         executor.executeUpdate(PolicyInstanceQuery.UPDATE_INSTANCE_RETRY_COUNT);
     }
@@ -321,12 +397,19 @@ public final class StoreHelper {
         bean.setStatus(finalStatus);
         Date currentTime = new Date();
         bean.setLastModifiedTime(currentTime);
+        if (StateJournal.isActive()) {
+            StateJournal.get().update(StateTable.POLICY, policyKey(policyId), null)
+                    .set("status", bean.getStatus())
+                    .set("lastModifiedTime", bean.getLastModifiedTime());
+            return finalStatus;
+        }
         PolicyExecutor executor  = new PolicyExecutor(bean);
         executor.executeUpdate(PolicyQuery.UPDATE_FINAL_STATUS);
         return finalStatus;
     }
 
     private static String getPolicyFinalStatus(String policyId) {
+        StateJournal.barrier(StateTable.POLICY_INSTANCE);
         PolicyInstanceBean bean = new PolicyInstanceBean();
         bean.setPolicyId(policyId);
         PolicyInstanceExecutor executor = new PolicyInstanceExecutor(bean);
@@ -368,6 +451,7 @@ public final class StoreHelper {
     }
 
     public static PolicyBean getPolicyById(String policyId) throws BeaconStoreException {
+        StateJournal.barrier(StateTable.POLICY);
         PolicyBean bean = new PolicyBean();
         bean.setId(policyId);
         PolicyExecutor executor = new PolicyExecutor(bean);
@@ -380,4 +464,23 @@ public final class StoreHelper {
         Date when = new Date(System.currentTimeMillis() + policyBean.getFrequencyInSec() * 1000);
         return endTime != null && endTime.before(when);
     }
+
+    private static Map<String, Object> policyKey(String policyId) {
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("id", policyId);
+        return key;
+    }
+
+    private static Map<String, Object> instanceKey(String instanceId) {
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("instanceId", instanceId);
+        return key;
+    }
+
+    private static Map<String, Object> instanceJobKey(String instanceId, int offset) {
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("instanceId", instanceId);
+        key.put("offset", offset);
+        return key;
+    }
 }
@@ -22,6 +22,8 @@
 
 package com.hortonworks.beacon.scheduler.internal;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hortonworks.beacon.RequestContext;
 import com.hortonworks.beacon.config.BeaconConfig;
 import com.hortonworks.beacon.config.Scheduler;
@@ -41,10 +43,17 @@ import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor.PolicyInsta
 import com.hortonworks.beacon.store.executors.PolicyPropertiesExecutor;
 import com.hortonworks.beacon.util.DateUtil;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.PersistenceException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,17 +61,35 @@ import org.slf4j.LoggerFactory;
 /**
  * Clean instance-jobs, policy-instances and policies in order for all retired policy from the store periodically.
  * Policy is marked retired when delete api is called.
+ *
+ * The retired policies are partitioned by the hash of their id between the cleanup workers, which delete the
+ * instances and jobs of their policies in batches, each in a transaction of its own. The batch size adapts to how
+ * long the batches hold their locks: it shrinks when a batch takes longer than the target time or fails waiting
+ * for a lock, and grows back while the batches complete well within it. With archival enabled, the rows are copied
+ * into the BEACON_*_ARCHIVE tables in the same transaction that deletes them.
  */
 public final class StoreCleanupService implements Callable<Void>, BeaconService {
 
     private static final Logger LOG = LoggerFactory.getLogger(StoreCleanupService.class);
 
-    private static final int BATCH_SIZE = 100;
+    private static final int DEF_THREADS = 4;
+    private static final int DEF_MAX_BATCH_SIZE = 1000;
+    private static final int DEF_BATCH_TARGET_TIME = 500;
+    private static final int MIN_BATCH_SIZE = 10;
+    private static final int INITIAL_BATCH_SIZE = 100;
+    private static final int MAX_BATCH_ATTEMPTS = 5;
 
     private static final StoreCleanupService INSTANCE = new StoreCleanupService();
 
+    private final AtomicLong rowsDeleted = new AtomicLong();
+    private final AtomicLong rowsArchived = new AtomicLong();
+    private final AtomicLong lockWaits = new AtomicLong();
+    private volatile long rowsPerSecond;
+    private volatile int batchSize = INITIAL_BATCH_SIZE;
+
     private Date cleanupDate;
     private int retiredOlderThan;
+    private ExecutorService executor;
 
     private StoreCleanupService() {
     }
@@ -71,44 +98,101 @@ public final class StoreCleanupService implements Callable<Void>, BeaconService
         return INSTANCE;
     }
 
+    public long getRowsDeleted() {
+        return rowsDeleted.get();
+    }
+
+    public long getRowsArchived() {
+        return rowsArchived.get();
+    }
+
+    public long getLockWaits() {
+        return lockWaits.get();
+    }
+
+    /**
+     * @return rows deleted per second by the last cleanup that had rows to delete
+     */
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     @Override
     public Void call() {
         cleanupDate = new Date(System.currentTimeMillis() - BeaconConstants.DAY_IN_MS * retiredOlderThan);
+        List<String> allPolicyIdsToBeArchived;
         try {
             LOG.info("StoreCleanupService execution started with cleanupDate: [{}].", DateUtil.formatDate(cleanupDate));
             RequestContext.setInitialValue();
-            List<String> allPolicyIdsToBeArchived = getAllPolicyIdsToBeArchived();
-            if (allPolicyIdsToBeArchived.size() == 0) {
-                return null;
-            }
-            cleanupInstanceJobsPolicyInstancesAndPolicies(allPolicyIdsToBeArchived);
-            LOG.info("StoreCleanupService execution completed successfully.");
-            return null;
+            allPolicyIdsToBeArchived = getAllPolicyIdsToBeArchived();
         } finally {
             RequestContext.get().rollbackTransaction();
             RequestContext.get().clear();
         }
+        if (allPolicyIdsToBeArchived.size() == 0) {
+            return null;
+        }
+        long startTime = System.currentTimeMillis();
+        long deletedBefore = rowsDeleted.get();
+        boolean succeeded = cleanupInstanceJobsPolicyInstancesAndPolicies(allPolicyIdsToBeArchived);
+        long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+        long deleted = rowsDeleted.get() - deletedBefore;
+        rowsPerSecond = deleted * 1000 / elapsed;
+        if (succeeded) {
+            LOG.info("StoreCleanupService execution completed successfully, deleted [{}] rows in [{}] ms.",
+                    deleted, elapsed);
+        } else {
+            LOG.warn("StoreCleanupService execution completed with failures, deleted [{}] rows in [{}] ms.",
+                    deleted, elapsed);
+        }
+        return null;
     }
 
-    private void cleanupInstanceJobsPolicyInstancesAndPolicies(List<String> allPolicyIdsToBeArchived) {
-        for (String policyId :  allPolicyIdsToBeArchived) {
-            while (true) {
-                RequestContext.get().startTransaction();
-                PolicyInstanceBean policyInstanceBean = new PolicyInstanceBean();
-                policyInstanceBean.setPolicyId(policyId);
-                PolicyInstanceExecutor policyInstanceExecutor = new PolicyInstanceExecutor(policyInstanceBean);
-                List<String> instanceIds = policyInstanceExecutor
-                        .getLimitedInstanceIds(PolicyInstanceQuery.GET_POLICY_INSTANCE_IDS, BATCH_SIZE);
-                if (instanceIds.size() == 0) {
-                    RequestContext.get().commitTransaction();
-                    break;
-                }
-                cleanupInstanceJobs(instanceIds);
-                cleanupPolicyInstances(instanceIds);
-                RequestContext.get().commitTransaction();
+    private boolean cleanupInstanceJobsPolicyInstancesAndPolicies(List<String> allPolicyIdsToBeArchived) {
+        Scheduler scheduler = BeaconConfig.getInstance().getScheduler();
+        List<List<String>> partitions = partition(allPolicyIdsToBeArchived, getThreads(scheduler));
+        boolean archive = scheduler.isCleanupArchive();
+        List<Future<Void>> futures = new ArrayList<>(partitions.size());
+        for (List<String> partition : partitions) {
+            if (!partition.isEmpty()) {
+                futures.add(getExecutor().submit(new CleanupWorker(partition, archive)));
             }
-            cleanupPolicy(policyId);
         }
+        boolean succeeded = true;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOG.error("Store cleanup worker failed, remaining policies are cleaned up on the next run.",
+                        e.getCause());
+                succeeded = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Partitions the policies by the hash of their id into at most the given number of partitions, so that a policy
+     * is always cleaned up by the same worker.
+     */
+    @VisibleForTesting
+    public static List<List<String>> partition(List<String> policyIds, int threads) {
+        int workers = Math.min(threads, policyIds.size());
+        List<List<String>> partitions = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            partitions.add(new ArrayList<String>());
+        }
+        for (String policyId : policyIds) {
+            partitions.get((policyId.hashCode() & Integer.MAX_VALUE) % workers).add(policyId);
+        }
+        return partitions;
     }
 
     private List<String> getAllPolicyIdsToBeArchived() {
@@ -119,23 +203,151 @@ public final class StoreCleanupService implements Callable<Void>, BeaconService
         return policiesToBeArchived;
     }
 
-    private void cleanupPolicy(String policyId) {
-        RequestContext.get().startTransaction();
-        PolicyPropertiesExecutor propsExecutor = new PolicyPropertiesExecutor();
-        propsExecutor.deleteRetiredPolicyProps(policyId);
-        PolicyExecutor policyExecutor = new PolicyExecutor(new PolicyBean());
-        policyExecutor.executeBatchDelete(PolicyQuery.DELETE_RETIRED_POLICY, policyId);
-        RequestContext.get().commitTransaction();
+    /**
+     * Cleans up the given policies on a thread of the cleanup executor, with a request context of its own.
+     */
+    private final class CleanupWorker implements Callable<Void> {
+        private final List<String> policyIds;
+        private final boolean archive;
+        private int batchDeleted;
+        private int batchArchived;
+
+        private CleanupWorker(List<String> policyIds, boolean archive) {
+            this.policyIds = policyIds;
+            this.archive = archive;
+        }
+
+        @Override
+        public Void call() {
+            RequestContext.setInitialValue();
+            try {
+                for (final String policyId : policyIds) {
+                    while (executeBatch(new Batch() {
+                        @Override
+                        public int execute(int size) {
+                            return cleanupInstances(policyId, size);
+                        }
+                    }) > 0) {
+                        LOG.debug("Cleaned up a batch of instances of policy [{}].", policyId);
+                    }
+                    executeBatch(new Batch() {
+                        @Override
+                        public int execute(int size) {
+                            return cleanupPolicy(policyId);
+                        }
+                    });
+                }
+                return null;
+            } finally {
+                RequestContext.get().rollbackTransaction();
+                RequestContext.get().clear();
+            }
+        }
+
+        /**
+         * @return the number of instances cleaned up, 0 when the policy has none left
+         */
+        private int cleanupInstances(String policyId, int size) {
+            PolicyInstanceBean policyInstanceBean = new PolicyInstanceBean();
+            policyInstanceBean.setPolicyId(policyId);
+            PolicyInstanceExecutor policyInstanceExecutor = new PolicyInstanceExecutor(policyInstanceBean);
+            List<String> instanceIds = policyInstanceExecutor
+                    .getLimitedInstanceIds(PolicyInstanceQuery.GET_POLICY_INSTANCE_IDS, size);
+            if (instanceIds.size() == 0) {
+                return 0;
+            }
+            InstanceJobExecutor instanceJobExecutor = new InstanceJobExecutor(new InstanceJobBean());
+            if (archive) {
+                batchArchived += instanceJobExecutor.archiveInstanceJobs(instanceIds);
+                batchArchived += policyInstanceExecutor.archivePolicyInstances(instanceIds);
+            }
+            batchDeleted += instanceJobExecutor.executeBatchDelete(instanceIds,
+                    InstanceJobQuery.DELETE_INSTANCE_JOB_BATCH);
+            batchDeleted += policyInstanceExecutor.executeBatchDelete(instanceIds,
+                    PolicyInstanceQuery.DELETE_POLICY_INSTANCE_BATCH);
+            return instanceIds.size();
+        }
+
+        private int cleanupPolicy(String policyId) {
+            PolicyPropertiesExecutor propsExecutor = new PolicyPropertiesExecutor();
+            PolicyExecutor policyExecutor = new PolicyExecutor(new PolicyBean());
+            if (archive) {
+                batchArchived += propsExecutor.archiveRetiredPolicyProps(policyId);
+                batchArchived += policyExecutor.archivePolicies(policyId);
+            }
+            batchDeleted += propsExecutor.deleteRetiredPolicyProps(policyId);
+            batchDeleted += policyExecutor.executeBatchDelete(PolicyQuery.DELETE_RETIRED_POLICY, policyId);
+            return 1;
+        }
+
+        /**
+         * Runs the batch in a transaction with the current batch size, which is then adapted to the time the
+         * transaction took. A batch failing on the store, most likely on a lock wait timeout, is retried with a
+         * smaller size.
+         */
+        private int executeBatch(Batch batch) {
+            int attempt = 0;
+            while (true) {
+                int size = batchSize;
+                long startTime = System.currentTimeMillis();
+                batchDeleted = 0;
+                batchArchived = 0;
+                try {
+                    RequestContext.get().startTransaction();
+                    int result = batch.execute(size);
+                    RequestContext.get().commitTransaction();
+                    adaptBatchSize(size, System.currentTimeMillis() - startTime);
+                    rowsDeleted.addAndGet(batchDeleted);
+                    rowsArchived.addAndGet(batchArchived);
+                    return result;
+                } catch (PersistenceException e) {
+                    RequestContext.get().rollbackTransaction();
+                    lockWaits.incrementAndGet();
+                    shrinkBatchSize(size);
+                    if (++attempt >= MAX_BATCH_ATTEMPTS) {
+                        throw e;
+                    }
+                    LOG.warn("Store cleanup batch of size [{}] failed, retrying with a smaller batch: {}",
+                            size, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A unit of cleanup run in a transaction of its own.
+     */
+    private interface Batch {
+        int execute(int size);
+    }
+
+    private synchronized void adaptBatchSize(int size, long elapsed) {
+        Scheduler scheduler = BeaconConfig.getInstance().getScheduler();
+        int targetTime = scheduler.getCleanupBatchTargetTime() > 0
+                ? scheduler.getCleanupBatchTargetTime() : DEF_BATCH_TARGET_TIME;
+        if (elapsed > targetTime) {
+            shrinkBatchSize(size);
+        } else if (elapsed < targetTime / 2 && size == batchSize) {
+            int maxBatchSize = scheduler.getCleanupMaxBatchSize() > 0
+                    ? scheduler.getCleanupMaxBatchSize() : DEF_MAX_BATCH_SIZE;
+            batchSize = Math.min(size + Math.max(size / 4, 1), Math.max(maxBatchSize, MIN_BATCH_SIZE));
+        }
     }
 
-    private void cleanupPolicyInstances(List<String> instanceIds) {
-        PolicyInstanceExecutor executor = new PolicyInstanceExecutor(new PolicyInstanceBean());
-        executor.executeBatchDelete(instanceIds, PolicyInstanceQuery.DELETE_POLICY_INSTANCE_BATCH);
+    private synchronized void shrinkBatchSize(int size) {
+        batchSize = Math.max(Math.min(size / 2, batchSize), MIN_BATCH_SIZE);
     }
 
-    private void cleanupInstanceJobs(List<String> instanceIds) {
-        InstanceJobExecutor instanceJobExecutor = new InstanceJobExecutor(new InstanceJobBean());
-        instanceJobExecutor.executeBatchDelete(instanceIds, InstanceJobQuery.DELETE_INSTANCE_JOB_BATCH);
+    private static int getThreads(Scheduler scheduler) {
+        return scheduler.getCleanupThreads() > 0 ? scheduler.getCleanupThreads() : DEF_THREADS;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(getThreads(BeaconConfig.getInstance().getScheduler()),
+                    new ThreadFactoryBuilder().setNameFormat("StoreCleanup-%d").setDaemon(true).build());
+        }
+        return executor;
     }
 
     @Override
@@ -148,7 +360,10 @@ public final class StoreCleanupService implements Callable<Void>, BeaconService
     }
 
     @Override
-    public void destroy() throws BeaconException {
-        // Nothing to do.
+    public synchronized void destroy() throws BeaconException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
     }
 }
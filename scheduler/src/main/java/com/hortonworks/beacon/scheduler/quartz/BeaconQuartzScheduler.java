@@ -55,7 +55,7 @@ public final class BeaconQuartzScheduler implements BeaconScheduler, BeaconServi
 
     public static final String START_NODE_GROUP = "0";
     static final String BEACON_SCHEDULER_JOB_LISTENER = "beaconSchedulerJobListener";
-    private static final String BEACON_SCHEDULER_TRIGGER_LISTENER = "beaconSchedulerTriggerListener";
+    static final String BEACON_SCHEDULER_TRIGGER_LISTENER = "beaconSchedulerTriggerListener";
 
     private QuartzScheduler scheduler;
 
@@ -73,7 +73,8 @@ public final class BeaconQuartzScheduler implements BeaconScheduler, BeaconServi
     private static final String JOB_FACTORY_CLASS_VALUE = "org.quartz.simpl.SimpleJobFactory";
     private static final String DRIVER_DELEGATION_CLASS_VALUE = "org.quartz.impl.jdbcjobstore.StdJDBCDelegate";
     private static final String DRIVER_DELEGATION_CLASS_POSTGRESQL = "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate";
-    private static final String JOB_STORE_CLASS_VALUE = "org.quartz.impl.jdbcjobstore.JobStoreTX";
+    private static final String JOB_STORE_CLASS_VALUE = BeaconJobStoreTX.class.getName();
+    private static final String RAM_JOB_STORE_CLASS_VALUE = BeaconRAMJobStore.class.getName();
     private static final String DATA_SOURCE = "beaconDataSource";
     private static final String INSTANCE_ID = "beaconScheduler";
 
@@ -155,6 +156,8 @@ public final class BeaconQuartzScheduler implements BeaconScheduler, BeaconServi
                 properties.setProperty(QuartzProperties.VALIDATION_QUERY.getProperty(),
                         BeaconConstants.VALIDATION_QUERY);
             }
+        } else {
+            properties.setProperty(QuartzProperties.JOB_STORE_CLASS.getProperty(), RAM_JOB_STORE_CLASS_VALUE);
         }
 
         try {
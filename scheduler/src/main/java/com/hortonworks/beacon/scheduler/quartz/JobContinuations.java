@@ -0,0 +1,159 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.scheduler.quartz;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Scheduler;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.UnableToInterruptJobException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jobs parked on their external work. A parked job has given its Quartz thread back; it is resumed on one of the
+ * continuation threads once both its external work has completed and the job store has stored the execution that
+ * parked it, and then goes through the same job and trigger listener handling as a job that ran synchronously.
+ *
+ * The trigger listener is notified before the job store stores the job data of the execution, so the release comes
+ * from the job store, see {@link BeaconJobStoreTX}. Resuming any earlier would change the job data while Quartz
+ * still stores it.
+ */
+public final class JobContinuations {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobContinuations.class);
+    private static final int DEF_THREADS = 10;
+    private static final JobContinuations INSTANCE = new JobContinuations();
+
+    private final Map<String, ParkedJob> parkedJobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    private JobContinuations() {
+    }
+
+    public static JobContinuations get() {
+        return INSTANCE;
+    }
+
+    boolean isEnabled() {
+        return BeaconConfig.getInstance().getScheduler().isAsyncJobExecution();
+    }
+
+    public int getParkedCount() {
+        return parkedJobs.size();
+    }
+
+    /**
+     * Parks the job for the current execution. The job is resumed through {@link QuartzJob#resume} once the
+     * completion handle is done and {@link #release(String, JobDetail)} has been called for the execution.
+     */
+    void park(JobExecutionContext context, QuartzJob job, ListenableFuture<?> completion) {
+        final ParkedJob parkedJob = new ParkedJob(context, job);
+        parkedJobs.put(context.getFireInstanceId(), parkedJob);
+        LOG.info("Job [{}] is parked until its external work completes.", context.getJobDetail().getKey());
+        completion.addListener(new Runnable() {
+            @Override
+            public void run() {
+                arrive(parkedJob);
+            }
+        }, getExecutor());
+    }
+
+    boolean isParked(JobExecutionContext context) {
+        return parkedJobs.containsKey(context.getFireInstanceId());
+    }
+
+    /**
+     * Called by the job store once it has stored the execution with the given fire instance id, Quartz doesn't
+     * touch the job data of the execution after that. The job data as stored is recorded, so that only the changes
+     * made on resume are written back.
+     */
+    void release(String fireInstanceId, JobDetail jobDetail) {
+        ParkedJob parkedJob = parkedJobs.get(fireInstanceId);
+        if (parkedJob != null) {
+            parkedJob.storedJobData = new HashMap<>(jobDetail.getJobDataMap().getWrappedMap());
+            arrive(parkedJob);
+        }
+    }
+
+    /**
+     * Interrupts the parked job of the policy, if any.
+     *
+     * @return true if a parked job was interrupted
+     */
+    boolean interrupt(String policyId) throws UnableToInterruptJobException {
+        for (ParkedJob parkedJob : parkedJobs.values()) {
+            if (policyId.equals(parkedJob.context.getJobDetail().getKey().getName())) {
+                LOG.info("Interrupt parked job: {}", parkedJob.context.getJobDetail().getKey());
+                parkedJob.job.interrupt();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void arrive(final ParkedJob parkedJob) {
+        if (parkedJob.pending.decrementAndGet() == 0) {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    parkedJobs.remove(parkedJob.context.getFireInstanceId());
+                    parkedJob.job.resume(parkedJob.context, parkedJob.storedJobData);
+                }
+            });
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            Scheduler scheduler = BeaconConfig.getInstance().getScheduler();
+            int threads = scheduler.getJobContinuationThreads() > 0
+                    ? scheduler.getJobContinuationThreads() : DEF_THREADS;
+            executor = Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat("JobContinuation-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+
+    private static final class ParkedJob {
+        private final JobExecutionContext context;
+        private final QuartzJob job;
+        // Completion of the external work and release by the job store.
+        private final AtomicInteger pending = new AtomicInteger(2);
+        private volatile Map<String, Object> storedJobData;
+
+        private ParkedJob(JobExecutionContext context, QuartzJob job) {
+            this.context = context;
+            this.job = job;
+        }
+    }
+}
@@ -22,6 +22,8 @@
 
 package com.hortonworks.beacon.scheduler.quartz;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.hortonworks.beacon.RequestContext;
 import com.hortonworks.beacon.Timer;
 import com.hortonworks.beacon.client.entity.ReplicationPolicy;
@@ -35,11 +37,13 @@ import com.hortonworks.beacon.entity.util.PolicyHelper;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.exceptions.BeaconJobFailureException;
 import com.hortonworks.beacon.exceptions.BeaconSuspendException;
+import com.hortonworks.beacon.job.AsyncBeaconJob;
 import com.hortonworks.beacon.job.BeaconJob;
 import com.hortonworks.beacon.job.BeaconJobImplFactory;
 import com.hortonworks.beacon.job.InstanceExecutionDetails;
 import com.hortonworks.beacon.job.JobContext;
 import com.hortonworks.beacon.job.JobStatus;
+import com.hortonworks.beacon.log.BeaconLogUtils;
 import com.hortonworks.beacon.plugin.service.PluginJobBuilder;
 import com.hortonworks.beacon.plugin.service.PluginJobProperties;
 import com.hortonworks.beacon.replication.InstanceReplication;
@@ -55,14 +59,20 @@ import org.apache.commons.lang.StringUtils;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.InterruptableJob;
 import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.JobKey;
+import org.quartz.ListenerManager;
 import org.quartz.PersistJobDataAfterExecution;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
 import org.quartz.UnableToInterruptJobException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -83,6 +93,16 @@ public class QuartzJob implements InterruptableJob {
     private PolicyDao policyDao = new PolicyDao();
     private BeaconJob replicationJob = null;
 
+    public QuartzJob() {
+    }
+
+    @VisibleForTesting
+    QuartzJob(JobContext jobContext, ReplicationJobDetails jobDetail, BeaconJob replicationJob) {
+        this.jobContext = jobContext;
+        this.jobDetail = jobDetail;
+        this.replicationJob = replicationJob;
+    }
+
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
 
@@ -91,6 +111,7 @@ public class QuartzJob implements InterruptableJob {
                 + Thread.currentThread().getStackTrace()[1].getMethodName();
         RequestContext requestContext = RequestContext.get();
         Timer timer = requestContext.startTimer(methodName);
+        boolean parked = false;
 
         try {
             JobDataMap qJobDataMap = context.getJobDetail().getJobDataMap();
@@ -128,65 +149,178 @@ public class QuartzJob implements InterruptableJob {
 
             checkInterruption(jobKey, "before perform");
             if (jobContext.isPerformJobAfterRecovery()) {
-                replicationJob.perform(jobContext);
+                parked = perform(context);
+                if (parked) {
+                    return;
+                }
             } else {
                 LOG.info("Skipping perform for instance: {}, type: {}", jobContext.getJobInstanceId(),
                         jobDetail.getType());
             }
-            setDumpDirectory(qJobDataMap);
+            finishPerform(qJobDataMap, jobKey);
+        } catch (Throwable e) {
+            throw handleFailure(context, jobKey, e);
+        } finally {
+            if (!parked) {
+                cleanUp();
+            }
+            timer.stop();
+            logTimers();
+            RequestContext.get().closeEntityManager();
+        }
+    }
+
+    /**
+     * Performs the replication job. When continuation-style execution is enabled and the job supports it, the
+     * job only starts its external work and is parked on it, giving the Quartz thread back.
+     *
+     * @return true if the job was parked
+     */
+    private boolean perform(JobExecutionContext context) throws BeaconException, InterruptedException {
+        JobContinuations continuations = JobContinuations.get();
+        if (replicationJob instanceof AsyncBeaconJob && continuations.isEnabled()) {
+            ListenableFuture<?> completion = ((AsyncBeaconJob) replicationJob).performAsync(jobContext);
+            if (completion != null) {
+                continuations.park(context, this, completion);
+                return true;
+            }
+        } else {
+            replicationJob.perform(jobContext);
+        }
+        return false;
+    }
 
-            LOG.info("Job [key: {}] [type: {}] execution finished.", jobKey, jobDetail.getType());
-            setInstanceExecDetail(JobStatus.SUCCESS, "Instance succeeded");
-        } catch (BeaconSuspendException e) {
+    /**
+     * Resumes a parked job once its external work has completed, and runs the listener handling which Quartz
+     * skipped when the job was parked. The job store has stored the execution by then, so the job data of the
+     * context is no longer used by Quartz.
+     *
+     * @param storedJobData job data as Quartz stored it when the job was parked
+     */
+    void resume(JobExecutionContext context, Map<String, Object> storedJobData) {
+        RequestContext.setInitialValue();
+        BeaconLogUtils.prefixId(jobContext.getJobInstanceId());
+        JobKey jobKey = context.getJobDetail().getKey();
+        final String methodName = this.getClass().getSimpleName() + '.'
+                + Thread.currentThread().getStackTrace()[1].getMethodName();
+        Timer timer = RequestContext.get().startTimer(methodName);
+        JobExecutionException jobException = null;
+        try {
+            LOG.info("Job [key: {}] resumed.", jobKey);
+            ((AsyncBeaconJob) replicationJob).completePerform(jobContext);
+            finishPerform(context.getJobDetail().getJobDataMap(), jobKey);
+        } catch (Throwable e) {
+            jobException = handleFailure(context, jobKey, e);
+        } finally {
+            cleanUp();
+            timer.stop();
+            logTimers();
+            RequestContext.get().closeEntityManager();
+        }
+
+        try {
+            context.getJobDetail().getJobDataMap().put(QuartzDataMapEnum.JOB_CONTEXT.getValue(), jobContext);
+            ListenerManager listenerManager = context.getScheduler().getListenerManager();
+            listenerManager.getJobListener(BeaconQuartzScheduler.BEACON_SCHEDULER_JOB_LISTENER)
+                    .jobWasExecuted(context, jobException);
+            listenerManager.getTriggerListener(BeaconQuartzScheduler.BEACON_SCHEDULER_TRIGGER_LISTENER)
+                    .triggerComplete(context.getTrigger(), context, Trigger.CompletedExecutionInstruction.NOOP);
+            storeJobData(context, storedJobData);
+        } catch (Throwable e) {
+            LOG.error("Exception occurred while completing the resumed job [{}]", jobKey, e);
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    // Writes back the job data changed since Quartz stored it. It is merged into the stored job data, as the
+    // job could have been fired again while it was parked.
+    private void storeJobData(JobExecutionContext context, Map<String, Object> storedJobData)
+            throws SchedulerException {
+        JobDetail storedJobDetail = context.getScheduler().getJobDetail(context.getJobDetail().getKey());
+        if (storedJobDetail == null) {
+            LOG.info("Job [{}] was removed while it was parked.", context.getJobDetail().getKey());
+            return;
+        }
+        Map<String, Object> jobData = context.getJobDetail().getJobDataMap().getWrappedMap();
+        JobDataMap storedJobDataMap = storedJobDetail.getJobDataMap();
+        boolean changed = false;
+        for (String key : storedJobData.keySet()) {
+            if (!jobData.containsKey(key) && storedJobDataMap.containsKey(key)) {
+                storedJobDataMap.remove(key);
+                changed = true;
+            }
+        }
+        for (Map.Entry<String, Object> entry : jobData.entrySet()) {
+            if (!Objects.equals(entry.getValue(), storedJobData.get(entry.getKey()))) {
+                storedJobDataMap.put(entry.getKey(), entry.getValue());
+                changed = true;
+            }
+        }
+        if (changed) {
+            context.getScheduler().addJob(storedJobDetail, true);
+        }
+    }
+
+    private void finishPerform(JobDataMap qJobDataMap, JobKey jobKey) {
+        setDumpDirectory(qJobDataMap);
+
+        LOG.info("Job [key: {}] [type: {}] execution finished.", jobKey, jobDetail.getType());
+        setInstanceExecDetail(JobStatus.SUCCESS, "Instance succeeded");
+    }
+
+    private JobExecutionException handleFailure(JobExecutionContext context, JobKey jobKey, Throwable ex) {
+        if (ex instanceof BeaconSuspendException) {
+            BeaconSuspendException e = (BeaconSuspendException) ex;
             LOG.info("Handling unrecoverable failure, suspending policy", e);
             jobContext.setSuspend(true);
             if (e.getErrorCode() != null) {
                 jobContext.getJobContextMap().put(ERROR_CODE, String.valueOf(e.getErrorCode()));
             }
-            throw new JobExecutionException(e);
-        } catch (BeaconJobFailureException e) {
-            LOG.error("Handling job context building failure, failing instance", e);
-            setInstanceExecDetail(JobStatus.FAILED, e.getMessage());
-            throw new JobExecutionException(e);
+            return new JobExecutionException(e);
+        }
+        if (ex instanceof BeaconJobFailureException) {
+            LOG.error("Handling job context building failure, failing instance", ex);
+            setInstanceExecDetail(JobStatus.FAILED, ex.getMessage());
+            return new JobExecutionException(ex);
+        }
+        if (ex instanceof InterruptedException) {
+            LOG.info("Handling interrupt", ex);
+            processInterrupt(jobKey, ex.getMessage());
+            return new JobExecutionException(ex);
+        }
+        LOG.error("Exception occurred while doing replication instance execution: ", ex);
+
+        try {
+            checkInterruption(jobKey, "handle failure");
         } catch (InterruptedException e) {
             LOG.info("Handling interrupt", e);
-            processInterrupt(jobKey, e.getMessage());
-            throw new JobExecutionException(e);
-        } catch (Throwable ex) {
-            LOG.error("Exception occurred while doing replication instance execution: ", ex);
+            processInterrupt(jobKey, "after failure");
+            return new JobExecutionException(e);
+        }
 
-            try {
-                checkInterruption(jobKey, "handle failure");
-            } catch (InterruptedException e) {
-                LOG.info("Handling interrupt", e);
-                processInterrupt(jobKey, "after failure");
-                throw new JobExecutionException(e);
-            }
+        Properties jobProperties = jobDetail.getProperties();
+        int retryAttempts, retryDelay;
+        if (Boolean.parseBoolean(jobContext.getJobContextMap().get(DATABASE_BOOTSTRAP))) {
+            retryAttempts = BeaconConfig.getInstance().getEngine().getHiveBootstrapJobRetryAttempts();
+        } else {
+            retryAttempts = Integer.parseInt(jobProperties.getProperty(FSDRProperties.RETRY_ATTEMPTS.getName()));
+        }
+        retryDelay = Integer.parseInt(jobProperties.getProperty(FSDRProperties.RETRY_DELAY.getName()));
+        Retry retry = new Retry(retryAttempts, retryDelay);
+        RequestContext.get().closeEntityManager();
+        RetryReplicationJob.retry(retry, context, jobContext);
+        setInstanceExecDetail(JobStatus.FAILED, ex.getMessage());
+        return new JobExecutionException(ex);
+    }
 
-            Properties jobProperties = jobDetail.getProperties();
-            int retryAttempts, retryDelay;
-            if (Boolean.parseBoolean(jobContext.getJobContextMap().get(DATABASE_BOOTSTRAP))) {
-                retryAttempts = BeaconConfig.getInstance().getEngine().getHiveBootstrapJobRetryAttempts();
-            } else {
-                retryAttempts = Integer.parseInt(jobProperties.getProperty(FSDRProperties.RETRY_ATTEMPTS.getName()));
-            }
-            retryDelay = Integer.parseInt(jobProperties.getProperty(FSDRProperties.RETRY_DELAY.getName()));
-            Retry retry = new Retry(retryAttempts, retryDelay);
-            RequestContext.get().closeEntityManager();
-            RetryReplicationJob.retry(retry, context, jobContext);
-            setInstanceExecDetail(JobStatus.FAILED, ex.getMessage());
-            throw new JobExecutionException(ex);
-        } finally {
-            if (replicationJob != null) {
-                try {
-                    replicationJob.cleanUp(jobContext);
-                } catch (Throwable t) {
-                    LOG.warn("Ignoring cleanup failure", t);
-                }
+    private void cleanUp() {
+        if (replicationJob != null) {
+            try {
+                replicationJob.cleanUp(jobContext);
+            } catch (Throwable t) {
+                LOG.warn("Ignoring cleanup failure", t);
             }
-            timer.stop();
-            logTimers();
-            RequestContext.get().closeEntityManager();
         }
     }
 
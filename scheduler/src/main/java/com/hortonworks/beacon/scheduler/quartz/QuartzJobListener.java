@@ -34,6 +34,7 @@ import com.hortonworks.beacon.replication.InstanceReplication;
 import com.hortonworks.beacon.replication.hive.HiveExport;
 import com.hortonworks.beacon.scheduler.RecoveryService;
 import com.hortonworks.beacon.scheduler.SchedulerCache;
+import com.hortonworks.beacon.scheduler.StateJournal;
 import com.hortonworks.beacon.scheduler.StoreHelper;
 import com.hortonworks.beacon.scheduler.internal.AdminJobService;
 import com.hortonworks.beacon.scheduler.internal.SyncStatusJob;
@@ -82,7 +83,7 @@ public class QuartzJobListener extends JobListenerSupport {
     @Override
     public void jobToBeExecuted(JobExecutionContext context) {
         try {
-            RequestContext.get().startTransaction();
+            startTransition();
             boolean isRetry = getFlag(QuartzDataMapEnum.IS_RETRY.getValue(), context.getJobDetail().getJobDataMap());
             String instanceId = null;
             JobContext jobContext;
@@ -120,16 +121,28 @@ public class QuartzJobListener extends JobListenerSupport {
                 StoreHelper.updateInstanceJobStatusStartTime(jobContext, JobStatus.SKIPPED);
                 LOG.info("Policy instance [{}] will be skipped with status [{}]", instanceId, JobStatus.SKIPPED.name());
             }
-            RequestContext.get().commitTransaction();
+            commitTransition();
         } catch (Throwable e) {
             LOG.error("Error while processing jobToBeExecuted", e);
             context.getJobDetail().getJobDataMap().put(QuartzDataMapEnum.IS_FAILURE.getValue(), true);
         } finally {
+            StateJournal.end();
             RequestContext.get().rollbackTransaction();
             RequestContext.get().closeEntityManager();
         }
     }
 
+    // All the store updates of a transition are journaled and written together before the commit.
+    private void startTransition() {
+        RequestContext.get().startTransaction();
+        StateJournal.begin();
+    }
+
+    private void commitTransition() {
+        StateJournal.flushCurrent();
+        RequestContext.get().commitTransaction();
+    }
+
     private void setDumpDirectory(JobDataMap qJobDataMap, JobContext jobContext) {
         if (qJobDataMap.containsKey(BeaconConstants.DATABASE_BOOTSTRAP)
                 && qJobDataMap.getBoolean(BeaconConstants.DATABASE_BOOTSTRAP)) {
@@ -200,8 +213,13 @@ public class QuartzJobListener extends JobListenerSupport {
 
     @Override
     public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (JobContinuations.get().isParked(context)) {
+            // Handled when the job resumes, the context is held by the parked job till then.
+            getJobContext(context);
+            return;
+        }
         try {
-            RequestContext.get().startTransaction();
+            startTransition();
             // remove up the recovery related data post execution.
             JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
             jobDataMap.remove(QuartzDataMapEnum.RECOVER_INSTANCE.getValue());
@@ -217,7 +235,7 @@ public class QuartzJobListener extends JobListenerSupport {
                 StoreHelper.updatePolicyInstanceCompleted(jobContext, JobStatus.SKIPPED.name(), message);
                 StoreHelper.updateInstanceJobCompleted(jobContext, JobStatus.SKIPPED.name(), message);
                 StoreHelper.updateRemainingInstanceJobs(jobContext, JobStatus.SKIPPED.name());
-                RequestContext.get().commitTransaction();
+                commitTransition();
                 return;
             }
 
@@ -241,7 +259,7 @@ public class QuartzJobListener extends JobListenerSupport {
                 StoreHelper.updatePolicyStatus(policyId);
                 // TODO : Sync policy status.
                 BeaconQuartzScheduler.get().suspendPolicy(policyId);
-                RequestContext.get().commitTransaction();
+                commitTransition();
                 jobDataMap.put(QuartzDataMapEnum.IS_FAILURE.getValue(), true);
                 return;
             }
@@ -255,7 +273,7 @@ public class QuartzJobListener extends JobListenerSupport {
                 //If retry is set then add the recovery flags.
                 jobDataMap.put(QuartzDataMapEnum.IS_RECOVERY.getValue(), true);
                 jobDataMap.put(QuartzDataMapEnum.RECOVER_INSTANCE.getValue(), jobContext.getJobInstanceId());
-                RequestContext.get().commitTransaction();
+                commitTransition();
                 return;
             } else if (isRetry) {
                 //If retry is set and job has succeeded remove the flags.
@@ -298,7 +316,7 @@ public class QuartzJobListener extends JobListenerSupport {
                     LOG.info("Policy completed with final status: [{}].", status);
                 }
             }
-            RequestContext.get().commitTransaction();
+            commitTransition();
         } catch (Throwable e) {
             LOG.error("Error while processing jobWasExecuted", e);
             JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
@@ -307,6 +325,7 @@ public class QuartzJobListener extends JobListenerSupport {
             JobContext jobContext = getJobContext(context);
             RecoveryService.addToRecovery(jobContext.getJobInstanceId());
         } finally {
+            StateJournal.end();
             RequestContext.get().rollbackTransaction();
             RequestContext.get().closeEntityManager();
         }
@@ -367,6 +386,8 @@ public class QuartzJobListener extends JobListenerSupport {
         nextJobDetail.getJobDataMap().put(QuartzDataMapEnum.COUNTER.getValue(),
                 context.getJobDetail().getJobDataMap().getInt(QuartzDataMapEnum.COUNTER.getValue()));
         context.getScheduler().addJob(nextJobDetail, true);
+        // Next job loads the context written by the current job, so it has to be written before triggering.
+        StateJournal.flushCurrent();
         context.getScheduler().triggerJob(nextJobKey);
         LOG.info("Job [{}] is now chained to job [{}]", currentJobKey, nextJobKey);
         return true;
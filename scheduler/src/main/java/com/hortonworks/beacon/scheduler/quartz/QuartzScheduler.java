@@ -215,12 +215,13 @@ public final class QuartzScheduler {
                     return scheduler.interrupt(key);
                 }
             }
+            // Jobs parked on their external work are not among the executing ones.
+            return JobContinuations.get().interrupt(name);
         } else {
             JobKey jobKey = new JobKey(name, group);
             LOG.info("Interrupting job {}", jobKey);
             return scheduler.interrupt(jobKey);
         }
-        return false;
     }
 
     boolean interrupt(String name, String group) throws SchedulerException {
@@ -155,6 +155,11 @@ public class QuartzTriggerListener extends TriggerListenerSupport {
                                 Trigger.CompletedExecutionInstruction triggerInstructionCode) {
         try {
             JobKey jobKey = context.getJobDetail().getKey();
+            if (JobContinuations.get().isParked(context)) {
+                // Handled when the job resumes, which the job store releases once it has stored the execution.
+                LOG.info("Trigger [key: {}] completed for parked job [key: {}]", trigger.getKey(), jobKey);
+                return;
+            }
             LOG.info("Trigger [key: {}] completed for job [key: {}]", trigger.getKey(), jobKey);
             JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
             boolean isEndJob = jobDataMap.getBoolean(QuartzDataMapEnum.IS_END_JOB.getValue());
@@ -0,0 +1,317 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+package com.hortonworks.beacon.scheduler;
+
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.client.entity.Notification;
+import com.hortonworks.beacon.client.entity.ReplicationPolicy;
+import com.hortonworks.beacon.client.entity.Retry;
+import com.hortonworks.beacon.client.resource.PolicyInstanceList;
+import com.hortonworks.beacon.entity.util.PolicyDao;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.service.BeaconStoreService;
+import com.hortonworks.beacon.service.ServiceManager;
+import com.hortonworks.beacon.store.bean.EventBean;
+import com.hortonworks.beacon.store.bean.PolicyBean;
+import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
+import com.hortonworks.beacon.store.executors.EventsExecutor;
+import com.hortonworks.beacon.store.executors.PageCursor;
+import com.hortonworks.beacon.store.executors.PolicyExecutor;
+import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor;
+import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor.PolicyInstanceQuery;
+import com.hortonworks.beacon.store.executors.PolicyPropertiesExecutor;
+import com.hortonworks.beacon.tools.BeaconDBSetup;
+import org.apache.commons.codec.binary.Base64;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Test class for the continuation tokens and the estimated totals of the policy, instance and event listings.
+ */
+public class ListPagingTest {
+
+    private static final String POLICY_NAME = "list-paging";
+    private static final int INSTANCES = 5;
+    private static final String[] STATUSES = {"SUCCEEDED", "FAILED", "SUCCEEDED", "SKIPPED", "FAILED"};
+
+    private final PolicyDao policyDao = new PolicyDao();
+    private String policyId;
+
+    @BeforeClass
+    public void setupClass() throws Exception {
+        BeaconDBSetup.setupDB();
+        ServiceManager.getInstance().initialize(Collections.singletonList(BeaconStoreService.class.getName()), null);
+        RequestContext.setInitialValue();
+        RequestContext.get().startTransaction();
+        ReplicationPolicy replicationPolicy = new ReplicationPolicy();
+        replicationPolicy.setNotification(new Notification("type", "to"));
+        replicationPolicy.setRetry(new Retry());
+        replicationPolicy.setCustomProperties(new Properties());
+        replicationPolicy.setName(POLICY_NAME);
+        policyDao.persistPolicy(replicationPolicy);
+        policyId = new PolicyExecutor(new PolicyBean(POLICY_NAME)).getActivePolicy().getId();
+        long now = System.currentTimeMillis();
+        EventsExecutor eventsExecutor = new EventsExecutor();
+        for (int i = 0; i < INSTANCES; i++) {
+            PolicyInstanceBean bean = new PolicyInstanceBean();
+            bean.setInstanceId(policyId + "@" + i);
+            bean.setPolicyId(policyId);
+            bean.setStartTime(new Date(now + i * 1000));
+            bean.setEndTime(new Date(now + i * 1000 + 500));
+            bean.setStatus(STATUSES[i]);
+            bean.setRunCount(0);
+            bean.setCurrentOffset(0);
+            new PolicyInstanceExecutor(bean).execute();
+
+            // Events 1 and 2 share their time stamp, the page boundary falls between them.
+            EventBean event = new EventBean();
+            event.setPolicyId(policyId);
+            event.setInstanceId(bean.getInstanceId());
+            event.setEventEntityType("policyinstance");
+            event.setEventId(i);
+            event.setEventSeverity("INFO");
+            event.setEventTimeStamp(new Timestamp(now + (i == 2 ? 1000 : i * 1000)));
+            event.setEventMessage("event " + i);
+            eventsExecutor.addEvents(event);
+        }
+        RequestContext.get().commitTransaction();
+        RequestContext.get().clear();
+    }
+
+    @AfterClass
+    public void teardown() throws BeaconException {
+        RequestContext.setInitialValue();
+        RequestContext.get().startTransaction();
+        RequestContext.get().getEntityManager().createQuery("DELETE FROM EventBean a WHERE a.policyId = :policyId")
+                .setParameter("policyId", policyId).executeUpdate();
+        PolicyInstanceBean bean = new PolicyInstanceBean();
+        bean.setPolicyId(policyId);
+        List<String> instanceIds = new PolicyInstanceExecutor(bean)
+                .getLimitedInstanceIds(PolicyInstanceQuery.GET_POLICY_INSTANCE_IDS, 100);
+        new PolicyInstanceExecutor(new PolicyInstanceBean())
+                .executeBatchDelete(instanceIds, PolicyInstanceQuery.DELETE_POLICY_INSTANCE_BATCH);
+        new PolicyPropertiesExecutor().deleteRetiredPolicyProps(new String[] {policyId});
+        new PolicyExecutor(new PolicyBean()).executeBatchDelete(PolicyExecutor.PolicyQuery.DELETE_RETIRED_POLICY,
+                new String[] {policyId});
+        RequestContext.get().commitTransaction();
+        RequestContext.get().clear();
+        ServiceManager.getInstance().destroy();
+    }
+
+    @Test
+    public void testInstanceTokenPaging() throws Exception {
+        RequestContext.setInitialValue();
+        try {
+            PolicyInstanceList page = listInstances("startTime", 0, 2, null);
+            Assert.assertEquals(getIds(page), getIds(4, 3));
+            Assert.assertFalse(page.isExactTotal());
+            Assert.assertEquals(page.getTotalResults(), 3);
+
+            page = listInstances("startTime", 0, 2, page.getNextToken());
+            Assert.assertEquals(getIds(page), getIds(2, 1));
+            Assert.assertEquals(page.getTotalResults(), 5);
+
+            page = listInstances("startTime", 0, 2, page.getNextToken());
+            Assert.assertEquals(getIds(page), getIds(0));
+            Assert.assertEquals(page.getTotalResults(), 5);
+            Assert.assertNull(page.getNextToken());
+
+            // Ties on the status are broken by the instance id, the pages follow the offset listing.
+            List<String> expected = getIds(listInstances("status", 0, 10, null));
+            List<String> paged = new ArrayList<>();
+            String token = null;
+            do {
+                page = listInstances("status", 0, 2, token);
+                paged.addAll(getIds(page));
+                token = page.getNextToken();
+            } while (token != null);
+            Assert.assertEquals(paged, expected);
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    @Test
+    public void testInstancePastEnd() throws Exception {
+        RequestContext.setInitialValue();
+        try {
+            PolicyInstanceList page = listInstances("startTime", 10, 2, null);
+            Assert.assertEquals(page.getResults(), 0);
+            Assert.assertEquals(page.getTotalResults(), INSTANCES);
+            Assert.assertTrue(page.isExactTotal());
+
+            // A token past the last instance counts the total as well.
+            String token = new PageCursor(7, new Timestamp(0), policyId + "@0").toToken();
+            page = listInstances("startTime", 0, 2, token);
+            Assert.assertEquals(page.getResults(), 0);
+            Assert.assertEquals(page.getTotalResults(), INSTANCES);
+            Assert.assertTrue(page.isExactTotal());
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    @Test
+    public void testEventTokenPaging() throws Exception {
+        RequestContext.setInitialValue();
+        try {
+            EventsExecutor executor = new EventsExecutor();
+            List<EventBean> all = executor.getEventsWithPolicyName(POLICY_NAME, null, null, "eventTimeStamp", "DESC",
+                    0, 10, null);
+            Assert.assertEquals(all.size(), INSTANCES);
+            List<Long> paged = new ArrayList<>();
+            PageCursor cursor = null;
+            long position = 0;
+            while (true) {
+                List<EventBean> page = executor.getEventsWithPolicyName(POLICY_NAME, null, null, "eventTimeStamp",
+                        "DESC", 0, 2, cursor);
+                for (EventBean event : page) {
+                    paged.add(event.getId());
+                }
+                if (page.size() < 2) {
+                    break;
+                }
+                position += page.size();
+                cursor = PageCursor.fromToken(executor.getNextToken(page.get(page.size() - 1), "eventTimeStamp",
+                        position));
+                Assert.assertEquals(cursor.getPosition(), position);
+            }
+            List<Long> expected = new ArrayList<>();
+            for (EventBean event : all) {
+                expected.add(event.getId());
+            }
+            Assert.assertEquals(paged, expected);
+            Assert.assertNull(executor.getNextToken(all.get(0), "policyId", 1));
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    @DataProvider
+    private Object[][] getRejectedOrderBy() {
+        return new Object[][]{{"policy", "sourceCluster"}, {"policy", "endTime"}, {"instance", "endTime"},
+            {"event", "policyId"}, {"event", "eventMessage"}};
+    }
+
+    @Test(dataProvider = "getRejectedOrderBy", expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Continuation token is not supported with orderBy: .*")
+    public void testTokenRejectedOrderBy(String listing, String orderBy) throws Exception {
+        RequestContext.setInitialValue();
+        try {
+            String token = new PageCursor(2, "value", "id").toToken();
+            switch (listing) {
+                case "policy":
+                    policyDao.getFilteredPolicy("name", "name:" + POLICY_NAME, orderBy, "ASC", 0, 2, 0, token, false);
+                    break;
+                case "instance":
+                    listInstances(orderBy, 0, 2, token);
+                    break;
+                default:
+                    new EventsExecutor().getEventsWithPolicyName(POLICY_NAME, null, null, orderBy, "ASC", 0, 2,
+                            PageCursor.fromToken(token));
+                    break;
+            }
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    @DataProvider
+    private Object[][] getMalformedTokens() throws IOException {
+        String valid = new PageCursor(2, "value", "id").toToken();
+        return new Object[][]{
+            {"not a token!"},
+            {Base64.encodeBase64URLSafeString("abc".getBytes())},
+            {valid.substring(0, valid.length() - 4)},
+            {Base64.encodeBase64URLSafeString(concat(Base64.decodeBase64(valid), new byte[]{1}))},
+            {Base64.encodeBase64URLSafeString(tokenBytes(-1, 'S'))},
+            {Base64.encodeBase64URLSafeString(tokenBytes(2, 'X'))},
+        };
+    }
+
+    @Test(dataProvider = "getMalformedTokens", expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Invalid continuation token: .*")
+    public void testMalformedToken(String token) {
+        // The list APIs answer this exception with 400 Bad Request.
+        PageCursor.fromToken(token);
+    }
+
+    @Test
+    public void testBlankToken() {
+        Assert.assertNull(PageCursor.fromToken(null));
+        Assert.assertNull(PageCursor.fromToken(" "));
+    }
+
+    private PolicyInstanceList listInstances(String orderBy, int offset, int resultsPerPage,
+                                             String token) throws Exception {
+        return policyDao.getFilteredJobInstance("name:" + POLICY_NAME, orderBy, "DESC", offset, resultsPerPage,
+                false, token, false);
+    }
+
+    private List<String> getIds(int... instances) {
+        List<String> ids = new ArrayList<>();
+        for (int instance : instances) {
+            ids.add(policyId + "@" + instance);
+        }
+        return ids;
+    }
+
+    private static List<String> getIds(PolicyInstanceList list) {
+        List<String> ids = new ArrayList<>();
+        for (PolicyInstanceList.InstanceElement element : list.getElements()) {
+            ids.add(element.id);
+        }
+        return ids;
+    }
+
+    private static byte[] tokenBytes(long position, char valueType) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(position);
+            out.writeByte(valueType);
+            out.writeUTF("value");
+            out.writeByte('S');
+            out.writeUTF("id");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.scheduler;
+
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.client.entity.Notification;
+import com.hortonworks.beacon.client.entity.ReplicationPolicy;
+import com.hortonworks.beacon.client.entity.Retry;
+import com.hortonworks.beacon.entity.util.PolicyDao;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.service.BeaconStoreService;
+import com.hortonworks.beacon.service.ServiceManager;
+import com.hortonworks.beacon.store.bean.PolicyBean;
+import com.hortonworks.beacon.store.bean.PolicyInstanceBean;
+import com.hortonworks.beacon.store.executors.PolicyExecutor;
+import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor;
+import com.hortonworks.beacon.store.executors.PolicyInstanceExecutor.PolicyInstanceQuery;
+import com.hortonworks.beacon.store.executors.PolicyPropertiesExecutor;
+import com.hortonworks.beacon.tools.BeaconDBSetup;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Test class for the bulk policy instance queries of the policy list, against the per-policy queries.
+ */
+public class PolicyInstanceBulkQueryTest {
+
+    private final List<String> policyIds = new ArrayList<>();
+
+    @BeforeClass
+    public void setupClass() throws Exception {
+        BeaconDBSetup.setupDB();
+        ServiceManager.getInstance().initialize(Collections.singletonList(BeaconStoreService.class.getName()), null);
+        RequestContext.setInitialValue();
+        RequestContext.get().startTransaction();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            String policyId = savePolicy("bulk-query-" + i);
+            policyIds.add(policyId);
+            // Instances 2 and 3 start at the same time, a limit of 2 falls between them.
+            long[] startOffsets = {0, 1000, 2000, 2000, 3000};
+            for (int j = 0; j < startOffsets.length + i; j++) {
+                long startOffset = j < startOffsets.length ? startOffsets[j] : 4000 + j;
+                saveInstance(policyId, j, new Date(now + startOffset), j % 2 == 0 ? "SUCCEEDED" : "FAILED");
+            }
+        }
+        RequestContext.get().commitTransaction();
+        RequestContext.get().clear();
+    }
+
+    @AfterClass
+    public void teardown() throws BeaconException {
+        RequestContext.setInitialValue();
+        RequestContext.get().startTransaction();
+        List<String> instanceIds = new ArrayList<>();
+        for (String policyId : policyIds) {
+            PolicyInstanceBean bean = new PolicyInstanceBean();
+            bean.setPolicyId(policyId);
+            instanceIds.addAll(new PolicyInstanceExecutor(bean)
+                    .getLimitedInstanceIds(PolicyInstanceQuery.GET_POLICY_INSTANCE_IDS, 100));
+        }
+        new PolicyInstanceExecutor(new PolicyInstanceBean())
+                .executeBatchDelete(instanceIds, PolicyInstanceQuery.DELETE_POLICY_INSTANCE_BATCH);
+        String[] ids = policyIds.toArray(new String[policyIds.size()]);
+        new PolicyPropertiesExecutor().deleteRetiredPolicyProps(ids);
+        new PolicyExecutor(new PolicyBean()).executeBatchDelete(PolicyExecutor.PolicyQuery.DELETE_RETIRED_POLICY, ids);
+        RequestContext.get().commitTransaction();
+        RequestContext.get().clear();
+        ServiceManager.getInstance().destroy();
+    }
+
+    private String savePolicy(String name) throws BeaconException {
+        ReplicationPolicy replicationPolicy = new ReplicationPolicy();
+        replicationPolicy.setNotification(new Notification("type", "to"));
+        replicationPolicy.setRetry(new Retry());
+        replicationPolicy.setCustomProperties(new Properties());
+        replicationPolicy.setName(name);
+        new PolicyDao().persistPolicy(replicationPolicy);
+        return new PolicyExecutor(new PolicyBean(name)).getActivePolicy().getId();
+    }
+
+    private void saveInstance(String policyId, int index, Date startTime, String status) {
+        PolicyInstanceBean bean = new PolicyInstanceBean();
+        bean.setInstanceId(policyId + "@" + index);
+        bean.setPolicyId(policyId);
+        bean.setStartTime(startTime);
+        bean.setEndTime(new Date(startTime.getTime() + 500));
+        bean.setStatus(status);
+        bean.setRunCount(0);
+        bean.setCurrentOffset(0);
+        new PolicyInstanceExecutor(bean).execute();
+    }
+
+    @Test
+    public void testInstanceRecentBulk() {
+        RequestContext.setInitialValue();
+        try {
+            for (int results : new int[] {1, 3, 10}) {
+                Map<String, List<PolicyInstanceBean>> bulk = new PolicyInstanceExecutor(new PolicyInstanceBean())
+                        .getInstanceRecent(policyIds, results);
+                for (String policyId : policyIds) {
+                    PolicyInstanceBean bean = new PolicyInstanceBean();
+                    bean.setPolicyId(policyId);
+                    List<PolicyInstanceBean> single = new PolicyInstanceExecutor(bean)
+                            .getInstanceRecent(PolicyInstanceQuery.GET_INSTANCE_RECENT, results);
+                    Assert.assertEquals(getIds(bulk.get(policyId)), getIds(single));
+                }
+            }
+            // The tie on the start time is broken by the instance id, so the limit splits it the same way.
+            Map<String, List<PolicyInstanceBean>> bulk = new PolicyInstanceExecutor(new PolicyInstanceBean())
+                    .getInstanceRecent(Collections.singletonList(policyIds.get(0)), 2);
+            Assert.assertEquals(getIds(bulk.get(policyIds.get(0))),
+                    Arrays.asList(policyIds.get(0) + "@4", policyIds.get(0) + "@3"));
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    @Test
+    public void testInstanceReportBulk() {
+        RequestContext.setInitialValue();
+        try {
+            Map<String, List<PolicyInstanceBean>> bulk = new PolicyInstanceExecutor(new PolicyInstanceBean())
+                    .getInstanceReport(policyIds);
+            for (String policyId : policyIds) {
+                PolicyInstanceBean bean = new PolicyInstanceBean();
+                bean.setPolicyId(policyId);
+                List<PolicyInstanceBean> single = new PolicyInstanceExecutor(bean)
+                        .getInstanceReport(PolicyInstanceQuery.GET_INSTANCE_REPORT, 10);
+                Assert.assertEquals(bulk.get(policyId).size(), single.size());
+                for (PolicyInstanceBean report : single) {
+                    boolean found = false;
+                    for (PolicyInstanceBean bulkReport : bulk.get(policyId)) {
+                        if (bulkReport.getStatus().equals(report.getStatus())) {
+                            Assert.assertEquals(bulkReport.getEndTime().getTime(), report.getEndTime().getTime());
+                            found = true;
+                        }
+                    }
+                    Assert.assertTrue(found, "Missing report for status " + report.getStatus());
+                }
+            }
+        } finally {
+            RequestContext.get().clear();
+        }
+    }
+
+    private static List<String> getIds(List<PolicyInstanceBean> beans) {
+        List<String> ids = new ArrayList<>();
+        for (PolicyInstanceBean bean : beans) {
+            ids.add(bean.getInstanceId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.scheduler;
+
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.client.entity.Notification;
+import com.hortonworks.beacon.client.entity.ReplicationPolicy;
+import com.hortonworks.beacon.client.entity.Retry;
+import com.hortonworks.beacon.entity.util.PolicyDao;
+import com.hortonworks.beacon.exceptions.BeaconException;
+import com.hortonworks.beacon.job.JobContext;
+import com.hortonworks.beacon.job.JobStatus;
+import com.hortonworks.beacon.service.BeaconStoreService;
+import com.hortonworks.beacon.service.ServiceManager;
+import com.hortonworks.beacon.store.bean.InstanceJobBean;
+import com.hortonworks.beacon.store.bean.PolicyBean;
+import com.hortonworks.beacon.store.executors.InstanceJobExecutor;
+import com.hortonworks.beacon.store.executors.PolicyExecutor;
+import com.hortonworks.beacon.tools.BeaconDBSetup;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * Test class for {@link StateJournal}.
+ */
+public class StateJournalTest {
+
+    private String policyId;
+
+    @BeforeClass
+    public void setupClass() throws Exception {
+        BeaconDBSetup.setupDB();
+        ServiceManager.getInstance().initialize(Collections.singletonList(BeaconStoreService.class.getName()), null);
+        RequestContext.setInitialValue();
+        RequestContext.get().startTransaction();
+        ReplicationPolicy replicationPolicy = new ReplicationPolicy();
+        replicationPolicy.setNotification(new Notification("type", "to"));
+        replicationPolicy.setRetry(new Retry());
+        replicationPolicy.setCustomProperties(new Properties());
+        replicationPolicy.setName("journal-policy");
+        new PolicyDao().persistPolicy(replicationPolicy);
+        policyId = new PolicyExecutor(new PolicyBean("journal-policy")).getActivePolicy().getId();
+        RequestContext.get().commitTransaction();
+    }
+
+    @AfterClass
+    public void teardown() throws BeaconException {
+        RequestContext.get().clear();
+        ServiceManager.getInstance().destroy();
+    }
+
+    @Test
+    public void testUpdatesCoalescedPerRow() throws Exception {
+        JobContext jobContext = createInstance(1);
+        long updates = StateJournal.getRecordedUpdates();
+        long statements = StateJournal.getExecutedStatements();
+
+        RequestContext.get().startTransaction();
+        StateJournal.begin();
+        try {
+            StoreHelper.updateJobRunCount(jobContext, 1);
+            StoreHelper.updateInstanceRunCount(jobContext, 1);
+            StoreHelper.updateInstanceCurrentOffset(jobContext);
+            StoreHelper.updateInstanceJobStatusStartTime(jobContext, JobStatus.RUNNING);
+            StateJournal.flushCurrent();
+            RequestContext.get().commitTransaction();
+        } finally {
+            StateJournal.end();
+        }
+
+        Assert.assertEquals(StateJournal.getRecordedUpdates() - updates, 4);
+        Assert.assertEquals(StateJournal.getExecutedStatements() - statements, 2);
+        InstanceJobBean job = getInstanceJob(jobContext);
+        Assert.assertEquals(job.getRunCount(), 1);
+        Assert.assertEquals(job.getStatus(), JobStatus.RUNNING.name());
+        Assert.assertNotNull(job.getStartTime());
+        Assert.assertEquals(StoreHelper.getInstanceRunCount(jobContext), 1);
+    }
+
+    @Test
+    public void testReadFlushesPendingUpdates() throws Exception {
+        JobContext jobContext = createInstance(2);
+
+        RequestContext.get().startTransaction();
+        StateJournal.begin();
+        try {
+            StoreHelper.updateJobRunCount(jobContext, 3);
+            Assert.assertEquals(StoreHelper.getJobRunCount(jobContext), 3);
+            StoreHelper.updateInstanceJobCompleted(jobContext, JobStatus.FAILED.name(), "failed");
+            StoreHelper.updateRemainingInstanceJobs(jobContext, JobStatus.FAILED.name());
+            StateJournal.flushCurrent();
+            RequestContext.get().commitTransaction();
+        } finally {
+            StateJournal.end();
+        }
+
+        jobContext.setOffset(1);
+        Assert.assertEquals(getInstanceJob(jobContext).getStatus(), JobStatus.FAILED.name());
+    }
+
+    @Test
+    public void testRollbackDiscardsPendingUpdates() throws Exception {
+        JobContext jobContext = createInstance(3);
+
+        RequestContext.get().startTransaction();
+        StateJournal.begin();
+        try {
+            StoreHelper.updateJobRunCount(jobContext, 5);
+        } finally {
+            StateJournal.end();
+            RequestContext.get().rollbackTransaction();
+        }
+
+        Assert.assertEquals(getInstanceJob(jobContext).getRunCount(), 0);
+    }
+
+    private JobContext createInstance(int counter) {
+        RequestContext.get().startTransaction();
+        String instanceId = StoreHelper.insertPolicyInstance(policyId, counter, JobStatus.RUNNING.name());
+        StoreHelper.insertJobInstance(instanceId, 2);
+        RequestContext.get().commitTransaction();
+        JobContext jobContext = new JobContext();
+        jobContext.setJobInstanceId(instanceId);
+        jobContext.setOffset(0);
+        return jobContext;
+    }
+
+    private InstanceJobBean getInstanceJob(JobContext jobContext) {
+        RequestContext.get().startTransaction();
+        InstanceJobBean bean = new InstanceJobBean(jobContext.getJobInstanceId(), jobContext.getOffset());
+        InstanceJobBean job = new InstanceJobExecutor(bean)
+                .getInstanceJob(InstanceJobExecutor.InstanceJobQuery.GET_INSTANCE_JOB);
+        RequestContext.get().commitTransaction();
+        return job;
+    }
+}
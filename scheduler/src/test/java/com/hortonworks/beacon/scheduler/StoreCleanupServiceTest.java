@@ -26,6 +26,8 @@ import com.hortonworks.beacon.RequestContext;
 import com.hortonworks.beacon.client.entity.Notification;
 import com.hortonworks.beacon.client.entity.ReplicationPolicy;
 import com.hortonworks.beacon.client.entity.Retry;
+import com.hortonworks.beacon.config.BeaconConfig;
+import com.hortonworks.beacon.config.Scheduler;
 import com.hortonworks.beacon.entity.util.PolicyDao;
 import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.job.JobStatus;
@@ -45,9 +47,16 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import javax.persistence.Query;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test class for {@link StoreCleanupService}.
@@ -132,6 +141,163 @@ public class StoreCleanupServiceTest {
         validatePostCleanup(0, 0, 0);
 
     }
+
+    @Test
+    public void testArchivedPolicyCleanup() throws BeaconStoreException {
+        createSinglePolicyDataSet("archived");
+        validateBeforeCleanup(1, 5, 25);
+        RequestContext.setInitialValue();
+        markPolicyDeleted("archived");
+        BeaconConfig.getInstance().getScheduler().setCleanupArchive(true);
+        try {
+            storeCleanupService.call();
+        } finally {
+            BeaconConfig.getInstance().getScheduler().setCleanupArchive(false);
+        }
+        validatePostCleanup(0, 0, 0);
+        RequestContext.setInitialValue();
+        Assert.assertEquals(1, getArchivedCount("BEACON_POLICY_ARCHIVE"));
+        Assert.assertEquals(5, getArchivedCount("BEACON_POLICY_INSTANCE_ARCHIVE"));
+        Assert.assertEquals(25, getArchivedCount("BEACON_INSTANCE_JOB_ARCHIVE"));
+        RequestContext.get().clear();
+    }
+
+    @Test
+    public void testPartition() {
+        List<String> policyIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            policyIds.add("/source/source/target/policy" + i + "/0/1514764800000/000000001");
+        }
+        List<List<String>> partitions = StoreCleanupService.partition(policyIds, 3);
+        Assert.assertEquals(3, partitions.size());
+        Set<String> partitioned = new HashSet<>();
+        for (List<String> partition : partitions) {
+            for (String policyId : partition) {
+                Assert.assertTrue("Policy in two partitions: " + policyId, partitioned.add(policyId));
+            }
+        }
+        Assert.assertEquals(new HashSet<>(policyIds), partitioned);
+        // A policy always lands on the same worker, whatever the other policies.
+        List<String> reversed = new ArrayList<>(policyIds);
+        Collections.reverse(reversed);
+        List<List<String>> reversedPartitions = StoreCleanupService.partition(reversed, 3);
+        for (int i = 0; i < partitions.size(); i++) {
+            Assert.assertEquals(new HashSet<>(partitions.get(i)), new HashSet<>(reversedPartitions.get(i)));
+        }
+        // No more workers than policies.
+        Assert.assertEquals(2, StoreCleanupService.partition(policyIds.subList(0, 2), 3).size());
+    }
+
+    @Test
+    public void testMultiWorkerCleanup() throws BeaconStoreException {
+        BeaconConfig.getInstance().getScheduler().setCleanupThreads(3);
+        try {
+            for (int i = 0; i < 6; i++) {
+                createSinglePolicyDataSet("worker" + i);
+            }
+            validateBeforeCleanup(6, 30, 150);
+            RequestContext.setInitialValue();
+            for (int i = 0; i < 6; i++) {
+                markPolicyDeleted("worker" + i);
+            }
+            long deletedBefore = storeCleanupService.getRowsDeleted();
+            storeCleanupService.call();
+            validatePostCleanup(0, 0, 0);
+            Assert.assertTrue(storeCleanupService.getRowsDeleted() - deletedBefore >= 6 * (1 + 5 + 25));
+        } finally {
+            BeaconConfig.getInstance().getScheduler().setCleanupThreads(0);
+        }
+    }
+
+    @Test
+    public void testBatchSizeAdaptation() throws BeaconStoreException {
+        Scheduler scheduler = BeaconConfig.getInstance().getScheduler();
+        int initialSize = storeCleanupService.getBatchSize();
+        try {
+            // The batches complete well within a long target time, the size grows up to the maximum.
+            scheduler.setCleanupBatchTargetTime((int) TimeUnit.MINUTES.toMillis(10));
+            scheduler.setCleanupMaxBatchSize(initialSize + 1000);
+            cleanupPolicy("grow");
+            int grownSize = storeCleanupService.getBatchSize();
+            Assert.assertTrue(grownSize + " <= " + initialSize, grownSize > initialSize);
+            Assert.assertTrue(grownSize <= initialSize + 1000);
+
+            // A lower maximum brings the size down to it.
+            scheduler.setCleanupMaxBatchSize(20);
+            cleanupPolicy("cap");
+            Assert.assertEquals(20, storeCleanupService.getBatchSize());
+        } finally {
+            scheduler.setCleanupBatchTargetTime(0);
+            scheduler.setCleanupMaxBatchSize(0);
+        }
+    }
+
+    @Test
+    public void testRetryAfterLockTimeout() throws Exception {
+        Scheduler scheduler = BeaconConfig.getInstance().getScheduler();
+        createSinglePolicyDataSet("locked");
+        validateBeforeCleanup(1, 5, 25);
+        RequestContext.setInitialValue();
+        String policyId = new PolicyExecutor(new PolicyBean("locked")).getActivePolicy().getId();
+        markPolicyDeleted("locked");
+        RequestContext.get().clear();
+        setLockWaitTimeout("1");
+        int sizeBefore = storeCleanupService.getBatchSize();
+        scheduler.setCleanupMaxBatchSize(sizeBefore);
+        scheduler.setCleanupBatchTargetTime((int) TimeUnit.MINUTES.toMillis(10));
+        long lockWaitsBefore = storeCleanupService.getLockWaits();
+        try {
+            // Hold the locks of the instances until the cleanup has timed out waiting for them once.
+            RequestContext.setInitialValue();
+            RequestContext.get().startTransaction();
+            Query lock = RequestContext.get().getEntityManager().createNativeQuery(
+                    "UPDATE BEACON_POLICY_INSTANCE SET MESSAGE = 'locked' WHERE POLICY_ID = ?");
+            lock.setParameter(1, policyId);
+            Assert.assertEquals(5, lock.executeUpdate());
+            FutureTask<Void> cleanup = new FutureTask<>(storeCleanupService);
+            new Thread(cleanup, "StoreCleanupServiceTest").start();
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (storeCleanupService.getLockWaits() == lockWaitsBefore && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            RequestContext.get().rollbackTransaction();
+            cleanup.get(30, TimeUnit.SECONDS);
+
+            Assert.assertTrue(storeCleanupService.getLockWaits() > lockWaitsBefore);
+            Assert.assertTrue(storeCleanupService.getBatchSize() <= sizeBefore);
+            validatePostCleanup(0, 0, 0);
+        } finally {
+            RequestContext.get().clear();
+            setLockWaitTimeout(null);
+            scheduler.setCleanupBatchTargetTime(0);
+            scheduler.setCleanupMaxBatchSize(0);
+        }
+    }
+
+    private void cleanupPolicy(String name) throws BeaconStoreException {
+        createSinglePolicyDataSet(name);
+        RequestContext.setInitialValue();
+        markPolicyDeleted(name);
+        storeCleanupService.call();
+        validatePostCleanup(0, 0, 0);
+    }
+
+    private void setLockWaitTimeout(String seconds) {
+        RequestContext.setInitialValue();
+        RequestContext.get().startTransaction();
+        Query query = RequestContext.get().getEntityManager().createNativeQuery(
+                "CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('derby.locks.waitTimeout', ?)");
+        query.setParameter(1, seconds);
+        query.executeUpdate();
+        RequestContext.get().commitTransaction();
+        RequestContext.get().clear();
+    }
+
+    private long getArchivedCount(String table) {
+        Query query = RequestContext.get().getEntityManager().createNativeQuery("SELECT COUNT(*) FROM " + table);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
     private void validatePostCleanup(long policyExpected, long instanceExpected,
                                      long jobsExpected) throws BeaconStoreException {
         RequestContext.setInitialValue();
@@ -0,0 +1,137 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.scheduler.quartz;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for parking and resuming jobs in JobContinuations.
+ */
+public class JobContinuationsTest {
+
+    private static final String POLICY_ID = "dataCenter-Cluster-0-1488946092144-000000001";
+
+    /**
+     * QuartzJob which records its resume and interrupt.
+     */
+    private static final class ParkedTestJob extends QuartzJob {
+        private final CountDownLatch resumed = new CountDownLatch(1);
+        private volatile Map<String, Object> storedJobData;
+        private volatile boolean interrupted;
+
+        @Override
+        void resume(JobExecutionContext context, Map<String, Object> jobData) {
+            storedJobData = jobData;
+            resumed.countDown();
+        }
+
+        @Override
+        public void interrupt() {
+            interrupted = true;
+        }
+    }
+
+    private static JobExecutionContext createContext(final String fireInstanceId) {
+        final JobDetail jobDetail = JobBuilder.newJob(QuartzTestJob.class)
+                .withIdentity(POLICY_ID, BeaconQuartzScheduler.START_NODE_GROUP)
+                .usingJobData(QuartzDataMapEnum.COUNTER.getValue(), 1)
+                .build();
+        return (JobExecutionContext) Proxy.newProxyInstance(JobContinuationsTest.class.getClassLoader(),
+                new Class<?>[]{JobExecutionContext.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "getFireInstanceId":
+                                return fireInstanceId;
+                            case "getJobDetail":
+                                return jobDetail;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+    }
+
+    @Test
+    public void testResumeAfterReleaseAndCompletion() throws Exception {
+        JobContinuations continuations = JobContinuations.get();
+        JobExecutionContext context = createContext("fire-1");
+        ParkedTestJob job = new ParkedTestJob();
+        SettableFuture<Boolean> completion = SettableFuture.create();
+
+        continuations.park(context, job, completion);
+        Assert.assertTrue(continuations.isParked(context));
+        continuations.release(context.getFireInstanceId(), context.getJobDetail());
+        Assert.assertFalse(job.resumed.await(100, TimeUnit.MILLISECONDS));
+
+        completion.set(true);
+        Assert.assertTrue(job.resumed.await(10, TimeUnit.SECONDS));
+        Assert.assertFalse(continuations.isParked(context));
+        Assert.assertEquals(job.storedJobData.get(QuartzDataMapEnum.COUNTER.getValue()), 1);
+    }
+
+    @Test
+    public void testResumeWaitsForRelease() throws Exception {
+        JobContinuations continuations = JobContinuations.get();
+        JobExecutionContext context = createContext("fire-2");
+        ParkedTestJob job = new ParkedTestJob();
+        SettableFuture<Boolean> completion = SettableFuture.create();
+
+        continuations.park(context, job, completion);
+        completion.set(false);
+        Assert.assertFalse(job.resumed.await(100, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(continuations.isParked(context));
+
+        continuations.release(context.getFireInstanceId(), context.getJobDetail());
+        Assert.assertTrue(job.resumed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInterruptParkedJob() throws Exception {
+        JobContinuations continuations = JobContinuations.get();
+        JobExecutionContext context = createContext("fire-3");
+        ParkedTestJob job = new ParkedTestJob();
+        SettableFuture<Boolean> completion = SettableFuture.create();
+
+        continuations.park(context, job, completion);
+        Assert.assertFalse(continuations.interrupt("unknown-policy"));
+        Assert.assertTrue(continuations.interrupt(POLICY_ID));
+        Assert.assertTrue(job.interrupted);
+
+        continuations.release(context.getFireInstanceId(), context.getJobDetail());
+        completion.set(false);
+        Assert.assertTrue(job.resumed.await(10, TimeUnit.SECONDS));
+    }
+}
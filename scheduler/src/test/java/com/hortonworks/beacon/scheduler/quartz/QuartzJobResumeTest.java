@@ -0,0 +1,249 @@
+/**
+ * HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+ *
+ * (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+ *
+ * This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+ * Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+ * to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+ * properly licensed third party, you do not have any rights to this code.
+ *
+ * If this code is provided to you under the terms of the AGPLv3:
+ * (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+ * (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+ *    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+ * (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+ *    FROM OR RELATED TO THE CODE; AND
+ * (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+ *    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+ *    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+ *    OR LOSS OR CORRUPTION OF DATA.
+ */
+
+package com.hortonworks.beacon.scheduler.quartz;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.hortonworks.beacon.RequestContext;
+import com.hortonworks.beacon.job.AsyncBeaconJob;
+import com.hortonworks.beacon.job.JobContext;
+import com.hortonworks.beacon.replication.ReplicationJobDetails;
+import com.hortonworks.beacon.util.ReplicationType;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.listeners.JobListenerSupport;
+import org.quartz.spi.OperableTrigger;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the resume of a parked QuartzJob through a Quartz scheduler and the job and trigger listeners.
+ */
+public class QuartzJobResumeTest {
+
+    private static final String POLICY_ID = "dataCenter-Cluster-0-1488946092144-000000002";
+    private static final String EXECUTED = "executed";
+    private static final String LISTENED = "listened";
+    private static final long STORE_DELAY_MILLIS = 500;
+
+    private static Scheduler scheduler;
+    private static volatile Boolean storedBeforeResume;
+    private static final List<Boolean> JOB_LISTENER_PARKED = new CopyOnWriteArrayList<>();
+    private static final List<Boolean> TRIGGER_LISTENER_PARKED = new CopyOnWriteArrayList<>();
+    private static final CountDownLatch RESUMED = new CountDownLatch(1);
+
+    /**
+     * Job store which is slow to store an execution, so that a job resumed before it is stored shows.
+     */
+    public static class DelayedJobStore extends BeaconRAMJobStore {
+        @Override
+        public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+                                         Trigger.CompletedExecutionInstruction triggerInstCode) {
+            try {
+                Thread.sleep(STORE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+        }
+    }
+
+    /**
+     * Replication job whose external work is done as soon as it is started.
+     */
+    private static final class CompletedAsyncJob implements AsyncBeaconJob {
+        @Override
+        public ListenableFuture<?> performAsync(JobContext jobContext) {
+            return Futures.immediateFuture(null);
+        }
+
+        @Override
+        public void completePerform(JobContext jobContext) {
+            try {
+                JobKey jobKey = new JobKey(POLICY_ID, BeaconQuartzScheduler.START_NODE_GROUP);
+                storedBeforeResume = scheduler.getJobDetail(jobKey).getJobDataMap().containsKey(EXECUTED);
+            } catch (SchedulerException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void init(JobContext jobContext) {
+        }
+
+        @Override
+        public void perform(JobContext jobContext) {
+        }
+
+        @Override
+        public void cleanUp(JobContext jobContext) {
+        }
+
+        @Override
+        public void recover(JobContext jobContext) {
+        }
+
+        @Override
+        public void interrupt() {
+        }
+    }
+
+    /**
+     * QuartzJob which parks on its replication job right away.
+     */
+    public static class ParkingJob extends QuartzJob {
+        public ParkingJob() {
+            super(createJobContext(), new ReplicationJobDetails(POLICY_ID, "test", ReplicationType.FS.getName(),
+                    new Properties()), new CompletedAsyncJob());
+        }
+
+        private static JobContext createJobContext() {
+            JobContext jobContext = new JobContext();
+            jobContext.setJobInstanceId(POLICY_ID + "@1");
+            return jobContext;
+        }
+
+        @Override
+        public void execute(JobExecutionContext context) {
+            context.getJobDetail().getJobDataMap().put(EXECUTED, true);
+            JobContinuations.get().park(context, this, Futures.immediateFuture(null));
+        }
+    }
+
+    /**
+     * Job listener recording the executions it is notified of.
+     */
+    private static final class RecordingJobListener extends JobListenerSupport {
+        @Override
+        public String getName() {
+            return BeaconQuartzScheduler.BEACON_SCHEDULER_JOB_LISTENER;
+        }
+
+        @Override
+        public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+            boolean parked = JobContinuations.get().isParked(context);
+            JOB_LISTENER_PARKED.add(parked);
+            Assert.assertNull(jobException);
+            if (!parked) {
+                context.getJobDetail().getJobDataMap().put(LISTENED, true);
+            }
+        }
+    }
+
+    /**
+     * Trigger listener recording the executions it is notified of, without the policy lookup on fire.
+     */
+    private static final class RecordingTriggerListener extends QuartzTriggerListener {
+        private RecordingTriggerListener() {
+            super(BeaconQuartzScheduler.BEACON_SCHEDULER_TRIGGER_LISTENER);
+        }
+
+        @Override
+        public void triggerFired(Trigger trigger, JobExecutionContext context) {
+            RequestContext.setInitialValue();
+        }
+
+        @Override
+        public void triggerComplete(Trigger trigger, JobExecutionContext context,
+                                    Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+            boolean parked = JobContinuations.get().isParked(context);
+            TRIGGER_LISTENER_PARKED.add(parked);
+            super.triggerComplete(trigger, context, triggerInstructionCode);
+            if (!parked) {
+                RESUMED.countDown();
+            }
+        }
+    }
+
+    @BeforeClass
+    public void setup() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("org.quartz.scheduler.instanceName", "QuartzJobResumeTest");
+        properties.setProperty("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
+        properties.setProperty("org.quartz.threadPool.threadCount", "2");
+        properties.setProperty("org.quartz.jobStore.class", DelayedJobStore.class.getName());
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        scheduler.getListenerManager().addJobListener(new RecordingJobListener());
+        scheduler.getListenerManager().addTriggerListener(new RecordingTriggerListener());
+        scheduler.start();
+    }
+
+    @AfterClass
+    public void teardown() throws Exception {
+        scheduler.shutdown(true);
+    }
+
+    @Test
+    public void testResumeAfterJobStored() throws Exception {
+        JobKey jobKey = new JobKey(POLICY_ID, BeaconQuartzScheduler.START_NODE_GROUP);
+        JobDataMap jobDataMap = new JobDataMap();
+        jobDataMap.put(QuartzDataMapEnum.IS_END_JOB.getValue(), false);
+        jobDataMap.put(QuartzDataMapEnum.IS_FAILURE.getValue(), false);
+        JobDetail jobDetail = JobBuilder.newJob(ParkingJob.class)
+                .withIdentity(jobKey)
+                .storeDurably(true)
+                .setJobData(jobDataMap)
+                .build();
+        Trigger trigger = TriggerBuilder.newTrigger()
+                .withIdentity(POLICY_ID, BeaconQuartzScheduler.START_NODE_GROUP)
+                .forJob(jobKey)
+                .startNow()
+                .build();
+        scheduler.scheduleJob(jobDetail, trigger);
+
+        Assert.assertTrue(RESUMED.await(30, TimeUnit.SECONDS));
+        // The job resumed only once the execution which parked it was stored.
+        Assert.assertEquals(storedBeforeResume, Boolean.TRUE);
+        // Quartz notified the listeners of the parked execution, the resume of the completed one.
+        Assert.assertEquals(JOB_LISTENER_PARKED.toArray(), new Boolean[]{true, false});
+        Assert.assertEquals(TRIGGER_LISTENER_PARKED.toArray(), new Boolean[]{true, false});
+
+        // The job data changed on resume is written back over what Quartz stored.
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        JobDataMap stored = scheduler.getJobDetail(jobKey).getJobDataMap();
+        while (!stored.containsKey(LISTENED) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            stored = scheduler.getJobDetail(jobKey).getJobDataMap();
+        }
+        Assert.assertEquals(stored.get(LISTENED), true);
+        Assert.assertEquals(stored.get(EXECUTED), true);
+        Assert.assertTrue(stored.get(QuartzDataMapEnum.JOB_CONTEXT.getValue()) instanceof JobContext);
+    }
+}
@@ -349,19 +349,42 @@ CREATE INDEX IDX_BEACON_EV_ETY ON BEACON_EVENT(EVENT_ENTITY_TYPE);
 
 CREATE INDEX IDX_BEACON_INS_JOB_ST ON BEACON_INSTANCE_JOB(STATUS);
 
-CREATE INDEX IDX_BEACON_PL_INS_PID_ST ON BEACON_POLICY_INSTANCE(POLICY_ID, STATUS);
-CREATE INDEX IDX_BEACON_PL_INS_PID_SRT ON BEACON_POLICY_INSTANCE(POLICY_ID, START_TIME);
 CREATE INDEX IDX_BEACON_PL_INS_PID_ET ON BEACON_POLICY_INSTANCE(POLICY_ID, END_TIME);
 CREATE INDEX IDX_BEACON_PL_INS_ST ON BEACON_POLICY_INSTANCE(STATUS);
 
 CREATE INDEX IDX_BEACON_PL_PROP_PID ON BEACON_POLICY_PROP(POLICY_ID);
 
-CREATE INDEX IDX_BEACON_PL_PNAME ON BEACON_POLICY(NAME);
 CREATE INDEX IDX_BEACON_PL_TY_NAME ON BEACON_POLICY(TYPE, NAME);
 CREATE INDEX IDX_BEACON_PL_ST ON BEACON_POLICY(STATUS);
-CREATE INDEX IDX_BEACON_PL_SC ON BEACON_POLICY(SOURCE_CLUSTER);
 CREATE INDEX IDX_BEACON_PL_TC ON BEACON_POLICY(TARGET_CLUSTER);
 
 CREATE INDEX IDX_BEACON_CC_PR ON BEACON_CLOUD_CRED(PROVIDER);
 CREATE INDEX IDX_BEACON_CC_NA ON BEACON_CLOUD_CRED(NAME);
 
+CREATE INDEX IDX_BEACON_PL_NAME_RT ON BEACON_POLICY(NAME, RETIREMENT_TIME);
+CREATE INDEX IDX_BEACON_PL_NAME_VER ON BEACON_POLICY(NAME, VERSION);
+CREATE INDEX IDX_BEACON_PL_SC_TC_ST ON BEACON_POLICY(SOURCE_CLUSTER, TARGET_CLUSTER, STATUS);
+CREATE INDEX IDX_BEACON_PL_TY_RT_ST ON BEACON_POLICY(TYPE, RETIREMENT_TIME, STATUS);
+CREATE INDEX IDX_BEACON_PL_RT ON BEACON_POLICY(RETIREMENT_TIME);
+
+CREATE INDEX IDX_BEACON_PL_INS_PID_RT ON BEACON_POLICY_INSTANCE(POLICY_ID, RETIREMENT_TIME);
+CREATE INDEX IDX_BEACON_PL_INS_PID_ST_ET ON BEACON_POLICY_INSTANCE(POLICY_ID, STATUS, END_TIME);
+CREATE INDEX IDX_BEACON_PL_INS_PID_SRT_ST ON BEACON_POLICY_INSTANCE(POLICY_ID, START_TIME, STATUS);
+CREATE INDEX IDX_BEACON_PL_INS_ST_RT ON BEACON_POLICY_INSTANCE(STATUS, RETIREMENT_TIME);
+CREATE INDEX IDX_BEACON_PL_INS_RT ON BEACON_POLICY_INSTANCE(RETIREMENT_TIME);
+
+CREATE INDEX IDX_BEACON_INS_JOB_IID_ET ON BEACON_INSTANCE_JOB(INSTANCE_ID, END_TIME);
+CREATE INDEX IDX_BEACON_INS_JOB_RT ON BEACON_INSTANCE_JOB(RETIREMENT_TIME);
+
+CREATE INDEX IDX_BEACON_EV_PID_TS ON BEACON_EVENT(POLICY_ID, EVENT_TIMESTAMP);
+CREATE INDEX IDX_BEACON_EV_EID_TS ON BEACON_EVENT(EVENT_ID, EVENT_TIMESTAMP);
+CREATE INDEX IDX_BEACON_EV_ETY_TS ON BEACON_EVENT(EVENT_ENTITY_TYPE, EVENT_TIMESTAMP);
+CREATE INDEX IDX_BEACON_EV_TS ON BEACON_EVENT(EVENT_TIMESTAMP);
+
+
+
+-- Archive tables the store cleanup moves retired policies, instances and jobs into when archival is enabled.
+CREATE TABLE BEACON_POLICY_ARCHIVE AS SELECT * FROM BEACON_POLICY WITH NO DATA;
+CREATE TABLE BEACON_POLICY_PROP_ARCHIVE AS SELECT * FROM BEACON_POLICY_PROP WITH NO DATA;
+CREATE TABLE BEACON_POLICY_INSTANCE_ARCHIVE AS SELECT * FROM BEACON_POLICY_INSTANCE WITH NO DATA;
+CREATE TABLE BEACON_INSTANCE_JOB_ARCHIVE AS SELECT * FROM BEACON_INSTANCE_JOB WITH NO DATA;
@@ -0,0 +1,48 @@
+-- HORTONWORKS DATAPLANE SERVICE AND ITS CONSTITUENT SERVICES
+--
+-- (c) 2016-2018 Hortonworks, Inc. All rights reserved.
+--
+-- This code is provided to you pursuant to your written agreement with Hortonworks, which may be the terms of the
+-- Affero General Public License version 3 (AGPLv3), or pursuant to a written agreement with a third party authorized
+-- to distribute this code.  If you do not have a written agreement with Hortonworks or with an authorized and
+-- properly licensed third party, you do not have any rights to this code.
+--
+-- If this code is provided to you under the terms of the AGPLv3:
+-- (A) HORTONWORKS PROVIDES THIS CODE TO YOU WITHOUT WARRANTIES OF ANY KIND;
+-- (B) HORTONWORKS DISCLAIMS ANY AND ALL EXPRESS AND IMPLIED WARRANTIES WITH RESPECT TO THIS CODE, INCLUDING BUT NOT
+--    LIMITED TO IMPLIED WARRANTIES OF TITLE, NON-INFRINGEMENT, MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE;
+-- (C) HORTONWORKS IS NOT LIABLE TO YOU, AND WILL NOT DEFEND, INDEMNIFY, OR HOLD YOU HARMLESS FOR ANY CLAIMS ARISING
+--    FROM OR RELATED TO THE CODE; AND
+-- (D) WITH RESPECT TO YOUR EXERCISE OF ANY RIGHTS GRANTED TO YOU FOR THE CODE, HORTONWORKS IS NOT LIABLE FOR ANY
+--    DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, PUNITIVE OR CONSEQUENTIAL DAMAGES INCLUDING, BUT NOT LIMITED TO,
+--    DAMAGES RELATED TO LOST REVENUE, LOST PROFITS, LOSS OF INCOME, LOSS OF BUSINESS ADVANTAGE OR UNAVAILABILITY,
+--    OR LOSS OR CORRUPTION OF DATA.
+--
+
+-- Composite indexes for the named queries on the policy, instance, job and event tables.
+-- They are built concurrently, without blocking writes to the tables, so each one runs outside a transaction.
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_NAME_RT ON BEACON_POLICY(NAME, RETIREMENT_TIME);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_NAME_VER ON BEACON_POLICY(NAME, VERSION);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_SC_TC_ST ON BEACON_POLICY(SOURCE_CLUSTER, TARGET_CLUSTER, STATUS);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_TY_RT_ST ON BEACON_POLICY(TYPE, RETIREMENT_TIME, STATUS);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_RT ON BEACON_POLICY(RETIREMENT_TIME);
+
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_INS_PID_RT ON BEACON_POLICY_INSTANCE(POLICY_ID, RETIREMENT_TIME);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_INS_PID_ST_ET ON BEACON_POLICY_INSTANCE(POLICY_ID, STATUS, END_TIME);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_INS_PID_SRT_ST ON BEACON_POLICY_INSTANCE(POLICY_ID, START_TIME, STATUS);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_INS_ST_RT ON BEACON_POLICY_INSTANCE(STATUS, RETIREMENT_TIME);
+CREATE INDEX CONCURRENTLY IDX_BEACON_PL_INS_RT ON BEACON_POLICY_INSTANCE(RETIREMENT_TIME);
+
+CREATE INDEX CONCURRENTLY IDX_BEACON_INS_JOB_IID_ET ON BEACON_INSTANCE_JOB(INSTANCE_ID, END_TIME);
+CREATE INDEX CONCURRENTLY IDX_BEACON_INS_JOB_RT ON BEACON_INSTANCE_JOB(RETIREMENT_TIME);
+
+CREATE INDEX CONCURRENTLY IDX_BEACON_EV_PID_TS ON BEACON_EVENT(POLICY_ID, EVENT_TIMESTAMP);
+CREATE INDEX CONCURRENTLY IDX_BEACON_EV_EID_TS ON BEACON_EVENT(EVENT_ID, EVENT_TIMESTAMP);
+CREATE INDEX CONCURRENTLY IDX_BEACON_EV_ETY_TS ON BEACON_EVENT(EVENT_ENTITY_TYPE, EVENT_TIMESTAMP);
+CREATE INDEX CONCURRENTLY IDX_BEACON_EV_TS ON BEACON_EVENT(EVENT_TIMESTAMP);
+
+-- Prefix indexes made redundant by the composite indexes above.
+DROP INDEX CONCURRENTLY IF EXISTS IDX_BEACON_PL_INS_PID_ST;
+DROP INDEX CONCURRENTLY IF EXISTS IDX_BEACON_PL_INS_PID_SRT;
+DROP INDEX CONCURRENTLY IF EXISTS IDX_BEACON_PL_PNAME;
+DROP INDEX CONCURRENTLY IF EXISTS IDX_BEACON_PL_SC;
@@ -36,6 +36,8 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -47,7 +49,11 @@ import com.hortonworks.beacon.exceptions.BeaconException;
 import com.hortonworks.beacon.util.StringFormat;
 
 /**
- * Beacon database setup tool.
+ * Beacon database setup tool. A new database is created with the latest schema; an existing one is upgraded by
+ * applying, in order, the schema file of every version after its own, recording the version reached after each one.
+ * Index creation is skipped when the index already exists and index removal when it is already gone, so a step
+ * interrupted half way can simply be re-run. An invalid index left behind by a failed concurrent build on Postgres
+ * is dropped and built again.
  */
 public final class BeaconDBSetup {
 
@@ -69,9 +75,21 @@ public final class BeaconDBSetup {
             add("0.2");
             add("1.1.2");
             add("1.1.3");
+            add("1.1.4");
+            add("1.1.5");
         }
     };
     private static final String SCHEMA_VERSION = SCHEMA_VERSIONS.get(SCHEMA_VERSIONS.size()-1);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^\\s*CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(CONCURRENTLY\\s+)?(\\w+)\\s+ON\\s+(\\w+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern DROP_INDEX = Pattern.compile(
+            "^\\s*DROP\\s+INDEX\\s+(CONCURRENTLY\\s+)?(?:IF\\s+EXISTS\\s+)?(\\w+)(?:\\s+ON\\s+(\\w+))?",
+            Pattern.CASE_INSENSITIVE);
+    private static final String POSTGRES = "PostgreSQL";
+    private static final String INDEX_VALID_QUERY = "select i.indisvalid from pg_index i "
+            + "join pg_class c on c.oid = i.indexrelid join pg_namespace n on n.oid = c.relnamespace "
+            + "where c.relname = ? and n.nspname = current_schema()";
 
     private BeaconConfig beaconConfig = BeaconConfig.getInstance();
 
@@ -96,8 +114,8 @@ public final class BeaconDBSetup {
                 for (int i = index+1; i<SCHEMA_VERSIONS.size(); i++) {
                     String schemaFile = dbSetup.getSchemaFile(SCHEMA_VERSIONS.get(i));
                     dbSetup.upgrade(connection, schemaFile);
+                    dbSetup.updateVersion(connection, SCHEMA_VERSIONS.get(i));
                 }
-                dbSetup.updateVersion(connection, SCHEMA_VERSION);
             } else {
                 LOGGER.info("Database schema is already setup with schema version [{}]", version);
             }
@@ -236,13 +254,106 @@ public final class BeaconDBSetup {
 
     private void executeDDLs(Connection connection, List<String> queries) throws SQLException {
         for (String query : queries) {
-            try(Statement statement = connection.createStatement()) {
-                statement.execute(query);
-            } catch (SQLException e) {
-                LOGGER.info("Failed DDL query: " + query);
-                LOGGER.error("Error message: " + e.getMessage());
-                throw e;
+            if (StringUtils.isBlank(query)) {
+                continue;
+            }
+            Matcher createIndex = CREATE_INDEX.matcher(query);
+            if (createIndex.find()) {
+                String index = createIndex.group(2);
+                if (indexExists(connection, createIndex.group(3), index)) {
+                    if (isValidIndex(connection, index)) {
+                        LOGGER.info("Index [{}] already exists, skipping it", index);
+                        continue;
+                    }
+                    LOGGER.info("Index [{}] is invalid, rebuilding it", index);
+                    execute(connection, "DROP INDEX CONCURRENTLY IF EXISTS " + index, true);
+                }
+                execute(connection, query, createIndex.group(1) != null);
+                continue;
+            }
+            Matcher dropIndex = DROP_INDEX.matcher(query);
+            if (dropIndex.find()) {
+                String index = dropIndex.group(2);
+                String table = dropIndex.group(3) != null
+                        ? dropIndex.group(3) : findIndexTable(connection, index);
+                if (table == null || !indexExists(connection, table, index)) {
+                    LOGGER.info("Index [{}] doesn't exist, skipping its removal", index);
+                    continue;
+                }
+                execute(connection, query, dropIndex.group(1) != null);
+                continue;
+            }
+            execute(connection, query, false);
+        }
+    }
+
+    private void execute(Connection connection, String query, boolean concurrent) throws SQLException {
+        // A concurrent index build or removal can't run inside a transaction.
+        boolean outsideTransaction = concurrent && !connection.getAutoCommit();
+        if (outsideTransaction) {
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+        try(Statement statement = connection.createStatement()) {
+            statement.execute(query);
+        } catch (SQLException e) {
+            LOGGER.info("Failed DDL query: " + query);
+            LOGGER.error("Error message: " + e.getMessage());
+            throw e;
+        } finally {
+            if (outsideTransaction) {
+                connection.setAutoCommit(false);
+            }
+        }
+    }
+
+    private String findIndexTable(Connection connection, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        List<String> tables = new ArrayList<>();
+        try (ResultSet resultSet = metaData.getTables(connection.getCatalog(), null, null, new String[]{"TABLE"})) {
+            while (resultSet.next()) {
+                tables.add(resultSet.getString("TABLE_NAME"));
+            }
+        }
+        for (String table : tables) {
+            if (indexExists(connection, table, index)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A failed CREATE INDEX CONCURRENTLY leaves an index on Postgres that is marked invalid: it is reported by the
+     * metadata, but isn't used by queries.
+     */
+    private boolean isValidIndex(Connection connection, String index) throws SQLException {
+        if (!POSTGRES.equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+            return true;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INDEX_VALID_QUERY)) {
+            statement.setString(1, index.toLowerCase());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return !resultSet.next() || resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String tableName = table;
+        if (metaData.storesUpperCaseIdentifiers()) {
+            tableName = table.toUpperCase();
+        } else if (metaData.storesLowerCaseIdentifiers()) {
+            tableName = table.toLowerCase();
+        }
+        try (ResultSet resultSet = metaData.getIndexInfo(null, null, tableName, false, true)) {
+            while (resultSet.next()) {
+                if (index.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    return true;
+                }
             }
+            return false;
         }
     }
 
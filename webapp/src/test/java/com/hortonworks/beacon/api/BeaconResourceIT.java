@@ -64,12 +64,15 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import javax.ws.rs.core.Response;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -79,6 +82,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -1893,12 +1897,135 @@ public class BeaconResourceIT extends BeaconIntegrationTest {
         types = Arrays.asList("FS", "FS", "FS");
         validatePolicyList(api, 3,  3, names, types);
 
+        // page through the policies with the continuation token, the total is estimated unless asked for
+        api = BASE_API + "policy/list?orderBy=name&numResults=2&filterBy=" + policyNameFilter;
+        validatePolicyList(api, 2, 3, Arrays.asList(policy1, policy2), Arrays.asList("FS", "FS"));
+        JSONObject firstPage = new JSONObject(getPolicyListResponse(api, getTargetBeaconServer()));
+        assertFalse(firstPage.getBoolean("exactTotal"));
+        api = api + "&exactTotal=true&token=" + firstPage.getString("nextToken");
+        JSONObject lastPage = new JSONObject(getPolicyListResponse(api, getTargetBeaconServer()));
+        assertTrue(lastPage.getBoolean("exactTotal"));
+        assertEquals(lastPage.getInt("results"), 1);
+        assertEquals(lastPage.getInt("totalResults"), 3);
+        assertTrue(lastPage.getString("policy").contains(policy3));
+        assertFalse(lastPage.has("nextToken"));
+
+        // an offset past the end counts the total instead of estimating it
+        api = BASE_API + "policy/list?orderBy=name&numResults=2&offset=5&filterBy=" + policyNameFilter;
+        JSONObject pastEnd = new JSONObject(getPolicyListResponse(api, getTargetBeaconServer()));
+        assertTrue(pastEnd.getBoolean("exactTotal"));
+        assertEquals(pastEnd.getInt("results"), 0);
+        assertEquals(pastEnd.getInt("totalResults"), 3);
+
+        // a malformed token, or a token with a sort column that can't resume from it, is a bad request
+        String server = getTargetBeaconServer();
+        String token = firstPage.getString("nextToken");
+        assertEquals(sendRequest(server + BASE_API + "policy/list?orderBy=name&token=" + token + "abc", null,
+                GET).getResponseCode(), Response.Status.BAD_REQUEST.getStatusCode());
+        assertEquals(sendRequest(server + BASE_API + "policy/list?orderBy=sourceCluster&token=" + token, null,
+                GET).getResponseCode(), Response.Status.BAD_REQUEST.getStatusCode());
+        assertEquals(sendRequest(server + BASE_API + "instance/list?orderBy=endTime&token=" + token, null,
+                GET).getResponseCode(), Response.Status.BAD_REQUEST.getStatusCode());
+        assertEquals(sendRequest(server + BASE_API + "events/all?orderBy=policyId&token=" + token, null,
+                GET).getResponseCode(), Response.Status.BAD_REQUEST.getStatusCode());
+
         //delete policies at the end
         targetClient.deletePolicy(policy1, false);
         targetClient.deletePolicy(policy2, false);
         targetClient.deletePolicy(policy3, false);
     }
 
+    @Test(dependsOnMethods = "testPairCluster")
+    public void testEventsExport() throws Exception {
+        String api = getTargetBeaconServer() + BASE_API + "events/export?end=" + DateUtil.formatDate(new Date());
+        List<String> records = exportHistory(api, false);
+        assertTrue(records.size() > 1);
+        JSONObject first = new JSONObject(records.get(0));
+        assertTrue(first.has("event"));
+
+        // resume the export after the first record
+        List<String> remaining = exportHistory(api + "&token=" + first.getString("token"), false);
+        assertEquals(remaining, records.subList(1, records.size()));
+    }
+
+    @Test(dependsOnMethods = "testPairCluster")
+    public void testInstanceExport() throws Exception {
+        final String policy1 = getRandomString("export-policy-1");
+        final String policy2 = getRandomString("export-policy-2");
+        for (String policyName : Arrays.asList(policy1, policy2)) {
+            String replicationPath = SOURCE_DIR + UUID.randomUUID().toString() + "/";
+            srcDfsCluster.getFileSystem().mkdirs(new Path(replicationPath));
+            srcDfsCluster.getFileSystem().allowSnapshot(new Path(replicationPath));
+            tgtDfsCluster.getFileSystem().mkdirs(new Path(replicationPath));
+            tgtDfsCluster.getFileSystem().allowSnapshot(new Path(replicationPath));
+            submitAndSchedule(policyName, 10, replicationPath, replicationPath, new Properties());
+        }
+        waitOnCondition(30000, "2 instances of both policies", new Condition() {
+            @Override
+            public boolean exit() throws BeaconClientException {
+                PolicyInstanceList instances1 = targetClient.listPolicyInstances(policy1);
+                PolicyInstanceList instances2 = targetClient.listPolicyInstances(policy2);
+                return instances1 != null && instances1.getResults() >= 2
+                        && instances2 != null && instances2.getResults() >= 2;
+            }
+        });
+        deletePolicy(policy1);
+
+        // the retired instances of the deleted policy are exported, oldest first
+        String api = getTargetBeaconServer() + BASE_API + "instance/export?policyName=" + policy1;
+        List<String> records = exportHistory(api, false);
+        assertTrue(records.size() >= 2);
+        List<String> ids = new ArrayList<>();
+        for (String record : records) {
+            JSONObject instance = new JSONObject(record);
+            assertEquals(instance.getString("name"), policy1);
+            ids.add(instance.getString("id"));
+        }
+        assertTrue(ids.get(0).endsWith("@1"));
+        assertTrue(ids.get(1).endsWith("@2"));
+
+        // without the policy name filter the active instances of the other policy are exported as well
+        List<String> allIds = new ArrayList<>();
+        List<String> otherIds = new ArrayList<>();
+        for (String record : exportHistory(getTargetBeaconServer() + BASE_API + "instance/export", false)) {
+            JSONObject instance = new JSONObject(record);
+            allIds.add(instance.getString("id"));
+            if (policy2.equals(instance.getString("name"))) {
+                otherIds.add(instance.getString("id"));
+            }
+        }
+        assertTrue(allIds.containsAll(ids));
+        assertTrue(otherIds.size() >= 2);
+
+        // resume the export after the first record
+        String token = new JSONObject(records.get(0)).getString("token");
+        assertEquals(exportHistory(api + "&token=" + token, false), records.subList(1, records.size()));
+
+        // the compressed export holds the same records
+        assertEquals(exportHistory(api + "&gzip=true", true), records);
+        String eventApi = getTargetBeaconServer() + BASE_API + "events/export?policyName=" + policy1;
+        List<String> events = exportHistory(eventApi, false);
+        assertFalse(events.isEmpty());
+        assertEquals(exportHistory(eventApi + "&gzip=true", true), events);
+
+        deletePolicy(policy2);
+    }
+
+    private List<String> exportHistory(String api, boolean gzip) throws IOException {
+        HttpURLConnection conn = sendRequest(api, null, GET);
+        assertEquals(conn.getResponseCode(), Response.Status.OK.getStatusCode());
+        assertTrue(conn.getContentType().startsWith(gzip ? "application/gzip" : "application/x-ndjson"));
+        InputStream in = gzip ? new GZIPInputStream(conn.getInputStream()) : conn.getInputStream();
+        List<String> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                records.add(line);
+            }
+        }
+        return records;
+    }
+
     @Test(dependsOnMethods = "testPairCluster")
     public void testDeletePolicy() throws Exception {
         String dataSet = "/tmp/" + UUID.randomUUID();